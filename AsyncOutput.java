@@ -0,0 +1,119 @@
+import java.io.PrintStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/*
+ * A class that writes text to a print stream on a separate thread, so the
+ * thread that produces the text (the test's word loop) doesn't wait for the
+ * console or the file. The text is collected into chunks, and every full chunk
+ * (or flushed chunk) is handed to the writer thread. The producer only waits
+ * if the writer thread falls MAX_PENDING_CHUNKS chunks behind, which bounds
+ * the memory the pending text takes.
+ */
+class AsyncOutput {
+
+	/* The size (in chars) of a full chunk. */
+	private static final int CHUNK_SIZE = 1 << 16;
+
+	/* The maximal number of chunks waiting for the writer thread. */
+	private static final int MAX_PENDING_CHUNKS = 256;
+
+	/* The chunk that tells the writer thread to stop. */
+	private static final String END = new String();
+
+	/* out - The stream the text is written to. */
+	private PrintStream out;
+
+	/* chunk - The text that wasn't handed to the writer thread yet. */
+	private StringBuilder chunk = new StringBuilder();
+
+	/* chunks - The chunks that wait for the writer thread. */
+	private BlockingQueue<String> chunks = new ArrayBlockingQueue<>(
+			MAX_PENDING_CHUNKS);
+
+	/* writer - The writer thread. */
+	private Thread writer;
+
+	/*
+	 * The AsyncOutput class' constructor, which starts the writer thread.
+	 * 		out - The stream the text is written to.
+	 */
+	AsyncOutput(PrintStream out) {
+		this.out = out;
+		writer = new Thread(this::writeChunks, "result-writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/* A method that appends the given text to the output. */
+	void write(CharSequence text) {
+		chunk.append(text);
+		if (chunk.length() >= CHUNK_SIZE) {
+			flush();
+		}
+	}
+
+	/*
+	 * A method that hands the text that was appended so far to the writer
+	 * thread, without waiting for it to be written.
+	 */
+	void flush() {
+		if (chunk.length() > 0) {
+			put(chunk.toString());
+			chunk.setLength(0);
+		}
+	}
+
+	/* A method that waits until all the text was written. */
+	void close() {
+		flush();
+		put(END);
+		boolean interrupted = false;
+		while (writer.isAlive()) {
+			try {
+				writer.join();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/* A method that hands the given chunk to the writer thread. */
+	private void put(String text) {
+		boolean interrupted = false;
+		while (true) {
+			try {
+				chunks.put(text);
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/*
+	 * The writer thread's method, which writes the chunks in the order they
+	 * were handed over, and flushes the stream whenever it has nothing more to
+	 * write.
+	 */
+	private void writeChunks() {
+		try {
+			String text;
+			while ((text = chunks.take()) != END) {
+				out.print(text);
+				if (chunks.isEmpty()) {
+					out.flush();
+				}
+			}
+			out.flush();
+		} catch (InterruptedException e) { // Nobody interrupts the writer.
+		}
+	}
+
+}
@@ -0,0 +1,417 @@
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+ * A class that tests a batch of grammars in a single JVM, on a shared pool of
+ * worker threads, and prints a consolidated report with a line per grammar:
+ * whether it is ambiguous (and its shortest ambiguous word), not ambiguous up
+ * to the maximal word length, or inconclusive (and why). Every grammar gets
+ * its own budgets: a maximal word length, a wall clock time limit for its
+ * whole test, and a maximal number of derivation steps per word.
+ *
+ * Usage:
+ *     java GrammarAmbiguityTester [-maxLength N] [-timeLimit SECONDS]
+ *             [-maxSteps N] [-engine ENGINE] [-threads N]
+ *             [-checkpoints DIRECTORY] [-grammarCache DIRECTORY]
+ *             [-sampleMaxLength N] [-sampleMinLength N]
+ *             [-sampleTimeLimit SECONDS] [-seed N] [-prune true|false]
+ *             grammar...
+ * Every grammar argument is either a grammar file, a directory (all of its
+ * files are tested), or '@' followed by a list file. Every line of a list file
+ * holds a grammar file (relative to the list file's directory), optionally
+ * followed by its own maximal word length, time limit and maximal number of
+ * steps. Empty lines and lines that start with '#' are ignored. With
+ * -checkpoints, the progress of every grammar is kept in the given directory,
+ * so the grammars that were tested before are not tested again (see the
+ * Checkpoint class). With -grammarCache, the compiled grammars are kept in the
+ * given directory, so they are not read again (see the CompiledGrammarCache
+ * class). With -sampleMaxLength, a grammar that has no ambiguous word up to its
+ * maximal word length is tested with random longer words of its language, up
+ * to the given length, for up to -sampleTimeLimit seconds (see the
+ * WordSampler class). With -prune true, the words of the vocabulary that no
+ * word of the language starts like are skipped (see the ViableWordGenerator
+ * class).
+ */
+public class BatchTester {
+
+	/* The default budgets of every grammar. */
+	private static final int DEFAULT_MAX_LENGTH = 5;
+	private static final long DEFAULT_TIME_LIMIT_SECONDS = 60;
+	private static final long DEFAULT_MAX_STEPS = 10000000;
+
+	/* A grammar to test, with its budgets. */
+	private static class Job {
+
+		File file;
+		int maxLength;
+		long timeLimitSeconds;
+		long maxSteps;
+
+		Job(File file, int maxLength, long timeLimitSeconds, long maxSteps) {
+			this.file = file;
+			this.maxLength = maxLength;
+			this.timeLimitSeconds = timeLimitSeconds;
+			this.maxSteps = maxSteps;
+		}
+
+	}
+
+	/* maxLength - The default maximal word length. */
+	private int maxLength = DEFAULT_MAX_LENGTH;
+
+	/* timeLimitSeconds - The default time limit of a grammar's test. */
+	private long timeLimitSeconds = DEFAULT_TIME_LIMIT_SECONDS;
+
+	/* maxSteps - The default maximal number of derivation steps per word. */
+	private long maxSteps = DEFAULT_MAX_STEPS;
+
+	/* engine - The engine that counts the left derivations of every word. */
+	private TesterOptions.Engine engine = TesterOptions.Engine.DERIVATION_SEARCH;
+
+	/*
+	 * checkpointDirectory - The directory in which the progress of every
+	 * grammar's test is kept, or null.
+	 */
+	private File checkpointDirectory;
+
+	/*
+	 * grammarCacheDirectory - The directory in which the compiled grammars are
+	 * kept, or null.
+	 */
+	private File grammarCacheDirectory;
+
+	/*
+	 * The options of the random words: their maximal and minimal lengths, the
+	 * time they may be tested for, and their seed (see the TesterOptions
+	 * class).
+	 */
+	private int sampleMaxLength;
+	private int sampleMinLength;
+	private long sampleTimeLimitSeconds = 10;
+	private long seed;
+
+	/*
+	 * pruneVocabulary - States whether the words that no word of the language
+	 * starts like are skipped.
+	 */
+	private boolean pruneVocabulary;
+
+	/* numOfThreads - The number of worker threads. */
+	private int numOfThreads = Runtime.getRuntime().availableProcessors();
+
+	/* jobs - The grammars to test, in the order they are reported. */
+	private List<Job> jobs = new ArrayList<>();
+
+	public static void main(String[] args) {
+		BatchTester batch = new BatchTester();
+		try {
+			batch.parseArguments(args);
+		} catch (IllegalArgumentException | FileNotFoundException e) {
+			System.out.println(e.getMessage());
+			System.out
+					.println("Usage: java GrammarAmbiguityTester [-maxLength N] [-timeLimit SECONDS] [-maxSteps N] [-engine ENGINE] [-threads N] [-checkpoints DIRECTORY] [-grammarCache DIRECTORY] [-sampleMaxLength N] [-sampleMinLength N] [-sampleTimeLimit SECONDS] [-seed N] [-prune true|false] (file | directory | @listFile)...");
+			return;
+		}
+		batch.run();
+	}
+
+	/*
+	 * A method that reads the options and the grammars from the command line
+	 * arguments.
+	 */
+	private void parseArguments(String[] args) throws FileNotFoundException {
+		int i = 0;
+		for (; i < args.length && args[i].startsWith("-"); i += 2) {
+			if (i + 1 == args.length) {
+				throw new IllegalArgumentException("The option " + args[i]
+						+ " needs a value...");
+			}
+			String value = args[i + 1];
+			switch (args[i]) {
+			case "-maxLength":
+				maxLength = Integer.parseInt(value);
+				break;
+			case "-timeLimit":
+				timeLimitSeconds = Long.parseLong(value);
+				break;
+			case "-maxSteps":
+				maxSteps = Long.parseLong(value);
+				break;
+			case "-engine":
+				engine = TesterOptions.Engine.valueOf(value);
+				break;
+			case "-threads":
+				numOfThreads = Integer.parseInt(value);
+				break;
+			case "-checkpoints":
+				checkpointDirectory = new File(value);
+				break;
+			case "-grammarCache":
+				grammarCacheDirectory = new File(value);
+				break;
+			case "-sampleMaxLength":
+				sampleMaxLength = Integer.parseInt(value);
+				break;
+			case "-sampleMinLength":
+				sampleMinLength = Integer.parseInt(value);
+				break;
+			case "-sampleTimeLimit":
+				sampleTimeLimitSeconds = Long.parseLong(value);
+				break;
+			case "-seed":
+				seed = Long.parseLong(value);
+				break;
+			case "-prune":
+				if (!value.equals("true") && !value.equals("false")) {
+					throw new IllegalArgumentException(
+							"The option -prune should be true or false...");
+				}
+				pruneVocabulary = value.equals("true");
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown option: " + args[i]);
+			}
+		}
+		for (; i < args.length; ++i) {
+			if (args[i].startsWith("@")) {
+				readListFile(new File(args[i].substring(1)));
+				continue;
+			}
+			File file = new File(args[i]);
+			if (file.isDirectory()) {
+				File[] files = file.listFiles(File::isFile);
+				Arrays.sort(files);
+				for (File grammarFile : files) {
+					jobs.add(new Job(grammarFile, maxLength, timeLimitSeconds,
+							maxSteps));
+				}
+			} else {
+				jobs.add(new Job(file, maxLength, timeLimitSeconds, maxSteps));
+			}
+		}
+		if (jobs.isEmpty()) {
+			throw new IllegalArgumentException("No grammars to test...");
+		}
+	}
+
+	/* A method that reads the grammars and their budgets from a list file. */
+	private void readListFile(File listFile) throws FileNotFoundException {
+		try (Scanner scanner = new Scanner(listFile)) {
+			while (scanner.hasNextLine()) {
+				String line = scanner.nextLine().trim();
+				if (line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+				String[] fields = line.split("\\s+");
+				File file = new File(fields[0]);
+				if (!file.isAbsolute()) {
+					file = new File(listFile.getAbsoluteFile().getParentFile(),
+							fields[0]);
+				}
+				jobs.add(new Job(file, fields.length > 1 ? Integer
+						.parseInt(fields[1]) : maxLength,
+						fields.length > 2 ? Long.parseLong(fields[2])
+								: timeLimitSeconds,
+						fields.length > 3 ? Long.parseLong(fields[3])
+								: maxSteps));
+			}
+		}
+	}
+
+	/*
+	 * A method that tests all the grammars on the worker pool, and prints the
+	 * report once they were all tested.
+	 */
+	private void run() {
+		long start = System.nanoTime();
+		ExecutorService pool = Executors.newFixedThreadPool(numOfThreads);
+		List<Future<GrammarResult>> futures = new ArrayList<>();
+		try {
+			for (Job job : jobs) {
+				futures.add(pool.submit(() -> test(job)));
+			}
+			int nameLength = 0;
+			for (Job job : jobs) {
+				nameLength = Math.max(nameLength, job.file.getPath().length());
+			}
+			int numOfAmbiguous = 0;
+			int numOfNotAmbiguous = 0;
+			int numOfInconclusive = 0;
+			int numOfFailed = 0;
+			for (int i = 0; i < jobs.size(); ++i) {
+				GrammarResult result = waitFor(futures.get(i));
+				System.out.println(String.format("%-" + nameLength
+						+ "s  %s (%.1f s)", jobs.get(i).file.getPath(),
+						result.describe(jobs.get(i).maxLength),
+						result.nanos / 1e9));
+				if (result.error != null) {
+					++numOfFailed;
+				} else if (result.verdict == ResultSink.Verdict.AMBIGUOUS
+						|| result.verdict == ResultSink.Verdict.AMBIGUOUS_IN_AN_EMPTY_WAY) {
+					++numOfAmbiguous;
+				} else if (result.verdict == ResultSink.Verdict.NOT_AMBIGUOUS
+						|| result.verdict == ResultSink.Verdict.PROVED_NOT_AMBIGUOUS) {
+					++numOfNotAmbiguous;
+				} else {
+					++numOfInconclusive;
+				}
+			}
+			System.out.println(String.format(
+					"Tested %d grammars in %.1f s: %d ambiguous, %d not ambiguous, %d inconclusive, %d failed",
+					jobs.size(), (System.nanoTime() - start) / 1e9,
+					numOfAmbiguous, numOfNotAmbiguous, numOfInconclusive,
+					numOfFailed));
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/* A method that tests a single grammar, on a worker thread. */
+	private GrammarResult test(Job job) {
+		TesterOptions options = new TesterOptions();
+		options.setEngine(engine);
+		options.setMaxDerivationSteps(job.maxSteps);
+		options.setMaxTestMillis(job.timeLimitSeconds * 1000);
+		options.setCheckpointDirectory(checkpointDirectory);
+		options.setGrammarCacheDirectory(grammarCacheDirectory);
+		options.setSampleMaxLength(sampleMaxLength);
+		options.setSampleMinLength(sampleMinLength);
+		options.setSampleMillis(sampleTimeLimitSeconds * 1000);
+		options.setSampleSeed(seed);
+		options.setPruneVocabulary(pruneVocabulary);
+		GrammarResult result = new GrammarResult();
+		long start = System.nanoTime();
+		try {
+			GrammarAmbiguityTester.testGrammar(job.file.getPath(),
+					job.maxLength, options, result);
+		} catch (OutOfMemoryError e) { // The other grammars can still be
+										// tested once this one's memory is
+										// collected.
+			result.error = "out of memory";
+		} catch (RuntimeException e) {
+			result.error = "can't test it (" + e + ")";
+		}
+		result.nanos = System.nanoTime() - start;
+		return result;
+	}
+
+	/* A method that waits for the result of a grammar's test. */
+	private static GrammarResult waitFor(Future<GrammarResult> future) {
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					return future.get();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				} catch (ExecutionException e) {
+					GrammarResult result = new GrammarResult();
+					result.error = "can't test it (" + e.getCause() + ")";
+					return result;
+				}
+			}
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/*
+	 * A result sink that keeps the outcome of a single grammar's test, for the
+	 * report, and drops everything else.
+	 */
+	private static class GrammarResult implements ResultSink {
+
+		CFG cfg;
+		Verdict verdict;
+		long numOfInconclusiveWords;
+		String inconclusiveReason;
+		String ambiguousWord;
+		String error;
+		long nanos;
+
+		/*
+		 * The length of the words that are currently tested, and the maximal
+		 * length whose words were all tested.
+		 */
+		int currentLength = -1;
+		int testedLength = -1;
+
+		public void start(CFG cfg) {
+			this.cfg = cfg;
+		}
+
+		public void message(String message) {
+			if (cfg == null) { // The grammar couldn't be loaded.
+				error = message;
+			}
+		}
+
+		public void note(String note) {
+		}
+
+		public void wordTested(int[] word, int result,
+				String inconclusiveReason, List<int[]> leftDerivationsFound) {
+			if (word.length > currentLength) {
+				testedLength = currentLength;
+				currentLength = word.length;
+			}
+			if (result == DerivationCounter.INCONCLUSIVE
+					&& this.inconclusiveReason == null) {
+				this.inconclusiveReason = inconclusiveReason;
+			}
+		}
+
+		public void wordLengthTested(int length) {
+			testedLength = length;
+		}
+
+		public void ambiguousWord(int[] word, List<int[]> leftDerivationsFound) {
+			ambiguousWord = GrammarAmbiguityTester.buildWord(cfg, word);
+		}
+
+		public void verdict(Verdict verdict, long numOfInconclusiveWords) {
+			this.verdict = verdict;
+			this.numOfInconclusiveWords = numOfInconclusiveWords;
+		}
+
+		public void close() {
+		}
+
+		/* A method that describes the outcome, for the report. */
+		String describe(int maxLength) {
+			if (error != null) {
+				return "error: " + error;
+			}
+			switch (verdict) {
+			case AMBIGUOUS:
+				return "ambiguous: " + ambiguousWord;
+			case AMBIGUOUS_IN_AN_EMPTY_WAY:
+				return "ambiguous in an empty way (no terminals)";
+			case NOT_AMBIGUOUS:
+				return "not ambiguous up to length " + maxLength;
+			case PROVED_NOT_AMBIGUOUS:
+				return "not ambiguous (proved without testing words)";
+			case INCONCLUSIVE:
+				return "inconclusive: " + numOfInconclusiveWords
+						+ " words were inconclusive (" + inconclusiveReason
+						+ ")";
+			default:
+				return "inconclusive: out of time"
+						+ (testedLength >= 0 ? ", not ambiguous up to length "
+								+ testedLength : "");
+			}
+		}
+
+	}
+
+}
@@ -1,30 +1,27 @@
+import java.io.DataOutputStream;
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.LinkedHashMap;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Scanner;
+import java.util.PriorityQueue;
 import java.util.Set;
 
 /* CFG - A class that represents a context-free grammar. */
 class CFG {
 
-	/*
-	 * terminals - A string set the contains the grammar's terminals, which are
-	 * represented by strings
-	 */
-	private Set<String> terminals = new LinkedHashSet<>();
-
-	/*
-	 * derivationRules - A map that represents the grammar's derivation rules.
-	 * It maps every nonterminal, which is a string, to a set of rules, each
-	 * represented by a list of literals (terminals or nonterminals).
-	 */
-	private Map<String, Set<List<String>>> derivationRules = new LinkedHashMap<>();
-
 	/*
 	 * isVocabularyEmpty - A boolean that states whether the grammar's
 	 * vocabulary is empty or not. The grammar's vocabulary is the Kleene star
@@ -39,96 +36,418 @@ class CFG {
 	 */
 	private Set<String> nullableNonterminals = new LinkedHashSet<>();
 
+	/*
+	 * symbols - A list that maps every symbol id to the symbol's name. The
+	 * grammar is compiled to dense integer ids: the nonterminals get the ids
+	 * 0 to numOfNonterminals - 1 (in the order of their first derivation rule,
+	 * so the starting nonterminal is always 0), and the terminals get the ids
+	 * that follow them.
+	 */
+	private List<String> symbols = new ArrayList<>();
+
+	/* symbolIds - The inverse mapping of the symbols list. */
+	private Map<String, Integer> symbolIds = new HashMap<>();
+
+	/* numOfNonterminals - The number of grammar's nonterminals. */
+	private int numOfNonterminals;
+
+	/* terminalIds - The ids of the grammar's terminals, in increasing order. */
+	private int[] terminalIds;
+
+	/*
+	 * terminalSymbols - A bitset that contains the ids of all grammar's
+	 * terminals.
+	 */
+	private BitSet terminalSymbols = new BitSet();
+
+	/*
+	 * nullableSymbols - A bitset that contains the ids of all grammar's
+	 * nullable nonterminals.
+	 */
+	private BitSet nullableSymbols = new BitSet();
+
+	/*
+	 * productiveSymbols - A bitset that contains the ids of all grammar's
+	 * productive symbols: the terminals, and the nonterminals from which at
+	 * least one word can be derived.
+	 */
+	private BitSet productiveSymbols = new BitSet();
+
+	/*
+	 * reachableSymbols - A bitset that contains the ids of all the
+	 * nonterminals that appear in some string derived from the starting
+	 * nonterminal, using only the productive rules.
+	 */
+	private BitSet reachableSymbols = new BitSet();
+
+	/*
+	 * minYieldLengths - Maps every nonterminal id to the length of the
+	 * shortest word that can be derived from it, or Integer.MAX_VALUE if no
+	 * word can be derived from it. Lengths that don't fit into an int are
+	 * saturated at Integer.MAX_VALUE too.
+	 */
+	private int[] minYieldLengths;
+
+	/*
+	 * firstSets - Maps every nonterminal id to the set of the ids of the
+	 * terminals that a word derived from it can start with.
+	 */
+	private BitSet[] firstSets;
+
+	/*
+	 * numOfUselessRules - The number of derivation rules that were dropped,
+	 * because they contain an unproductive literal, or their nonterminal is
+	 * not reachable.
+	 */
+	private int numOfUselessRules;
+
+	/*
+	 * ruleHeads - Maps every derivation rule id to the id of the nonterminal
+	 * on the rule's left side.
+	 */
+	private int[] ruleHeads;
+
+	/*
+	 * ruleBodies - Maps every derivation rule id to the ids of the literals on
+	 * the rule's right side. Epsilons are stripped once here, so an epsilon
+	 * rule has an empty body.
+	 */
+	private int[][] ruleBodies;
+
+	/*
+	 * nonterminalRules - Maps every nonterminal id to the ids of its
+	 * derivation rules, in the order they appear in the grammar's file. The
+	 * useless rules are dropped (see the analyze method), so a nonterminal
+	 * that is not productive or not reachable has no rules at all.
+	 */
+	private int[][] nonterminalRules;
+
 	/*
 	 * The CFG class' constructor. 
-	 * 		file - A file that contains the grammar's representation.
-	 */
-	CFG(File file) throws FileNotFoundException {
-		Scanner scanner = new Scanner(file);
-		while (scanner.hasNextLine()) {
-			String[] ruleArr = scanner.nextLine().split("\\s+->\\s+");
-			Set<List<String>> ruleSet = new LinkedHashSet<>();
-			for (String str : ruleArr[1].split("\\s+\\|\\s+")) {
-				List<String> strList = new ArrayList<>(Arrays.asList(str
-						.split("\\s+")));
-				terminals.addAll(strList); // First, add all grammar's literals
-											// to the terminals set.
-				ruleSet.add(strList);
-			}
-			String nonterminal = ruleArr[0];
-			if (derivationRules.containsKey(nonterminal)) { // If
-															// derivationRules
-															// already contains
-															// a derivation rule
-															// for nonterminal.
-				Set<List<String>> oldRuleSet = derivationRules.get(nonterminal);
-				oldRuleSet.addAll(ruleSet);
-				derivationRules.put(nonterminal, oldRuleSet);
-			} else {
-				derivationRules.put(nonterminal, ruleSet);
-			}
-		}
-		terminals.removeAll(derivationRules.keySet()); // The grammar's
-														// nonterminals are
-														// exactly the keys of
-														// the derivationRules
-														// map, so they should
-														// be removed from
-														// terminals set.
-		boolean grammarContainsEpsilon = terminals.remove("epsilon"); // Epsilon
-																		// is
-																		// not a
-																		// terminal...
-		if (terminals.isEmpty() && !grammarContainsEpsilon) { // If the grammar
-																// does not
-																// contain any
-																// terminals,
-																// and the
-																// epsilon
-																// literal, it's
-																// vocabulary is
-																// empty.
-			isVocabularyEmpty = true;
-		}
-		computeNullables();
-		scanner.close();
-	}
-
-	/*
-	 * A method that computes the grammar's nullable nonterminals, and adds them
-	 * to the nullableNonterminals field.
-	 */
-	private void computeNullables() {
-		List<String> epsilon = new ArrayList<>();
-		epsilon.add("epsilon");
-		for (String nonterminal : derivationRules.keySet()) {
-			if (derivationRules.get(nonterminal).contains(epsilon)) {
-				nullableNonterminals.add(nonterminal);
-			}
-		}
-		boolean updatedNullables;
-		do {
-			updatedNullables = false;
-			for (String nonterminal : derivationRules.keySet()) {
-				for (List<String> rule : derivationRules.get(nonterminal)) {
-					if (nullableNonterminals.containsAll(rule)) {
-						if (nullableNonterminals.add(nonterminal)) {
-							updatedNullables = true;
-						}
+	 * 		file - A file that contains the grammar's representation (see the
+	 * 			   GrammarReader class).
+	 */
+	CFG(File file) throws IOException {
+		this(new GrammarReader(file));
+	}
+
+	/*
+	 * A constructor that compiles and analyzes the grammar the given reader
+	 * reads.
+	 */
+	private CFG(GrammarReader reader) throws IOException {
+		reader.read();
+		symbols = reader.getSymbols();
+		numOfNonterminals = reader.getNumOfNonterminals();
+		terminalIds = reader.getTerminalIds();
+		ruleHeads = reader.getRuleHeads();
+		ruleBodies = reader.getRuleBodies();
+		nonterminalRules = reader.getNonterminalRules();
+		isVocabularyEmpty = reader.isVocabularyEmpty();
+		indexSymbols();
+		analyze();
+	}
+
+	/*
+	 * A method that compiles and analyzes a grammar that is given as text, in
+	 * the format of a grammar file (see the GrammarReader class). It throws a
+	 * GrammarFormatException if the text is malformed.
+	 */
+	static CFG fromText(String text) throws IOException {
+		return new CFG(new GrammarReader(text));
+	}
+
+	/* A constructor for the read method, which sets all the fields itself. */
+	private CFG() {
+	}
+
+	/*
+	 * A method that builds the symbolIds map and the terminalSymbols bitset
+	 * from the symbols list and the terminalIds array.
+	 */
+	private void indexSymbols() {
+		for (int id = 0; id < symbols.size(); ++id) {
+			symbolIds.put(symbols.get(id), id);
+		}
+		for (int id : terminalIds) {
+			terminalSymbols.set(id);
+		}
+	}
+
+	/*
+	 * A method that analyzes the compiled grammar. It computes the productive
+	 * and the nullable nonterminals, the minimal yield lengths, the FIRST sets
+	 * and the reachable nonterminals, and then drops the useless rules, which
+	 * cannot take part in the derivation of any word. Every analysis is a
+	 * worklist algorithm, which visits every occurrence of a nonterminal in a
+	 * rule body a constant number of times, so the whole analysis takes about
+	 * linear time in the grammar's size.
+	 */
+	private void analyze() {
+		productiveSymbols = computeClosure(terminalSymbols);
+		productiveSymbols.or(terminalSymbols);
+		nullableSymbols = computeClosure(new BitSet());
+		for (int id = nullableSymbols.nextSetBit(0); id >= 0; id = nullableSymbols
+				.nextSetBit(id + 1)) {
+			nullableNonterminals.add(symbols.get(id));
+		}
+		computeMinYieldLengths();
+		computeFirstSets();
+		computeReachables();
+		dropUselessRules();
+	}
+
+	/*
+	 * A method that returns, for every nonterminal id, the ids of the rules
+	 * whose bodies contain the nonterminal, once for every occurrence.
+	 */
+	private int[][] computeOccurrences() {
+		int[] numOfOccurrences = new int[numOfNonterminals];
+		for (int[] body : ruleBodies) {
+			for (int literal : body) {
+				if (!terminalSymbols.get(literal)) {
+					++numOfOccurrences[literal];
+				}
+			}
+		}
+		int[][] occurrences = new int[numOfNonterminals][];
+		for (int nonterminal = 0; nonterminal < numOfNonterminals; ++nonterminal) {
+			occurrences[nonterminal] = new int[numOfOccurrences[nonterminal]];
+		}
+		Arrays.fill(numOfOccurrences, 0);
+		for (int rule = 0; rule < ruleBodies.length; ++rule) {
+			for (int literal : ruleBodies[rule]) {
+				if (!terminalSymbols.get(literal)) {
+					occurrences[literal][numOfOccurrences[literal]++] = rule;
+				}
+			}
+		}
+		return occurrences;
+	}
+
+	/*
+	 * A method that computes the smallest set of nonterminals that contains
+	 * the nonterminal of every rule whose literals are all in the given set of
+	 * symbols or in the computed set itself. The productive nonterminals are
+	 * the closure of the terminals, and the nullable nonterminals are the
+	 * closure of the empty set.
+	 * 		baseSymbols - The symbols that are known to be in the set.
+	 */
+	private BitSet computeClosure(BitSet baseSymbols) {
+		int[][] occurrences = computeOccurrences();
+		int[] numOfUnresolved = new int[ruleBodies.length]; // The number of
+															// literals of
+															// every rule that
+															// are not known
+															// to be in the set.
+		BitSet closure = new BitSet();
+		int[] worklist = new int[numOfNonterminals];
+		int worklistSize = 0;
+		for (int rule = 0; rule < ruleBodies.length; ++rule) {
+			for (int literal : ruleBodies[rule]) {
+				if (!baseSymbols.get(literal)) {
+					++numOfUnresolved[rule];
+				}
+			}
+			if (numOfUnresolved[rule] == 0 && !closure.get(ruleHeads[rule])) {
+				closure.set(ruleHeads[rule]);
+				worklist[worklistSize++] = ruleHeads[rule];
+			}
+		}
+		while (worklistSize > 0) {
+			int nonterminal = worklist[--worklistSize];
+			for (int rule : occurrences[nonterminal]) {
+				if (--numOfUnresolved[rule] == 0
+						&& !closure.get(ruleHeads[rule])) {
+					closure.set(ruleHeads[rule]);
+					worklist[worklistSize++] = ruleHeads[rule];
+				}
+			}
+		}
+		return closure;
+	}
+
+	/*
+	 * A method that computes the nonterminals that are reachable from the
+	 * starting nonterminal, using only the rules whose literals are all
+	 * productive.
+	 */
+	private void computeReachables() {
+		int[] worklist = new int[numOfNonterminals];
+		int worklistSize = 0;
+		reachableSymbols.set(getStartSymbol());
+		worklist[worklistSize++] = getStartSymbol();
+		while (worklistSize > 0) {
+			int nonterminal = worklist[--worklistSize];
+			for (int rule : nonterminalRules[nonterminal]) {
+				if (!areAllProductive(ruleBodies[rule])) {
+					continue;
+				}
+				for (int literal : ruleBodies[rule]) {
+					if (!terminalSymbols.get(literal)
+							&& !reachableSymbols.get(literal)) {
+						reachableSymbols.set(literal);
+						worklist[worklistSize++] = literal;
 					}
 				}
 			}
-		} while (updatedNullables);
+		}
 	}
 
-	/* A getter for the terminals field. */
-	public Set<String> getTerminals() {
-		return terminals;
+	/*
+	 * A method that checks whether all the literals in the given rule body are
+	 * productive.
+	 */
+	private boolean areAllProductive(int[] body) {
+		for (int literal : body) {
+			if (!productiveSymbols.get(literal)) {
+				return false;
+			}
+		}
+		return true;
 	}
 
-	/* A getter for the derivationRules field. */
-	public Map<String, Set<List<String>>> getDerivationRules() {
-		return derivationRules;
+	/*
+	 * A method that drops the useless rules (the rules that contain an
+	 * unproductive literal, or whose nonterminal is not reachable) from the
+	 * compiled rule arrays, and gives the rules that are left consecutive ids,
+	 * in their original order.
+	 */
+	private void dropUselessRules() {
+		int[] newRuleIds = new int[ruleBodies.length];
+		int numOfUsefulRules = 0;
+		for (int rule = 0; rule < ruleBodies.length; ++rule) {
+			if (reachableSymbols.get(ruleHeads[rule])
+					&& areAllProductive(ruleBodies[rule])) {
+				ruleHeads[numOfUsefulRules] = ruleHeads[rule];
+				ruleBodies[numOfUsefulRules] = ruleBodies[rule];
+				newRuleIds[rule] = numOfUsefulRules++;
+			} else {
+				newRuleIds[rule] = -1;
+			}
+		}
+		numOfUselessRules = ruleBodies.length - numOfUsefulRules;
+		ruleHeads = Arrays.copyOf(ruleHeads, numOfUsefulRules);
+		ruleBodies = Arrays.copyOf(ruleBodies, numOfUsefulRules);
+		for (int nonterminal = 0; nonterminal < numOfNonterminals; ++nonterminal) {
+			int[] rules = nonterminalRules[nonterminal];
+			int numOfRules = 0;
+			for (int rule : rules) {
+				if (newRuleIds[rule] >= 0) {
+					rules[numOfRules++] = newRuleIds[rule];
+				}
+			}
+			nonterminalRules[nonterminal] = Arrays.copyOf(rules, numOfRules);
+		}
+	}
+
+	/*
+	 * A method that computes the minimal yield length of every nonterminal,
+	 * using Knuth's generalization of Dijkstra's algorithm: a nonterminal's
+	 * length is final once it is the smallest in the queue, and a rule is
+	 * offered to the queue once the lengths of all the nonterminals in its
+	 * body are final.
+	 */
+	private void computeMinYieldLengths() {
+		int[][] occurrences = computeOccurrences();
+		minYieldLengths = new int[numOfNonterminals];
+		Arrays.fill(minYieldLengths, Integer.MAX_VALUE);
+		int[] numOfUnresolved = new int[ruleBodies.length];
+		long[] ruleLengths = new long[ruleBodies.length]; // The sum of the
+															// lengths that are
+															// final so far.
+		PriorityQueue<long[]> queue = new PriorityQueue<>((a, b) -> Long
+				.compare(a[0], b[0])); // Pairs of a length and a nonterminal.
+		for (int rule = 0; rule < ruleBodies.length; ++rule) {
+			for (int literal : ruleBodies[rule]) {
+				if (terminalSymbols.get(literal)) {
+					++ruleLengths[rule];
+				} else {
+					++numOfUnresolved[rule];
+				}
+			}
+			if (numOfUnresolved[rule] == 0) {
+				queue.add(new long[] { ruleLengths[rule], ruleHeads[rule] });
+			}
+		}
+		BitSet finalSymbols = new BitSet();
+		while (!queue.isEmpty()) {
+			long[] pair = queue.poll();
+			int nonterminal = (int) pair[1];
+			if (finalSymbols.get(nonterminal)) {
+				continue;
+			}
+			finalSymbols.set(nonterminal);
+			minYieldLengths[nonterminal] = (int) Math.min(pair[0],
+					Integer.MAX_VALUE);
+			for (int rule : occurrences[nonterminal]) {
+				ruleLengths[rule] += minYieldLengths[nonterminal];
+				if (--numOfUnresolved[rule] == 0) {
+					queue.add(new long[] { ruleLengths[rule], ruleHeads[rule] });
+				}
+			}
+		}
+	}
+
+	/*
+	 * A method that computes the FIRST set of every nonterminal. Every
+	 * productive rule adds the terminals that can start it directly, and makes
+	 * the FIRST set of its nonterminal contain the FIRST sets of the
+	 * nonterminals that can start it. These inclusions are then propagated
+	 * with a worklist, until nothing changes.
+	 */
+	private void computeFirstSets() {
+		firstSets = new BitSet[numOfNonterminals];
+		List<List<Integer>> supersets = new ArrayList<>(); // Maps every
+															// nonterminal to
+															// the nonterminals
+															// whose FIRST sets
+															// contain its FIRST
+															// set.
+		for (int nonterminal = 0; nonterminal < numOfNonterminals; ++nonterminal) {
+			firstSets[nonterminal] = new BitSet();
+			supersets.add(new ArrayList<>());
+		}
+		for (int rule = 0; rule < ruleBodies.length; ++rule) {
+			if (!areAllProductive(ruleBodies[rule])) {
+				continue;
+			}
+			for (int literal : ruleBodies[rule]) {
+				if (terminalSymbols.get(literal)) {
+					firstSets[ruleHeads[rule]].set(literal);
+					break;
+				}
+				if (literal != ruleHeads[rule]) {
+					supersets.get(literal).add(ruleHeads[rule]);
+				}
+				if (!nullableSymbols.get(literal)) {
+					break;
+				}
+			}
+		}
+		ArrayDeque<Integer> worklist = new ArrayDeque<>();
+		BitSet inWorklist = new BitSet();
+		for (int nonterminal = 0; nonterminal < numOfNonterminals; ++nonterminal) {
+			if (!firstSets[nonterminal].isEmpty()) {
+				worklist.add(nonterminal);
+				inWorklist.set(nonterminal);
+			}
+		}
+		while (!worklist.isEmpty()) {
+			int nonterminal = worklist.poll();
+			inWorklist.clear(nonterminal);
+			for (int superset : supersets.get(nonterminal)) {
+				BitSet added = (BitSet) firstSets[nonterminal].clone();
+				added.andNot(firstSets[superset]);
+				if (!added.isEmpty()) {
+					firstSets[superset].or(added);
+					if (!inWorklist.get(superset)) {
+						worklist.add(superset);
+						inWorklist.set(superset);
+					}
+				}
+			}
+		}
 	}
 
 	/* A getter for the isVocabularyEmpty field. */
@@ -141,4 +460,330 @@ class CFG {
 		return nullableNonterminals;
 	}
 
+	/* A getter for the symbols field, by symbol id. */
+	public String getSymbolName(int id) {
+		return symbols.get(id);
+	}
+
+	/*
+	 * A getter for the symbolIds field, by symbol name, which returns -1 if
+	 * the grammar has no such symbol.
+	 */
+	public int getSymbolId(String name) {
+		Integer id = symbolIds.get(name);
+		return (id != null) ? id : -1;
+	}
+
+	/* A method that returns the number of grammar's symbols. */
+	public int getNumOfSymbols() {
+		return symbols.size();
+	}
+
+	/* A getter for the numOfNonterminals field. */
+	public int getNumOfNonterminals() {
+		return numOfNonterminals;
+	}
+
+	/* A method that returns the id of the starting nonterminal. */
+	public int getStartSymbol() {
+		return 0;
+	}
+
+	/* A getter for the terminalIds field. */
+	public int[] getTerminalIds() {
+		return terminalIds;
+	}
+
+	/* A getter for the terminalSymbols field. */
+	public BitSet getTerminalSymbols() {
+		return terminalSymbols;
+	}
+
+	/* A getter for the nullableSymbols field. */
+	public BitSet getNullableSymbols() {
+		return nullableSymbols;
+	}
+
+	/* A getter for the productiveSymbols field. */
+	public BitSet getProductiveSymbols() {
+		return productiveSymbols;
+	}
+
+	/* A getter for the reachableSymbols field. */
+	public BitSet getReachableSymbols() {
+		return reachableSymbols;
+	}
+
+	/*
+	 * A method that returns the length of the shortest word that can be
+	 * derived from the given symbol (1 for a terminal), or Integer.MAX_VALUE
+	 * if no word can be derived from it.
+	 */
+	public int getMinYieldLength(int symbol) {
+		return terminalSymbols.get(symbol) ? 1 : minYieldLengths[symbol];
+	}
+
+	/*
+	 * A getter for the firstSets field, by nonterminal id. The returned bitset
+	 * should not be changed.
+	 */
+	public BitSet getFirstSet(int nonterminal) {
+		return firstSets[nonterminal];
+	}
+
+	/* A getter for the numOfUselessRules field. */
+	public int getNumOfUselessRules() {
+		return numOfUselessRules;
+	}
+
+	/*
+	 * A method that returns a canonical hash of the grammar (a SHA-256 digest,
+	 * in hex), which two grammar files share if they have the same starting
+	 * nonterminal, the same terminals and the same useful derivation rules, no
+	 * matter how their rules are ordered, split into lines or spaced.
+	 */
+	public String getCanonicalHash() {
+		List<String> rules = new ArrayList<>();
+		for (int rule = 0; rule < ruleHeads.length; ++rule) {
+			rules.add(getRuleString(rule));
+		}
+		Collections.sort(rules);
+		List<String> sortedTerminals = new ArrayList<>();
+		for (int terminal : terminalIds) {
+			sortedTerminals.add(symbols.get(terminal));
+		}
+		Collections.sort(sortedTerminals);
+		StringBuilder grammar = new StringBuilder(symbols.get(getStartSymbol()))
+				.append('\n').append(String.join(" ", sortedTerminals))
+				.append('\n');
+		for (String rule : rules) {
+			grammar.append(rule).append('\n');
+		}
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(
+					grammar.toString().getBytes(StandardCharsets.UTF_8));
+			StringBuilder hash = new StringBuilder();
+			for (byte b : digest) {
+				hash.append(String.format("%02x", b));
+			}
+			return hash.toString();
+		} catch (NoSuchAlgorithmException e) { // Every JVM has SHA-256.
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/*
+	 * A method that returns the given rule in the canonical form "A -> x y"
+	 * (an epsilon rule is "A ->"), which identifies it across the versions of
+	 * the grammar, no matter what its id is.
+	 */
+	public String getRuleString(int rule) {
+		StringBuilder ruleString = new StringBuilder(
+				symbols.get(ruleHeads[rule])).append(" ->");
+		for (int literal : ruleBodies[rule]) {
+			ruleString.append(' ').append(symbols.get(literal));
+		}
+		return ruleString.toString();
+	}
+
+	/* A getter for the ruleHeads field. */
+	public int[] getRuleHeads() {
+		return ruleHeads;
+	}
+
+	/* A getter for the ruleBodies field. */
+	public int[][] getRuleBodies() {
+		return ruleBodies;
+	}
+
+	/* A getter for the nonterminalRules field. */
+	public int[][] getNonterminalRules() {
+		return nonterminalRules;
+	}
+
+	/*
+	 * A method that writes the compiled and analyzed grammar in a binary form
+	 * (interned symbols and flat int arrays), which the read method maps back
+	 * without reading or analyzing the grammar file again (see the
+	 * CompiledGrammarCache class).
+	 */
+	void write(DataOutputStream out) throws IOException {
+		out.writeInt(symbols.size());
+		for (String symbol : symbols) {
+			byte[] name = symbol.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(name.length);
+			out.write(name);
+		}
+		out.writeInt(numOfNonterminals);
+		out.writeInt(isVocabularyEmpty ? 1 : 0);
+		out.writeInt(numOfUselessRules);
+		writeInts(out, terminalIds);
+		writeInts(out, ruleHeads);
+		int[] bodyLengths = new int[ruleBodies.length];
+		for (int rule = 0; rule < ruleBodies.length; ++rule) {
+			bodyLengths[rule] = ruleBodies[rule].length;
+		}
+		writeInts(out, bodyLengths);
+		for (int[] body : ruleBodies) {
+			for (int literal : body) {
+				out.writeInt(literal);
+			}
+		}
+		writeInts(out, minYieldLengths);
+		writeBitSet(out, nullableSymbols);
+		writeBitSet(out, productiveSymbols);
+		writeBitSet(out, reachableSymbols);
+		for (BitSet firstSet : firstSets) { // As the ids of its terminals,
+											// which are far from 0.
+			writeInts(out, firstSet.stream().toArray());
+		}
+	}
+
+	/* A method that writes an int array, after its length. */
+	private static void writeInts(DataOutputStream out, int[] ints)
+			throws IOException {
+		out.writeInt(ints.length);
+		for (int i : ints) {
+			out.writeInt(i);
+		}
+	}
+
+	/* A method that writes a bitset, as the length and the words of a long array. */
+	private static void writeBitSet(DataOutputStream out, BitSet bitSet)
+			throws IOException {
+		long[] words = bitSet.toLongArray();
+		out.writeInt(words.length);
+		for (long word : words) {
+			out.writeLong(word);
+		}
+	}
+
+	/*
+	 * A method that reads a grammar that was written by the write method,
+	 * starting at the buffer's position. It throws an IOException if a length
+	 * doesn't fit in the rest of the buffer or a symbol id is out of range, so
+	 * a corrupt buffer never allocates much more than its own size, and a
+	 * RuntimeException (such as a BufferUnderflowException) if the buffer is
+	 * otherwise corrupt.
+	 */
+	static CFG read(ByteBuffer buffer) throws IOException {
+		CFG cfg = new CFG();
+		String[] names = new String[readLength(buffer, 4)];
+		for (int id = 0; id < names.length; ++id) {
+			byte[] name = new byte[readLength(buffer, 1)];
+			buffer.get(name);
+			names[id] = new String(name, StandardCharsets.UTF_8);
+		}
+		cfg.symbols = Arrays.asList(names);
+		cfg.numOfNonterminals = buffer.getInt();
+		if (cfg.numOfNonterminals < 0 || cfg.numOfNonterminals > names.length) {
+			throw new IOException("Corrupt number of nonterminals: "
+					+ cfg.numOfNonterminals);
+		}
+		cfg.isVocabularyEmpty = buffer.getInt() != 0;
+		cfg.numOfUselessRules = buffer.getInt();
+		cfg.terminalIds = readSymbolIds(buffer, names.length);
+		cfg.ruleHeads = readInts(buffer);
+		int[] bodyLengths = readInts(buffer);
+		cfg.ruleBodies = new int[bodyLengths.length][];
+		for (int rule = 0; rule < bodyLengths.length; ++rule) {
+			cfg.ruleBodies[rule] = readInts(buffer,
+					checkLength(buffer, bodyLengths[rule], 4));
+		}
+		cfg.minYieldLengths = readInts(buffer);
+		cfg.nullableSymbols = readBitSet(buffer);
+		cfg.productiveSymbols = readBitSet(buffer);
+		cfg.reachableSymbols = readBitSet(buffer);
+		cfg.firstSets = new BitSet[cfg.numOfNonterminals];
+		for (int nonterminal = 0; nonterminal < cfg.numOfNonterminals; ++nonterminal) {
+			cfg.firstSets[nonterminal] = new BitSet();
+			for (int terminal : readSymbolIds(buffer, names.length)) {
+				cfg.firstSets[nonterminal].set(terminal);
+			}
+		}
+		cfg.indexSymbols();
+		int[] numOfRules = new int[cfg.numOfNonterminals]; // The rules of
+															// every
+															// nonterminal have
+															// consecutive ids.
+		for (int head : cfg.ruleHeads) {
+			++numOfRules[head];
+		}
+		cfg.nonterminalRules = new int[cfg.numOfNonterminals][];
+		int ruleId = 0;
+		for (int nonterminal = 0; nonterminal < cfg.numOfNonterminals; ++nonterminal) {
+			cfg.nonterminalRules[nonterminal] = new int[numOfRules[nonterminal]];
+			for (int i = 0; i < numOfRules[nonterminal]; ++i) {
+				cfg.nonterminalRules[nonterminal][i] = ruleId++;
+			}
+		}
+		for (int id = cfg.nullableSymbols.nextSetBit(0); id >= 0; id = cfg.nullableSymbols
+				.nextSetBit(id + 1)) {
+			cfg.nullableNonterminals.add(names[id]);
+		}
+		return cfg;
+	}
+
+	/*
+	 * A method that reads the length of an array whose elements take at least
+	 * the given number of bytes, and throws an IOException if the array can't
+	 * fit in the rest of the buffer.
+	 */
+	static int readLength(ByteBuffer buffer, int elementSize)
+			throws IOException {
+		return checkLength(buffer, buffer.getInt(), elementSize);
+	}
+
+	/*
+	 * A method that checks that an array of the given length, whose elements
+	 * take at least the given number of bytes, fits in the rest of the
+	 * buffer, and returns the length.
+	 */
+	private static int checkLength(ByteBuffer buffer, int length,
+			int elementSize) throws IOException {
+		if (length < 0 || length > buffer.remaining() / elementSize) {
+			throw new IOException("Corrupt array length: " + length);
+		}
+		return length;
+	}
+
+	/* A method that reads an int array that was written by writeInts. */
+	private static int[] readInts(ByteBuffer buffer) throws IOException {
+		return readInts(buffer, readLength(buffer, 4));
+	}
+
+	/* A method that reads the given number of ints, in bulk. */
+	private static int[] readInts(ByteBuffer buffer, int length) {
+		int[] ints = new int[length];
+		IntBuffer view = buffer.asIntBuffer();
+		view.get(ints);
+		buffer.position(buffer.position() + 4 * length);
+		return ints;
+	}
+
+	/*
+	 * A method that reads an int array of symbol ids that was written by
+	 * writeInts, and throws an IOException if an id is not one of the given
+	 * number of symbols, since the ids are set in bitsets.
+	 */
+	private static int[] readSymbolIds(ByteBuffer buffer, int numOfSymbols)
+			throws IOException {
+		int[] ids = readInts(buffer);
+		for (int id : ids) {
+			if (id < 0 || id >= numOfSymbols) {
+				throw new IOException("Corrupt symbol id: " + id);
+			}
+		}
+		return ids;
+	}
+
+	/* A method that reads a bitset that was written by writeBitSet. */
+	private static BitSet readBitSet(ByteBuffer buffer) throws IOException {
+		long[] words = new long[readLength(buffer, 8)];
+		LongBuffer view = buffer.asLongBuffer();
+		view.get(words);
+		buffer.position(buffer.position() + 8 * words.length);
+		return BitSet.valueOf(words);
+	}
+
 }
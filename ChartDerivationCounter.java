@@ -0,0 +1,470 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * A class that counts the number of different left derivations of a word with
+ * a chart parser, in O(n^3) time for a word of length n (for a fixed grammar),
+ * instead of searching through the left derivations one by one.
+ *
+ * The chart has a column for every position j of the word. Column j holds the
+ * Earley items that end at j: for every rule A -> X1 ... XL, every dot
+ * position d and every origin i <= j, the number of different ways in which
+ * X1 ... Xd derive the word's tokens i to j - 1. Column j also holds, for every
+ * nonterminal A and every origin i, the number of different ways (parse trees)
+ * in which A derives these tokens. All the counts are saturated at 2, since
+ * "two or more" is all the ambiguity test needs to know.
+ *
+ * Left recursion and nullable rules need no special treatment: the counts of a
+ * single chart cell are computed by iterating until they stop changing, and
+ * the saturation makes sure this always happens (a cell with infinitely many
+ * parse trees simply gets the count 2).
+ *
+ * Every count gets a stamp when it first becomes positive. The stamps are
+ * used to extract the left derivations from the chart: following only counts
+ * with smaller stamps always leads to a finite parse tree, even when the
+ * grammar has cycles.
+ *
+ * Column j only depends on the word's first j tokens, so the columns of the
+ * prefix that a word shares with the previous word are kept as they are. The
+ * words are tested in lexicographical order, in which most words only differ
+ * from the previous word in their last token, so most words only fill their
+ * last column, instead of all of them.
+ */
+class ChartDerivationCounter implements DerivationCounter {
+
+	/* cfg - The tested grammar, in its compiled form. */
+	private CFG cfg;
+
+	/*
+	 * itemBases - Maps every rule id to the index of the rule's first item.
+	 * The item of rule r with the dot at position d has the index
+	 * itemBases[r] + d.
+	 */
+	private int[] itemBases;
+
+	/* numOfItems - The number of Earley items of the grammar. */
+	private int numOfItems;
+
+	/*
+	 * The chart. Column j holds the counts of the items that end at position j
+	 * in itemCounts[j][item * (j + 1) + origin], and the counts of the
+	 * nonterminals in nonterminalCounts[j][nonterminal * (j + 1) + origin].
+	 * The stamps are held in the same positions of itemStamps and
+	 * nonterminalStamps. The columns are reused between words.
+	 */
+	private byte[][] itemCounts = new byte[0][];
+	private int[][] itemStamps = new int[0][];
+	private byte[][] nonterminalCounts = new byte[0][];
+	private int[][] nonterminalStamps = new int[0][];
+
+	/* nextStamp - The stamp that will be given to the next positive count. */
+	private int nextStamp;
+
+	/*
+	 * filledPrefix - The tokens of the last word the chart was filled for,
+	 * and numOfFilledColumns - the number of its columns that are filled
+	 * (column j is filled for the first j tokens of filledPrefix).
+	 */
+	private int[] filledPrefix = new int[0];
+	private int numOfFilledColumns;
+
+	/*
+	 * columnEndStamps - The value of nextStamp after every filled column was
+	 * filled, so the stamps of the columns that follow a kept prefix are the
+	 * stamps they would get if the whole chart was filled again.
+	 */
+	private int[] columnEndStamps = new int[0];
+
+	/* word - The word that is currently tested. */
+	private int[] word;
+
+	/*
+	 * trail - The rule ids of the left derivation that is currently extracted
+	 * from the chart, in the order they are applied.
+	 */
+	private int[] trail = new int[16];
+
+	/* trailLength - The number of rule ids in trail. */
+	private int trailLength;
+
+	/*
+	 * The ChartDerivationCounter class' constructor.
+	 * 		cfg - The tested grammar.
+	 */
+	ChartDerivationCounter(CFG cfg) {
+		this.cfg = cfg;
+		int[][] ruleBodies = cfg.getRuleBodies();
+		itemBases = new int[ruleBodies.length];
+		for (int rule = 0; rule < ruleBodies.length; ++rule) {
+			itemBases[rule] = numOfItems;
+			numOfItems += ruleBodies[rule].length + 1;
+		}
+	}
+
+	/*
+	 * A method that counts the number of different left derivations of the
+	 * given word, by filling the chart column after column, starting after the
+	 * columns of the prefix it shares with the previous word. The chart never
+	 * gives up, so the result is never INCONCLUSIVE.
+	 */
+	public int countDerivations(int[] word, List<int[]> leftDerivationsFound) {
+		this.word = word;
+		ensureColumns(word.length);
+		int numOfSharedColumns = countSharedColumns(word);
+		nextStamp = (numOfSharedColumns > 0)
+				? columnEndStamps[numOfSharedColumns - 1] : 1;
+		for (int j = numOfSharedColumns; j <= word.length; ++j) {
+			fillColumn(j);
+			columnEndStamps[j] = nextStamp;
+		}
+		if (filledPrefix.length < word.length) {
+			filledPrefix = Arrays.copyOf(filledPrefix, Math.max(word.length,
+					2 * filledPrefix.length));
+		}
+		int firstChangedToken = Math.max(numOfSharedColumns - 1, 0);
+		System.arraycopy(word, firstChangedToken, filledPrefix,
+				firstChangedToken, word.length - firstChangedToken);
+		numOfFilledColumns = word.length + 1;
+		int result = nonterminalCount(cfg.getStartSymbol(), 0, word.length);
+		if (result > 0) {
+			leftDerivationsFound.add(extractDerivation(false));
+		}
+		if (result > 1) {
+			leftDerivationsFound.add(extractDerivation(true));
+		}
+		return result;
+	}
+
+	/* The chart never gives up, so there is no reason to report. */
+	public String getInconclusiveReason() {
+		return null;
+	}
+
+	/*
+	 * A method that returns the number of the chart's filled columns that
+	 * hold the given word's columns too: column j does if it's filled, and
+	 * the word's first j tokens are the tokens it was filled for.
+	 */
+	private int countSharedColumns(int[] word) {
+		int numOfSharedColumns = Math.min(numOfFilledColumns, word.length + 1);
+		for (int j = 1; j < numOfSharedColumns; ++j) {
+			if (filledPrefix[j - 1] != word[j - 1]) {
+				return j;
+			}
+		}
+		return numOfSharedColumns;
+	}
+
+	/* A method that makes sure the chart has a column for every position. */
+	private void ensureColumns(int wordLength) {
+		int oldNumOfColumns = itemCounts.length;
+		if (oldNumOfColumns > wordLength) {
+			return;
+		}
+		int numOfNonterminals = cfg.getNumOfNonterminals();
+		itemCounts = Arrays.copyOf(itemCounts, wordLength + 1);
+		itemStamps = Arrays.copyOf(itemStamps, wordLength + 1);
+		nonterminalCounts = Arrays.copyOf(nonterminalCounts, wordLength + 1);
+		nonterminalStamps = Arrays.copyOf(nonterminalStamps, wordLength + 1);
+		columnEndStamps = Arrays.copyOf(columnEndStamps, wordLength + 1);
+		for (int j = oldNumOfColumns; j <= wordLength; ++j) {
+			itemCounts[j] = new byte[numOfItems * (j + 1)];
+			itemStamps[j] = new int[numOfItems * (j + 1)];
+			nonterminalCounts[j] = new byte[numOfNonterminals * (j + 1)];
+			nonterminalStamps[j] = new int[numOfNonterminals * (j + 1)];
+		}
+	}
+
+	/*
+	 * A method that fills the given column of the chart. The cells of the
+	 * column are filled from the shortest span to the longest, since a cell
+	 * only depends on cells of shorter spans, cells of earlier columns, and
+	 * itself.
+	 */
+	private void fillColumn(int j) {
+		Arrays.fill(itemCounts[j], (byte) 0);
+		Arrays.fill(nonterminalCounts[j], (byte) 0);
+		for (int rule = 0; rule < itemBases.length; ++rule) {
+			int index = itemBases[rule] * (j + 1) + j;
+			itemCounts[j][index] = 1; // The items with the dot at the start
+										// derive epsilon.
+			itemStamps[j][index] = 0;
+		}
+		for (int i = j; i >= 0; --i) {
+			fillCell(i, j);
+		}
+	}
+
+	/*
+	 * A method that computes the counts of all the items and nonterminals that
+	 * derive the word's tokens i to j - 1, by iterating until the counts stop
+	 * changing.
+	 */
+	private void fillCell(int i, int j) {
+		int[][] ruleBodies = cfg.getRuleBodies();
+		int[][] nonterminalRules = cfg.getNonterminalRules();
+		boolean updatedCounts;
+		do {
+			updatedCounts = false;
+			for (int rule = 0; rule < ruleBodies.length; ++rule) {
+				int[] body = ruleBodies[rule];
+				for (int d = 1; d <= body.length; ++d) {
+					int item = itemBases[rule] + d;
+					int count = 0;
+					int literal = body[d - 1];
+					if (cfg.getTerminalSymbols().get(literal)) {
+						if (j > i && word[j - 1] == literal) {
+							count = itemCount(item - 1, i, j - 1);
+						}
+					} else {
+						for (int k = i; k <= j && count < 2; ++k) {
+							count += itemCount(item - 1, i, k)
+									* nonterminalCount(literal, k, j);
+						}
+					}
+					if (setItemCount(item, i, j, count)) {
+						updatedCounts = true;
+					}
+				}
+			}
+			for (int nonterminal = 0; nonterminal < nonterminalRules.length; ++nonterminal) {
+				int count = 0;
+				for (int rule : nonterminalRules[nonterminal]) {
+					count += itemCount(lastItem(rule), i, j);
+				}
+				if (setNonterminalCount(nonterminal, i, j, count)) {
+					updatedCounts = true;
+				}
+			}
+		} while (updatedCounts);
+	}
+
+	/*
+	 * A method that raises the count of the given item to the given count
+	 * (saturated at 2), and returns whether the count was raised.
+	 */
+	private boolean setItemCount(int item, int i, int j, int count) {
+		int index = item * (j + 1) + i;
+		count = Math.min(count, 2);
+		if (count <= itemCounts[j][index]) {
+			return false;
+		}
+		if (itemCounts[j][index] == 0) {
+			itemStamps[j][index] = nextStamp++;
+		}
+		itemCounts[j][index] = (byte) count;
+		return true;
+	}
+
+	/*
+	 * A method that raises the count of the given nonterminal to the given
+	 * count (saturated at 2), and returns whether the count was raised.
+	 */
+	private boolean setNonterminalCount(int nonterminal, int i, int j,
+			int count) {
+		int index = nonterminal * (j + 1) + i;
+		count = Math.min(count, 2);
+		if (count <= nonterminalCounts[j][index]) {
+			return false;
+		}
+		if (nonterminalCounts[j][index] == 0) {
+			nonterminalStamps[j][index] = nextStamp++;
+		}
+		nonterminalCounts[j][index] = (byte) count;
+		return true;
+	}
+
+	private int itemCount(int item, int i, int j) {
+		return itemCounts[j][item * (j + 1) + i];
+	}
+
+	private int itemStamp(int item, int i, int j) {
+		return itemStamps[j][item * (j + 1) + i];
+	}
+
+	private int nonterminalCount(int nonterminal, int i, int j) {
+		return nonterminalCounts[j][nonterminal * (j + 1) + i];
+	}
+
+	private int nonterminalStamp(int nonterminal, int i, int j) {
+		return nonterminalStamps[j][nonterminal * (j + 1) + i];
+	}
+
+	/* A method that returns the item of the given rule with the dot at the end. */
+	private int lastItem(int rule) {
+		return itemBases[rule] + cfg.getRuleBodies()[rule].length;
+	}
+
+	/*
+	 * A method that extracts a left derivation of the whole word from the
+	 * chart, as the ids of the applied rules. The first left derivation is the
+	 * one that follows the stamps, and the second one (which can be extracted
+	 * only if the word has two left derivations) is always different from it.
+	 * The parse tree is walked with an explicit stack of tasks, each holding a
+	 * nonterminal, a span of the word and whether the task should produce the
+	 * first or the second parse tree of the nonterminal over the span.
+	 */
+	private int[] extractDerivation(boolean second) {
+		trailLength = 0;
+		List<int[]> tasks = new ArrayList<>();
+		tasks.add(new int[] { cfg.getStartSymbol(), 0, word.length,
+				second ? 1 : 0 });
+		while (!tasks.isEmpty()) {
+			int[] task = tasks.remove(tasks.size() - 1);
+			int nonterminal = task[0];
+			int i = task[1];
+			int j = task[2];
+			int rule = firstRule(nonterminal, i, j);
+			int secondChild = -1;
+			int[] bounds;
+			if (task[3] == 0) {
+				bounds = firstBounds(rule, i, j);
+			} else {
+				int otherRule = otherRule(nonterminal, i, j, rule);
+				if (otherRule >= 0) { // Another rule makes a different tree.
+					rule = otherRule;
+					bounds = firstBounds(rule, i, j);
+				} else {
+					bounds = secondBounds(rule, i, j);
+					secondChild = bounds[bounds.length - 1];
+				}
+			}
+			appendToTrail(rule);
+			int[] body = cfg.getRuleBodies()[rule];
+			for (int d = body.length; d >= 1; --d) { // Pushing the children in
+														// reverse order, so
+														// the leftmost child is
+														// handled first.
+				if (!cfg.getTerminalSymbols().get(body[d - 1])) {
+					tasks.add(new int[] { body[d - 1], bounds[d - 1],
+							bounds[d], d == secondChild ? 1 : 0 });
+				}
+			}
+		}
+		return Arrays.copyOf(trail, trailLength);
+	}
+
+	/*
+	 * A method that returns the rule that the first parse tree of the given
+	 * nonterminal over the given span starts with.
+	 */
+	private int firstRule(int nonterminal, int i, int j) {
+		int stamp = nonterminalStamp(nonterminal, i, j);
+		for (int rule : cfg.getNonterminalRules()[nonterminal]) {
+			int item = lastItem(rule);
+			if (itemCount(item, i, j) > 0 && itemStamp(item, i, j) < stamp) {
+				return rule;
+			}
+		}
+		throw new IllegalStateException("The chart has no parse tree of "
+				+ cfg.getSymbolName(nonterminal));
+	}
+
+	/*
+	 * A method that returns a rule of the given nonterminal, other than the
+	 * given rule, that derives the given span, or -1 if there isn't one.
+	 */
+	private int otherRule(int nonterminal, int i, int j, int rule) {
+		for (int otherRule : cfg.getNonterminalRules()[nonterminal]) {
+			if (otherRule != rule && itemCount(lastItem(otherRule), i, j) > 0) {
+				return otherRule;
+			}
+		}
+		return -1;
+	}
+
+	/*
+	 * A method that splits the given span between the literals of the given
+	 * rule's body, the way the first parse tree does. bounds[d - 1] to
+	 * bounds[d] is the span of the d-th literal.
+	 */
+	private int[] firstBounds(int rule, int i, int j) {
+		int[] bounds = new int[cfg.getRuleBodies()[rule].length + 2];
+		bounds[bounds.length - 2] = j;
+		bounds[bounds.length - 1] = -1;
+		fillFirstBounds(rule, bounds.length - 2, i, bounds);
+		return bounds;
+	}
+
+	/*
+	 * A method that fills the bounds of the rule's literals up to the d-th
+	 * one, following the stamps, given that the item of the rule with the dot
+	 * at position d ends at bounds[d].
+	 */
+	private void fillFirstBounds(int rule, int d, int i, int[] bounds) {
+		int[] body = cfg.getRuleBodies()[rule];
+		for (; d >= 1; --d) {
+			int end = bounds[d];
+			int item = itemBases[rule] + d;
+			int literal = body[d - 1];
+			if (cfg.getTerminalSymbols().get(literal)) {
+				bounds[d - 1] = end - 1;
+				continue;
+			}
+			int stamp = itemStamp(item, i, end);
+			for (int k = i; k <= end; ++k) {
+				if (itemCount(item - 1, i, k) > 0
+						&& itemStamp(item - 1, i, k) < stamp
+						&& nonterminalCount(literal, k, end) > 0
+						&& nonterminalStamp(literal, k, end) < stamp) {
+					bounds[d - 1] = k;
+					break;
+				}
+			}
+		}
+	}
+
+	/*
+	 * A method that splits the given span between the literals of the given
+	 * rule's body, when the rule's item has two left derivations over the
+	 * span, so that the resulting parse tree differs from the first one: either
+	 * the span is split differently, or one child (whose index is returned in
+	 * the last cell of the bounds) should take its second parse tree.
+	 */
+	private int[] secondBounds(int rule, int i, int j) {
+		int[] body = cfg.getRuleBodies()[rule];
+		int[] bounds = new int[body.length + 2];
+		bounds[body.length] = j;
+		bounds[body.length + 1] = -1;
+		for (int d = body.length; d >= 1; --d) {
+			int end = bounds[d];
+			int literal = body[d - 1];
+			int item = itemBases[rule] + d;
+			if (cfg.getTerminalSymbols().get(literal)) {
+				bounds[d - 1] = end - 1; // The item's previous item must have
+											// two left derivations.
+				continue;
+			}
+			int[] firstChoice = new int[bounds.length];
+			firstChoice[d] = end;
+			fillFirstBounds(rule, d, i, firstChoice);
+			int firstSplit = firstChoice[d - 1];
+			for (int k = i; k <= end; ++k) {
+				if (k != firstSplit && itemCount(item - 1, i, k) > 0
+						&& nonterminalCount(literal, k, end) > 0) {
+					bounds[d - 1] = k; // A different split makes a different
+										// tree.
+					fillFirstBounds(rule, d - 1, i, bounds);
+					return bounds;
+				}
+			}
+			bounds[d - 1] = firstSplit;
+			if (nonterminalCount(literal, firstSplit, end) > 1) {
+				bounds[body.length + 1] = d;
+				fillFirstBounds(rule, d - 1, i, bounds);
+				return bounds;
+			}
+		}
+		throw new IllegalStateException("The chart has no second parse tree");
+	}
+
+	/* A method that appends the given rule id to the trail. */
+	private void appendToTrail(int rule) {
+		if (trailLength == trail.length) {
+			trail = Arrays.copyOf(trail, trailLength * 2);
+		}
+		trail[trailLength++] = rule;
+	}
+
+}
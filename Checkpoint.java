@@ -0,0 +1,622 @@
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/*
+ * A class that keeps the progress of a grammar's test in a file, so a test
+ * that stopped (or crashed) can be resumed where it stopped, and a test of
+ * longer words doesn't test the shorter words again. The files are kept in a
+ * cache directory, and are named by the canonical hash of the grammar (see
+ * the CFG.getCanonicalHash method), so every file of the same grammar shares
+ * them.
+ *
+ * The progress is the maximal length whose words were all tested, the number
+ * of inconclusive words of every such length, and the last tested word of the
+ * next length (with the number of inconclusive words up to it). The words are
+ * tested in the order of the grammar's terminals, so the last tested word is
+ * only used if the terminals are in the same order, and otherwise the test
+ * resumes at the first word of the next length. An ambiguous word is never
+ * recorded as tested, so a resumed test finds it again, and reports its left
+ * derivations. The progress is only kept for the test options that can change
+ * a word's result (see the getOptionsKey method), so a test with larger
+ * budgets, or with another engine, starts over, and tests the inconclusive
+ * words again.
+ *
+ * Every checkpoint also keeps a snapshot of its grammar, and every grammar
+ * file points to the checkpoints of its last MAX_TESTED_VERSIONS tested
+ * versions, so when a grammar file is changed, the test of the new version
+ * compares it with the previous version that was tested up to the largest
+ * length (see the GrammarChange class), and only tests the words that the
+ * changes can affect, up to that length.
+ * The results of the other words are reused, which is why the inconclusive
+ * words themselves are kept too (up to MAX_RECORDED_INCONCLUSIVE_WORDS of
+ * them, and a checkpoint with more of them is not reused).
+ */
+class Checkpoint {
+
+	/* The time between two saves of the progress, in nanoseconds. */
+	private static final long SAVE_INTERVAL_NANOS = 5000000000L;
+
+	/* The maximal number of inconclusive words that are kept. */
+	static final int MAX_RECORDED_INCONCLUSIVE_WORDS = 1000;
+
+	/* The maximal number of tested versions a grammar file points to. */
+	static final int MAX_TESTED_VERSIONS = 16;
+
+	/* directory - The directory the checkpoint files are kept in. */
+	private File directory;
+
+	/*
+	 * grammarFile - The grammar file that was tested, or null for the
+	 * checkpoint of a previous version.
+	 */
+	private File grammarFile;
+
+	/* hash - The canonical hash of the grammar (see CFG.getCanonicalHash). */
+	private String hash;
+
+	/* file - The file the progress is kept in. */
+	private File file;
+
+	/* cfg - The tested grammar, in its compiled form. */
+	private CFG cfg;
+
+	/* sink - The sink the errors are reported to. */
+	private ResultSink sink;
+
+	/* tokenOrder - The names of the grammar's terminals, in their order. */
+	private String tokenOrder;
+
+	/*
+	 * optionsKey - The test options that can change a word's result (see the
+	 * getOptionsKey method).
+	 */
+	private String optionsKey;
+
+	/*
+	 * savedOptionsKey - The options key the loaded progress was saved with, or
+	 * null.
+	 */
+	private String savedOptionsKey;
+
+	/* testedLength - The maximal length whose words were all tested, or -1. */
+	private int testedLength = -1;
+
+	/*
+	 * inconclusiveWords - The number of inconclusive words of every length up
+	 * to testedLength.
+	 */
+	private List<Long> inconclusiveWords = new ArrayList<>();
+
+	/*
+	 * lastWord - The last tested word of the length testedLength + 1, or null
+	 * if none of its words was tested.
+	 */
+	private int[] lastWord;
+
+	/*
+	 * partialInconclusiveWords - The number of inconclusive words of the
+	 * length testedLength + 1, up to lastWord.
+	 */
+	private long partialInconclusiveWords;
+
+	/*
+	 * inconclusiveWordList - The inconclusive words, as strings, unless there
+	 * are too many of them, in which case inconclusiveWordsDropped is set.
+	 */
+	private List<String> inconclusiveWordList = new ArrayList<>();
+	private boolean inconclusiveWordsDropped;
+
+	/*
+	 * baseHash - The canonical hash of the previous version of the grammar,
+	 * whose results are reused, or null.
+	 */
+	private String baseHash;
+
+	/* change - The change from the previous version of the grammar, or null. */
+	private GrammarChange change;
+
+	/*
+	 * isSnapshotSaved - States whether the grammar's snapshot, and the pointer
+	 * of the grammar file to it, were saved.
+	 */
+	private boolean isSnapshotSaved;
+
+	/* lastSaveNanos - The System.nanoTime value of the last save. */
+	private long lastSaveNanos = System.nanoTime();
+
+	/*
+	 * failed - States whether writing the file failed, in which case the test
+	 * goes on without saving its progress.
+	 */
+	private boolean failed;
+
+	private Checkpoint(File directory, File grammarFile, String hash, CFG cfg,
+			String optionsKey, ResultSink sink) {
+		this.directory = directory;
+		this.optionsKey = optionsKey;
+		this.grammarFile = grammarFile;
+		this.hash = hash;
+		this.file = new File(directory, hash + ".checkpoint");
+		this.cfg = cfg;
+		this.sink = sink;
+		StringBuilder names = new StringBuilder();
+		for (int token : cfg.getTerminalIds()) {
+			names.append(names.length() > 0 ? " " : "").append(
+					cfg.getSymbolName(token));
+		}
+		tokenOrder = names.toString();
+	}
+
+	/*
+	 * A method that opens the checkpoint of the given grammar in the given
+	 * directory, and loads its progress if it was tested before, and the
+	 * previous version of the grammar file if it was changed since it was
+	 * tested. Errors are reported to the given sink, and the test starts over,
+	 * like it does when the progress was saved with other test options.
+	 */
+	static Checkpoint open(File directory, File grammarFile, CFG cfg,
+			TesterOptions options, ResultSink sink) {
+		String hash = cfg.getCanonicalHash();
+		String optionsKey = getOptionsKey(options);
+		Checkpoint checkpoint = new Checkpoint(directory, grammarFile, hash,
+				cfg, optionsKey, sink);
+		if (checkpoint.file.exists()) {
+			try {
+				checkpoint.load();
+				if (!optionsKey.equals(checkpoint.savedOptionsKey)) {
+					sink.message("The checkpoint file " + checkpoint.file
+							+ " was saved with other test options ("
+							+ checkpoint.savedOptionsKey
+							+ "), so the test starts over...");
+					checkpoint = new Checkpoint(directory, grammarFile, hash,
+							cfg, optionsKey, sink);
+				}
+			} catch (IOException | RuntimeException e) {
+				sink.message("Can't read the checkpoint file "
+						+ checkpoint.file + " (" + e.getMessage()
+						+ "), so the test starts over...");
+				checkpoint = new Checkpoint(directory, grammarFile, hash, cfg,
+						optionsKey, sink);
+			}
+		}
+		List<String> baseHashes = new ArrayList<>();
+		if (!checkpoint.hasProgress()) {
+			baseHashes = checkpoint.readTestedHashes();
+		} else if (checkpoint.baseHash != null) { // The test resumes with the
+													// version it started with.
+			baseHashes.add(checkpoint.baseHash);
+		}
+		checkpoint.baseHash = null;
+		checkpoint.openBase(baseHashes);
+		return checkpoint;
+	}
+
+	/*
+	 * A method that returns the test options that can change a word's result,
+	 * as a string: the engine, the derivation search's budgets, and whether
+	 * the static check narrows the search. The time budget isn't one of them,
+	 * since a word that runs out of time isn't recorded as tested.
+	 */
+	static String getOptionsKey(TesterOptions options) {
+		return "engine=" + options.getEngine() + " maxDerivationSteps="
+				+ options.getMaxDerivationSteps() + " maxDerivationDepth="
+				+ options.getMaxDerivationDepth() + " staticCheck="
+				+ options.isStaticCheck();
+	}
+
+	/*
+	 * A method that returns the hashes of the last tested versions of the
+	 * grammar file, from the most recent one, or an empty list if it wasn't
+	 * tested. A file that was written before the versions were kept only has
+	 * the hash of the last one.
+	 */
+	private List<String> readTestedHashes() {
+		List<String> hashes = new ArrayList<>();
+		Properties properties = new Properties();
+		try (Reader reader = new FileReader(getLatestFile())) {
+			properties.load(reader);
+		} catch (IOException e) {
+			return hashes;
+		}
+		String versions = properties.getProperty("versions",
+				properties.getProperty("hash", ""));
+		for (String version : versions.split(",")) {
+			if (!version.isEmpty() && !hashes.contains(version)) {
+				hashes.add(version);
+			}
+		}
+		return hashes;
+	}
+
+	/*
+	 * A method that picks, among the previous versions of the grammar with the
+	 * given hashes, the one that was tested up to the largest length (the most
+	 * recent one if there are several), and compares it with the tested
+	 * grammar. A version that is tested up to a larger length leaves fewer
+	 * words to test, since the words that are longer than its tested length
+	 * are all tested again.
+	 */
+	private void openBase(List<String> baseHashes) {
+		Checkpoint bestBase = null;
+		for (String baseHash : baseHashes) {
+			if (baseHash.equals(hash)) {
+				continue;
+			}
+			Checkpoint base = openBase(baseHash);
+			if (base != null && (bestBase == null
+					|| base.testedLength > bestBase.testedLength)) {
+				bestBase = base;
+			}
+		}
+		if (bestBase != null) {
+			change = new GrammarChange(bestBase.cfg, cfg, bestBase.testedLength,
+					new HashSet<>(bestBase.inconclusiveWordList));
+			baseHash = bestBase.hash;
+		}
+	}
+
+	/*
+	 * A method that loads the checkpoint and the snapshot of the previous
+	 * version of the grammar with the given hash, and returns it, or null if
+	 * its results can't be reused: if they can't be read, if none of its
+	 * lengths was tested, or if the versions don't start from the same
+	 * nonterminal.
+	 */
+	private Checkpoint openBase(String baseHash) {
+		CFG previous = CompiledGrammarCache.readSnapshot(new File(directory,
+				baseHash + ".grammar"));
+		if (previous == null || !GrammarChange.hasSameStartSymbol(previous, cfg)) {
+			return null;
+		}
+		Checkpoint base = new Checkpoint(directory, null, baseHash, previous,
+				optionsKey, sink);
+		try {
+			base.load();
+		} catch (IOException | RuntimeException e) {
+			return null;
+		}
+		if (base.testedLength < 0 || base.inconclusiveWordsDropped
+				|| !optionsKey.equals(base.savedOptionsKey)) {
+			return null;
+		}
+		return base;
+	}
+
+	/* A method that returns the file that points to the last tested versions. */
+	private File getLatestFile() {
+		return new File(directory, CompiledGrammarCache.getFileKey(grammarFile)
+				+ ".latest");
+	}
+
+	/* A method that loads the progress from the file. */
+	private void load() throws IOException {
+		Properties properties = new Properties();
+		try (Reader reader = new FileReader(file)) {
+			properties.load(reader);
+		}
+		testedLength = Integer.parseInt(properties.getProperty("testedLength"));
+		String counts = properties.getProperty("inconclusiveWords");
+		if (!counts.isEmpty()) {
+			for (String count : counts.split(",")) {
+				inconclusiveWords.add(Long.parseLong(count));
+			}
+		}
+		if (inconclusiveWords.size() != testedLength + 1) {
+			throw new IllegalArgumentException(
+					"the inconclusive words don't match the tested length");
+		}
+		String word = properties.getProperty("lastWord");
+		if (word != null && tokenOrder.equals(properties.getProperty("tokens"))) {
+			lastWord = parseWord(word);
+			partialInconclusiveWords = Long.parseLong(properties
+					.getProperty("partialInconclusiveWords"));
+		}
+		for (int i = 0; properties.containsKey("inconclusiveWord." + i); ++i) {
+			inconclusiveWordList.add(properties.getProperty("inconclusiveWord."
+					+ i));
+		}
+		inconclusiveWordsDropped = Boolean.parseBoolean(properties
+				.getProperty("inconclusiveWordsDropped"));
+		baseHash = properties.getProperty("baseHash");
+		savedOptionsKey = properties.getProperty("options");
+	}
+
+	/* A method that saves the progress to the file, unless saving failed. */
+	void save() {
+		lastSaveNanos = System.nanoTime();
+		if (failed) {
+			return;
+		}
+		Properties properties = new Properties();
+		properties.setProperty("tokens", tokenOrder);
+		properties.setProperty("options", optionsKey);
+		properties.setProperty("testedLength", Integer.toString(testedLength));
+		StringBuilder counts = new StringBuilder();
+		for (long count : inconclusiveWords) {
+			counts.append(counts.length() > 0 ? "," : "").append(count);
+		}
+		properties.setProperty("inconclusiveWords", counts.toString());
+		if (lastWord != null) {
+			properties.setProperty("lastWord",
+					GrammarAmbiguityTester.buildWord(cfg, lastWord));
+			properties.setProperty("partialInconclusiveWords",
+					Long.toString(partialInconclusiveWords));
+		}
+		for (int i = 0; i < inconclusiveWordList.size(); ++i) {
+			properties.setProperty("inconclusiveWord." + i,
+					inconclusiveWordList.get(i));
+		}
+		if (inconclusiveWordsDropped) {
+			properties.setProperty("inconclusiveWordsDropped", "true");
+		}
+		if (baseHash != null) {
+			properties.setProperty("baseHash", baseHash);
+		}
+		try {
+			store(properties, file, "Ambiguity test progress");
+			if (!isSnapshotSaved) { // Once the grammar has progress, it's the
+									// last tested version of its file.
+				File snapshotFile = new File(directory, hash + ".grammar");
+				if (!snapshotFile.exists()) {
+					CompiledGrammarCache.writeSnapshot(cfg, snapshotFile);
+				}
+				StringBuilder versions = new StringBuilder(hash);
+				List<String> previousHashes = readTestedHashes();
+				previousHashes.remove(hash);
+				for (String version : previousHashes.subList(0, Math.min(
+						previousHashes.size(), MAX_TESTED_VERSIONS - 1))) {
+					versions.append(",").append(version);
+				}
+				Properties latest = new Properties();
+				latest.setProperty("hash", hash);
+				latest.setProperty("versions", versions.toString());
+				store(latest, getLatestFile(), "Last tested versions of "
+						+ grammarFile.getAbsolutePath());
+				isSnapshotSaved = true;
+			}
+		} catch (IOException e) {
+			sink.message("Can't write the checkpoint file " + file + " ("
+					+ e.getMessage() + "), so the progress won't be saved...");
+			failed = true;
+		}
+	}
+
+	/*
+	 * A method that writes the given properties to a file, atomically. Tests
+	 * of identical grammars share their checkpoint file, so every write gets
+	 * its own temporary file.
+	 */
+	private static void store(Properties properties, File file, String comment)
+			throws IOException {
+		File directory = file.getAbsoluteFile().getParentFile();
+		directory.mkdirs();
+		File temporaryFile = File.createTempFile(file.getName(), ".tmp",
+				directory);
+		try {
+			try (Writer writer = new FileWriter(temporaryFile)) {
+				properties.store(writer, comment);
+			}
+			Files.move(temporaryFile.toPath(), file.toPath(),
+					StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temporaryFile.toPath());
+		}
+	}
+
+	/*
+	 * A method that records that the test of the given word starts. The words
+	 * of the previous lengths were all tested (or pruned) by then, so they are
+	 * complete, even if the word turns out to be ambiguous.
+	 */
+	void wordStarted(int[] word) {
+		if (word.length - 1 > testedLength) {
+			completeLengths(word.length - 1);
+		}
+	}
+
+	/*
+	 * A method that records a tested word, which wasn't found ambiguous. The
+	 * words must be recorded in the order they were tested, and the progress
+	 * is saved every few seconds. The length is complete once its last word
+	 * is recorded.
+	 */
+	void wordTested(int[] word, boolean inconclusive) {
+		wordStarted(word);
+		if (lastWord == null || lastWord.length != word.length) {
+			lastWord = word.clone();
+		} else {
+			System.arraycopy(word, 0, lastWord, 0, word.length);
+		}
+		if (inconclusive) {
+			++partialInconclusiveWords;
+			recordInconclusiveWord(word);
+		}
+		if (isLastWord(word)) {
+			completeLengths(word.length);
+		}
+		if (System.nanoTime() - lastSaveNanos > SAVE_INTERVAL_NANOS) {
+			save();
+		}
+	}
+
+	/*
+	 * A method that records that all the words of the given length were
+	 * tested, and saves the progress. The length was tested from its first
+	 * word, so the inconclusive words of its part that was tested before are
+	 * dropped, and only the given ones are kept.
+	 * 		numOfInconclusiveWords - The number of inconclusive words of the
+	 * 								 length.
+	 * 		inconclusiveWords - The inconclusive words of the length, which may
+	 * 							be fewer if there were too many of them.
+	 */
+	void lengthTested(int length, long numOfInconclusiveWords,
+			List<int[]> inconclusiveWords) {
+		partialInconclusiveWords = numOfInconclusiveWords;
+		inconclusiveWordList.removeIf(word -> getWordLength(word) == length);
+		for (int[] word : inconclusiveWords) {
+			recordInconclusiveWord(word);
+		}
+		if (inconclusiveWords.size() < numOfInconclusiveWords) {
+			inconclusiveWordsDropped = true;
+		}
+		completeLengths(length);
+		save();
+	}
+
+	/* A method that keeps an inconclusive word, if there is room. */
+	private void recordInconclusiveWord(int[] word) {
+		if (inconclusiveWordList.size() < MAX_RECORDED_INCONCLUSIVE_WORDS) {
+			inconclusiveWordList.add(GrammarAmbiguityTester.buildWord(cfg,
+					word));
+		} else {
+			inconclusiveWordsDropped = true;
+		}
+	}
+
+	/*
+	 * A method that records that all the words up to the given length were
+	 * tested, and saves the progress.
+	 */
+	void allTested(int maxLength) {
+		if (maxLength > testedLength) {
+			completeLengths(maxLength);
+		}
+		save();
+	}
+
+	/*
+	 * A method that records that all the words up to the given length were
+	 * tested. The inconclusive words of the partially tested length are
+	 * counted in it.
+	 */
+	private void completeLengths(int length) {
+		for (int l = testedLength + 1; l <= length; ++l) {
+			inconclusiveWords.add((l == testedLength + 1) ? partialInconclusiveWords
+					: 0L);
+		}
+		testedLength = length;
+		lastWord = null;
+		partialInconclusiveWords = 0;
+	}
+
+	/*
+	 * A method that checks whether the given word is the last word of its
+	 * length, meaning all its tokens are the last token.
+	 */
+	private boolean isLastWord(int[] word) {
+		int[] tokens = cfg.getTerminalIds();
+		for (int token : word) {
+			if (token != tokens[tokens.length - 1]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/* A method that checks whether any progress was recorded. */
+	boolean hasProgress() {
+		return testedLength >= 0 || lastWord != null;
+	}
+
+	/*
+	 * A method that checks whether all the words up to the given length were
+	 * tested. A grammar without terminals has no words other than epsilon.
+	 */
+	boolean isTested(int maxLength) {
+		return testedLength >= maxLength
+				|| (hasProgress() && cfg.getTerminalIds().length == 0);
+	}
+
+	/* A getter for the change field. */
+	GrammarChange getChange() {
+		return change;
+	}
+
+	/* A getter for the testedLength field. */
+	int getTestedLength() {
+		return testedLength;
+	}
+
+	/*
+	 * A method that returns the number of inconclusive words that were
+	 * recorded, up to the given length.
+	 */
+	long getNumOfInconclusiveWords(int maxLength) {
+		long numOfInconclusiveWords = 0;
+		for (int l = 0; l <= Math.min(maxLength, testedLength); ++l) {
+			numOfInconclusiveWords += inconclusiveWords.get(l);
+		}
+		if (maxLength > testedLength) {
+			numOfInconclusiveWords += partialInconclusiveWords;
+		}
+		return numOfInconclusiveWords;
+	}
+
+	/*
+	 * A method that returns the word the test should resume after: the last
+	 * tested word, or the last word of testedLength if no word of the next
+	 * length was tested.
+	 */
+	int[] getResumeWord() {
+		if (lastWord != null) {
+			return lastWord;
+		}
+		int[] tokens = cfg.getTerminalIds();
+		int[] word = new int[testedLength];
+		Arrays.fill(word, tokens.length > 0 ? tokens[tokens.length - 1] : 0);
+		return word;
+	}
+
+	/* A method that describes the recorded progress, for the report. */
+	String describe() {
+		String description = "Resumed from the checkpoint file " + file
+				+ ", in which all the words up to length " + testedLength
+				+ " were tested";
+		if (lastWord != null) {
+			description += ", and the words of length " + (testedLength + 1)
+					+ " up to " + GrammarAmbiguityTester.buildWord(cfg, lastWord);
+		}
+		return description;
+	}
+
+	/* A method that returns the length of a word that was saved by buildWord. */
+	private static int getWordLength(String word) {
+		return word.equals("epsilon") ? 0 : word.split(" ").length;
+	}
+
+	/* A method that parses a word that was saved by buildWord. */
+	private int[] parseWord(String word) {
+		if (word.equals("epsilon")) {
+			return new int[0];
+		}
+		Map<String, Integer> tokenIds = new HashMap<>();
+		for (int token : cfg.getTerminalIds()) {
+			tokenIds.put(cfg.getSymbolName(token), token);
+		}
+		String[] names = word.split(" ");
+		int[] tokens = new int[names.length];
+		for (int i = 0; i < names.length; ++i) {
+			Integer token = tokenIds.get(names[i]);
+			if (token == null) {
+				throw new IllegalArgumentException("unknown token " + names[i]);
+			}
+			tokens[i] = token;
+		}
+		return tokens;
+	}
+
+}
@@ -0,0 +1,146 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/*
+ * A class that keeps compiled grammars in a cache directory, in the binary
+ * form of the CFG.write method, so a grammar that is tested again is mapped
+ * into memory instead of being read, compiled and analyzed again. The cache
+ * file of a grammar file is named by the grammar file's name and a hash of its
+ * absolute path, and it records the path, the size and the modification time
+ * of the grammar file, so it is only used while the grammar file is unchanged.
+ *
+ * The same binary form is used for the snapshots of the tested grammars that
+ * the checkpoints keep (see the Checkpoint class), which are not tied to a
+ * grammar file.
+ */
+class CompiledGrammarCache {
+
+	/* The first int of every cache file, and the version of its format. */
+	private static final int MAGIC = 0x43464743; // "CFGC"
+	private static final int VERSION = 1;
+
+	private CompiledGrammarCache() {
+	}
+
+	/*
+	 * A method that returns the compiled grammar of the given grammar file
+	 * from the cache, or null if it's not in the cache, or the grammar file
+	 * was changed since it was cached, or the cache file can't be read.
+	 */
+	static CFG read(File grammarFile, File cacheDirectory) {
+		return readFile(new File(cacheDirectory, getFileKey(grammarFile)
+				+ ".cfgc"), grammarFile);
+	}
+
+	/*
+	 * A method that writes the compiled grammar of the given grammar file to
+	 * the cache. The cache file is replaced atomically, so a test that reads
+	 * it at the same time never sees a partial file.
+	 */
+	static void write(CFG cfg, File grammarFile, File cacheDirectory)
+			throws IOException {
+		writeFile(cfg, new File(cacheDirectory, getFileKey(grammarFile)
+				+ ".cfgc"), grammarFile);
+	}
+
+	/*
+	 * A method that returns the grammar of the given snapshot file, or null if
+	 * it doesn't exist or can't be read.
+	 */
+	static CFG readSnapshot(File file) {
+		return readFile(file, null);
+	}
+
+	/* A method that writes a snapshot of the given grammar to the given file. */
+	static void writeSnapshot(CFG cfg, File file) throws IOException {
+		writeFile(cfg, file, null);
+	}
+
+	/*
+	 * A method that returns a name for the files that belong to the given
+	 * grammar file: its name and a hash of its absolute path.
+	 */
+	static String getFileKey(File grammarFile) {
+		return grammarFile.getName() + "-"
+				+ Integer.toHexString(grammarFile.getAbsolutePath().hashCode());
+	}
+
+	/*
+	 * A method that maps the given file and reads its grammar, or returns
+	 * null if it can't.
+	 * 		grammarFile - The grammar file the file was compiled from, which
+	 * 					  must be unchanged, or null for a snapshot.
+	 */
+	private static CFG readFile(File file, File grammarFile) {
+		if (!file.isFile()) {
+			return null;
+		}
+		try (FileChannel channel = FileChannel.open(file.toPath(),
+				StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+					0, channel.size());
+			if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+				return null;
+			}
+			if (grammarFile != null) {
+				byte[] path = new byte[CFG.readLength(buffer, 1)];
+				buffer.get(path);
+				if (!new String(path, StandardCharsets.UTF_8)
+						.equals(grammarFile.getAbsolutePath())
+						|| buffer.getLong() != grammarFile.length()
+						|| buffer.getLong() != grammarFile.lastModified()) {
+					return null;
+				}
+			}
+			return CFG.read(buffer);
+		} catch (IOException | RuntimeException e) { // A corrupt file is
+														// compiled again.
+			return null;
+		}
+	}
+
+	/*
+	 * A method that writes the given grammar to the given file, which is
+	 * replaced atomically.
+	 * 		grammarFile - The grammar file the grammar was compiled from, or
+	 * 					  null for a snapshot.
+	 */
+	private static void writeFile(CFG cfg, File file, File grammarFile)
+			throws IOException {
+		File directory = file.getAbsoluteFile().getParentFile();
+		directory.mkdirs();
+		File temporaryFile = File.createTempFile(file.getName(), ".tmp",
+				directory);
+		try {
+			try (DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(Files.newOutputStream(temporaryFile
+							.toPath()), 1 << 16))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				if (grammarFile != null) {
+					byte[] path = grammarFile.getAbsolutePath().getBytes(
+							StandardCharsets.UTF_8);
+					out.writeInt(path.length);
+					out.write(path);
+					out.writeLong(grammarFile.length());
+					out.writeLong(grammarFile.lastModified());
+				}
+				cfg.write(out);
+			}
+			Files.move(temporaryFile.toPath(), file.toPath(),
+					StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temporaryFile.toPath());
+		}
+	}
+
+}
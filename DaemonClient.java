@@ -0,0 +1,115 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/*
+ * A client of a TesterDaemon that listens on a local port, which sends the
+ * text of every given grammar file as a test request, a given number of times,
+ * prints the lines of every request's results, and the round trip time of
+ * every request (from sending it until its "done" line was read), so the
+ * latency of the daemon can be checked. The repeated requests of a grammar are
+ * answered from the daemon's caches.
+ *
+ * Usage:
+ *     java DaemonClient -port N [-maxLength N] [-repeat N] [-quiet true]
+ *             grammarFile...
+ * With -quiet, only the verdicts and the times are printed.
+ */
+public class DaemonClient {
+
+	public static void main(String[] args) throws IOException {
+		int port = -1;
+		int maxLength = 5;
+		int repeat = 1;
+		boolean quiet = false;
+		int i = 0;
+		for (; i + 1 < args.length && args[i].startsWith("-"); i += 2) {
+			switch (args[i]) {
+			case "-port":
+				port = Integer.parseInt(args[i + 1]);
+				break;
+			case "-maxLength":
+				maxLength = Integer.parseInt(args[i + 1]);
+				break;
+			case "-repeat":
+				repeat = Integer.parseInt(args[i + 1]);
+				break;
+			case "-quiet":
+				quiet = Boolean.parseBoolean(args[i + 1]);
+				break;
+			default:
+				i = args.length; // Prints the usage.
+			}
+		}
+		if (port < 0 || i >= args.length) {
+			System.out
+					.println("Usage: java DaemonClient -port N [-maxLength N] [-repeat N] [-quiet true] grammarFile...");
+			return;
+		}
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+				PrintWriter out = new PrintWriter(new OutputStreamWriter(
+						socket.getOutputStream(), StandardCharsets.UTF_8));
+				BufferedReader in = new BufferedReader(new InputStreamReader(
+						socket.getInputStream(), StandardCharsets.UTF_8))) {
+			socket.setTcpNoDelay(true);
+			int id = 0;
+			for (; i < args.length; ++i) {
+				String grammar = new String(Files.readAllBytes(Paths
+						.get(args[i])), StandardCharsets.UTF_8);
+				double[] millis = new double[repeat];
+				for (int r = 0; r < repeat; ++r) {
+					long start = System.nanoTime();
+					out.print("{\"id\":" + ++id + ",\"maxLength\":" + maxLength
+							+ ",\"grammar\":" + toJsonString(grammar) + "}\n");
+					out.flush();
+					String line;
+					while ((line = in.readLine()) != null) {
+						if (!quiet || line.contains("\"type\":\"verdict\"")
+								|| line.contains("\"type\":\"message\"")) {
+							System.out.println(line);
+						}
+						if (line.startsWith("{\"id\":" + id + ",\"type\":\"done\"")) {
+							break;
+						}
+					}
+					if (line == null) {
+						System.out.println("The daemon closed the connection...");
+						return;
+					}
+					millis[r] = (System.nanoTime() - start) / 1e6;
+				}
+				double[] sorted = millis.clone();
+				Arrays.sort(sorted);
+				System.out.println(String.format(
+						"%s: first %.3f ms, median %.3f ms, min %.3f ms (%d requests)",
+						args[i], millis[0], sorted[repeat / 2], sorted[0],
+						repeat));
+			}
+		}
+	}
+
+	/* A method that returns the given string as a JSON string. */
+	private static String toJsonString(String string) {
+		StringBuilder json = new StringBuilder("\"");
+		for (int i = 0; i < string.length(); ++i) {
+			char c = string.charAt(i);
+			if (c == '"' || c == '\\') {
+				json.append('\\').append(c);
+			} else if (c < 0x20) {
+				json.append(String.format("\\u%04x", (int) c));
+			} else {
+				json.append(c);
+			}
+		}
+		return json.append('"').toString();
+	}
+
+}
@@ -0,0 +1,39 @@
+/*
+ * A class that represents the wall clock time at which a test must stop (see
+ * the TesterOptions.setMaxTestMillis method). The test checks it between its
+ * words, and the derivation search checks it every few thousand derivation
+ * steps, so a single hard word can't overrun it by much.
+ */
+class Deadline {
+
+	/* A deadline that never passes. */
+	static final Deadline NONE = new Deadline(false, 0);
+
+	/* enabled - States whether the deadline can pass. */
+	private boolean enabled;
+
+	/* nanos - The System.nanoTime value at which the deadline passes. */
+	private long nanos;
+
+	private Deadline(boolean enabled, long nanos) {
+		this.enabled = enabled;
+		this.nanos = nanos;
+	}
+
+	/*
+	 * A method that returns a deadline that passes the given number of
+	 * milliseconds from now, or NONE if the number is not positive.
+	 */
+	static Deadline after(long millis) {
+		if (millis <= 0) {
+			return NONE;
+		}
+		return new Deadline(true, System.nanoTime() + millis * 1000000);
+	}
+
+	/* A method that checks whether the deadline has passed. */
+	boolean hasPassed() {
+		return enabled && System.nanoTime() - nanos > 0;
+	}
+
+}
@@ -0,0 +1,30 @@
+import java.util.List;
+
+/*
+ * An interface of the engines that count the number of different left
+ * derivations of a word. Every engine stops counting at two, since this is
+ * enough for the ambiguity test.
+ */
+interface DerivationCounter {
+
+	/* The value returned by countDerivations when the test was cut short. */
+	int INCONCLUSIVE = -1;
+
+	/*
+	 * A method that counts the number of different left derivations of the
+	 * given word (0, 1 or 2, which stands for two or more), or returns
+	 * INCONCLUSIVE if the engine could not decide within its budgets.
+	 * 		word - The word that needs to be tested.
+	 * 		leftDerivationsFound - A list that the found left derivations are
+	 * 							   added to. Each left derivation is
+	 * 							   represented by the ids of the derivation
+	 * 							   rules that were applied in it, in the order
+	 * 							   they were applied (see
+	 * 							   GrammarAmbiguityTester.replayDerivation).
+	 */
+	int countDerivations(int[] word, List<int[]> leftDerivationsFound);
+
+	/* A method that returns the reason of the last inconclusive result. */
+	String getInconclusiveReason();
+
+}
@@ -0,0 +1,694 @@
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+ * A class that counts the number of different left derivations of a word,
+ * using a depth first search over the left derivations of the grammar. The
+ * search is iterative: instead of recursing once per derivation step, it keeps
+ * an explicit stack of frames, one frame per applied derivation rule, and
+ * changes the derived string in place, undoing every derivation step when it
+ * backtracks. All of its buffers are reused between words, so a single
+ * instance should be used to test all the words of a grammar.
+ */
+class DerivationSearch implements DerivationCounter {
+
+	/* The possible states of the derived string, after a derivation step. */
+	private static final int DEAD_END = 0;
+	private static final int DERIVED_WORD = 1;
+	private static final int EXPANDABLE = 2;
+
+	/*
+	 * The number of derivation steps a word's search takes before it starts to
+	 * use the span counts memo. Most words are rejected within a few steps, and
+	 * computing their span counts would cost more than their whole search.
+	 */
+	private static final long MEMO_WARMUP_STEPS = 64;
+
+	/*
+	 * The deadline is checked whenever the number of derivation steps is a
+	 * multiple of DEADLINE_CHECK_INTERVAL (a power of 2).
+	 */
+	private static final long DEADLINE_CHECK_INTERVAL = 1 << 14;
+
+	/*
+	 * A split search adds its steps to the word's shared step count, and checks
+	 * whether it should stop or split further, whenever the number of its
+	 * derivation steps is a multiple of SPLIT_CHECK_INTERVAL (a power of 2).
+	 */
+	private static final long SPLIT_CHECK_INTERVAL = 1 << 10;
+
+	/* cfg - The tested grammar, in its compiled form. */
+	private CFG cfg;
+
+	/* maxDepth - The maximal number of derivation steps in a left derivation. */
+	private int maxDepth;
+
+	/* maxSteps - The maximal number of derivation steps for a single word. */
+	private long maxSteps;
+
+	/*
+	 * ruleWeights - Maps every rule id to the length of the shortest word that
+	 * the rule's body can derive (the sum of the minimal yield lengths of its
+	 * literals).
+	 */
+	private long[] ruleWeights;
+
+	/*
+	 * ruleNonterminals - Maps every rule id to the number of nonterminals in
+	 * the rule's body.
+	 */
+	private int[] ruleNonterminals;
+
+	/* maxRulesPerNonterminal - The size of the largest rule set. */
+	private int maxRulesPerNonterminal;
+
+	/*
+	 * symbolStack - The part of the derived string that follows the already
+	 * matched prefix of the word, with its leftmost literal on top. The derived
+	 * string is always the word's first matchedLength tokens followed by the
+	 * stack's content, from top to bottom.
+	 */
+	private int[] symbolStack = new int[64];
+
+	/* symbolStackSize - The number of literals in symbolStack. */
+	private int symbolStackSize;
+
+	/* matchedLength - The length of the word's matched prefix. */
+	private int matchedLength;
+
+	/*
+	 * stackWeight - The length of the shortest word that the literals in
+	 * symbolStack can derive.
+	 */
+	private long stackWeight;
+
+	/* stackNonterminals - The number of nonterminals in symbolStack. */
+	private int stackNonterminals;
+
+	/*
+	 * The frame stack. Frame i expands the nonterminal frameNonterminals[i],
+	 * trying its rules in the order kept in ruleOrders (starting at index
+	 * i * maxRulesPerNonterminal). frameNextRules[i] is the index of the next
+	 * rule to try, frameRules[i] is the id of the currently applied rule (or
+	 * -1), frameScanned[i] is the number of terminals that were matched
+	 * against the word right after the rule was applied, and
+	 * frameNumOfRules[i] is the number of rules in the frame's order. Since every frame
+	 * applies one derivation step, the first depth cells of frameRules are the
+	 * left derivation of the current derived string, so a found left
+	 * derivation is recorded by copying them, and nothing has to be recorded
+	 * for the derivations that fail.
+	 */
+	private int[] frameNonterminals = new int[16];
+	private int[] frameNextRules = new int[16];
+	private int[] frameRules = new int[16];
+	private int[] frameScanned = new int[16];
+	private int[] frameNumOfRules = new int[16];
+	private int[] ruleOrders;
+
+	/* depth - The number of frames on the frame stack. */
+	private int depth;
+
+	/* word - The word that is currently tested. */
+	private int[] word;
+
+	/*
+	 * wasCut - States whether a derivation was cut because it would need more
+	 * than maxDepth steps.
+	 */
+	private boolean wasCut;
+
+	/*
+	 * memo - The memoized span counts of the tested word, which are used to
+	 * drop the derived strings that cannot derive the rest of the word, or
+	 * null if memoization is disabled.
+	 */
+	private SpanCountMemo memo;
+
+	/*
+	 * The cached results of the memo checks (see the canDeriveRestOfWord
+	 * method). Bit p of restStarts[s] is set if the literals
+	 * restSymbols[s - 1] to restSymbols[0] derive the word's tokens p to the
+	 * end, and the first numOfRestLevels cells of restStarts are valid.
+	 */
+	private long[] restStarts = new long[65];
+	private int[] restSymbols = new int[64];
+	private int numOfRestLevels;
+
+	/* steps - The number of derivation steps taken for the tested word. */
+	private long steps;
+
+	/* inconclusiveReason - The reason of the last inconclusive result. */
+	private String inconclusiveReason;
+
+	/*
+	 * statistics - The counters of the search, or null if the test is not
+	 * instrumented.
+	 */
+	private SearchStatistics statistics;
+
+	/* deadline - The time at which the test must stop. */
+	private Deadline deadline = Deadline.NONE;
+
+	/*
+	 * staticCheck - The grammar's static check, or null. A nonterminal that
+	 * has no LL(1) conflict only tries the rule that the next token of the
+	 * word predicts, since no other rule can derive the rest of the word.
+	 */
+	private StaticAmbiguityCheck staticCheck;
+
+	/*
+	 * splitSteps - The number of derivation steps a word's search takes before
+	 * it is split among the threads of its fork-join pool, or 0 if it is never
+	 * split.
+	 */
+	private long splitSteps;
+
+	/*
+	 * splitter - Splits the searches of the hard words (see the
+	 * DerivationSplitter class), or null.
+	 */
+	private DerivationSplitter splitter;
+
+	/*
+	 * splitWord - The shared state of the tested word, while its search is
+	 * split, or null.
+	 */
+	private DerivationSplitter.SplitWord splitWord;
+
+	/*
+	 * The DerivationSearch class' constructor.
+	 * 		cfg - The tested grammar.
+	 * 		options - The test's options, which contain the search budgets.
+	 */
+	DerivationSearch(CFG cfg, TesterOptions options) {
+		this.cfg = cfg;
+		maxDepth = options.getMaxDerivationDepth();
+		maxSteps = options.getMaxDerivationSteps();
+		splitSteps = options.getSplitSteps();
+		int[][] ruleBodies = cfg.getRuleBodies();
+		ruleWeights = new long[ruleBodies.length];
+		ruleNonterminals = new int[ruleBodies.length];
+		for (int rule = 0; rule < ruleBodies.length; ++rule) {
+			for (int literal : ruleBodies[rule]) {
+				if (!cfg.getTerminalSymbols().get(literal)) {
+					++ruleNonterminals[rule];
+				}
+				ruleWeights[rule] += cfg.getMinYieldLength(literal);
+			}
+		}
+		for (int[] rules : cfg.getNonterminalRules()) {
+			maxRulesPerNonterminal = Math.max(maxRulesPerNonterminal,
+					rules.length);
+		}
+		ruleOrders = new int[frameNonterminals.length * maxRulesPerNonterminal];
+		if (options.getMemoCapacity() > 0) {
+			memo = new SpanCountMemo(cfg, options.getMemoCapacity());
+		}
+		if (options.isInstrumented()) {
+			statistics = new SearchStatistics();
+		}
+	}
+
+	/*
+	 * A method that counts the number of different left derivations of the
+	 * given word, and stops as soon as it finds two of them. It returns
+	 * INCONCLUSIVE if it found less than two left derivations, but had to cut
+	 * the search because of its budgets.
+	 * 		word - The word that needs to be tested.
+	 * 		leftDerivationsFound - A list that the found left derivations are
+	 * 							   added to, as the ids of their applied rules.
+	 */
+	public int countDerivations(int[] word, List<int[]> leftDerivationsFound) {
+		startWord(word);
+		if (statistics != null) {
+			statistics.startWord();
+		}
+		if (classify() == EXPANDABLE) {
+			pushFrame();
+		}
+		int result = search(leftDerivationsFound);
+		if (splitWord == null) {
+			return result;
+		}
+		DerivationSplitter.SplitWord splitWord = this.splitWord;
+		this.splitWord = null;
+		if (wasCut) {
+			splitWord.cut();
+		}
+		result = splitWord.finish(leftDerivationsFound);
+		if (result == INCONCLUSIVE) {
+			inconclusiveReason = splitWord.getInconclusiveReason(maxDepth);
+		}
+		return result;
+	}
+
+	/*
+	 * A method that explores the subtree of the left derivations of a split
+	 * word that start with the given rules (see the DerivationSplitter class).
+	 * The found left derivations, the cut derivations and the taken steps are
+	 * all added to the word's shared state.
+	 * 		splitWord - The shared state of the tested word.
+	 * 		trail - The ids of the subtree's first rules.
+	 */
+	void searchSubtree(DerivationSplitter.SplitWord splitWord, int[] trail) {
+		startWord(splitWord.getWord());
+		this.splitWord = splitWord;
+		for (int rule : trail) { // Every frame of the trail tries only its
+									// rule.
+			pushFrame();
+			frameNumOfRules[depth - 1] = 0;
+			applyRule(depth - 1, rule);
+		}
+		int state = classify();
+		if (state == DERIVED_WORD) {
+			splitWord.addDerivation(Arrays.copyOf(frameRules, depth));
+		} else if (state == EXPANDABLE) {
+			pushFrame();
+			search(null);
+		}
+		if (wasCut) {
+			splitWord.cut();
+		}
+		this.splitWord = null;
+	}
+
+	/*
+	 * A method that prepares the search of the given word: the derived string
+	 * is the start symbol, and there are no frames.
+	 */
+	private void startWord(int[] word) {
+		this.word = word;
+		if (memo != null) {
+			memo.reset(word);
+			restStarts[0] = 1L << word.length;
+			numOfRestLevels = 1;
+		}
+		wasCut = false;
+		inconclusiveReason = null;
+		symbolStackSize = 0;
+		matchedLength = 0;
+		stackWeight = 0;
+		stackNonterminals = 0;
+		depth = 0;
+		steps = 0;
+		push(cfg.getStartSymbol());
+	}
+
+	/*
+	 * A method that runs the depth first search from the current frames, until
+	 * they are all popped, and returns the number of found left derivations
+	 * (or INCONCLUSIVE). Once the search is split, the result is kept in the
+	 * word's shared state instead, and the returned value means nothing.
+	 * 		leftDerivationsFound - A list that the found left derivations are
+	 * 							   added to, until the search is split.
+	 */
+	private int search(List<int[]> leftDerivationsFound) {
+		int numDerivationsSoFar = 0;
+		while (depth > 0) {
+			int frame = depth - 1;
+			if (frameRules[frame] >= 0) { // Preparing for the next derivation
+											// rule.
+				undoRule(frame);
+			}
+			if (frameNextRules[frame] == frameNumOfRules[frame]) {
+				popFrame();
+				continue;
+			}
+			++steps;
+			if (splitWord != null) {
+				if ((steps & (SPLIT_CHECK_INTERVAL - 1)) == 0) {
+					if (!splitWord.addSteps(SPLIT_CHECK_INTERVAL)) {
+						return numDerivationsSoFar;
+					}
+					if (DerivationSplitter.shouldSplit()) {
+						splitAlternatives();
+					}
+				}
+			} else {
+				if (steps > maxSteps) {
+					inconclusiveReason = "step budget of " + maxSteps
+							+ " derivation steps exceeded";
+					return INCONCLUSIVE;
+				}
+				if ((steps & (DEADLINE_CHECK_INTERVAL - 1)) == 0
+						&& deadline.hasPassed()) {
+					inconclusiveReason = "time budget exceeded";
+					return INCONCLUSIVE;
+				}
+				if (steps == splitSteps && splitter != null
+						&& DerivationSplitter.canSplit()) { // A hard word.
+					splitWord = splitter.new SplitWord(word,
+							numDerivationsSoFar, steps, maxSteps, deadline);
+				}
+			}
+			int rule = ruleOrders[frame * maxRulesPerNonterminal
+					+ frameNextRules[frame]++];
+			applyRule(frame, rule);
+			if (statistics != null) {
+				statistics.countExpansion(depth);
+			}
+			int state = classify();
+			if (state == DERIVED_WORD) { // Success!! (Found one more left
+											// derivation.)
+				int[] leftDerivation = Arrays.copyOf(frameRules, depth);
+				if (splitWord != null) {
+					if (splitWord.addDerivation(leftDerivation)) {
+						return numDerivationsSoFar;
+					}
+					continue;
+				}
+				leftDerivationsFound.add(leftDerivation);
+				if (++numDerivationsSoFar > 1) { // Already found more then one
+													// left derivations, so no
+													// need to count more for
+													// the ambiguity test.
+					return numDerivationsSoFar;
+				}
+			} else if (state == EXPANDABLE) {
+				pushFrame();
+			}
+		}
+		if (wasCut && splitWord == null) {
+			inconclusiveReason = "depth budget of " + maxDepth
+					+ " derivation steps exceeded";
+			return INCONCLUSIVE;
+		}
+		return numDerivationsSoFar;
+	}
+
+	/*
+	 * A method that hands the rules that the lowest frame with untried rules
+	 * didn't try yet to new tasks, one task per rule, and drops them from the
+	 * frame. The top frame isn't split, since none of its rules is applied.
+	 */
+	private void splitAlternatives() {
+		for (int frame = 0; frame < depth - 1; ++frame) {
+			if (frameNextRules[frame] < frameNumOfRules[frame]) {
+				for (int next = frameNextRules[frame]; next < frameNumOfRules[frame]; ++next) {
+					int[] trail = Arrays.copyOf(frameRules, frame + 1);
+					trail[frame] = ruleOrders[frame * maxRulesPerNonterminal
+							+ next];
+					splitWord.fork(trail);
+				}
+				frameNumOfRules[frame] = frameNextRules[frame];
+				return;
+			}
+		}
+	}
+
+	/* A getter for the inconclusiveReason field. */
+	public String getInconclusiveReason() {
+		return inconclusiveReason;
+	}
+
+	/*
+	 * A method that returns the statistics of the span counts memo, or null
+	 * if memoization is disabled.
+	 */
+	String getMemoStatistics() {
+		return (memo == null) ? null : memo.getStatistics();
+	}
+
+	/* A getter for the statistics field. */
+	SearchStatistics getStatistics() {
+		return statistics;
+	}
+
+	/* A setter for the deadline field. */
+	void setDeadline(Deadline deadline) {
+		this.deadline = deadline;
+	}
+
+	/* A setter for the staticCheck field. */
+	void setStaticCheck(StaticAmbiguityCheck staticCheck) {
+		this.staticCheck = staticCheck;
+	}
+
+	/* A setter for the splitter field. */
+	void setSplitter(DerivationSplitter splitter) {
+		this.splitter = splitter;
+	}
+
+	/*
+	 * A method that checks the derived string after a derivation step, and
+	 * decides whether it is the tested word, whether it can be derived
+	 * further, or whether it obviously cannot lead to the tested word.
+	 */
+	private int classify() {
+		if (symbolStackSize == 0) { // If the derived string consists of only
+									// terminals, the derivation cannot get
+									// further.
+			return matchedLength == word.length ? DERIVED_WORD
+					: prune(SearchStatistics.PruneReason.TERMINAL_ONLY);
+		}
+		if (cfg.getTerminalSymbols().get(symbolStack[symbolStackSize - 1])) {
+			// The derived string's terminal prefix does not match the word.
+			return prune(SearchStatistics.PruneReason.PREFIX_MISMATCH);
+		}
+		if (matchedLength + stackWeight > word.length) {
+			// The derived string is too long for the word.
+			return prune(SearchStatistics.PruneReason.LENGTH_BOUND);
+		}
+		if (matchedLength < word.length && !canStartWith(word[matchedLength])) {
+			// The next token is not in the FIRST sets.
+			return prune(SearchStatistics.PruneReason.FIRST_SET);
+		}
+		if (depth + stackNonterminals > maxDepth) { // Every nonterminal needs
+													// at least one more
+													// derivation step.
+			if (memo == null || canDeriveRestOfWord()) { // Only a string that
+															// can still derive
+															// the word is cut.
+				wasCut = true;
+				return prune(SearchStatistics.PruneReason.DEPTH_BUDGET);
+			}
+			return prune(SearchStatistics.PruneReason.SPAN_COUNTS);
+		}
+		if (memo != null && steps > MEMO_WARMUP_STEPS
+				&& !canDeriveRestOfWord()) {
+			return prune(SearchStatistics.PruneReason.SPAN_COUNTS);
+		}
+		return EXPANDABLE;
+	}
+
+	/*
+	 * A method that counts a derived string that is dropped for the given
+	 * reason, if the search is instrumented, and returns DEAD_END.
+	 */
+	private int prune(SearchStatistics.PruneReason reason) {
+		if (statistics != null) {
+			statistics.countPrune(reason);
+		}
+		return DEAD_END;
+	}
+
+	/*
+	 * A method that checks, using the memoized span counts, whether the
+	 * literals in symbolStack can derive the part of the word that wasn't
+	 * matched yet. The positions of the word are kept as bits of a long, so
+	 * words of 63 tokens or more are not checked.
+	 *
+	 * The check goes from the bottom of symbolStack up, and the result of every
+	 * level is cached in restStarts. The bottom of the stack rarely changes
+	 * between derivation steps, so only the levels above the lowest changed
+	 * literal have to be checked again.
+	 */
+	private boolean canDeriveRestOfWord() {
+		if (word.length >= 63) {
+			return true;
+		}
+		if (restSymbols.length < symbolStackSize) {
+			restSymbols = Arrays.copyOf(restSymbols, symbolStack.length);
+			restStarts = Arrays.copyOf(restStarts, symbolStack.length + 1);
+		}
+		int s = 0;
+		while (s + 1 < numOfRestLevels && s < symbolStackSize
+				&& restSymbols[s] == symbolStack[s]) {
+			++s;
+		}
+		for (; s < symbolStackSize; ++s) {
+			int literal = symbolStack[s];
+			long ends = restStarts[s];
+			long starts = 0;
+			for (int p = 0; p <= word.length; ++p) {
+				if (cfg.getTerminalSymbols().get(literal)) {
+					if (p < word.length && word[p] == literal
+							&& (ends & (1L << (p + 1))) != 0) {
+						starts |= 1L << p;
+					}
+				} else if ((memo.getEnds(literal, p) & ends) != 0) {
+					starts |= 1L << p;
+				}
+			}
+			restSymbols[s] = literal;
+			restStarts[s + 1] = starts;
+		}
+		numOfRestLevels = symbolStackSize + 1;
+		return (restStarts[symbolStackSize] & (1L << matchedLength)) != 0;
+	}
+
+	/*
+	 * A method that checks whether the literals in symbolStack can derive a
+	 * string that starts with the given token, using the FIRST sets of the
+	 * nonterminals on top of the stack, down to the first one that is not
+	 * nullable.
+	 */
+	private boolean canStartWith(int token) {
+		for (int s = symbolStackSize - 1; s >= 0; --s) {
+			int literal = symbolStack[s];
+			if (cfg.getTerminalSymbols().get(literal)) {
+				return literal == token;
+			}
+			if (cfg.getFirstSet(literal).get(token)) {
+				return true;
+			}
+			if (!cfg.getNullableSymbols().get(literal)) {
+				return false;
+			}
+		}
+		return false;
+	}
+
+	/*
+	 * A method that pushes a new frame, which expands the nonterminal on top of
+	 * symbolStack.
+	 */
+	private void pushFrame() {
+		if (depth == frameNonterminals.length) {
+			int capacity = depth * 2;
+			frameNonterminals = Arrays.copyOf(frameNonterminals, capacity);
+			frameNextRules = Arrays.copyOf(frameNextRules, capacity);
+			frameRules = Arrays.copyOf(frameRules, capacity);
+			frameScanned = Arrays.copyOf(frameScanned, capacity);
+			frameNumOfRules = Arrays.copyOf(frameNumOfRules, capacity);
+			ruleOrders = Arrays.copyOf(ruleOrders, capacity
+					* maxRulesPerNonterminal);
+		}
+		int nonterminal = pop();
+		frameNonterminals[depth] = nonterminal;
+		frameNextRules[depth] = 0;
+		frameRules[depth] = -1;
+		if (staticCheck != null && !staticCheck.isConflicting(nonterminal)) {
+			frameNumOfRules[depth] = predictNonterminalRule(nonterminal, depth
+					* maxRulesPerNonterminal);
+		} else {
+			shuffleNonterminalRules(nonterminal, depth * maxRulesPerNonterminal);
+			frameNumOfRules[depth] = cfg.getNonterminalRules()[nonterminal].length;
+		}
+		++depth;
+	}
+
+	/*
+	 * A method that pops the top frame, after all of its rules were tried, and
+	 * puts its nonterminal back on top of symbolStack.
+	 */
+	private void popFrame() {
+		--depth;
+		push(frameNonterminals[depth]);
+	}
+
+	/*
+	 * A method that applies the given rule in the given frame: it replaces the
+	 * frame's nonterminal with the rule's body, and matches the terminals that
+	 * became the derived string's prefix against the word.
+	 */
+	private void applyRule(int frame, int rule) {
+		int[] body = cfg.getRuleBodies()[rule];
+		ensureStackCapacity(body.length);
+		for (int i = body.length - 1; i >= 0; --i) {
+			symbolStack[symbolStackSize++] = body[i];
+		}
+		stackWeight += ruleWeights[rule];
+		stackNonterminals += ruleNonterminals[rule];
+		int scanned = 0;
+		while (symbolStackSize > 0 && matchedLength < word.length
+				&& symbolStack[symbolStackSize - 1] == word[matchedLength]) {
+			--symbolStackSize;
+			--stackWeight;
+			++matchedLength;
+			++scanned;
+		}
+		frameRules[frame] = rule;
+		frameScanned[frame] = scanned;
+	}
+
+	/* A method that undoes the rule that was applied in the given frame. */
+	private void undoRule(int frame) {
+		int rule = frameRules[frame];
+		for (int i = 0; i < frameScanned[frame]; ++i) {
+			symbolStack[symbolStackSize++] = word[--matchedLength];
+			++stackWeight;
+		}
+		symbolStackSize -= cfg.getRuleBodies()[rule].length;
+		stackWeight -= ruleWeights[rule];
+		stackNonterminals -= ruleNonterminals[rule];
+		frameRules[frame] = -1;
+	}
+
+	/* A method that pushes the given literal on top of symbolStack. */
+	private void push(int literal) {
+		ensureStackCapacity(1);
+		symbolStack[symbolStackSize++] = literal;
+		stackWeight += cfg.getMinYieldLength(literal);
+		if (!cfg.getTerminalSymbols().get(literal)) {
+			++stackNonterminals;
+		}
+	}
+
+	/* A method that pops the literal on top of symbolStack. */
+	private int pop() {
+		int literal = symbolStack[--symbolStackSize];
+		stackWeight -= cfg.getMinYieldLength(literal);
+		if (!cfg.getTerminalSymbols().get(literal)) {
+			--stackNonterminals;
+		}
+		return literal;
+	}
+
+	/* A method that makes room for the given number of literals. */
+	private void ensureStackCapacity(int extraLiterals) {
+		if (symbolStackSize + extraLiterals > symbolStack.length) {
+			symbolStack = Arrays.copyOf(symbolStack, Math.max(
+					symbolStack.length * 2, symbolStackSize + extraLiterals));
+		}
+	}
+
+	/*
+	 * A method that writes the id of the rule of the given nonterminal (which
+	 * has no LL(1) conflict) that the word's next unmatched token predicts to
+	 * ruleOrders, at the given offset, and returns the number of written ids
+	 * (0 if no rule is predicted).
+	 */
+	private int predictNonterminalRule(int nonterminal, int offset) {
+		int token = (matchedLength < word.length) ? word[matchedLength]
+				: staticCheck.getEndMarker();
+		for (int rule : cfg.getNonterminalRules()[nonterminal]) {
+			if (staticCheck.isPredicted(rule, token)) {
+				ruleOrders[offset] = rule;
+				return 1;
+			}
+		}
+		return 0;
+	}
+
+	/*
+	 * A method that writes the ids of the grammar's derivation rules that start
+	 * with the given nonterminal to ruleOrders, from the given offset, in a
+	 * random order. Trying the rules in a random order avoids getting stuck in
+	 * the same left recursive rule on every visit.
+	 */
+	private void shuffleNonterminalRules(int nonterminal, int offset) {
+		int[] rules = cfg.getNonterminalRules()[nonterminal];
+		System.arraycopy(rules, 0, ruleOrders, offset, rules.length);
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		for (int i = rules.length - 1; i > 0; --i) {
+			int j = random.nextInt(i + 1);
+			int tmp = ruleOrders[offset + i];
+			ruleOrders[offset + i] = ruleOrders[offset + j];
+			ruleOrders[offset + j] = tmp;
+		}
+	}
+
+}
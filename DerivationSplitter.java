@@ -0,0 +1,251 @@
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/*
+ * A class that splits the derivation search of a hard word among the threads
+ * of the fork-join pool it runs on (see the ParallelWordTester class). Once a
+ * word's search takes more than TesterOptions.getSplitSteps() derivation
+ * steps, it goes on as a split search: whenever the pool has idle threads, the
+ * search hands the rules it hasn't tried yet in its lowest frame to new tasks,
+ * one task per rule, and every task explores the subtree of left derivations
+ * below its rule with a search of its own, splitting it further the same way.
+ * The subtrees don't overlap, so every left derivation of the word is still
+ * found exactly once. All the searches of a word share its derivation count,
+ * its found left derivations and its step budget (see the SplitWord class),
+ * and they all stop once the count exceeds 1.
+ */
+class DerivationSplitter {
+
+	/*
+	 * searches - Creates the derivation searches of the tasks, which only
+	 * explore subtrees of split searches.
+	 */
+	private Supplier<DerivationSearch> searches;
+
+	/*
+	 * idleSearches - The searches of the tasks that finished, which are reused
+	 * by the next tasks. A thread that waits for a task may run another task
+	 * meanwhile, so a search can't be kept per thread.
+	 */
+	private ConcurrentLinkedQueue<DerivationSearch> idleSearches = new ConcurrentLinkedQueue<>();
+
+	/*
+	 * The DerivationSplitter class' constructor.
+	 * 		searches - Creates the derivation searches of the tasks.
+	 */
+	DerivationSplitter(Supplier<DerivationSearch> searches) {
+		this.searches = searches;
+	}
+
+	/*
+	 * A method that returns whether a search that runs in the current thread
+	 * can be split, meaning the thread belongs to a fork-join pool.
+	 */
+	static boolean canSplit() {
+		return ForkJoinTask.inForkJoinPool();
+	}
+
+	/*
+	 * A method that returns whether a split search should hand more subtrees
+	 * to new tasks, meaning the pool has threads that have nothing to do.
+	 */
+	static boolean shouldSplit() {
+		return ForkJoinTask.getSurplusQueuedTaskCount() <= 0;
+	}
+
+	/*
+	 * A class that holds the state that all the searches of a split word
+	 * share.
+	 */
+	class SplitWord {
+
+		/* word - The tested word. */
+		private int[] word;
+
+		/* maxSteps - The maximal number of derivation steps for the word. */
+		private long maxSteps;
+
+		/* deadline - The time at which the test must stop. */
+		private Deadline deadline;
+
+		/*
+		 * numOfDerivations - The number of left derivations found so far,
+		 * saturated at 2.
+		 */
+		private AtomicInteger numOfDerivations;
+
+		/*
+		 * leftDerivationsFound - The left derivations found since the search
+		 * was split, at most two of them.
+		 */
+		private ConcurrentLinkedQueue<int[]> leftDerivationsFound = new ConcurrentLinkedQueue<>();
+
+		/* steps - The number of derivation steps taken so far by all the searches. */
+		private AtomicLong steps;
+
+		/*
+		 * inconclusiveReason - The reason the searches stopped before they were
+		 * done, or null.
+		 */
+		private AtomicReference<String> inconclusiveReason = new AtomicReference<>();
+
+		/*
+		 * wasCut - States whether a derivation was cut because it would need
+		 * more than the maximal number of derivation steps.
+		 */
+		private volatile boolean wasCut;
+
+		/* tasks - The tasks that explore the word's subtrees. */
+		private ConcurrentLinkedQueue<SubtreeTask> tasks = new ConcurrentLinkedQueue<>();
+
+		/*
+		 * The SplitWord class' constructor.
+		 * 		word - The tested word.
+		 * 		numOfDerivations - The number of left derivations that were
+		 * 						   found before the search was split.
+		 * 		steps - The number of derivation steps that were taken before
+		 * 				the search was split.
+		 * 		maxSteps - The maximal number of derivation steps for the word.
+		 * 		deadline - The time at which the test must stop.
+		 */
+		SplitWord(int[] word, int numOfDerivations, long steps, long maxSteps,
+				Deadline deadline) {
+			this.word = word;
+			this.numOfDerivations = new AtomicInteger(numOfDerivations);
+			this.steps = new AtomicLong(steps);
+			this.maxSteps = maxSteps;
+			this.deadline = deadline;
+		}
+
+		/* A getter for the word field. */
+		int[] getWord() {
+			return word;
+		}
+
+		/*
+		 * A method that returns whether the searches should stop, since the
+		 * word is already known to be ambiguous, or a budget was exceeded.
+		 */
+		boolean isDone() {
+			return numOfDerivations.get() > 1
+					|| inconclusiveReason.get() != null;
+		}
+
+		/*
+		 * A method that adds the given number of derivation steps to the
+		 * word's steps, and returns whether the searches should go on.
+		 */
+		boolean addSteps(long numOfSteps) {
+			if (steps.addAndGet(numOfSteps) > maxSteps) {
+				inconclusiveReason.compareAndSet(null, "step budget of "
+						+ maxSteps + " derivation steps exceeded");
+			} else if (deadline.hasPassed()) {
+				inconclusiveReason.compareAndSet(null, "time budget exceeded");
+			}
+			return !isDone();
+		}
+
+		/*
+		 * A method that counts the given left derivation of the word, and
+		 * returns whether the word is now known to be ambiguous. The count
+		 * saturates at 2, so no more than two left derivations are kept.
+		 */
+		boolean addDerivation(int[] leftDerivation) {
+			int count = numOfDerivations.getAndUpdate(n -> Math.min(n + 1, 2));
+			if (count < 2) {
+				leftDerivationsFound.add(leftDerivation);
+			}
+			return count + 1 > 1;
+		}
+
+		/* A method that states that a derivation of the word was cut. */
+		void cut() {
+			wasCut = true;
+		}
+
+		/*
+		 * A method that starts a task, which explores the subtree of the left
+		 * derivations that start with the given rules.
+		 */
+		void fork(int[] trail) {
+			SubtreeTask task = new SubtreeTask(this, trail);
+			tasks.add(task);
+			task.fork();
+		}
+
+		/*
+		 * A method that waits for all the word's tasks, adds the left
+		 * derivations they found to the given list, and returns the word's
+		 * result, like DerivationCounter.countDerivations does. Every task is
+		 * added to the tasks queue before the task that started it is done,
+		 * so all the tasks are done once the queue is empty.
+		 */
+		int finish(List<int[]> leftDerivationsFound) {
+			SubtreeTask task;
+			while ((task = tasks.poll()) != null) {
+				task.join();
+			}
+			leftDerivationsFound.addAll(this.leftDerivationsFound);
+			int count = numOfDerivations.get();
+			if (count > 1) {
+				return count;
+			}
+			if (inconclusiveReason.get() != null || wasCut) {
+				return DerivationCounter.INCONCLUSIVE;
+			}
+			return count;
+		}
+
+		/*
+		 * A method that returns the reason of an inconclusive result, given the
+		 * depth budget of the searches.
+		 */
+		String getInconclusiveReason(int maxDepth) {
+			String reason = inconclusiveReason.get();
+			return (reason != null) ? reason : "depth budget of " + maxDepth
+					+ " derivation steps exceeded";
+		}
+
+	}
+
+	/*
+	 * A task that explores the subtree of a split word's left derivations that
+	 * start with a given sequence of rules (its trail).
+	 */
+	private class SubtreeTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private SplitWord splitWord;
+		private int[] trail;
+
+		SubtreeTask(SplitWord splitWord, int[] trail) {
+			this.splitWord = splitWord;
+			this.trail = trail;
+		}
+
+		@Override
+		protected void compute() {
+			if (splitWord.isDone()) {
+				return;
+			}
+			DerivationSearch search = idleSearches.poll();
+			if (search == null) {
+				search = searches.get();
+			}
+			try {
+				search.searchSubtree(splitWord, trail);
+			} finally {
+				idleSearches.add(search);
+			}
+		}
+
+	}
+
+}
@@ -1,384 +1,652 @@
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.NoSuchFileException;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.LinkedHashMap;
-import java.util.LinkedHashSet;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 /*
  * A class that is used to test ambiguity of a context-free grammar. Please note 
  * that testing grammar's ambiguity is an undecidable problem, so there will be 
- * difficult grammars that will make the test throw a StackOverflowException, 
- * but it should handle reasonable grammars.
+ * difficult grammars that the test will not be able to decide within its
+ * budgets (it will report them as inconclusive), but it should handle
+ * reasonable grammars.
  */
 public class GrammarAmbiguityTester {
 	
+	/*
+	 * Without arguments, the main method tests a single grammar. With the
+	 * -daemon argument, it serves test requests (see the TesterDaemon class),
+	 * and with other arguments, it tests a batch of grammars (see the
+	 * BatchTester class).
+	 */
 	public static void main(String[] args) {
+		if (args.length > 0 && args[0].equals("-daemon")) {
+			TesterDaemon.main(Arrays.copyOfRange(args, 1, args.length));
+			return;
+		}
+		if (args.length > 0) {
+			BatchTester.main(args);
+			return;
+		}
 		GrammarAmbiguityTester.testGrammar("cfg3.txt", 3);
 	}
 
-	/* The method that performs the ambiguity test. */
+	/* The method that performs the ambiguity test, with the default options. */
 	public static void testGrammar(String filePath, int maxWordLengthToCheck) {
-		CFG cfg = null;
+		testGrammar(filePath, maxWordLengthToCheck, new TesterOptions());
+	}
+
+	/* The method that performs the ambiguity test. */
+	public static void testGrammar(String filePath, int maxWordLengthToCheck,
+			TesterOptions options) {
+		ResultSink sink = createSink(options);
 		try {
-			cfg = new CFG(new File(filePath));
-		} catch (FileNotFoundException e) {
-			System.out.println("Can't find the specified file...");
-			return;
+			testGrammar(filePath, maxWordLengthToCheck, options, sink);
+		} finally {
+			sink.close();
+		}
+	}
+
+	/*
+	 * The method that performs the ambiguity test, and reports its results to
+	 * the given sink.
+	 */
+	static void testGrammar(String filePath, int maxWordLengthToCheck,
+			TesterOptions options, ResultSink sink) {
+		Deadline deadline = Deadline.after(options.getMaxTestMillis());
+		File file = new File(filePath);
+		File cacheDirectory = options.getGrammarCacheDirectory();
+		CFG cfg = (cacheDirectory != null) ? CompiledGrammarCache.read(file,
+				cacheDirectory) : null;
+		boolean isCached = (cfg != null);
+		if (!isCached) {
+			try {
+				cfg = new CFG(file);
+			} catch (FileNotFoundException | NoSuchFileException e) {
+				sink.message("Can't find the specified file...");
+				return;
+			} catch (GrammarFormatException e) {
+				sink.message(e.getMessage());
+				return;
+			} catch (IOException e) {
+				sink.message("Can't read the specified file (" + e + ")...");
+				return;
+			}
 		}
+		sink.start(cfg);
+		if (cacheDirectory != null && !isCached) {
+			try {
+				CompiledGrammarCache.write(cfg, file, cacheDirectory);
+			} catch (IOException e) {
+				sink.message("Can't write the compiled grammar to the cache directory "
+						+ cacheDirectory + " (" + e + ")...");
+			}
+		}
+		testGrammar(cfg, file, maxWordLengthToCheck, options, deadline, sink);
+	}
+
+	/*
+	 * The method that performs the ambiguity test of a grammar that was
+	 * already loaded (and reported to the sink's start method).
+	 * 		file - The grammar's file, or null if it wasn't read from a file, in
+	 * 			   which case its progress is not kept in a checkpoint.
+	 * 		deadline - The time at which the test must stop.
+	 */
+	static void testGrammar(CFG cfg, File file, int maxWordLengthToCheck,
+			TesterOptions options, Deadline deadline, ResultSink sink) {
 		if (cfg.isVocabularyEmpty()) { // If the vocabulary is empty, the
 										// grammar is ambiguous in an empty way!
-			System.out
-			        .println("This grammar is ambiguous in an empty way (It has no terminals)!!!");
+			sink.verdict(ResultSink.Verdict.AMBIGUOUS_IN_AN_EMPTY_WAY, 0);
 			return;
 		}
-		VocabularyGenerator generator = new VocabularyGenerator(
-				cfg.getTerminals());
-		List<String> word = generator.nextWord();
-		do {
-			List<List<List<String>>> leftDerivationsFound = new ArrayList<>();
-			int result = -1;
-			try {
-				result = testWord(cfg.getTerminals(), cfg.getDerivationRules(),
-						cfg.getNullableNonterminals(), word,
-						leftDerivationsFound);
-			} catch (StackOverflowError e) {
-				System.out
-				        .println("The tester threw a StackOverflowError, sorry...");
+		if (cfg.getNumOfUselessRules() > 0) {
+			sink.note("Dropped " + cfg.getNumOfUselessRules()
+					+ " useless derivation rules, which cannot derive any word");
+		}
+		StaticAmbiguityCheck check = null;
+		if (options.isStaticCheck()) {
+			check = new StaticAmbiguityCheck(cfg);
+			sink.note(check.describe());
+			if (check.isProved()) {
+				sink.verdict(ResultSink.Verdict.PROVED_NOT_AMBIGUOUS, 0);
 				return;
 			}
-			System.out.println("******** Found " + result
-					+ " left derivations of the word: " + buildWord(word)
-					+ " ********");
-			if (result > 1) {
-				System.out.println("The first left derivation sequence is:");
-				printDerivationSequence(leftDerivationsFound.get(0));
-				System.out.println("The second left derivation sequence is:");
-				printDerivationSequence(leftDerivationsFound.get(1));
-				System.out.println("This grammar is ambiguous!!!");
+		}
+		if (options.getEngine() == TesterOptions.Engine.YIELD_ENUMERATION) {
+			if (YieldEnumerator.canEnumerate(cfg, maxWordLengthToCheck)) {
+				testLanguageWords(cfg, maxWordLengthToCheck, options, deadline,
+						sink);
+				return;
+			}
+			sink.message("The words are too long to enumerate their yields, so every word will be tested with the chart...");
+		}
+		if (options.getEngine() == TesterOptions.Engine.SENTENTIAL_FORMS) {
+			if (testSententialForms(cfg, maxWordLengthToCheck, options,
+					deadline, sink)) {
 				return;
+			}
+			sink.message("The sentential forms could not all be visited, so every word will be tested with the chart...");
+		}
+		TesterStatistics statistics = null;
+		if (options.isInstrumented()) {
+			statistics = new TesterStatistics(maxWordLengthToCheck);
+			statistics.register(sink);
+		}
+		Checkpoint checkpoint = null;
+		if (options.getCheckpointDirectory() != null && file != null) {
+			checkpoint = Checkpoint.open(options.getCheckpointDirectory(), file,
+					cfg, options, sink);
+		}
+		try {
+			boolean isParallel = options.getNumOfThreads() > 1;
+			if (isParallel
+					&& !ParallelWordTester.canTest(cfg, maxWordLengthToCheck)) {
+				sink.message("The words of length " + maxWordLengthToCheck
+						+ " are too many to be split among threads, so they will be tested on a single thread...");
+				isParallel = false;
+			}
+			if (isParallel && options.isPruneVocabulary()) {
+				sink.message("The words are tested on several threads, which don't prune the vocabulary, so every word will be tested...");
+			}
+			if (isParallel) {
+				testWordsInParallel(cfg, maxWordLengthToCheck, options,
+						statistics, deadline, checkpoint, check, sink);
 			} else {
-				if (result == 1) {
-					System.out.println("The only left derivation sequence is:");
-					printDerivationSequence(leftDerivationsFound.get(0));
-				}
+				testWords(cfg, maxWordLengthToCheck, options, statistics,
+						deadline, checkpoint, check, sink);
+			}
+		} finally {
+			if (statistics != null) {
+				statistics.close();
 			}
-		} while ((!cfg.getTerminals().isEmpty())
-				&& ((word = generator.nextWord()).size() <= maxWordLengthToCheck));
-		System.out.println("This grammar is not ambiguous!!!");
-		return;
+		}
 	}
 
 	/*
-	 * A method that prints a left derivation sequence in a table form. The left
-	 * column of the table contains the resulting string in every derivation,
-	 * while the right column contains the applied derivation rule in each step.
+	 * A method that performs the ambiguity test by testing the words of the
+	 * vocabulary one by one, by their length.
+	 * 		statistics - The statistics of the test, or null if it is not
+	 * 					 instrumented.
+	 * 		deadline - The time at which the test must stop.
+	 * 		checkpoint - The checkpoint the test's progress is kept in, or null
+	 * 					 if it is not kept.
+	 * 		check - The grammar's static check, whose LL(1) conflicts narrow
+	 * 				the derivation search, or null.
+	 * 		sink - The sink the results are reported to.
 	 */
-	private static void printDerivationSequence(
-			List<List<String>> derivationSequence) {
-		int maxDerivedStringLength = -1;
-		int maxDerivationRuleLength = -1;
-		for (int i = 0; i < derivationSequence.size(); ++i) {
-			if (i % 2 == 0) {
-				int derivedStringLength = buildWord(derivationSequence.get(i))
-						.length();
-				if (derivedStringLength > maxDerivedStringLength) {
-					maxDerivedStringLength = derivedStringLength;
+	private static void testWords(CFG cfg, int maxWordLengthToCheck,
+			TesterOptions options, TesterStatistics statistics,
+			Deadline deadline, Checkpoint checkpoint,
+			StaticAmbiguityCheck check, ResultSink sink) {
+		VocabularyGenerator generator;
+		if (options.isPruneVocabulary()) {
+			generator = new ViableWordGenerator(cfg, maxWordLengthToCheck);
+		} else {
+			generator = new VocabularyGenerator(cfg.getTerminalIds());
+		}
+		DerivationCounter counter = createCounter(cfg, options);
+		if (counter instanceof DerivationSearch) {
+			((DerivationSearch) counter).setDeadline(deadline);
+			((DerivationSearch) counter).setStaticCheck(check);
+		}
+		if (statistics != null) {
+			statistics.addCounter(counter);
+		}
+		long numOfInconclusiveWords = 0;
+		long numOfReusedWords = 0;
+		int[] word = null;
+		if (checkpoint != null && checkpoint.hasProgress()) {
+			sink.note(checkpoint.describe());
+			numOfInconclusiveWords = checkpoint
+					.getNumOfInconclusiveWords(maxWordLengthToCheck);
+		}
+		GrammarChange change = (checkpoint != null) ? checkpoint.getChange()
+				: null;
+		if (change != null) {
+			sink.note(change.describe());
+		}
+		if (checkpoint == null || !checkpoint.isTested(maxWordLengthToCheck)) {
+			if (checkpoint != null && checkpoint.hasProgress()) {
+				generator.startAfter(checkpoint.getResumeWord());
+			}
+			word = generator.nextWord();
+		}
+		while (word != null && word.length <= maxWordLengthToCheck) {
+			if (checkpoint != null) {
+				checkpoint.wordStarted(word);
+			}
+			if (deadline.hasPassed()) {
+				if (checkpoint != null) {
+					checkpoint.save();
 				}
-			} else {
-				int derivationRuleLength = buildWord(derivationSequence.get(i))
-						.length();
-				if (derivationRuleLength > maxDerivationRuleLength) {
-					maxDerivationRuleLength = derivationRuleLength;
+				noteReusedWords(numOfReusedWords, sink);
+				notePrunedWords(generator, options, sink);
+				noteMemoStatistics(counter, sink);
+				sink.verdict(ResultSink.Verdict.OUT_OF_TIME,
+						numOfInconclusiveWords);
+				return;
+			}
+			if (change != null && change.isReusable(word)) {
+				++numOfReusedWords;
+				boolean isInconclusive = change.isInconclusive(word);
+				if (isInconclusive) {
+					++numOfInconclusiveWords;
 				}
+				checkpoint.wordTested(word, isInconclusive);
+				word = (cfg.getTerminalIds().length > 0) ? generator.nextWord()
+						: null;
+				continue;
+			}
+			List<int[]> leftDerivationsFound = new ArrayList<>();
+			TesterEvents.WordTested event = (statistics != null) ? statistics
+					.startWord(word.length) : null;
+			int result = testWord(counter, word, leftDerivationsFound);
+			if (statistics != null) {
+				statistics.finishWord(event, counter, word, result);
+			}
+			sink.wordTested(word, result, counter.getInconclusiveReason(),
+					leftDerivationsFound);
+			if (result == DerivationCounter.INCONCLUSIVE) {
+				++numOfInconclusiveWords;
+			} else if (result > 1) {
+				if (checkpoint != null) { // The ambiguous word is not recorded.
+					checkpoint.save();
+				}
+				sink.ambiguousWord(word, leftDerivationsFound);
+				noteReusedWords(numOfReusedWords, sink);
+				notePrunedWords(generator, options, sink);
+				noteMemoStatistics(counter, sink);
+				sink.verdict(ResultSink.Verdict.AMBIGUOUS, numOfInconclusiveWords);
+				return;
+			}
+			if (checkpoint != null) {
+				checkpoint.wordTested(word,
+						result == DerivationCounter.INCONCLUSIVE);
 			}
+			word = (cfg.getTerminalIds().length > 0) ? generator.nextWord()
+					: null;
 		}
-		int leftColumnVerticalSize = maxDerivedStringLength + 2;
-		int rightColumnVerticalSize = maxDerivationRuleLength + 2;
-		int defaultLeftColumnVerticalSize = " Derived String ".length();
-		int defaultRightColumnVerticalSize = " Applied Rule ".length();
-		if (leftColumnVerticalSize < defaultLeftColumnVerticalSize) {
-			leftColumnVerticalSize = defaultLeftColumnVerticalSize;
-		}
-		if (rightColumnVerticalSize < defaultRightColumnVerticalSize) {
-			rightColumnVerticalSize = defaultRightColumnVerticalSize;
-		}
-		System.out.println(" "
-				+ new String(new char[leftColumnVerticalSize
-						+ rightColumnVerticalSize + 1]).replace("\0", "_")
-				+ " ");
-		System.out.print("|");
-		System.out.print(" Derived String "
-				+ new String(new char[leftColumnVerticalSize
-						- defaultLeftColumnVerticalSize]).replace("\0", " "));
-		System.out.print("|");
-		System.out.print(" Applied Rule "
-				+ new String(new char[rightColumnVerticalSize
-						- defaultRightColumnVerticalSize]).replace("\0", " "));
-		System.out.print("|");
-		System.out.println();
-		for (int i = 0; i < derivationSequence.size(); i += 2) {
-			printUnderscoreLine(leftColumnVerticalSize, rightColumnVerticalSize);
-			System.out.print("|");
-			String derivedString = " " + buildWord(derivationSequence.get(i))
-					+ " ";
-			String appliedRule;
-			if (i + 1 < derivationSequence.size()) {
-				appliedRule = " " + buildWord(derivationSequence.get(i + 1))
-						+ " ";
-			} else {
-				appliedRule = " Done!!! ";
+		if (checkpoint != null) {
+			checkpoint.allTested(maxWordLengthToCheck);
+		}
+		noteReusedWords(numOfReusedWords, sink);
+		notePrunedWords(generator, options, sink);
+		noteMemoStatistics(counter, sink);
+		finishTest(cfg, maxWordLengthToCheck, options, deadline,
+				numOfInconclusiveWords, sink);
+	}
+
+	/*
+	 * A method that performs the ambiguity test on several threads (see the
+	 * ParallelWordTester class). Only the word lengths are reported, and the
+	 * reported ambiguous word is the same one the sequential test reports.
+	 */
+	private static void testWordsInParallel(CFG cfg, int maxWordLengthToCheck,
+			TesterOptions options, TesterStatistics statistics,
+			Deadline deadline, Checkpoint checkpoint,
+			StaticAmbiguityCheck check, ResultSink sink) {
+		ForkJoinPool pool = new ForkJoinPool(options.getNumOfThreads());
+		try {
+			ParallelWordTester tester = new ParallelWordTester(cfg, options,
+					pool, statistics, deadline, check);
+			int maxLength = (cfg.getTerminalIds().length > 0) ? maxWordLengthToCheck
+					: 0;
+			int firstLength = 0;
+			long numOfResumedInconclusiveWords = 0;
+			if (checkpoint != null && checkpoint.hasProgress()) {
+				sink.note(checkpoint.describe());
+				firstLength = checkpoint.isTested(maxLength) ? maxLength + 1
+						: checkpoint.getTestedLength() + 1;
+				numOfResumedInconclusiveWords = checkpoint
+						.getNumOfInconclusiveWords(Math.min(maxLength,
+								firstLength - 1));
+			}
+			if (checkpoint != null && checkpoint.getChange() != null) {
+				sink.note(checkpoint.getChange().describe());
+				tester.setChange(checkpoint.getChange());
 			}
-			System.out.print(derivedString
-					+ new String(new char[leftColumnVerticalSize
-							- derivedString.length()]).replace("\0", " "));
-			System.out.print("|");
-			System.out.print(appliedRule
-					+ new String(new char[rightColumnVerticalSize
-							- appliedRule.length()]).replace("\0", " "));
-			System.out.print("|");
-			System.out.println();
-		}
-		printUnderscoreLine(leftColumnVerticalSize, rightColumnVerticalSize);
-		System.out.println();
-		return;
+			long numOfInconclusiveWords = 0;
+			for (int length = firstLength; length <= maxLength; ++length) {
+				ParallelWordTester.AmbiguousWord ambiguousWord = tester
+						.testLength(length);
+				if (ambiguousWord != null) {
+					sink.wordTested(ambiguousWord.word, 2, null,
+							ambiguousWord.leftDerivationsFound);
+					sink.ambiguousWord(ambiguousWord.word,
+							ambiguousWord.leftDerivationsFound);
+					noteReusedWords(tester.getNumOfReusedWords(), sink);
+					sink.verdict(ResultSink.Verdict.AMBIGUOUS,
+							numOfResumedInconclusiveWords
+									+ tester.getNumOfInconclusiveWords());
+					return;
+				}
+				if (tester.isOutOfTime()) {
+					noteReusedWords(tester.getNumOfReusedWords(), sink);
+					sink.verdict(ResultSink.Verdict.OUT_OF_TIME,
+							numOfResumedInconclusiveWords
+									+ tester.getNumOfInconclusiveWords());
+					return;
+				}
+				if (checkpoint != null) {
+					checkpoint.lengthTested(length,
+							tester.getNumOfInconclusiveWords()
+									- numOfInconclusiveWords,
+							tester.takeInconclusiveWords());
+				}
+				numOfInconclusiveWords = tester.getNumOfInconclusiveWords();
+				sink.wordLengthTested(length);
+			}
+			noteReusedWords(tester.getNumOfReusedWords(), sink);
+			numOfInconclusiveWords += numOfResumedInconclusiveWords;
+			finishTest(cfg, maxWordLengthToCheck, options, deadline,
+					numOfInconclusiveWords, sink);
+		} finally {
+			pool.shutdown();
+		}
 	}
 
 	/*
-	 * A method that is used in the above method to print an underscore line of
-	 * the table.
+	 * A method that reports the verdict of a test that tested all the words up
+	 * to the maximal word length without finding an ambiguous word, once it
+	 * tested random longer words, if the options ask for them.
+	 * 		numOfInconclusiveWords - The number of inconclusive words.
 	 */
-	private static void printUnderscoreLine(int leftColumnVerticalSize,
-			int rightColumnVerticalSize) {
-		System.out.print("|");
-		System.out.print(new String(new char[leftColumnVerticalSize]).replace(
-				"\0", "_"));
-		System.out.print("|");
-		System.out.print(new String(new char[rightColumnVerticalSize]).replace(
-				"\0", "_"));
-		System.out.print("|");
-		System.out.println();
-		return;
+	private static void finishTest(CFG cfg, int maxWordLengthToCheck,
+			TesterOptions options, Deadline deadline,
+			long numOfInconclusiveWords, ResultSink sink) {
+		if (options.getSampleMaxLength() > maxWordLengthToCheck
+				&& options.getSampleMillis() > 0
+				&& testSampledWords(cfg, maxWordLengthToCheck, options,
+						deadline, sink)) {
+			sink.verdict(ResultSink.Verdict.AMBIGUOUS, numOfInconclusiveWords);
+			return;
+		}
+		if (numOfInconclusiveWords > 0) {
+			sink.verdict(ResultSink.Verdict.INCONCLUSIVE, numOfInconclusiveWords);
+			return;
+		}
+		sink.verdict(ResultSink.Verdict.NOT_AMBIGUOUS, 0);
 	}
 
 	/*
-	 * A method that translates a string List that represents a word to a
-	 * regular string, for printing uses.
+	 * A method that tests random words of the grammar's language that are
+	 * longer than the maximal word length (see the WordSampler class), one
+	 * length after the other, until one is ambiguous or the sampling time is
+	 * up. The words are tested with the chart, whose time only grows
+	 * polynomially with their length. It returns whether an ambiguous word
+	 * was found, and reported.
+	 * 		deadline - The time at which the test must stop.
 	 */
-	private static String buildWord(List<String> stringList) {
-		if (stringList.isEmpty()) { // Epsilon is represented by an empty list.
-			return "epsilon";
+	private static boolean testSampledWords(CFG cfg, int maxWordLengthToCheck,
+			TesterOptions options, Deadline deadline, ResultSink sink) {
+		long start = System.nanoTime();
+		Deadline sampleDeadline = Deadline.after(options.getSampleMillis());
+		int maxLength = options.getSampleMaxLength();
+		WordSampler sampler = new WordSampler(cfg, maxLength,
+				options.getSampleSeed());
+		int[] lengths = new int[maxLength + 1];
+		int numOfLengths = 0;
+		for (int length = Math.max(options.getSampleMinLength(),
+				maxWordLengthToCheck + 1); length <= maxLength; ++length) {
+			if (sampler.canSample(length)) {
+				lengths[numOfLengths++] = length;
+			}
 		}
-		StringBuilder word = new StringBuilder();
-		for (int i = 0; i < stringList.size(); ++i) {
-			word.append(stringList.get(i) + " ");
+		if (numOfLengths == 0) {
+			sink.note("The language has no words of the sampled lengths");
+			return false;
 		}
-		return word.substring(0, word.length() - 1).toString();
+		ChartDerivationCounter counter = new ChartDerivationCounter(cfg);
+		long numOfSampledWords = 0;
+		while (!sampleDeadline.hasPassed() && !deadline.hasPassed()) {
+			int[] word = sampler
+					.nextWord(lengths[(int) (numOfSampledWords % numOfLengths)]);
+			++numOfSampledWords;
+			List<int[]> leftDerivationsFound = new ArrayList<>();
+			if (counter.countDerivations(word, leftDerivationsFound) > 1) {
+				sink.note("Sampled " + numOfSampledWords
+						+ " random words (seed " + options.getSampleSeed()
+						+ ") before an ambiguous one");
+				sink.wordTested(word, 2, null, leftDerivationsFound);
+				sink.ambiguousWord(word, leftDerivationsFound);
+				return true;
+			}
+		}
+		sink.note(String.format(
+				"Sampled %d random words of %d lengths between %d and %d (seed %d) in %.1f s, and none of them was ambiguous",
+				numOfSampledWords, numOfLengths, lengths[0],
+				lengths[numOfLengths - 1], options.getSampleSeed(),
+				(System.nanoTime() - start) / 1e9));
+		return false;
 	}
 
 	/*
-	 * A wrapping method to the countDerivations method. 
-	 * 		terminals - Grammar's set of terminals. 
-	 * 		derivationRules - Grammar's derivation rules mapping.
-	 * 		nullableNonterminals - Grammar's set of nullable nonterminals.
-	 * 		word - The last generated word of the grammar's vocabulary, that 
-	 * 			   needs to be tested.
-	 * 		leftDerivationsFound - A representation of word's left derivations
-	 * 							   that were found so far. Each left derivation
-	 * 							   sequence is represented by a list of string
-	 *							   lists, in which every even indexed list is
-	 *							   the derived string, and every odd indexed 
-	 *							   list is the derivation rule that was used.
+	 * A method that reports the number of words whose results were reused
+	 * from a previous version of the grammar, if there were any.
 	 */
-	private static int testWord(Set<String> terminals,
-			Map<String, Set<List<String>>> derivationRules,
-			Set<String> nullableNonterminals, List<String> word,
-			List<List<List<String>>> leftDerivationsFound) {
-		List<String> nonterminals = new ArrayList<>(derivationRules.keySet());
-		List<String> startingNonterminal = new ArrayList<>();
-		startingNonterminal.add(nonterminals.get(0));
-		List<List<String>> newLeftDerivationSequence = new ArrayList<>();
-		newLeftDerivationSequence.add(new ArrayList<>(startingNonterminal));
-		// Every left derivations sequence starts with the starting nonterminal.
-		leftDerivationsFound.add(newLeftDerivationSequence);
-		return countDerivations(terminals, derivationRules,
-				startingNonterminal, nullableNonterminals, word,
-				leftDerivationsFound, 0);
+	private static void noteReusedWords(long numOfReusedWords, ResultSink sink) {
+		if (numOfReusedWords > 0) {
+			sink.note("Reused the results of " + numOfReusedWords
+					+ " words from the previous version of the grammar");
+		}
 	}
 
 	/*
-	 * A recursive method that counts the number of different left derivations
-	 * of the given word. It uses a lot of "tricks" to handle as much grammar's
-	 * as possible, such as tail recursion and randomness. terminals - Grammar's
-	 * set of terminals. derivationRules - Grammar's derivation rules mapping.
-	 * derivedString - The string, which can contain terminals and nonterminals,
-	 * that was derived so far (The test always starts deriving from the
-	 * starting nonterminal). nullableNonterminals - Grammar's set of nullable
-	 * nonterminals. word - The last generated word of the grammar's vocabulary,
-	 * that needs to be tested. leftDerivationsFound - A representation of
-	 * word's left derivations that were found so far. Each left derivation
-	 * sequence is represented by a list of string lists, in which every even
-	 * indexed list is the derived string, and every odd indexed list is the
-	 * derivation rule that was used. numDerivationsSoFar - A counter that
-	 * counts the number of different left derivations that were found so far.
-	 * It has a significant role in the tail recursion implementation.
+	 * A method that reports the number of words the vocabulary generator
+	 * skipped, if the vocabulary was pruned.
 	 */
-	private static int countDerivations(Set<String> terminals,
-			Map<String, Set<List<String>>> derivationRules,
-			List<String> derivedString, Set<String> nullableNonterminals,
-			List<String> word, List<List<List<String>>> leftDerivationsFound,
-			int numDerivationsSoFar) {
-		if (numDerivationsSoFar > 1) { // Already found more then one left
-										// derivations, so no need to count more
-										// for
-										// the ambiguity test.
-			return numDerivationsSoFar;
-		}
-		if (derivedString.equals(word)) { // Success!! (Found one more left
-											// derivation.)
-			return numDerivationsSoFar + 1;
-		}
-		if (word.isEmpty()
-				&& (!nullableNonterminals.containsAll(derivedString))) {
-			return numDerivationsSoFar; // To derive epsilon, all literals in
-										// the
-										// currently derived string must be
-										// nullable.
-		}
-		if (derivedString.isEmpty()) { // Cannot derive further from epsilon.
-			return numDerivationsSoFar;
-		}
-		int numOfTerminals = 0;
-		int numOfNotNullableNonterminals = 0;
-		int firstNonterminalIndex = -1;
-		for (int i = 0; i < derivedString.size(); ++i) {
-			String literal = derivedString.get(i);
-			if (!terminals.contains(literal)) {
-				if (firstNonterminalIndex < 0) {
-					firstNonterminalIndex = i;
+	private static void notePrunedWords(VocabularyGenerator generator,
+			TesterOptions options, ResultSink sink) {
+		if (options.isPruneVocabulary()) {
+			sink.note(generator.getNumOfPrunedWords()
+					+ " words were skipped, since no word of the language starts like them");
+		}
+	}
+
+	/*
+	 * A method that reports the statistics of the derivation search's span
+	 * counts memo, if it has one.
+	 */
+	private static void noteMemoStatistics(DerivationCounter counter,
+			ResultSink sink) {
+		if (counter instanceof DerivationSearch
+				&& ((DerivationSearch) counter).getMemoStatistics() != null) {
+			sink.note("Span counts memo: "
+					+ ((DerivationSearch) counter).getMemoStatistics());
+		}
+	}
+
+	/*
+	 * A method that performs the ambiguity test by enumerating only the words
+	 * of the grammar's language, bottom up (see the YieldEnumerator class),
+	 * instead of testing every word of the vocabulary. The words are reported
+	 * in the same order the vocabulary generator generates them, and the left
+	 * derivations of an ambiguous word are taken from the chart.
+	 * 		deadline - The time at which the test must stop.
+	 */
+	private static void testLanguageWords(CFG cfg, int maxWordLengthToCheck,
+			TesterOptions options, Deadline deadline, ResultSink sink) {
+		YieldEnumerator enumerator = new YieldEnumerator(cfg,
+				maxWordLengthToCheck, deadline);
+		int maxLength = (cfg.getTerminalIds().length > 0) ? maxWordLengthToCheck
+				: 0;
+		for (int length = 0; length <= maxLength; ++length) {
+			YieldEnumerator.YieldTable yields = deadline.hasPassed() ? null
+					: enumerator.nextLength();
+			if (yields == null) {
+				sink.verdict(ResultSink.Verdict.OUT_OF_TIME, 0);
+				return;
+			}
+			for (long packedWord : yields.sortedWords()) {
+				if (deadline.hasPassed()) {
+					sink.verdict(ResultSink.Verdict.OUT_OF_TIME, 0);
+					return;
 				}
-				if (!nullableNonterminals.contains(literal)) {
-					++numOfNotNullableNonterminals;
+				int[] word = enumerator.unpack(packedWord, length);
+				int result = yields.count(packedWord);
+				if (result > 1) {
+					List<int[]> leftDerivationsFound = new ArrayList<>();
+					new ChartDerivationCounter(cfg).countDerivations(word,
+							leftDerivationsFound);
+					sink.wordTested(word, result, null, leftDerivationsFound);
+					sink.ambiguousWord(word, leftDerivationsFound);
+					sink.verdict(ResultSink.Verdict.AMBIGUOUS, 0);
+					return;
 				}
-			} else {
-				++numOfTerminals;
+				sink.wordTested(word, result, null, new ArrayList<>());
 			}
 		}
-		if (firstNonterminalIndex < 0) { // If derivedString consists of only
-											// terminals, the derivation cannot
-											// get further.
-			return numDerivationsSoFar;
-		}
-		if ((firstNonterminalIndex > word.size())
-				|| (!derivedString.subList(0, firstNonterminalIndex).equals(
-						word.subList(0, firstNonterminalIndex)))
-				|| (numOfTerminals + numOfNotNullableNonterminals > word.size())) {
-			return numDerivationsSoFar; // If one of the three tests above
-										// fails,
-										// then there is no reason continuing
-										// deriving the derivedString. These
-										// tests are used to prevent as much
-										// unnecessary derivations (derivations
-										// that obviously cannot lead to the
-										// tested word) as possible, in order to
-										// prevent StackOverflowException.
-		}
-		String nonterminal = derivedString.get(firstNonterminalIndex);
-		derivedString.remove(firstNonterminalIndex);
-		List<String> tmp = new ArrayList<>(derivedString);
-		/*
-		 * Shuffling grammar's rules in a random order is also one of the tricks
-		 * used to prevent StackOverflowException.
-		 */
-		derivationRules = shuffleNonterminalRules(derivationRules, nonterminal);
-		for (List<String> ruleString : derivationRules.get(nonterminal)) {
-			clearEpsilons(ruleString);
-			derivedString.addAll(firstNonterminalIndex, ruleString);
-			List<String> appliedRule = new ArrayList<>();
-			appliedRule.add(nonterminal);
-			appliedRule.add("->");
-			if (ruleString.isEmpty()) {
-				appliedRule.add("epsilon");
-			} else {
-				appliedRule.addAll(ruleString);
-			}
-			List<List<String>> derivationSequence = leftDerivationsFound
-					.get(numDerivationsSoFar);
-			// Saving old derivation sequence.
-			List<List<String>> oldDerivationSequence = new ArrayList<>(
-					derivationSequence);
-			// Adding the applied derivation rule to the derivation sequence.
-			derivationSequence.add(appliedRule);
-			// Adding the new derived string to the derivation sequence.
-			derivationSequence.add(new ArrayList<>(derivedString));
-			// Performing a tail recursive call.
-			numDerivationsSoFar = countDerivations(terminals, derivationRules,
-					derivedString, nullableNonterminals, word,
-					leftDerivationsFound, numDerivationsSoFar);
-			if (numDerivationsSoFar > 1) { // Already found more then one left
-											// derivations, so no need to count
-											// more
-											// for the ambiguity test.
-				return numDerivationsSoFar;
-			}
-			/*
-			 * Restoring the old derivation sequence. If numDerivationsSoFar was
-			 * not changed, the old sequence will replace the current sequence.
-			 * If not, then numDerivationsSoFar must have grown by 1, so the old
-			 * sequence will be added as a new sequence.
-			 */
-			leftDerivationsFound
-					.add(numDerivationsSoFar, oldDerivationSequence);
-			derivedString = new ArrayList<>(tmp); // Preparing for the next
-													// derivation rule.
-		}
-		return numDerivationsSoFar;
+		sink.note(enumerator.numOfYields() + " yields were enumerated");
+		finishTest(cfg, maxWordLengthToCheck, options, deadline, 0, sink);
 	}
 
 	/*
-	 * A method that shuffles grammar's derivation rules that start with the
-	 * given nonterminal. This is an attempt to avoid problems with left
-	 * recursion in Grammar's rules, which is one of the main reasons for
-	 * StackOverflowException.
+	 * A method that performs the ambiguity test by looking for a leftmost
+	 * sentential form that two left derivations reach (see the
+	 * SententialFormSearch class), instead of testing words. The ambiguous word
+	 * is the shortest word the form derives, and its left derivations are the
+	 * two derivations of the form, followed by the same derivation of the word
+	 * from the form. It returns whether the test was decided (and its verdict
+	 * was reported), which it isn't if some forms could not be visited.
+	 * 		deadline - The time at which the test must stop.
 	 */
-	private static Map<String, Set<List<String>>> shuffleNonterminalRules(
-			Map<String, Set<List<String>>> derivationRules, String nonterminal) {
-		Map<String, Set<List<String>>> newDerivationRules = deepCopyMap(derivationRules);
-		List<List<String>> rules = new ArrayList<>(
-				newDerivationRules.get(nonterminal));
-		Collections.shuffle(rules);
-		newDerivationRules.put(nonterminal, new LinkedHashSet<List<String>>(
-				rules));
-		return newDerivationRules;
+	private static boolean testSententialForms(CFG cfg,
+			int maxWordLengthToCheck, TesterOptions options, Deadline deadline,
+			ResultSink sink) {
+		SententialFormSearch search = new SententialFormSearch(cfg,
+				maxWordLengthToCheck, options.getMaxSententialForms(),
+				deadline);
+		boolean isAmbiguous = search.search();
+		sink.note(search.describe());
+		if (isAmbiguous) {
+			List<int[]> leftDerivationsFound = new ArrayList<>();
+			int[] word = search.getAmbiguousWord(leftDerivationsFound);
+			sink.wordTested(word, 2, null, leftDerivationsFound);
+			sink.ambiguousWord(word, leftDerivationsFound);
+			sink.verdict(ResultSink.Verdict.AMBIGUOUS, 0);
+			return true;
+		}
+		if (search.isOutOfTime()) {
+			sink.verdict(ResultSink.Verdict.OUT_OF_TIME, 0);
+			return true;
+		}
+		if (search.isComplete()) {
+			finishTest(cfg, maxWordLengthToCheck, options, deadline, 0, sink);
+			return true;
+		}
+		return false;
 	}
 
 	/*
-	 * A method that is used in the above method. Used to deep copy the
-	 * derivation rules mapping.
+	 * A method that creates the sink the results of the test are reported
+	 * to, according to the test's options.
 	 */
-	private static Map<String, Set<List<String>>> deepCopyMap(
-			Map<String, Set<List<String>>> map) {
-		Map<String, Set<List<String>>> newMap = new LinkedHashMap<>();
-		for (String key : map.keySet()) {
-			Set<List<String>> newSet = new LinkedHashSet<>();
-			for (List<String> list : map.get(key)) {
-				newSet.add(list);
-			}
-			newMap.put(key, newSet);
+	static ResultSink createSink(TesterOptions options) {
+		PrintStream out = (options.getOutput() != null) ? options.getOutput()
+				: System.out;
+		switch (options.getOutputMode()) {
+		case SUMMARY:
+			return new TextResultSink(out, false);
+		case NDJSON:
+			return new JsonResultSink(out);
+		default:
+			return new TextResultSink(out, true);
 		}
-		return newMap;
 	}
 
-	/* A method that cleans unnecessary epsilons in the derived string. */
-	private static void clearEpsilons(List<String> stringList) {
-		boolean containedEpsilon = true;
-		while (containedEpsilon) {
-			containedEpsilon = stringList.remove("epsilon");
+	/*
+	 * A method that translates an array of symbol ids that represents a word
+	 * to a regular string, for printing uses.
+	 */
+	static String buildWord(CFG cfg, int[] symbolIds) {
+		if (symbolIds.length == 0) { // Epsilon is represented by an empty
+										// array.
+			return "epsilon";
 		}
-		return;
+		StringBuilder word = new StringBuilder();
+		for (int i = 0; i < symbolIds.length; ++i) {
+			word.append(cfg.getSymbolName(symbolIds[i]) + " ");
+		}
+		return word.substring(0, word.length() - 1).toString();
+	}
+
+	/*
+	 * A method that translates a derivation rule id to a regular string, for
+	 * printing uses.
+	 */
+	static String buildRule(CFG cfg, int ruleId) {
+		return cfg.getSymbolName(cfg.getRuleHeads()[ruleId]) + " -> "
+				+ buildWord(cfg, cfg.getRuleBodies()[ruleId]);
+	}
+
+	/*
+	 * A method that creates the engine that counts the left derivations of
+	 * every word, according to the test's options.
+	 */
+	static DerivationCounter createCounter(CFG cfg,
+			TesterOptions options) {
+		if (options.getEngine() != TesterOptions.Engine.DERIVATION_SEARCH) {
+			return new ChartDerivationCounter(cfg);
+		}
+		return new DerivationSearch(cfg, options);
+	}
+
+	/*
+	 * A method that rebuilds a left derivation sequence from the ids of the
+	 * rules that were applied in it (in the order they were applied). Every
+	 * rule replaces the leftmost nonterminal of the derived string. The
+	 * sequence is represented by a list of int arrays, in which every even
+	 * indexed array is the derived string, and every odd indexed array holds
+	 * the id of the derivation rule that was used.
+	 */
+	static List<int[]> replayDerivation(CFG cfg, int[] appliedRules) {
+		List<int[]> derivationSequence = new ArrayList<>();
+		int[] derivedString = { cfg.getStartSymbol() };
+		derivationSequence.add(derivedString);
+		for (int rule : appliedRules) {
+			int firstNonterminalIndex = 0;
+			while (cfg.getTerminalSymbols().get(
+					derivedString[firstNonterminalIndex])) {
+				++firstNonterminalIndex;
+			}
+			int[] ruleString = cfg.getRuleBodies()[rule];
+			int[] newDerivedString = new int[derivedString.length - 1
+					+ ruleString.length];
+			System.arraycopy(derivedString, 0, newDerivedString, 0,
+					firstNonterminalIndex);
+			System.arraycopy(ruleString, 0, newDerivedString,
+					firstNonterminalIndex, ruleString.length);
+			System.arraycopy(derivedString, firstNonterminalIndex + 1,
+					newDerivedString, firstNonterminalIndex + ruleString.length,
+					derivedString.length - firstNonterminalIndex - 1);
+			derivationSequence.add(new int[] { rule });
+			derivationSequence.add(newDerivedString);
+			derivedString = newDerivedString;
+		}
+		return derivationSequence;
+	}
+
+	/*
+	 * A wrapping method to the DerivationCounter.countDerivations method. 
+	 * 		counter - The engine that counts the left derivations of the
+	 * 				  tested grammar's words.
+	 * 		word - The last generated word of the grammar's vocabulary, that 
+	 * 			   needs to be tested.
+	 * 		leftDerivationsFound - A representation of word's left derivations
+	 * 							   that were found. Each left derivation is
+	 * 							   represented by the ids of the derivation
+	 * 							   rules that were applied in it, and it is
+	 * 							   turned into a derivation sequence (using the
+	 * 							   replayDerivation method) only if it is
+	 * 							   printed.
+	 */
+	private static int testWord(DerivationCounter counter, int[] word,
+			List<int[]> leftDerivationsFound) {
+		return counter.countDerivations(word, leftDerivationsFound);
 	}
 
 }
@@ -0,0 +1,261 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/*
+ * A class that compares a grammar with a previous version of it, which was
+ * tested before, and finds the words whose results the changes can't affect,
+ * so they are not tested again (see the Checkpoint class).
+ *
+ * A word has the same left derivations in both versions unless one of them
+ * applies a changed rule: a rule that only one version has (the rules are
+ * compared by their canonical form, see the CFG.getRuleString method, and by
+ * which of their symbols are terminals, since a symbol that loses its last
+ * rule becomes a terminal without changing the rules it appears in). A
+ * derivation that applies a rule derives every terminal in the rule's body,
+ * and derives at least the rule's minimal yield, plus the minimal yield of
+ * the context in which its nonterminal can appear. So a word that is shorter
+ * than that, or that lacks a terminal of the rule's body, can't be derived
+ * with the rule, and if that holds for all the changed rules, the word's
+ * result in the previous version is its result in the new one. All of this
+ * only holds if both versions start from the same nonterminal (see the
+ * hasSameStartSymbol method): the rules can all stay the same when another
+ * nonterminal becomes the starting one, while the language changes.
+ */
+class GrammarChange {
+
+	/* cfg - The new version of the grammar. */
+	private CFG cfg;
+
+	/* testedLength - The maximal length the previous version was tested up to. */
+	private int testedLength;
+
+	/* inconclusiveWords - The inconclusive words of the previous version. */
+	private Set<String> inconclusiveWords;
+
+	/* numOfChangedRules - The number of rules that only one version has. */
+	private int numOfChangedRules;
+
+	/*
+	 * minWordLengths and requiredTokens - The minimal length of a word that a
+	 * changed rule can take part in the derivation of, and the ids of the
+	 * terminals of its body (in the new version), for every changed rule that
+	 * can take part in the derivation of a word of the new vocabulary.
+	 */
+	private long[] minWordLengths;
+	private int[][] requiredTokens;
+
+	/*
+	 * The GrammarChange class' constructor.
+	 * 		previous - The previous version of the grammar.
+	 * 		cfg - The new version of the grammar.
+	 * 		testedLength - The maximal length the previous version was tested up
+	 * 					   to.
+	 * 		inconclusiveWords - The inconclusive words of the previous version.
+	 */
+	GrammarChange(CFG previous, CFG cfg, int testedLength,
+			Set<String> inconclusiveWords) {
+		this.cfg = cfg;
+		this.testedLength = testedLength;
+		this.inconclusiveWords = inconclusiveWords;
+		Set<String> previousRules = getRuleStrings(previous);
+		Set<String> rules = getRuleStrings(cfg);
+		List<Long> lengths = new ArrayList<>();
+		List<int[]> tokens = new ArrayList<>();
+		addChangedRules(previous, rules, cfg, lengths, tokens);
+		addChangedRules(cfg, previousRules, cfg, lengths, tokens);
+		minWordLengths = new long[lengths.size()];
+		for (int i = 0; i < minWordLengths.length; ++i) {
+			minWordLengths[i] = lengths.get(i);
+		}
+		requiredTokens = tokens.toArray(new int[0][]);
+		for (int rule = 0; rule < cfg.getRuleHeads().length; ++rule) {
+			if (!previousRules.contains(getRuleKey(cfg, rule))) {
+				++numOfChangedRules;
+			}
+		}
+		for (int rule = 0; rule < previous.getRuleHeads().length; ++rule) {
+			if (!rules.contains(getRuleKey(previous, rule))) {
+				++numOfChangedRules;
+			}
+		}
+	}
+
+	/*
+	 * A method that checks whether the two versions of the grammar start from
+	 * the nonterminal of the same name, which the results of the previous
+	 * version can only be reused if they do, since the derivations of the
+	 * words, and the minimal contexts of the rules (see the
+	 * computeMinContextLengths method), all start from it.
+	 */
+	static boolean hasSameStartSymbol(CFG previous, CFG cfg) {
+		return previous.getSymbolName(previous.getStartSymbol()).equals(
+				cfg.getSymbolName(cfg.getStartSymbol()));
+	}
+
+	/* A method that returns the keys of all the grammar's rules. */
+	private static Set<String> getRuleStrings(CFG cfg) {
+		Set<String> ruleStrings = new HashSet<>();
+		for (int rule = 0; rule < cfg.getRuleHeads().length; ++rule) {
+			ruleStrings.add(getRuleKey(cfg, rule));
+		}
+		return ruleStrings;
+	}
+
+	/*
+	 * A method that returns the key by which a rule is compared: its canonical
+	 * form, followed by a 't' for every terminal of its body and an 'n' for
+	 * every nonterminal.
+	 */
+	private static String getRuleKey(CFG cfg, int rule) {
+		StringBuilder key = new StringBuilder(cfg.getRuleString(rule))
+				.append('\0');
+		for (int literal : cfg.getRuleBodies()[rule]) {
+			key.append(cfg.getTerminalSymbols().get(literal) ? 't' : 'n');
+		}
+		return key.toString();
+	}
+
+	/*
+	 * A method that adds the minimal word length and the required terminals of
+	 * every rule of the given version that the other version doesn't have,
+	 * unless it has a terminal that the new version doesn't have (so it can't
+	 * take part in the derivation of a word of the new vocabulary).
+	 */
+	private static void addChangedRules(CFG version, Set<String> otherRules,
+			CFG cfg, List<Long> lengths, List<int[]> tokens) {
+		long[] contextLengths = null;
+		for (int rule = 0; rule < version.getRuleHeads().length; ++rule) {
+			if (otherRules.contains(getRuleKey(version, rule))) {
+				continue;
+			}
+			if (contextLengths == null) {
+				contextLengths = computeMinContextLengths(version);
+			}
+			int[] body = version.getRuleBodies()[rule];
+			long length = contextLengths[version.getRuleHeads()[rule]];
+			int[] ruleTokens = new int[body.length];
+			int numOfTokens = 0;
+			boolean isDerivable = true;
+			for (int literal : body) {
+				length += version.getMinYieldLength(literal);
+				if (version.getTerminalSymbols().get(literal)) {
+					int token = cfg.getSymbolId(version.getSymbolName(literal));
+					if (token < 0 || !cfg.getTerminalSymbols().get(token)) {
+						isDerivable = false;
+						break;
+					}
+					ruleTokens[numOfTokens++] = token;
+				}
+			}
+			if (isDerivable) {
+				lengths.add(length);
+				tokens.add(Arrays.copyOf(ruleTokens, numOfTokens));
+			}
+		}
+	}
+
+	/*
+	 * A method that computes, for every nonterminal, the minimal total yield
+	 * length of the symbols around it in a sentential form derived from the
+	 * starting nonterminal, using Dijkstra's algorithm: the starting
+	 * nonterminal's context is empty, and a rule of a nonterminal whose context
+	 * length is final offers every nonterminal in its body that context length,
+	 * plus the minimal yields of the rest of the body.
+	 */
+	private static long[] computeMinContextLengths(CFG cfg) {
+		long[] contextLengths = new long[cfg.getNumOfNonterminals()];
+		Arrays.fill(contextLengths, Long.MAX_VALUE);
+		contextLengths[cfg.getStartSymbol()] = 0;
+		PriorityQueue<long[]> queue = new PriorityQueue<>((a, b) -> Long
+				.compare(a[0], b[0])); // Pairs of a length and a nonterminal.
+		queue.add(new long[] { 0, cfg.getStartSymbol() });
+		BitSet finalSymbols = new BitSet();
+		while (!queue.isEmpty()) {
+			long[] pair = queue.poll();
+			int nonterminal = (int) pair[1];
+			if (finalSymbols.get(nonterminal)) {
+				continue;
+			}
+			finalSymbols.set(nonterminal);
+			for (int rule : cfg.getNonterminalRules()[nonterminal]) {
+				int[] body = cfg.getRuleBodies()[rule];
+				long bodyLength = 0;
+				for (int literal : body) {
+					bodyLength += cfg.getMinYieldLength(literal);
+				}
+				for (int literal : body) {
+					if (cfg.getTerminalSymbols().get(literal)) {
+						continue;
+					}
+					long length = pair[0] + bodyLength
+							- cfg.getMinYieldLength(literal);
+					if (length < contextLengths[literal]) {
+						contextLengths[literal] = length;
+						queue.add(new long[] { length, literal });
+					}
+				}
+			}
+		}
+		return contextLengths;
+	}
+
+	/*
+	 * A method that checks whether the given word's result in the previous
+	 * version is its result in the new version, meaning it was tested in the
+	 * previous version, and no changed rule can take part in its derivation.
+	 * It may be called by several threads at once.
+	 */
+	boolean isReusable(int[] word) {
+		if (word.length > testedLength) {
+			return false;
+		}
+		for (int i = 0; i < minWordLengths.length; ++i) {
+			if (word.length >= minWordLengths[i]
+					&& containsAll(word, requiredTokens[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/* A method that checks whether the word contains all the given tokens. */
+	private static boolean containsAll(int[] word, int[] tokens) {
+		for (int token : tokens) {
+			boolean isFound = false;
+			for (int wordToken : word) {
+				if (wordToken == token) {
+					isFound = true;
+					break;
+				}
+			}
+			if (!isFound) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/*
+	 * A method that checks whether the test of a reusable word was
+	 * inconclusive in the previous version.
+	 */
+	boolean isInconclusive(int[] word) {
+		return !inconclusiveWords.isEmpty()
+				&& inconclusiveWords.contains(GrammarAmbiguityTester.buildWord(
+						cfg, word));
+	}
+
+	/* A method that describes the change, for the report. */
+	String describe() {
+		return numOfChangedRules
+				+ " derivation rules changed since the grammar was last tested up to length "
+				+ testedLength
+				+ ", so only the words that are as long as the shortest word a changed rule can appear in, and have all the terminals of its body, are tested again";
+	}
+
+}
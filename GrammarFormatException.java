@@ -0,0 +1,53 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/*
+ * An exception that is thrown when a grammar file is malformed. It holds the
+ * errors of the whole file (see the GrammarReader class), each with its line
+ * number, so they can all be fixed at once.
+ */
+class GrammarFormatException extends IOException {
+
+	private static final long serialVersionUID = 1L;
+
+	/* errors - The errors that are reported, in the order of their lines. */
+	private List<String> errors;
+
+	/*
+	 * The GrammarFormatException class' constructor.
+	 * 		file - The malformed grammar file, or null if the grammar was given
+	 * 			   as text.
+	 * 		errors - The errors that are reported.
+	 * 		numOfErrors - The number of errors in the file, which may be larger
+	 * 					  than the number of reported errors.
+	 */
+	GrammarFormatException(File file, List<String> errors, int numOfErrors) {
+		super(buildMessage(file, errors, numOfErrors));
+		this.errors = errors;
+	}
+
+	/* A getter for the errors field. */
+	public List<String> getErrors() {
+		return errors;
+	}
+
+	/* A method that builds the exception's message. */
+	private static String buildMessage(File file, List<String> errors,
+			int numOfErrors) {
+		StringBuilder message = new StringBuilder(
+				(file != null) ? "The grammar file " + file + " is malformed:"
+						: "The grammar is malformed:");
+		for (String error : errors) {
+			message.append(System.lineSeparator()).append("    ")
+					.append(error);
+		}
+		if (numOfErrors > errors.size()) {
+			message.append(System.lineSeparator()).append("    (and ")
+					.append(numOfErrors - errors.size())
+					.append(" more errors)");
+		}
+		return message.toString();
+	}
+
+}
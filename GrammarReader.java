@@ -0,0 +1,343 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * A class that reads a grammar file, and compiles it to the dense integer ids
+ * and the flat derivation rule arrays of the CFG class. Every line of the file
+ * holds a nonterminal, the '->' separator, and the nonterminal's rules,
+ * separated by '|' (the literals are separated by whitespace, and 'epsilon'
+ * stands for the empty word). Empty lines are ignored.
+ *
+ * The file is read line by line, and every literal is interned once, so
+ * reading a grammar with hundreds of thousands of rules doesn't keep its text,
+ * and takes about linear time in its size. A malformed line doesn't stop the
+ * reading: the errors of the whole file are collected with their line numbers,
+ * and reported together (see the GrammarFormatException class).
+ */
+class GrammarReader {
+
+	/* The maximal number of errors that are reported. */
+	private static final int MAX_REPORTED_ERRORS = 20;
+
+	/* A derivation rule, as read from the file, for finding duplicates. */
+	private static class Rule {
+
+		int head;
+		int[] literals;
+
+		Rule(int head, int[] literals) {
+			this.head = head;
+			this.literals = literals;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof Rule && ((Rule) other).head == head
+					&& Arrays.equals(((Rule) other).literals, literals);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * head + Arrays.hashCode(literals);
+		}
+
+	}
+
+	/* file - The grammar file, or null if the grammar is given as text. */
+	private File file;
+
+	/* text - The grammar's text, if it isn't read from a file. */
+	private String text;
+
+	/*
+	 * literals - The literals of the file, in the order of their first
+	 * appearance, and literalIds - their inverse mapping. The literals get
+	 * their final ids (see the CFG.symbols field) once the whole file was
+	 * read, because a literal is a nonterminal only if it has a rule.
+	 */
+	private List<String> literals = new ArrayList<>();
+	private Map<String, Integer> literalIds = new HashMap<>();
+
+	/*
+	 * nonterminalIndexes - Maps every literal to its index in the order of the
+	 * nonterminals' first rules, or -1 if it has no rule (so it's a terminal).
+	 */
+	private int[] nonterminalIndexes = new int[16];
+
+	/*
+	 * rules - The rules of every nonterminal (by its index), in the order they
+	 * appear in the file, as the literals of their bodies. A rule that appears
+	 * twice is only kept once.
+	 */
+	private List<List<int[]>> rules = new ArrayList<>();
+
+	/* ruleSet - The rules that were read so far, for finding duplicates. */
+	private Set<Rule> ruleSet = new HashSet<>();
+
+	/* containsEpsilon - States whether the 'epsilon' literal was read. */
+	private boolean containsEpsilon;
+
+	/* errors - The errors that are reported, with their line numbers. */
+	private List<String> errors = new ArrayList<>();
+
+	/* numOfErrors - The number of errors in the file. */
+	private int numOfErrors;
+
+	/*
+	 * The results of the compilation (see the CFG class' fields of the same
+	 * names).
+	 */
+	private List<String> symbols;
+	private int numOfNonterminals;
+	private int[] terminalIds;
+	private int[] ruleHeads;
+	private int[][] ruleBodies;
+	private int[][] nonterminalRules;
+
+	/*
+	 * The GrammarReader class' constructor.
+	 * 		file - The grammar file.
+	 */
+	GrammarReader(File file) {
+		this.file = file;
+	}
+
+	/*
+	 * A constructor of a reader of a grammar that is given as text, in the
+	 * format of a grammar file.
+	 * 		text - The grammar's text.
+	 */
+	GrammarReader(String text) {
+		this.text = text;
+	}
+
+	/*
+	 * A method that reads the grammar file (or text) and compiles it. It
+	 * throws a GrammarFormatException if the grammar is malformed.
+	 */
+	void read() throws IOException {
+		try (BufferedReader reader = (file != null) ? Files.newBufferedReader(
+				file.toPath(), StandardCharsets.UTF_8) : new BufferedReader(
+				new StringReader(text))) {
+			String line;
+			int lineNumber = 0;
+			while ((line = reader.readLine()) != null) {
+				readLine(line, ++lineNumber);
+			}
+		}
+		if (numOfErrors == 0 && rules.isEmpty()) {
+			addError("the file has no derivation rules");
+		}
+		if (numOfErrors > 0) {
+			throw new GrammarFormatException(file, errors, numOfErrors);
+		}
+		compile();
+	}
+
+	/* A method that reads a single line of the grammar file. */
+	private void readLine(String line, int lineNumber) {
+		List<String> tokens = tokenize(line);
+		if (tokens.isEmpty()) {
+			return;
+		}
+		if (tokens.size() < 3 || !tokens.get(1).equals("->")) {
+			addError("line " + lineNumber
+					+ ": expected 'NONTERMINAL -> RULE | RULE ...'");
+			return;
+		}
+		String nonterminal = tokens.get(0);
+		if (nonterminal.equals("epsilon") || nonterminal.equals("|")) {
+			addError("line " + lineNumber + ": '" + nonterminal
+					+ "' can't be a nonterminal");
+			return;
+		}
+		List<int[]> lineRules = new ArrayList<>();
+		int start = 2;
+		for (int i = 2; i <= tokens.size(); ++i) {
+			if (i < tokens.size() && !tokens.get(i).equals("|")) {
+				if (tokens.get(i).equals("->")) {
+					addError("line " + lineNumber + ": unexpected '->' in rule "
+							+ (lineRules.size() + 1));
+					return;
+				}
+				continue;
+			}
+			if (i == start) {
+				addError("line " + lineNumber + ": rule "
+						+ (lineRules.size() + 1) + " is empty");
+				return;
+			}
+			int[] body = new int[i - start];
+			for (int j = start; j < i; ++j) {
+				body[j - start] = internLiteral(tokens.get(j));
+				containsEpsilon |= tokens.get(j).equals("epsilon");
+			}
+			lineRules.add(body);
+			start = i + 1;
+		}
+		int head = internLiteral(nonterminal);
+		if (nonterminalIndexes[head] < 0) {
+			nonterminalIndexes[head] = rules.size();
+			rules.add(new ArrayList<>());
+		}
+		for (int[] body : lineRules) {
+			if (ruleSet.add(new Rule(head, body))) {
+				rules.get(nonterminalIndexes[head]).add(body);
+			}
+		}
+	}
+
+	/*
+	 * A method that splits a line into its whitespace separated tokens (the
+	 * whitespace characters are those of the \s regular expression class).
+	 */
+	private static List<String> tokenize(String line) {
+		List<String> tokens = new ArrayList<>();
+		int length = line.length();
+		int i = 0;
+		while (i < length) {
+			while (i < length && isWhitespace(line.charAt(i))) {
+				++i;
+			}
+			int start = i;
+			while (i < length && !isWhitespace(line.charAt(i))) {
+				++i;
+			}
+			if (i > start) {
+				tokens.add(line.substring(start, i));
+			}
+		}
+		return tokens;
+	}
+
+	private static boolean isWhitespace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\u000B'
+				|| c == '\f' || c == '\r';
+	}
+
+	/*
+	 * A method that returns the id of the given literal, and gives it the next
+	 * free id if it doesn't have one yet.
+	 */
+	private int internLiteral(String literal) {
+		Integer id = literalIds.get(literal);
+		if (id == null) {
+			id = literals.size();
+			literals.add(literal);
+			literalIds.put(literal, id);
+			if (id == nonterminalIndexes.length) {
+				nonterminalIndexes = Arrays.copyOf(nonterminalIndexes, 2 * id);
+			}
+			nonterminalIndexes[id] = -1;
+		}
+		return id;
+	}
+
+	/* A method that records an error, and reports it if there is room. */
+	private void addError(String error) {
+		if (++numOfErrors <= MAX_REPORTED_ERRORS) {
+			errors.add(error);
+		}
+	}
+
+	/*
+	 * A method that gives the literals their final ids: the nonterminals get
+	 * the ids 0 to numOfNonterminals - 1, in the order of their first rules,
+	 * and the terminals get the ids that follow them, in the order of their
+	 * first appearance. It then builds the flat derivation rule arrays, in
+	 * which the epsilons are stripped.
+	 */
+	private void compile() {
+		numOfNonterminals = rules.size();
+		String[] names = new String[literals.size()];
+		int[] symbolIds = new int[literals.size()];
+		int nextTerminalId = numOfNonterminals;
+		for (int literal = 0; literal < literals.size(); ++literal) {
+			if (nonterminalIndexes[literal] >= 0) {
+				symbolIds[literal] = nonterminalIndexes[literal];
+			} else if (!literals.get(literal).equals("epsilon")) {
+				symbolIds[literal] = nextTerminalId++;
+			} else {
+				symbolIds[literal] = -1;
+				continue;
+			}
+			names[symbolIds[literal]] = literals.get(literal);
+		}
+		symbols = Arrays.asList(Arrays.copyOf(names, nextTerminalId));
+		terminalIds = new int[nextTerminalId - numOfNonterminals];
+		for (int i = 0; i < terminalIds.length; ++i) {
+			terminalIds[i] = numOfNonterminals + i;
+		}
+		ruleHeads = new int[ruleSet.size()];
+		ruleBodies = new int[ruleSet.size()][];
+		nonterminalRules = new int[numOfNonterminals][];
+		int ruleId = 0;
+		for (int head = 0; head < numOfNonterminals; ++head) {
+			List<int[]> headRules = rules.get(head);
+			nonterminalRules[head] = new int[headRules.size()];
+			for (int i = 0; i < headRules.size(); ++i) {
+				int[] literals = headRules.get(i);
+				int bodyLength = 0;
+				int[] body = new int[literals.length];
+				for (int literal : literals) {
+					if (symbolIds[literal] >= 0) {
+						body[bodyLength++] = symbolIds[literal];
+					}
+				}
+				ruleHeads[ruleId] = head;
+				ruleBodies[ruleId] = Arrays.copyOf(body, bodyLength);
+				nonterminalRules[head][i] = ruleId++;
+			}
+		}
+	}
+
+	/*
+	 * A method that states whether the grammar's vocabulary is empty: it has
+	 * no terminals, and the 'epsilon' literal doesn't appear in it.
+	 */
+	boolean isVocabularyEmpty() {
+		return terminalIds.length == 0 && !containsEpsilon;
+	}
+
+	/* A getter for the symbols field. */
+	List<String> getSymbols() {
+		return symbols;
+	}
+
+	/* A getter for the numOfNonterminals field. */
+	int getNumOfNonterminals() {
+		return numOfNonterminals;
+	}
+
+	/* A getter for the terminalIds field. */
+	int[] getTerminalIds() {
+		return terminalIds;
+	}
+
+	/* A getter for the ruleHeads field. */
+	int[] getRuleHeads() {
+		return ruleHeads;
+	}
+
+	/* A getter for the ruleBodies field. */
+	int[][] getRuleBodies() {
+		return ruleBodies;
+	}
+
+	/* A getter for the nonterminalRules field. */
+	int[][] getNonterminalRules() {
+		return nonterminalRules;
+	}
+
+}
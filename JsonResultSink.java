@@ -0,0 +1,171 @@
+import java.io.PrintStream;
+import java.util.List;
+
+/*
+ * A result sink that streams the results of the test as newline delimited
+ * JSON (TesterOptions.OutputMode.NDJSON): a JSON object per line, whose "type"
+ * field is one of:
+ *     "message" - A warning or an error ("text").
+ *     "note" - A statistic of the test ("text").
+ *     "word" - A tested word ("word", "length", and either "derivations",
+ *              the number of its left derivations (at most 2), or
+ *              "inconclusive", the reason its test was inconclusive).
+ *     "length" - All the words of a length were tested ("length").
+ *     "witness" - The ambiguous word ("word"), with its first two left
+ *                 derivations ("derivations"), each given as the list of the
+ *                 rules it applies, in their order.
+ *     "verdict" - The test's verdict ("verdict", which is the name of a
+ *                 ResultSink.Verdict constant, and "inconclusiveWords").
+ * Words are given as arrays of token names. The lines are written by a
+ * separate thread, and flushed once all the words of a length were tested.
+ * The sinks of the requests of a TesterDaemon start every line with the
+ * request's "id" field, and may leave out the "word" lines.
+ */
+class JsonResultSink implements ResultSink {
+
+	private static final String NEW_LINE = System.lineSeparator();
+
+	/* output - The output the lines are written to. */
+	private AsyncOutput output;
+
+	/* cfg - The tested grammar, in its compiled form. */
+	private CFG cfg;
+
+	/* lastWordLength - The length of the last reported word, or -1. */
+	private int lastWordLength = -1;
+
+	/*
+	 * linePrefix - The start of every line: the '{', and the "id" field, if
+	 * the lines belong to a request.
+	 */
+	private String linePrefix;
+
+	/* reportWords - States whether a line is written per tested word. */
+	private boolean reportWords;
+
+	/*
+	 * The JsonResultSink class' constructor.
+	 * 		out - The stream the lines are written to.
+	 */
+	JsonResultSink(PrintStream out) {
+		this(out, null, true);
+	}
+
+	/*
+	 * A constructor of a sink of a request's results.
+	 * 		out - The stream the lines are written to.
+	 * 		requestId - The request's id, as a JSON value, or null.
+	 * 		reportWords - States whether a line is written per tested word.
+	 */
+	JsonResultSink(PrintStream out, String requestId, boolean reportWords) {
+		output = new AsyncOutput(out);
+		linePrefix = (requestId != null) ? "{\"id\":" + requestId + "," : "{";
+		this.reportWords = reportWords;
+	}
+
+	public void start(CFG cfg) {
+		this.cfg = cfg;
+	}
+
+	public void message(String message) {
+		StringBuilder line = new StringBuilder(linePrefix)
+				.append("\"type\":\"message\",\"text\":");
+		appendString(line, message);
+		output.write(line.append('}').append(NEW_LINE));
+		output.flush();
+	}
+
+	public void note(String note) {
+		StringBuilder line = new StringBuilder(linePrefix)
+				.append("\"type\":\"note\",\"text\":");
+		appendString(line, note);
+		output.write(line.append('}').append(NEW_LINE));
+	}
+
+	public void wordTested(int[] word, int result, String inconclusiveReason,
+			List<int[]> leftDerivationsFound) {
+		if (!reportWords) {
+			return;
+		}
+		if (word.length != lastWordLength) {
+			output.flush();
+			lastWordLength = word.length;
+		}
+		StringBuilder line = new StringBuilder(linePrefix)
+				.append("\"type\":\"word\",\"word\":");
+		appendSymbols(line, word);
+		line.append(",\"length\":").append(word.length);
+		if (result == DerivationCounter.INCONCLUSIVE) {
+			line.append(",\"inconclusive\":");
+			appendString(line, inconclusiveReason);
+		} else {
+			line.append(",\"derivations\":").append(result);
+		}
+		output.write(line.append('}').append(NEW_LINE));
+	}
+
+	public void wordLengthTested(int length) {
+		output.write(linePrefix + "\"type\":\"length\",\"length\":" + length
+				+ "}" + NEW_LINE);
+		output.flush();
+	}
+
+	public void ambiguousWord(int[] word, List<int[]> leftDerivationsFound) {
+		StringBuilder line = new StringBuilder(linePrefix)
+				.append("\"type\":\"witness\",\"word\":");
+		appendSymbols(line, word);
+		line.append(",\"derivations\":[");
+		for (int i = 0; i < 2; ++i) {
+			line.append(i > 0 ? ",[" : "[");
+			int[] appliedRules = leftDerivationsFound.get(i);
+			for (int j = 0; j < appliedRules.length; ++j) {
+				if (j > 0) {
+					line.append(',');
+				}
+				appendString(line,
+						GrammarAmbiguityTester.buildRule(cfg, appliedRules[j]));
+			}
+			line.append(']');
+		}
+		output.write(line.append("]}").append(NEW_LINE));
+	}
+
+	public void verdict(Verdict verdict, long numOfInconclusiveWords) {
+		output.write(linePrefix + "\"type\":\"verdict\",\"verdict\":\""
+				+ verdict + "\",\"inconclusiveWords\":"
+				+ numOfInconclusiveWords + "}" + NEW_LINE);
+	}
+
+	public void close() {
+		output.close();
+	}
+
+	/* A method that appends the names of the given symbols as a JSON array. */
+	private void appendSymbols(StringBuilder line, int[] symbolIds) {
+		line.append('[');
+		for (int i = 0; i < symbolIds.length; ++i) {
+			if (i > 0) {
+				line.append(',');
+			}
+			appendString(line, cfg.getSymbolName(symbolIds[i]));
+		}
+		line.append(']');
+	}
+
+	/* A method that appends the given string as a JSON string. */
+	static void appendString(StringBuilder line, String string) {
+		line.append('"');
+		for (int i = 0; i < string.length(); ++i) {
+			char c = string.charAt(i);
+			if (c == '"' || c == '\\') {
+				line.append('\\').append(c);
+			} else if (c < 0x20) {
+				line.append(String.format("\\u%04x", (int) c));
+			} else {
+				line.append(c);
+			}
+		}
+		line.append('"');
+	}
+
+}
@@ -0,0 +1,345 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+ * A class that tests the words of the grammar's vocabulary on a fork-join pool.
+ * Every word has a rank, which is its index among the words of its length in
+ * the lexicographical order (see the VocabularyGenerator class). The words of
+ * every length are split into partitions, which are even ranges of ranks, and
+ * every partition is tested by a separate task, with its own derivation
+ * counter. The tasks cooperate to find the
+ * ambiguous word with the smallest rank: once an ambiguous word is found, the
+ * tasks stop testing words of higher ranks, but keep testing words of lower
+ * ranks. So the reported word is always the first ambiguous word, exactly as
+ * in the sequential test. A word whose search takes too long is split among
+ * the threads that have nothing else to do (see the DerivationSplitter class),
+ * so the last words of a length don't keep a single thread busy.
+ */
+class ParallelWordTester {
+
+	/*
+	 * The minimal number of partitions per thread, so that the threads that
+	 * finish early can steal work from the others.
+	 */
+	private static final int PARTITIONS_PER_THREAD = 8;
+
+	/* cfg - The tested grammar, in its compiled form. */
+	private CFG cfg;
+
+	/* generator - Generates the partitions of the words of every length. */
+	private VocabularyGenerator generator;
+
+	/* pool - The pool the tasks run on. */
+	private ForkJoinPool pool;
+
+	/* options - The test's options. */
+	private TesterOptions options;
+
+	/*
+	 * check - The grammar's static check, whose LL(1) conflicts narrow the
+	 * derivation search, or null.
+	 */
+	private StaticAmbiguityCheck check;
+
+	/*
+	 * splitter - Splits the derivation searches of hard words, or null if
+	 * they aren't split.
+	 */
+	private DerivationSplitter splitter;
+
+	/*
+	 * idleCounters - The derivation counters of the tasks that finished, which
+	 * are reused by the next tasks. A task that waits for a split word may run
+	 * another task meanwhile (see the DerivationSplitter class), so a counter
+	 * can't be kept per thread.
+	 */
+	private ConcurrentLinkedQueue<DerivationCounter> idleCounters = new ConcurrentLinkedQueue<>();
+
+	/* firstAmbiguousWord - The ambiguous word with the smallest rank so far. */
+	private AtomicReference<AmbiguousWord> firstAmbiguousWord = new AtomicReference<>();
+
+	/* numOfInconclusiveWords - The number of inconclusive words so far. */
+	private AtomicLong numOfInconclusiveWords = new AtomicLong();
+
+	/*
+	 * inconclusiveWords - The inconclusive words so far, up to
+	 * Checkpoint.MAX_RECORDED_INCONCLUSIVE_WORDS of them.
+	 */
+	private ConcurrentLinkedQueue<int[]> inconclusiveWords = new ConcurrentLinkedQueue<>();
+
+	/*
+	 * change - The change from a previous version of the grammar, whose
+	 * results are reused, or null (see the GrammarChange class).
+	 */
+	private GrammarChange change;
+
+	/* numOfReusedWords - The number of words whose results were reused. */
+	private AtomicLong numOfReusedWords = new AtomicLong();
+
+	/*
+	 * statistics - The statistics of the test, or null if it is not
+	 * instrumented.
+	 */
+	private TesterStatistics statistics;
+
+	/* deadline - The time at which the test must stop. */
+	private Deadline deadline;
+
+	/* outOfTime - States whether a task stopped because of the deadline. */
+	private volatile boolean outOfTime;
+
+	/*
+	 * A class that holds an ambiguous word, its rank and its two left
+	 * derivations.
+	 */
+	static class AmbiguousWord {
+
+		long rank;
+		int[] word;
+		List<int[]> leftDerivationsFound;
+
+		AmbiguousWord(long rank, int[] word, List<int[]> leftDerivationsFound) {
+			this.rank = rank;
+			this.word = word;
+			this.leftDerivationsFound = leftDerivationsFound;
+		}
+
+	}
+
+	/*
+	 * The ParallelWordTester class' constructor.
+	 * 		cfg - The tested grammar.
+	 * 		options - The test's options.
+	 * 		pool - The pool the tasks run on.
+	 * 		statistics - The statistics of the test, or null if it is not
+	 * 					 instrumented.
+	 * 		deadline - The time at which the test must stop.
+	 * 		check - The grammar's static check, whose LL(1) conflicts narrow
+	 * 				the derivation search, or null.
+	 */
+	ParallelWordTester(CFG cfg, TesterOptions options, ForkJoinPool pool,
+			TesterStatistics statistics, Deadline deadline,
+			StaticAmbiguityCheck check) {
+		this.cfg = cfg;
+		this.options = options;
+		this.pool = pool;
+		this.statistics = statistics;
+		this.deadline = deadline;
+		this.check = check;
+		generator = new VocabularyGenerator(cfg.getTerminalIds());
+		if (options.getSplitSteps() > 0) {
+			splitter = new DerivationSplitter(() -> {
+				DerivationSearch search = new DerivationSearch(cfg, options);
+				search.setDeadline(deadline);
+				search.setStaticCheck(check);
+				if (statistics != null) {
+					statistics.addCounter(search);
+				}
+				return search;
+			});
+		}
+	}
+
+	/* A method that creates the derivation counter of a partition task. */
+	private DerivationCounter createCounter() {
+		DerivationCounter counter = GrammarAmbiguityTester.createCounter(cfg,
+				options);
+		if (counter instanceof DerivationSearch) {
+			((DerivationSearch) counter).setDeadline(deadline);
+			((DerivationSearch) counter).setStaticCheck(check);
+			((DerivationSearch) counter).setSplitter(splitter);
+		}
+		if (statistics != null) {
+			statistics.addCounter(counter);
+		}
+		return counter;
+	}
+
+	/*
+	 * A method that tests all the words of the given length, and returns the
+	 * first ambiguous word among them, or null if there isn't one. The words
+	 * of the length must have ranks that fit in a long (see the canTest
+	 * method).
+	 */
+	AmbiguousWord testLength(int length) {
+		List<VocabularyGenerator.WordSpliterator> partitions = new ArrayList<>();
+		partitions.add(generator.spliterator(length, 0,
+				generator.getNumOfWords(length)));
+		boolean wasSplit = true;
+		while (wasSplit
+				&& partitions.size() < PARTITIONS_PER_THREAD
+						* pool.getParallelism()) { // Halving all the
+													// partitions, in order.
+			List<VocabularyGenerator.WordSpliterator> halves = new ArrayList<>();
+			wasSplit = false;
+			for (VocabularyGenerator.WordSpliterator partition : partitions) {
+				VocabularyGenerator.WordSpliterator prefix = partition
+						.trySplit();
+				if (prefix != null) {
+					halves.add(prefix);
+					wasSplit = true;
+				}
+				halves.add(partition);
+			}
+			partitions = halves;
+		}
+		List<PartitionTask> tasks = new ArrayList<>();
+		for (VocabularyGenerator.WordSpliterator partition : partitions) {
+			tasks.add(new PartitionTask(partition));
+		}
+		pool.invoke(new RecursiveAction() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void compute() {
+				invokeAll(tasks);
+			}
+		});
+		return firstAmbiguousWord.get();
+	}
+
+	/*
+	 * A method that checks whether the words of every length up to the given
+	 * one can be split into partitions, meaning their ranks fit in a long.
+	 */
+	static boolean canTest(CFG cfg, int maxLength) {
+		return new VocabularyGenerator(cfg.getTerminalIds()).canRank(maxLength);
+	}
+
+	/* A getter for the numOfInconclusiveWords field. */
+	long getNumOfInconclusiveWords() {
+		return numOfInconclusiveWords.get();
+	}
+
+	/*
+	 * A method that returns the inconclusive words that were found since the
+	 * last call, up to Checkpoint.MAX_RECORDED_INCONCLUSIVE_WORDS of them in
+	 * total.
+	 */
+	List<int[]> takeInconclusiveWords() {
+		List<int[]> words = new ArrayList<>();
+		int[] word;
+		while ((word = inconclusiveWords.poll()) != null) {
+			words.add(word);
+		}
+		return words;
+	}
+
+	/* A setter for the change field. */
+	void setChange(GrammarChange change) {
+		this.change = change;
+	}
+
+	/* A getter for the numOfReusedWords field. */
+	long getNumOfReusedWords() {
+		return numOfReusedWords.get();
+	}
+
+	/* A method that counts an inconclusive word, and keeps it if there is room. */
+	private void addInconclusiveWord(int[] word) {
+		if (numOfInconclusiveWords.incrementAndGet() <= Checkpoint.MAX_RECORDED_INCONCLUSIVE_WORDS) {
+			inconclusiveWords.add(word.clone());
+		}
+	}
+
+	/* A getter for the outOfTime field. */
+	boolean isOutOfTime() {
+		return outOfTime;
+	}
+
+	/*
+	 * A method that checks whether a word of the given rank should still be
+	 * tested, meaning no ambiguous word of a smaller rank was found yet.
+	 */
+	private boolean shouldTest(long rank) {
+		AmbiguousWord ambiguousWord = firstAmbiguousWord.get();
+		return ambiguousWord == null || rank < ambiguousWord.rank;
+	}
+
+	/*
+	 * A method that records the given ambiguous word, unless an ambiguous word
+	 * of a smaller rank was already found.
+	 */
+	private void offer(AmbiguousWord ambiguousWord) {
+		AmbiguousWord current;
+		do {
+			current = firstAmbiguousWord.get();
+			if (current != null && current.rank <= ambiguousWord.rank) {
+				return;
+			}
+		} while (!firstAmbiguousWord.compareAndSet(current, ambiguousWord));
+	}
+
+	/*
+	 * A task that tests the words of a partition, in the lexicographical
+	 * order.
+	 */
+	private class PartitionTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private VocabularyGenerator.WordSpliterator words;
+		private DerivationCounter counter;
+		private boolean isStopped;
+
+		PartitionTask(VocabularyGenerator.WordSpliterator words) {
+			this.words = words;
+		}
+
+		@Override
+		protected void compute() {
+			counter = idleCounters.poll();
+			if (counter == null) {
+				counter = createCounter();
+			}
+			try {
+				while (!isStopped && words.tryAdvance(this::testWord)) {
+				}
+			} finally {
+				idleCounters.add(counter);
+			}
+		}
+
+		/* A method that tests the given word of the partition. */
+		private void testWord(int[] word) {
+			long rank = words.getRank();
+			if (!shouldTest(rank)) { // The next words have higher ranks.
+				isStopped = true;
+				return;
+			}
+			if (deadline.hasPassed()) {
+				outOfTime = true;
+				isStopped = true;
+				return;
+			}
+			if (change != null && change.isReusable(word)) {
+				numOfReusedWords.incrementAndGet();
+				if (change.isInconclusive(word)) {
+					addInconclusiveWord(word);
+				}
+				return;
+			}
+			List<int[]> leftDerivationsFound = new ArrayList<>();
+			TesterEvents.WordTested event = (statistics != null) ? statistics
+					.startWord(word.length) : null;
+			int result = counter.countDerivations(word, leftDerivationsFound);
+			if (statistics != null) {
+				statistics.finishWord(event, counter, word, result);
+			}
+			if (result == DerivationCounter.INCONCLUSIVE) {
+				addInconclusiveWord(word);
+			} else if (result > 1) {
+				offer(new AmbiguousWord(rank, word.clone(),
+						leftDerivationsFound));
+				isStopped = true;
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,193 @@
+import java.util.Arrays;
+import java.util.BitSet;
+
+/*
+ * A class that checks whether a prefix can be extended into a word of the
+ * grammar's language. It runs an Earley recognizer over the grammar's rules
+ * (the CFG class drops the useless rules, so every item that the recognizer
+ * adds can be completed), keeping an Earley set for every position of the
+ * last checked prefix. A prefix is viable
+ * exactly when the Earley set that follows its last token is not empty.
+ *
+ * Consecutive checks usually share a long prefix (the vocabulary is generated
+ * in a lexicographical order), so the Earley sets of the common prefix are
+ * kept, and only the sets of the changed positions are computed again.
+ */
+class PrefixViabilityChecker {
+
+	/* cfg - The tested grammar, in its compiled form. */
+	private CFG cfg;
+
+	/*
+	 * The grammar's Earley items. The item of rule r with the dot at position
+	 * d has the index itemBases[r] + d, and itemRules and itemDots map every
+	 * item back to its rule and dot position.
+	 */
+	private int[] itemBases;
+	private int[] itemRules;
+	private int[] itemDots;
+	private int numOfItems;
+
+	/*
+	 * The Earley sets. Set k holds setSizes[k] items, whose indices are in
+	 * setItems[k] and whose origins are in setOrigins[k]. setMembers[k] holds
+	 * origin * numOfItems + item for every item of set k, to avoid duplicates.
+	 */
+	private int[][] setItems = new int[1][16];
+	private int[][] setOrigins = new int[1][16];
+	private int[] setSizes = new int[1];
+	private BitSet[] setMembers = { new BitSet() };
+
+	/*
+	 * prefix - The prefix that the Earley sets were computed for. Sets 0 to
+	 * prefixLength are valid.
+	 */
+	private int[] prefix = new int[0];
+	private int prefixLength;
+
+	/*
+	 * The PrefixViabilityChecker class' constructor.
+	 * 		cfg - The tested grammar.
+	 */
+	PrefixViabilityChecker(CFG cfg) {
+		this.cfg = cfg;
+		int[][] ruleBodies = cfg.getRuleBodies();
+		itemBases = new int[ruleBodies.length];
+		for (int rule = 0; rule < ruleBodies.length; ++rule) {
+			itemBases[rule] = numOfItems;
+			numOfItems += ruleBodies[rule].length + 1;
+		}
+		itemRules = new int[numOfItems];
+		itemDots = new int[numOfItems];
+		for (int rule = 0; rule < ruleBodies.length; ++rule) {
+			for (int d = 0; d <= ruleBodies[rule].length; ++d) {
+				itemRules[itemBases[rule] + d] = rule;
+				itemDots[itemBases[rule] + d] = d;
+			}
+		}
+		for (int rule : cfg.getNonterminalRules()[cfg.getStartSymbol()]) {
+			addItem(0, itemBases[rule], 0);
+		}
+		complete(0);
+	}
+
+	/*
+	 * A method that checks whether the first length tokens of the given word
+	 * are a prefix of some word of the grammar's language.
+	 */
+	boolean isViable(int[] word, int length) {
+		int commonLength = 0;
+		int maxCommonLength = Math.min(prefixLength, length);
+		while (commonLength < maxCommonLength
+				&& prefix[commonLength] == word[commonLength]) {
+			++commonLength;
+		}
+		if (prefix.length < length) {
+			prefix = Arrays.copyOf(prefix, Math.max(length, prefix.length * 2));
+		}
+		prefixLength = commonLength;
+		while (prefixLength < length) {
+			if (setSizes[prefixLength] == 0) { // An empty set stays empty.
+				return false;
+			}
+			prefix[prefixLength] = word[prefixLength];
+			scan(prefixLength, word[prefixLength]);
+			++prefixLength;
+		}
+		return setSizes[length] > 0;
+	}
+
+	/*
+	 * A method that computes Earley set k + 1 from Earley set k, after reading
+	 * the given token.
+	 */
+	private void scan(int k, int token) {
+		ensureSets(k + 1);
+		setSizes[k + 1] = 0;
+		setMembers[k + 1].clear();
+		int[][] ruleBodies = cfg.getRuleBodies();
+		for (int i = 0; i < setSizes[k]; ++i) {
+			int item = setItems[k][i];
+			int[] body = ruleBodies[itemRules[item]];
+			int d = itemDots[item];
+			if (d < body.length && body[d] == token) {
+				addItem(k + 1, item + 1, setOrigins[k][i]);
+			}
+		}
+		complete(k + 1);
+	}
+
+	/*
+	 * A method that adds to Earley set k all the items that the predictor and
+	 * the completer add. A nullable nonterminal is skipped as soon as it is
+	 * predicted, so the completer only needs to handle items from earlier
+	 * sets.
+	 */
+	private void complete(int k) {
+		int[][] ruleBodies = cfg.getRuleBodies();
+		BitSet terminals = cfg.getTerminalSymbols();
+		for (int i = 0; i < setSizes[k]; ++i) {
+			int item = setItems[k][i];
+			int origin = setOrigins[k][i];
+			int[] body = ruleBodies[itemRules[item]];
+			int d = itemDots[item];
+			if (d < body.length) {
+				int literal = body[d];
+				if (terminals.get(literal)) {
+					continue;
+				}
+				for (int rule : cfg.getNonterminalRules()[literal]) {
+					addItem(k, itemBases[rule], k);
+				}
+				if (cfg.getNullableSymbols().get(literal)) {
+					addItem(k, item + 1, origin);
+				}
+			} else if (origin < k) {
+				int nonterminal = cfg.getRuleHeads()[itemRules[item]];
+				for (int j = 0; j < setSizes[origin]; ++j) {
+					int waitingItem = setItems[origin][j];
+					int[] waitingBody = ruleBodies[itemRules[waitingItem]];
+					int waitingDot = itemDots[waitingItem];
+					if (waitingDot < waitingBody.length
+							&& waitingBody[waitingDot] == nonterminal) {
+						addItem(k, waitingItem + 1, setOrigins[origin][j]);
+					}
+				}
+			}
+		}
+	}
+
+	/* A method that adds an item to Earley set k, unless it's already there. */
+	private void addItem(int k, int item, int origin) {
+		int member = origin * numOfItems + item;
+		if (setMembers[k].get(member)) {
+			return;
+		}
+		setMembers[k].set(member);
+		if (setSizes[k] == setItems[k].length) {
+			setItems[k] = Arrays.copyOf(setItems[k], setSizes[k] * 2);
+			setOrigins[k] = Arrays.copyOf(setOrigins[k], setSizes[k] * 2);
+		}
+		setItems[k][setSizes[k]] = item;
+		setOrigins[k][setSizes[k]] = origin;
+		++setSizes[k];
+	}
+
+	/* A method that makes sure Earley set k exists. */
+	private void ensureSets(int k) {
+		int oldNumOfSets = setSizes.length;
+		if (k < oldNumOfSets) {
+			return;
+		}
+		setItems = Arrays.copyOf(setItems, k + 1);
+		setOrigins = Arrays.copyOf(setOrigins, k + 1);
+		setSizes = Arrays.copyOf(setSizes, k + 1);
+		setMembers = Arrays.copyOf(setMembers, k + 1);
+		for (int i = oldNumOfSets; i <= k; ++i) {
+			setItems[i] = new int[16];
+			setOrigins[i] = new int[16];
+			setMembers[i] = new BitSet();
+		}
+	}
+
+}
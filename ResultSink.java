@@ -0,0 +1,80 @@
+import java.util.List;
+
+/*
+ * An interface of the sinks that the results of an ambiguity test are
+ * reported to (see the TesterOptions.OutputMode enum). The test calls start
+ * once the grammar is loaded, then reports the tested words in the order they
+ * were tested, and finally reports its verdict. A sink should never make the
+ * test wait for the output, so the sinks hand their output to a separate
+ * writer thread (see the AsyncOutput class), and close waits until all of it
+ * was written.
+ */
+interface ResultSink {
+
+	/* The possible verdicts of an ambiguity test. */
+	enum Verdict {
+		/* An ambiguous word was found. */
+		AMBIGUOUS,
+		/* The grammar has no terminals, so its vocabulary is empty. */
+		AMBIGUOUS_IN_AN_EMPTY_WAY,
+		/* No ambiguous word was found, and every test was conclusive. */
+		NOT_AMBIGUOUS,
+		/*
+		 * The grammar was proved not ambiguous without testing any word (see
+		 * the StaticAmbiguityCheck class).
+		 */
+		PROVED_NOT_AMBIGUOUS,
+		/* No ambiguous word was found, but some tests were inconclusive. */
+		INCONCLUSIVE,
+		/*
+		 * No ambiguous word was found, but the test ran out of time before it
+		 * tested all the words.
+		 */
+		OUT_OF_TIME
+	}
+
+	/* A method that is called once the tested grammar was loaded. */
+	void start(CFG cfg);
+
+	/* A method that reports a warning or an error of the test. */
+	void message(String message);
+
+	/* A method that reports a statistic of the test. */
+	void note(String note);
+
+	/*
+	 * A method that reports the result of a single word.
+	 * 		word - The tested word.
+	 * 		result - The number of the word's left derivations (0, 1 or 2), or
+	 * 				 DerivationCounter.INCONCLUSIVE.
+	 * 		inconclusiveReason - The reason of an inconclusive result, or null.
+	 * 		leftDerivationsFound - The word's left derivations that were found,
+	 * 							   as the ids of their applied rules (may be
+	 * 							   empty if the engine doesn't find them).
+	 */
+	void wordTested(int[] word, int result, String inconclusiveReason,
+			List<int[]> leftDerivationsFound);
+
+	/*
+	 * A method that reports that all the words of the given length were
+	 * tested, when the words are not reported one by one.
+	 */
+	void wordLengthTested(int length);
+
+	/*
+	 * A method that reports the ambiguous word the test found (the witness),
+	 * right after its wordTested call, with its first two left derivations.
+	 */
+	void ambiguousWord(int[] word, List<int[]> leftDerivationsFound);
+
+	/*
+	 * A method that reports the test's verdict.
+	 * 		verdict - The verdict.
+	 * 		numOfInconclusiveWords - The number of inconclusive words.
+	 */
+	void verdict(Verdict verdict, long numOfInconclusiveWords);
+
+	/* A method that waits until all the output of the sink was written. */
+	void close();
+
+}
@@ -0,0 +1,111 @@
+/*
+ * A class that counts what a derivation search does: how many derivation
+ * rules it applies, how many derived strings it drops and why, and how deep
+ * its left derivations get. The counters cover all the words the search
+ * tested, and the per word counters cover the word it is testing. A single
+ * search (thread) writes the counters, and other threads (the JMX MBean of
+ * the TesterStatistics class) may read them while it runs, in which case they
+ * may see slightly stale values.
+ */
+class SearchStatistics {
+
+	/* The reasons to drop a derived string. */
+	enum PruneReason {
+		/* The derived string's terminal prefix does not match the word. */
+		PREFIX_MISMATCH,
+		/* The derived string consists of only terminals, but isn't the word. */
+		TERMINAL_ONLY,
+		/* The shortest word the derived string derives is longer than the word. */
+		LENGTH_BOUND,
+		/*
+		 * The word's next token is not in the FIRST sets of the derived
+		 * string's nullable prefix.
+		 */
+		FIRST_SET,
+		/* The derivation would need more than the maximal number of steps. */
+		DEPTH_BUDGET,
+		/* The span counts memo shows the rest of the word can't be derived. */
+		SPAN_COUNTS
+	}
+
+	/* expansions - The number of derivation rules applied so far. */
+	private long expansions;
+
+	/* prunes - Maps every prune reason's ordinal to its number of prunes. */
+	private long[] prunes = new long[PruneReason.values().length];
+
+	/* maxDepth - The maximal number of steps in a derivation so far. */
+	private int maxDepth;
+
+	/*
+	 * The values of expansions and prunes when the search started testing its
+	 * current word, and the maximal number of steps in a derivation of the
+	 * current word.
+	 */
+	private long wordStartExpansions;
+	private long[] wordStartPrunes = new long[prunes.length];
+	private int wordMaxDepth;
+
+	/* A method that starts the per word counters of a new word. */
+	void startWord() {
+		wordStartExpansions = expansions;
+		System.arraycopy(prunes, 0, wordStartPrunes, 0, prunes.length);
+		wordMaxDepth = 0;
+	}
+
+	/*
+	 * A method that counts a derivation rule, that was applied as the given
+	 * step of the derivation.
+	 */
+	void countExpansion(int depth) {
+		++expansions;
+		if (depth > wordMaxDepth) {
+			wordMaxDepth = depth;
+			if (depth > maxDepth) {
+				maxDepth = depth;
+			}
+		}
+	}
+
+	/* A method that counts a derived string dropped for the given reason. */
+	void countPrune(PruneReason reason) {
+		++prunes[reason.ordinal()];
+	}
+
+	/* A getter for the expansions field. */
+	long getExpansions() {
+		return expansions;
+	}
+
+	/* A method that returns the number of prunes of the given reason. */
+	long getNumOfPrunes(PruneReason reason) {
+		return prunes[reason.ordinal()];
+	}
+
+	/* A getter for the maxDepth field. */
+	int getMaxDepth() {
+		return maxDepth;
+	}
+
+	/*
+	 * A method that returns the number of derivation rules applied for the
+	 * current word.
+	 */
+	long getWordExpansions() {
+		return expansions - wordStartExpansions;
+	}
+
+	/*
+	 * A method that returns the number of derived strings dropped for the
+	 * current word, for the given reason.
+	 */
+	long getWordPrunes(PruneReason reason) {
+		return prunes[reason.ordinal()] - wordStartPrunes[reason.ordinal()];
+	}
+
+	/* A getter for the wordMaxDepth field. */
+	int getWordMaxDepth() {
+		return wordMaxDepth;
+	}
+
+}
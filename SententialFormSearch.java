@@ -0,0 +1,488 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/*
+ * A class that looks for two different left derivations that reach the same
+ * sentential form, breadth first over the grammar's leftmost sentential forms.
+ * Every symbol of a form is productive (the CFG class drops the useless
+ * rules), so a form derives some word, and deriving that word from the form in
+ * the same way after both derivations gives two different left derivations of
+ * it. So the first form that is reached twice proves that the grammar is
+ * ambiguous, usually long before the words of the vocabulary that show it are
+ * tested.
+ *
+ * Only the forms whose shortest word is not longer than the maximal word
+ * length are visited, and only the forms of at most 2 * maxWordLength + 1
+ * symbols (nullable nonterminals make the forms longer than their words). If
+ * no form was skipped because of its symbols, every left derivation of every
+ * word up to the maximal word length was followed, so reaching no form twice
+ * proves that these words are not ambiguous.
+ *
+ * The visited forms are kept in an open addressing hash table of their 64 bit
+ * hashes. A form itself is not kept: every visited form is a node that holds
+ * only its parent's node and the rule that was applied to it, so a form is
+ * rebuilt from its rule trail when its hash is found in the table, to make
+ * sure it is the same form. Only the forms of the current and the next
+ * breadth first level are kept, one after the other in flat arrays. The number
+ * of visited forms is bounded, so the memory of the search is bounded too.
+ */
+class SententialFormSearch {
+
+	/*
+	 * The deadline is checked whenever the number of expanded forms is a
+	 * multiple of DEADLINE_CHECK_INTERVAL (a power of 2).
+	 */
+	private static final long DEADLINE_CHECK_INTERVAL = 1 << 14;
+
+	/* The initial capacity of the visited forms table (a power of 2). */
+	private static final int MIN_TABLE_CAPACITY = 1 << 10;
+
+	/* A breadth first level of forms, one after the other. */
+	private static class Level {
+
+		int[] symbols = new int[1 << 10];
+		int numOfSymbols;
+
+		/*
+		 * The start of every form in symbols (and the end of the last form),
+		 * every form's node, and the length of the shortest word it derives.
+		 */
+		int[] starts = new int[1 << 8];
+		int[] nodes = new int[1 << 8];
+		long[] minYieldLengths = new long[1 << 8];
+		int numOfForms;
+
+		/* A method that adds a form to the level. */
+		void add(int[] form, int length, int node, long minYieldLength) {
+			if (numOfForms + 1 >= starts.length) {
+				starts = Arrays.copyOf(starts, 2 * starts.length);
+				nodes = Arrays.copyOf(nodes, starts.length);
+				minYieldLengths = Arrays.copyOf(minYieldLengths, starts.length);
+			}
+			if (numOfSymbols + length > symbols.length) {
+				symbols = Arrays.copyOf(symbols, Math.max(2 * symbols.length,
+						numOfSymbols + length));
+			}
+			System.arraycopy(form, 0, symbols, numOfSymbols, length);
+			nodes[numOfForms] = node;
+			minYieldLengths[numOfForms] = minYieldLength;
+			starts[numOfForms] = numOfSymbols;
+			numOfSymbols += length;
+			starts[++numOfForms] = numOfSymbols;
+		}
+
+		/* A method that removes all the forms of the level. */
+		void clear() {
+			numOfSymbols = 0;
+			numOfForms = 0;
+		}
+
+	}
+
+	/* cfg - The tested grammar, in its compiled form. */
+	private CFG cfg;
+
+	/*
+	 * maxWordLength - The maximal length of the shortest word of a visited
+	 * form, and maxFormLength - the maximal number of its symbols.
+	 */
+	private int maxWordLength;
+	private int maxFormLength;
+
+	/* maxNumOfForms - The maximal number of forms the search visits. */
+	private int maxNumOfForms;
+
+	/* deadline - The time at which the search must stop. */
+	private Deadline deadline;
+
+	/*
+	 * ruleWeights - Maps every rule id to the length of the shortest word that
+	 * the rule's body can derive.
+	 */
+	private long[] ruleWeights;
+
+	/*
+	 * completionRules - Maps every nonterminal to a rule of it that derives
+	 * one of its shortest words, such that following these rules from any
+	 * nonterminal always ends (see the computeCompletionRules method).
+	 */
+	private int[] completionRules;
+
+	/*
+	 * The nodes of the visited forms: the node of the form that every form was
+	 * derived from (-1 for the starting nonterminal), and the rule that was
+	 * applied to it. The node of a form is its index in these arrays.
+	 */
+	private int[] nodeParents = new int[1 << 10];
+	private int[] nodeRules = new int[1 << 10];
+	private int numOfNodes;
+
+	/*
+	 * The visited forms table: the hash of every form and its node plus 1 (0
+	 * marks an empty slot).
+	 */
+	private long[] tableHashes = new long[MIN_TABLE_CAPACITY];
+	private int[] tableNodes = new int[MIN_TABLE_CAPACITY];
+
+	/*
+	 * The outcome of the search: whether forms were skipped because of their
+	 * symbols or because of the maximal number of forms, whether it ran out
+	 * of time, and the form that was reached twice, with the node that reached
+	 * it first, and the node and rule that reached it again.
+	 */
+	private boolean isTruncated;
+	private boolean isOutOfTime;
+	private int[] collidedForm;
+	private int firstNode;
+	private int secondParent;
+	private int secondRule;
+
+	/*
+	 * The SententialFormSearch class' constructor.
+	 * 		cfg - The tested grammar.
+	 * 		maxWordLength - The maximal length of the shortest word of a
+	 * 						visited form.
+	 * 		maxNumOfForms - The maximal number of forms the search visits.
+	 * 		deadline - The time at which the search must stop.
+	 */
+	SententialFormSearch(CFG cfg, int maxWordLength, int maxNumOfForms,
+			Deadline deadline) {
+		this.cfg = cfg;
+		this.maxWordLength = maxWordLength;
+		maxFormLength = 2 * maxWordLength + 1;
+		this.maxNumOfForms = maxNumOfForms;
+		this.deadline = deadline;
+		int[][] ruleBodies = cfg.getRuleBodies();
+		ruleWeights = new long[ruleBodies.length];
+		for (int rule = 0; rule < ruleBodies.length; ++rule) {
+			for (int literal : ruleBodies[rule]) {
+				ruleWeights[rule] += cfg.getMinYieldLength(literal);
+			}
+		}
+		computeCompletionRules();
+	}
+
+	/*
+	 * A method that chooses the completion rule of every nonterminal. Only the
+	 * rules that derive one of the nonterminal's shortest words are chosen,
+	 * and a rule is only chosen once all the nonterminals in its body have
+	 * their own, so the completion rules never lead back to a nonterminal
+	 * (even through nullable and unit rules). Every productive nonterminal gets
+	 * one, since the rule that gave it its minimal yield length in the CFG
+	 * class only has nonterminals whose lengths were final before.
+	 */
+	private void computeCompletionRules() {
+		int[][] ruleBodies = cfg.getRuleBodies();
+		int[][] nonterminalRules = cfg.getNonterminalRules();
+		int[] ruleHeads = cfg.getRuleHeads();
+		completionRules = new int[nonterminalRules.length];
+		Arrays.fill(completionRules, -1);
+		int[] numOfUnresolved = new int[ruleBodies.length];
+		List<List<Integer>> occurrences = new ArrayList<>();
+		for (int nonterminal = 0; nonterminal < nonterminalRules.length; ++nonterminal) {
+			occurrences.add(new ArrayList<>());
+		}
+		int[] worklist = new int[nonterminalRules.length];
+		int worklistSize = 0;
+		for (int nonterminal = 0; nonterminal < nonterminalRules.length; ++nonterminal) {
+			for (int rule : nonterminalRules[nonterminal]) {
+				if (ruleWeights[rule] != cfg.getMinYieldLength(nonterminal)) {
+					continue;
+				}
+				for (int literal : ruleBodies[rule]) {
+					if (!cfg.getTerminalSymbols().get(literal)) {
+						++numOfUnresolved[rule];
+						occurrences.get(literal).add(rule);
+					}
+				}
+				if (numOfUnresolved[rule] == 0
+						&& completionRules[nonterminal] < 0) {
+					completionRules[nonterminal] = rule;
+					worklist[worklistSize++] = nonterminal;
+				}
+			}
+		}
+		while (worklistSize > 0) {
+			int nonterminal = worklist[--worklistSize];
+			for (int rule : occurrences.get(nonterminal)) {
+				if (--numOfUnresolved[rule] == 0
+						&& completionRules[ruleHeads[rule]] < 0) {
+					completionRules[ruleHeads[rule]] = rule;
+					worklist[worklistSize++] = ruleHeads[rule];
+				}
+			}
+		}
+	}
+
+	/*
+	 * A method that performs the search, and returns whether two left
+	 * derivations reached the same form.
+	 */
+	boolean search() {
+		int[][] ruleBodies = cfg.getRuleBodies();
+		int[][] nonterminalRules = cfg.getNonterminalRules();
+		int[] form = new int[maxFormLength];
+		int[] startForm = { cfg.getStartSymbol() };
+		long startMinYieldLength = cfg.getMinYieldLength(cfg.getStartSymbol());
+		if (startMinYieldLength > maxWordLength) {
+			return false;
+		}
+		int startNode = addNode(-1, -1);
+		insert(hash(startForm, 1), startNode);
+		Level level = new Level();
+		Level nextLevel = new Level();
+		level.add(startForm, 1, startNode, startMinYieldLength);
+		long numOfExpandedForms = 0;
+		while (level.numOfForms > 0) {
+			for (int i = 0; i < level.numOfForms; ++i) {
+				if ((++numOfExpandedForms & (DEADLINE_CHECK_INTERVAL - 1)) == 0
+						&& deadline.hasPassed()) {
+					isOutOfTime = true;
+					return false;
+				}
+				int start = level.starts[i];
+				int length = level.starts[i + 1] - start;
+				int nonterminalIndex = 0;
+				while (cfg.getTerminalSymbols().get(
+						level.symbols[start + nonterminalIndex])) {
+					++nonterminalIndex;
+				}
+				int nonterminal = level.symbols[start + nonterminalIndex];
+				for (int rule : nonterminalRules[nonterminal]) {
+					int[] body = ruleBodies[rule];
+					int newLength = length - 1 + body.length;
+					long minYieldLength = level.minYieldLengths[i]
+							- cfg.getMinYieldLength(nonterminal)
+							+ ruleWeights[rule];
+					if (minYieldLength > maxWordLength) {
+						continue;
+					}
+					if (newLength > maxFormLength) {
+						isTruncated = true;
+						continue;
+					}
+					System.arraycopy(level.symbols, start, form, 0,
+							nonterminalIndex);
+					System.arraycopy(body, 0, form, nonterminalIndex,
+							body.length);
+					System.arraycopy(level.symbols, start + nonterminalIndex
+							+ 1, form, nonterminalIndex + body.length, length
+							- nonterminalIndex - 1);
+					long hash = hash(form, newLength);
+					int node = find(hash, form, newLength);
+					if (node >= 0) {
+						collidedForm = Arrays.copyOf(form, newLength);
+						firstNode = node;
+						secondParent = level.nodes[i];
+						secondRule = rule;
+						return true;
+					}
+					if (numOfNodes == maxNumOfForms) {
+						isTruncated = true;
+						return false;
+					}
+					node = addNode(level.nodes[i], rule);
+					insert(hash, node);
+					for (int j = nonterminalIndex; j < newLength; ++j) {
+						if (!cfg.getTerminalSymbols().get(form[j])) {
+							nextLevel.add(form, newLength, node, minYieldLength);
+							break;
+						}
+					}
+				}
+			}
+			Level visitedLevel = level;
+			level = nextLevel;
+			nextLevel = visitedLevel;
+			nextLevel.clear();
+		}
+		return false;
+	}
+
+	/* A method that adds a node, and returns its index. */
+	private int addNode(int parent, int rule) {
+		if (numOfNodes == nodeParents.length) {
+			nodeParents = Arrays.copyOf(nodeParents, 2 * numOfNodes);
+			nodeRules = Arrays.copyOf(nodeRules, 2 * numOfNodes);
+		}
+		nodeParents[numOfNodes] = parent;
+		nodeRules[numOfNodes] = rule;
+		return numOfNodes++;
+	}
+
+	/* A method that returns the 64 bit hash of a form. */
+	private static long hash(int[] form, int length) {
+		long hash = length;
+		for (int i = 0; i < length; ++i) {
+			hash = (hash ^ form[i]) * 0x9E3779B97F4A7C15L;
+			hash ^= hash >>> 32;
+		}
+		return hash;
+	}
+
+	/* A method that returns the table slot a hash is looked for from. */
+	private int firstSlot(long hash) {
+		return (int) (hash ^ (hash >>> 29)) & (tableNodes.length - 1);
+	}
+
+	/*
+	 * A method that returns the node of the given form, if it was visited, or
+	 * -1.
+	 */
+	private int find(long hash, int[] form, int length) {
+		int mask = tableNodes.length - 1;
+		for (int slot = firstSlot(hash); tableNodes[slot] != 0; slot = (slot + 1)
+				& mask) {
+			if (tableHashes[slot] == hash
+					&& Arrays.equals(buildForm(tableNodes[slot] - 1),
+							Arrays.copyOf(form, length))) {
+				return tableNodes[slot] - 1;
+			}
+		}
+		return -1;
+	}
+
+	/*
+	 * A method that adds a form's node to the table, and doubles the table
+	 * once it is half full.
+	 */
+	private void insert(long hash, int node) {
+		if (2 * (numOfNodes + 1) > tableNodes.length) {
+			long[] oldHashes = tableHashes;
+			int[] oldNodes = tableNodes;
+			tableHashes = new long[2 * oldNodes.length];
+			tableNodes = new int[2 * oldNodes.length];
+			for (int slot = 0; slot < oldNodes.length; ++slot) {
+				if (oldNodes[slot] != 0) {
+					put(oldHashes[slot], oldNodes[slot] - 1);
+				}
+			}
+		}
+		put(hash, node);
+	}
+
+	/* A method that puts a form's node in the first empty slot of its hash. */
+	private void put(long hash, int node) {
+		int mask = tableNodes.length - 1;
+		int slot = firstSlot(hash);
+		while (tableNodes[slot] != 0) {
+			slot = (slot + 1) & mask;
+		}
+		tableHashes[slot] = hash;
+		tableNodes[slot] = node + 1;
+	}
+
+	/*
+	 * A method that returns the ids of the rules that were applied to reach
+	 * the given node's form, in the order they were applied.
+	 */
+	private List<Integer> getTrail(int node) {
+		List<Integer> trail = new ArrayList<>();
+		for (; nodeParents[node] >= 0; node = nodeParents[node]) {
+			trail.add(nodeRules[node]);
+		}
+		Collections.reverse(trail);
+		return trail;
+	}
+
+	/* A method that rebuilds the form of the given node from its trail. */
+	private int[] buildForm(int node) {
+		List<int[]> sequence = GrammarAmbiguityTester.replayDerivation(cfg,
+				toArray(getTrail(node)));
+		return sequence.get(sequence.size() - 1);
+	}
+
+	/*
+	 * A method that returns the word that the collided form derives with the
+	 * completion rules, and adds the rules to the given trail.
+	 */
+	private int[] completeForm(List<Integer> trail) {
+		int[][] ruleBodies = cfg.getRuleBodies();
+		List<Integer> word = new ArrayList<>();
+		int[] stack = new int[collidedForm.length];
+		int stackSize = 0;
+		for (int i = collidedForm.length - 1; i >= 0; --i) {
+			stack[stackSize++] = collidedForm[i];
+		}
+		while (stackSize > 0) {
+			int symbol = stack[--stackSize];
+			if (cfg.getTerminalSymbols().get(symbol)) {
+				word.add(symbol);
+				continue;
+			}
+			int rule = completionRules[symbol];
+			trail.add(rule);
+			int[] body = ruleBodies[rule];
+			if (stackSize + body.length > stack.length) {
+				stack = Arrays.copyOf(stack, 2 * (stackSize + body.length));
+			}
+			for (int i = body.length - 1; i >= 0; --i) {
+				stack[stackSize++] = body[i];
+			}
+		}
+		return toArray(word);
+	}
+
+	/* A method that turns a list of integers into an array. */
+	private static int[] toArray(List<Integer> list) {
+		int[] array = new int[list.size()];
+		for (int i = 0; i < array.length; ++i) {
+			array[i] = list.get(i);
+		}
+		return array;
+	}
+
+	/*
+	 * A method that returns the ambiguous word that the collided form derives,
+	 * after the search returned true, and adds its two left derivations to the
+	 * given list, as the ids of their applied rules.
+	 */
+	int[] getAmbiguousWord(List<int[]> leftDerivationsFound) {
+		List<Integer> firstTrail = getTrail(firstNode);
+		List<Integer> secondTrail = getTrail(secondParent);
+		secondTrail.add(secondRule);
+		int[] word = completeForm(firstTrail);
+		completeForm(secondTrail);
+		leftDerivationsFound.add(toArray(firstTrail));
+		leftDerivationsFound.add(toArray(secondTrail));
+		return word;
+	}
+
+	/*
+	 * A method that checks whether the search followed every left derivation
+	 * of every word up to the maximal word length, so reaching no form twice
+	 * proves that these words are not ambiguous.
+	 */
+	boolean isComplete() {
+		return !isTruncated && !isOutOfTime;
+	}
+
+	/* A getter for the isOutOfTime field. */
+	boolean isOutOfTime() {
+		return isOutOfTime;
+	}
+
+	/* A method that describes the outcome of the search, as a note. */
+	String describe() {
+		String visited = "Visited " + numOfNodes + " leftmost sentential forms";
+		if (collidedForm != null) {
+			return visited + ", and two left derivations reach the form: "
+					+ GrammarAmbiguityTester.buildWord(cfg, collidedForm);
+		}
+		if (isOutOfTime) {
+			return visited + " before the test ran out of time";
+		}
+		if (numOfNodes == maxNumOfForms) {
+			return visited
+					+ ", which is the maximal number of forms, and no form was reached twice";
+		}
+		if (isTruncated) {
+			return visited + ", and skipped the forms longer than "
+					+ maxFormLength + " symbols, and no form was reached twice";
+		}
+		return visited + ", and no form was reached twice";
+	}
+
+}
@@ -0,0 +1,358 @@
+import java.util.Arrays;
+
+/*
+ * A class that computes, for the currently tested word, the number of parse
+ * trees (saturated at 2) in which a nonterminal derives a span of the word,
+ * and memoizes them in a bounded table, keyed by the nonterminal and the span.
+ * The table evicts its least recently used count whenever a count is added to
+ * it when it is full, even in the middle of a computation, so its memory never
+ * grows past its capacity; an evicted count is simply computed again when it
+ * is needed. A count's computation needs the counts of the shorter spans it
+ * covers, and if the table can't even hold a column of them, the same counts
+ * are computed again and again, so the table holds at least the counts of
+ * word.length + 1 spans of every nonterminal. The keys and the counts are
+ * kept in primitive arrays (see the CountTable class), so looking a count up
+ * allocates nothing.
+ *
+ * The counts of a span are computed together for all the nonterminals, by
+ * iterating until they stop changing, since a nonterminal can derive a span
+ * through another nonterminal (or itself) that derives the same span, when the
+ * rest of the rule is nullable.
+ */
+class SpanCountMemo {
+
+	/* cfg - The tested grammar, in its compiled form. */
+	private CFG cfg;
+
+	/* word - The word that is currently tested. */
+	private int[] word;
+
+	/* counts - The memoized counts, by key (see the key method). */
+	private CountTable counts;
+
+	/*
+	 * ends - Bit j of ends[nonterminal][i] is set if the nonterminal derives
+	 * the word's tokens i to j - 1, or ends[nonterminal][i] is -1 if it wasn't
+	 * computed yet (see the getEnds method). It is null for words of 63 tokens
+	 * or more.
+	 */
+	private long[][] ends;
+
+	/* capacity - The maximal number of memoized counts. */
+	private int capacity;
+
+	/* The table's statistics, over all the tested words. */
+	private long hits;
+	private long misses;
+
+	/*
+	 * The SpanCountMemo class' constructor.
+	 * 		cfg - The tested grammar.
+	 * 		capacity - The maximal number of memoized counts.
+	 */
+	SpanCountMemo(CFG cfg, int capacity) {
+		this.cfg = cfg;
+		this.capacity = capacity;
+		counts = new CountTable();
+	}
+
+	/* A method that starts memoizing the counts of a new word. */
+	void reset(int[] word) {
+		this.word = word;
+		counts.clear(Math.max(capacity, cfg.getNumOfNonterminals()
+				* (word.length + 1)));
+		ends = null;
+		if (word.length < 63) {
+			ends = new long[cfg.getNumOfNonterminals()][word.length + 1];
+			for (long[] nonterminalEnds : ends) {
+				Arrays.fill(nonterminalEnds, -1);
+			}
+		}
+	}
+
+	/*
+	 * A method that returns the number of parse trees (saturated at 2) in
+	 * which the given nonterminal derives the word's tokens i to j - 1.
+	 */
+	int count(int nonterminal, int i, int j) {
+		int count = counts.get(key(nonterminal, i, j));
+		if (count >= 0) {
+			++hits;
+			return count;
+		}
+		++misses;
+		byte[] cell = computeCell(i, j);
+		for (int otherNonterminal = 0; otherNonterminal < cell.length; ++otherNonterminal) {
+			counts.put(key(otherNonterminal, i, j), cell[otherNonterminal]);
+		}
+		return cell[nonterminal];
+	}
+
+	/*
+	 * A method that returns the positions j (as bits of a long) for which the
+	 * given nonterminal derives the word's tokens i to j - 1. It can only be
+	 * used for words of less than 63 tokens.
+	 */
+	long getEnds(int nonterminal, int i) {
+		if (ends[nonterminal][i] < 0) {
+			long nonterminalEnds = 0;
+			for (int j = i; j <= word.length; ++j) {
+				if (count(nonterminal, i, j) > 0) {
+					nonterminalEnds |= 1L << j;
+				}
+			}
+			ends[nonterminal][i] = nonterminalEnds;
+		}
+		return ends[nonterminal][i];
+	}
+
+	/*
+	 * A method that returns the table's statistics, as a string for printing
+	 * uses.
+	 */
+	String getStatistics() {
+		return hits + " hits, " + misses + " misses, "
+				+ counts.getNumOfEvictions() + " evictions";
+	}
+
+	/*
+	 * A method that computes the counts of all the nonterminals over the
+	 * word's tokens i to j - 1.
+	 */
+	private byte[] computeCell(int i, int j) {
+		int[][] nonterminalRules = cfg.getNonterminalRules();
+		byte[] cell = new byte[nonterminalRules.length];
+		boolean updatedCounts;
+		do {
+			updatedCounts = false;
+			for (int nonterminal = 0; nonterminal < nonterminalRules.length; ++nonterminal) {
+				int count = 0;
+				for (int rule : nonterminalRules[nonterminal]) {
+					count += sequenceCount(cfg.getRuleBodies()[rule], i, j,
+							cell);
+				}
+				if (Math.min(count, 2) > cell[nonterminal]) {
+					cell[nonterminal] = (byte) Math.min(count, 2);
+					updatedCounts = true;
+				}
+			}
+		} while (updatedCounts);
+		return cell;
+	}
+
+	/*
+	 * A method that counts the number of ways (saturated at 2) in which the
+	 * given rule body derives the word's tokens i to j - 1, given the current
+	 * counts of the nonterminals over this span.
+	 */
+	private int sequenceCount(int[] body, int i, int j, byte[] cell) {
+		int[] ways = new int[j - i + 1]; // ways[k - i] - The number of ways in
+											// which the literals so far
+											// derive the tokens i to k - 1.
+		ways[0] = 1;
+		for (int literal : body) {
+			int[] nextWays = new int[ways.length];
+			boolean isTerminal = cfg.getTerminalSymbols().get(literal);
+			for (int k = i; k <= j; ++k) {
+				if (ways[k - i] == 0) {
+					continue;
+				}
+				if (isTerminal) {
+					if (k < j && word[k] == literal) {
+						nextWays[k + 1 - i] = Math.min(2, nextWays[k + 1 - i]
+								+ ways[k - i]);
+					}
+					continue;
+				}
+				for (int end = k; end <= j; ++end) {
+					int count = (k == i && end == j) ? cell[literal] : count(
+							literal, k, end);
+					nextWays[end - i] = Math.min(2, nextWays[end - i]
+							+ ways[k - i] * count);
+				}
+			}
+			ways = nextWays;
+		}
+		return ways[j - i];
+	}
+
+	/* A method that packs a nonterminal and a span to a key of the table. */
+	private static long key(int nonterminal, int i, int j) {
+		return ((long) nonterminal << 40) | ((long) i << 20) | j;
+	}
+
+	/*
+	 * A hash table from long keys to counts, which holds at most a given
+	 * number of entries and evicts the least recently used one to make room
+	 * for a new one. The entries are kept in parallel arrays, which grow up to
+	 * the capacity: every entry is in the chain of its bucket (entryNext), and
+	 * in a list from the most recently used entry to the least recently used
+	 * one (entryNewer and entryOlder, from newest to oldest).
+	 */
+	private static class CountTable {
+
+		private int capacity;
+		private long[] entryKeys = new long[16];
+		private byte[] entryCounts = new byte[16];
+		private int[] entryNext = new int[16];
+		private int[] entryNewer = new int[16];
+		private int[] entryOlder = new int[16];
+		private int[] buckets = new int[16];
+		private int size;
+		private int newest = -1;
+		private int oldest = -1;
+		private long evictions;
+
+		CountTable() {
+			Arrays.fill(buckets, -1);
+		}
+
+		/*
+		 * A method that removes all the entries, and sets the maximal number of
+		 * entries.
+		 */
+		void clear(int capacity) {
+			this.capacity = Math.max(capacity, 1);
+			if (size > 0) {
+				Arrays.fill(buckets, -1);
+				size = 0;
+				newest = -1;
+				oldest = -1;
+			}
+		}
+
+		/*
+		 * A method that returns the count of the given key, and marks it as
+		 * the most recently used, or returns -1 if the key isn't in the table.
+		 */
+		int get(long key) {
+			int entry = find(key);
+			if (entry < 0) {
+				return -1;
+			}
+			touch(entry);
+			return entryCounts[entry];
+		}
+
+		/*
+		 * A method that sets the count of the given key, evicting the least
+		 * recently used entry if the table is full.
+		 */
+		void put(long key, byte count) {
+			int entry = find(key);
+			if (entry < 0) {
+				if (size < capacity) {
+					if (size == entryKeys.length) {
+						grow();
+					}
+					entry = size++;
+				} else { // Reusing the least recently used entry.
+					entry = oldest;
+					unlinkFromBucket(entry);
+					unlinkFromList(entry);
+					++evictions;
+				}
+				entryKeys[entry] = key;
+				int bucket = bucketOf(key);
+				entryNext[entry] = buckets[bucket];
+				buckets[bucket] = entry;
+				linkAsNewest(entry);
+			} else {
+				touch(entry);
+			}
+			entryCounts[entry] = count;
+		}
+
+		/* A getter for the evictions field. */
+		long getNumOfEvictions() {
+			return evictions;
+		}
+
+		/* A method that returns the entry of the given key, or -1. */
+		private int find(long key) {
+			int entry = buckets[bucketOf(key)];
+			while (entry >= 0 && entryKeys[entry] != key) {
+				entry = entryNext[entry];
+			}
+			return entry;
+		}
+
+		/* A method that returns the bucket of the given key. */
+		private int bucketOf(long key) {
+			long hash = key * 0x9E3779B97F4A7C15L;
+			return (int) (hash >>> 32) & (buckets.length - 1);
+		}
+
+		/* A method that marks the given entry as the most recently used. */
+		private void touch(int entry) {
+			if (entry != newest) {
+				unlinkFromList(entry);
+				linkAsNewest(entry);
+			}
+		}
+
+		/* A method that adds the given entry to the list, as the newest. */
+		private void linkAsNewest(int entry) {
+			entryNewer[entry] = -1;
+			entryOlder[entry] = newest;
+			if (newest >= 0) {
+				entryNewer[newest] = entry;
+			} else {
+				oldest = entry;
+			}
+			newest = entry;
+		}
+
+		/* A method that removes the given entry from the list. */
+		private void unlinkFromList(int entry) {
+			int newer = entryNewer[entry];
+			int older = entryOlder[entry];
+			if (newer >= 0) {
+				entryOlder[newer] = older;
+			} else {
+				newest = older;
+			}
+			if (older >= 0) {
+				entryNewer[older] = newer;
+			} else {
+				oldest = newer;
+			}
+		}
+
+		/* A method that removes the given entry from its bucket's chain. */
+		private void unlinkFromBucket(int entry) {
+			int bucket = bucketOf(entryKeys[entry]);
+			if (buckets[bucket] == entry) {
+				buckets[bucket] = entryNext[entry];
+				return;
+			}
+			int previous = buckets[bucket];
+			while (entryNext[previous] != entry) {
+				previous = entryNext[previous];
+			}
+			entryNext[previous] = entryNext[entry];
+		}
+
+		/*
+		 * A method that doubles the entry arrays (up to the capacity) and the
+		 * buckets, and puts the entries in their new buckets.
+		 */
+		private void grow() {
+			int length = (int) Math.min((long) entryKeys.length * 2, capacity);
+			entryKeys = Arrays.copyOf(entryKeys, length);
+			entryCounts = Arrays.copyOf(entryCounts, length);
+			entryNext = Arrays.copyOf(entryNext, length);
+			entryNewer = Arrays.copyOf(entryNewer, length);
+			entryOlder = Arrays.copyOf(entryOlder, length);
+			buckets = new int[Integer.highestOneBit(length - 1) << 1];
+			Arrays.fill(buckets, -1);
+			for (int entry = 0; entry < size; ++entry) {
+				int bucket = bucketOf(entryKeys[entry]);
+				entryNext[entry] = buckets[bucket];
+				buckets[bucket] = entry;
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,377 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * A class that tries to prove that a grammar is not ambiguous without testing
+ * any of its words, by checking whether it is LL(1), and if it isn't, whether
+ * it is SLR(1). A grammar of either class has a deterministic parser, which
+ * finds the only derivation of every word, so it is not ambiguous.
+ *
+ * The grammar is LL(1) if the rules of every nonterminal have disjoint
+ * predict sets: the terminals that a word derived by the rule, followed by
+ * whatever can follow the nonterminal, can start with (including the end of
+ * the word). When it isn't, its conflicting nonterminals (whose predict sets
+ * overlap) are the only places in which two left derivations of a word can
+ * part ways, since the left derivations of a word apply the same rule
+ * wherever the next token of the word predicts a single rule. So the search
+ * (see the DerivationSearch class) only tries the predicted rule of the other
+ * nonterminals.
+ *
+ * The grammar is SLR(1) if the LR(0) automaton of the grammar has no state in
+ * which the next token (or the end of the word) allows two actions, where a
+ * reduction by a rule is allowed on the FOLLOW set of its nonterminal. This
+ * class includes the left recursive grammars, which are never LL(1). The
+ * automaton is only built up to MAX_LR_ITEMS items.
+ */
+class StaticAmbiguityCheck {
+
+	/* The maximal total number of items of the LR(0) automaton's states. */
+	private static final int MAX_LR_ITEMS = 1 << 21;
+
+	/* A kernel of an LR(0) state: its sorted item ids, for finding the states. */
+	private static class Kernel {
+
+		int[] items;
+
+		Kernel(int[] items) {
+			this.items = items;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof Kernel
+					&& Arrays.equals(((Kernel) other).items, items);
+		}
+
+		@Override
+		public int hashCode() {
+			return Arrays.hashCode(items);
+		}
+
+	}
+
+	/* cfg - The checked grammar, in its compiled form. */
+	private CFG cfg;
+
+	/*
+	 * endMarker - The id that stands for the end of the word in the FOLLOW and
+	 * predict sets (the first id that isn't a symbol's id).
+	 */
+	private int endMarker;
+
+	/*
+	 * followSets - Maps every nonterminal id to the set of the ids of the
+	 * terminals that can follow it in a sentential form, and the end marker if
+	 * it can end one.
+	 */
+	private BitSet[] followSets;
+
+	/*
+	 * predictSets - Maps every rule id to the set of the ids of the terminals
+	 * (and the end marker) that the rest of a word can start with, when the
+	 * rule is applied to the leftmost nonterminal of its derivation.
+	 */
+	private BitSet[] predictSets;
+
+	/*
+	 * conflictingNonterminals - The ids of the nonterminals that have two
+	 * rules with overlapping predict sets.
+	 */
+	private BitSet conflictingNonterminals = new BitSet();
+
+	/*
+	 * slrConflict - A description of the first SLR(1) conflict that was found,
+	 * or null if the grammar is SLR(1) or its automaton wasn't built.
+	 */
+	private String slrConflict;
+
+	/* isSLR1 - States whether the grammar was found to be SLR(1). */
+	private boolean isSLR1;
+
+	/*
+	 * The StaticAmbiguityCheck class' constructor, which checks the grammar.
+	 * 		cfg - The checked grammar.
+	 */
+	StaticAmbiguityCheck(CFG cfg) {
+		this.cfg = cfg;
+		endMarker = cfg.getNumOfSymbols();
+		computeFollowSets();
+		computePredictSets();
+		if (!conflictingNonterminals.isEmpty()) {
+			isSLR1 = checkSLR1();
+		}
+	}
+
+	/*
+	 * A method that computes the FIRST set of the given part of a rule's
+	 * body, and returns whether the part is nullable.
+	 * 		first - The set the FIRST set is added to.
+	 */
+	private boolean addFirstSet(int[] body, int from, BitSet first) {
+		for (int i = from; i < body.length; ++i) {
+			int literal = body[i];
+			if (cfg.getTerminalSymbols().get(literal)) {
+				first.set(literal);
+				return false;
+			}
+			first.or(cfg.getFirstSet(literal));
+			if (!cfg.getNullableSymbols().get(literal)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/*
+	 * A method that computes the FOLLOW sets. Every nonterminal in a rule's
+	 * body is followed by the FIRST set of the rest of the body, and if the
+	 * rest is nullable, the FOLLOW set of the rule's nonterminal is contained
+	 * in its FOLLOW set. These inclusions are then propagated with a worklist,
+	 * until nothing changes.
+	 */
+	private void computeFollowSets() {
+		int numOfNonterminals = cfg.getNumOfNonterminals();
+		followSets = new BitSet[numOfNonterminals];
+		List<List<Integer>> supersets = new ArrayList<>(); // Maps every
+															// nonterminal to
+															// the nonterminals
+															// whose FOLLOW sets
+															// contain its
+															// FOLLOW set.
+		for (int nonterminal = 0; nonterminal < numOfNonterminals; ++nonterminal) {
+			followSets[nonterminal] = new BitSet();
+			supersets.add(new ArrayList<>());
+		}
+		followSets[cfg.getStartSymbol()].set(endMarker);
+		for (int head = 0; head < numOfNonterminals; ++head) {
+			for (int rule : cfg.getNonterminalRules()[head]) {
+				int[] body = cfg.getRuleBodies()[rule];
+				for (int i = 0; i < body.length; ++i) {
+					if (cfg.getTerminalSymbols().get(body[i])) {
+						continue;
+					}
+					if (addFirstSet(body, i + 1, followSets[body[i]])
+							&& body[i] != head) {
+						supersets.get(head).add(body[i]);
+					}
+				}
+			}
+		}
+		ArrayDeque<Integer> worklist = new ArrayDeque<>();
+		BitSet inWorklist = new BitSet();
+		for (int nonterminal = 0; nonterminal < numOfNonterminals; ++nonterminal) {
+			if (!followSets[nonterminal].isEmpty()) {
+				worklist.add(nonterminal);
+				inWorklist.set(nonterminal);
+			}
+		}
+		while (!worklist.isEmpty()) {
+			int nonterminal = worklist.poll();
+			inWorklist.clear(nonterminal);
+			for (int superset : supersets.get(nonterminal)) {
+				BitSet added = (BitSet) followSets[nonterminal].clone();
+				added.andNot(followSets[superset]);
+				if (!added.isEmpty()) {
+					followSets[superset].or(added);
+					if (!inWorklist.get(superset)) {
+						worklist.add(superset);
+						inWorklist.set(superset);
+					}
+				}
+			}
+		}
+	}
+
+	/*
+	 * A method that computes the predict sets of the rules, and finds the
+	 * conflicting nonterminals.
+	 */
+	private void computePredictSets() {
+		predictSets = new BitSet[cfg.getRuleBodies().length];
+		for (int head = 0; head < cfg.getNumOfNonterminals(); ++head) {
+			BitSet predicted = new BitSet();
+			for (int rule : cfg.getNonterminalRules()[head]) {
+				BitSet predictSet = new BitSet();
+				if (addFirstSet(cfg.getRuleBodies()[rule], 0, predictSet)) {
+					predictSet.or(followSets[head]);
+				}
+				predictSets[rule] = predictSet;
+				if (predictSet.intersects(predicted)) {
+					conflictingNonterminals.set(head);
+				}
+				predicted.or(predictSet);
+			}
+		}
+	}
+
+	/*
+	 * A method that builds the LR(0) automaton of the grammar, augmented with
+	 * the rule S' -> S, and checks that none of its states has an SLR(1)
+	 * conflict. An item is a rule with a dot in its body, and its id is the
+	 * id of the rule's first item plus the dot's position. The augmented rule
+	 * gets the id numOfRules.
+	 */
+	private boolean checkSLR1() {
+		int[][] ruleBodies = cfg.getRuleBodies();
+		int numOfRules = ruleBodies.length;
+		int[] itemBases = new int[numOfRules + 2];
+		for (int rule = 0; rule < numOfRules; ++rule) {
+			itemBases[rule + 1] = itemBases[rule] + ruleBodies[rule].length + 1;
+		}
+		itemBases[numOfRules + 1] = itemBases[numOfRules] + 2;
+		int[] itemRules = new int[itemBases[numOfRules + 1]];
+		for (int rule = 0; rule <= numOfRules; ++rule) {
+			Arrays.fill(itemRules, itemBases[rule], itemBases[rule + 1], rule);
+		}
+		int[] startBody = { cfg.getStartSymbol() };
+		Map<Kernel, Integer> stateIds = new HashMap<>();
+		List<int[]> kernels = new ArrayList<>();
+		int[] startKernel = { itemBases[numOfRules] };
+		stateIds.put(new Kernel(startKernel), 0);
+		kernels.add(startKernel);
+		long numOfItems = 0;
+		BitSet closedNonterminals = new BitSet();
+		for (int state = 0; state < kernels.size(); ++state) {
+			List<Integer> items = new ArrayList<>();
+			for (int item : kernels.get(state)) {
+				items.add(item);
+			}
+			closedNonterminals.clear();
+			for (int i = 0; i < items.size(); ++i) { // The closure.
+				int item = items.get(i);
+				int rule = itemRules[item];
+				int[] body = (rule < numOfRules) ? ruleBodies[rule] : startBody;
+				int dot = item - itemBases[rule];
+				if (dot < body.length
+						&& !cfg.getTerminalSymbols().get(body[dot])
+						&& !closedNonterminals.get(body[dot])) {
+					closedNonterminals.set(body[dot]);
+					for (int closedRule : cfg.getNonterminalRules()[body[dot]]) {
+						items.add(itemBases[closedRule]);
+					}
+				}
+			}
+			numOfItems += items.size();
+			if (numOfItems > MAX_LR_ITEMS) {
+				slrConflict = "its LR(0) automaton has more than "
+						+ MAX_LR_ITEMS + " items";
+				return false;
+			}
+			Map<Integer, List<Integer>> transitions = new HashMap<>();
+			BitSet shifted = new BitSet();
+			BitSet reduced = new BitSet();
+			for (int item : items) {
+				int rule = itemRules[item];
+				int[] body = (rule < numOfRules) ? ruleBodies[rule] : startBody;
+				int dot = item - itemBases[rule];
+				if (dot < body.length) {
+					transitions.computeIfAbsent(body[dot],
+							symbol -> new ArrayList<>()).add(item + 1);
+					if (cfg.getTerminalSymbols().get(body[dot])) {
+						shifted.set(body[dot]);
+					}
+					continue;
+				}
+				BitSet lookaheads;
+				if (rule < numOfRules) {
+					lookaheads = followSets[cfg.getRuleHeads()[rule]];
+				} else { // Accepting is reducing by S' -> S at the end.
+					lookaheads = new BitSet();
+					lookaheads.set(endMarker);
+				}
+				if (lookaheads.intersects(reduced)) {
+					slrConflict = "a reduction by "
+							+ ((rule < numOfRules) ? cfg.getRuleString(rule)
+									: "the starting rule")
+							+ " conflicts with another reduction";
+					return false;
+				}
+				reduced.or(lookaheads);
+			}
+			if (reduced.intersects(shifted)) {
+				slrConflict = "a reduction conflicts with a shift";
+				return false;
+			}
+			for (List<Integer> targetItems : transitions.values()) {
+				int[] kernel = new int[targetItems.size()];
+				for (int i = 0; i < kernel.length; ++i) {
+					kernel[i] = targetItems.get(i);
+				}
+				Arrays.sort(kernel);
+				Kernel key = new Kernel(kernel);
+				if (!stateIds.containsKey(key)) {
+					stateIds.put(key, kernels.size());
+					kernels.add(kernel);
+				}
+			}
+		}
+		return true;
+	}
+
+	/*
+	 * A method that states whether the check proved that the grammar is not
+	 * ambiguous.
+	 */
+	boolean isProved() {
+		return conflictingNonterminals.isEmpty() || isSLR1;
+	}
+
+	/*
+	 * A method that states whether the given nonterminal has two rules with
+	 * overlapping predict sets, so the search should try all of its rules.
+	 */
+	boolean isConflicting(int nonterminal) {
+		return conflictingNonterminals.get(nonterminal);
+	}
+
+	/*
+	 * A method that states whether the given rule may be applied to the
+	 * leftmost nonterminal of a derivation, when the rest of the word starts
+	 * with the given token (or is empty, if the token is the end marker).
+	 */
+	boolean isPredicted(int rule, int token) {
+		return predictSets[rule].get(token);
+	}
+
+	/* A getter for the endMarker field. */
+	int getEndMarker() {
+		return endMarker;
+	}
+
+	/* A getter for the conflictingNonterminals field. */
+	BitSet getConflictingNonterminals() {
+		return conflictingNonterminals;
+	}
+
+	/* A method that describes the check's result, for the report. */
+	String describe() {
+		if (conflictingNonterminals.isEmpty()) {
+			return "The grammar is LL(1), so it is not ambiguous, and no word has to be tested";
+		}
+		if (isSLR1) {
+			return "The grammar is SLR(1), so it is not ambiguous, and no word has to be tested";
+		}
+		StringBuilder description = new StringBuilder("The grammar is not LL(1): ")
+				.append(conflictingNonterminals.cardinality())
+				.append(" of its nonterminals have rules with overlapping predict sets (");
+		int numOfNamed = 0;
+		for (int nonterminal = conflictingNonterminals.nextSetBit(0); nonterminal >= 0; nonterminal = conflictingNonterminals
+				.nextSetBit(nonterminal + 1)) {
+			if (numOfNamed == 5) {
+				description.append(", ...");
+				break;
+			}
+			description.append((numOfNamed++ > 0) ? ", " : "").append(
+					cfg.getSymbolName(nonterminal));
+		}
+		description.append("), and it is not SLR(1): ").append(slrConflict)
+				.append(", so its words are tested, and only the rules of these nonterminals branch the search");
+		return description.toString();
+	}
+
+}
@@ -0,0 +1,802 @@
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/*
+ * A class that serves ambiguity test requests in a long running JVM, so a test
+ * doesn't pay for the JVM's startup and warm up, and a grammar that is tested
+ * again isn't compiled and analyzed again. The requests are read as newline
+ * delimited JSON, from the standard input or from the connections to a local
+ * port, and the results of every request are streamed back as the lines of a
+ * JsonResultSink, each starting with the request's "id" field, followed by a
+ * "done" line with the time the request took.
+ *
+ * Usage:
+ *     java GrammarAmbiguityTester -daemon [-port N] [-cacheSize N]
+ * Without -port, the requests are read from the standard input, and the
+ * daemon stops at its end. With -port, the daemon listens on the given port
+ * of the loopback address (0 for any free port), and writes the port it
+ * listens on as a "listening" line.
+ *
+ * A request is a JSON object, whose values are strings, numbers, booleans or
+ * nulls, with the fields:
+ *     "id" - Any value, which is copied to all the lines of the request.
+ *     "op" - "check" (the default) to test a grammar, "stats" to report the
+ *            daemon's counters, or "shutdown" to stop the daemon once the
+ *            requests it already read are done.
+ *     "grammar" - The grammar's text, in the format of a grammar file (see the
+ *                 GrammarReader class), or
+ *     "file" - The path of a grammar file.
+ *     "maxLength" - The maximal word length (5 by default).
+ *     "timeLimit" - The time limit of the test, in milliseconds (0, the
+ *                   default, for no limit).
+ *     "maxSteps" - The maximal number of derivation steps per word.
+ *     "engine" - The name of a TesterOptions.Engine constant.
+ *     "threads" - The number of threads the test runs on (1 by default).
+ *     "sampleMaxLength", "sampleMinLength", "sampleTimeLimit" (in
+ *     milliseconds), "seed" - The options of the random longer words that are
+ *                             tested (see the TesterOptions class).
+ *     "prune" - States whether the words of the vocabulary that no word of
+ *               the language starts like are skipped (false by default).
+ *     "words" - States whether a line is written per tested word (false by
+ *               default).
+ *
+ * Every request runs on its own thread, so a long test doesn't hold back the
+ * requests that follow it. The compiled grammars are kept in an LRU cache of
+ * cacheSize grammars, and so are the results of the requests that were
+ * decided without the word lines (every verdict but OUT_OF_TIME), so a
+ * repeated request is answered right away.
+ */
+public class TesterDaemon {
+
+	private static final String NEW_LINE = System.lineSeparator();
+
+	/* The default number of grammars and results that are cached. */
+	private static final int DEFAULT_CACHE_SIZE = 64;
+
+	/* The default maximal word length of a request. */
+	private static final int DEFAULT_MAX_LENGTH = 5;
+
+	/* A map that drops its least recently used entry once it's full. */
+	private static class LruCache<K, V> extends LinkedHashMap<K, V> {
+
+		private static final long serialVersionUID = 1L;
+
+		/* capacity - The maximal number of entries. */
+		private int capacity;
+
+		LruCache(int capacity) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+			return size() > capacity;
+		}
+
+	}
+
+	/*
+	 * grammars - The compiled grammars, by their keys (see the getGrammarKey
+	 * method).
+	 */
+	private LruCache<String, CFG> grammars;
+
+	/*
+	 * results - The recorded results of the decided requests, by the keys of
+	 * their grammars and budgets.
+	 */
+	private LruCache<String, RecordedResult> results;
+
+	/* pool - The threads the requests run on. */
+	private ExecutorService pool = Executors.newCachedThreadPool(runnable -> {
+		Thread thread = new Thread(runnable, "tester-request");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/* serverSocket - The socket the daemon listens on, or null. */
+	private volatile ServerSocket serverSocket;
+
+	/* isShutDown - States whether a "shutdown" request was read. */
+	private volatile boolean isShutDown;
+
+	/* The daemon's counters, for the "stats" request. */
+	private AtomicLong numOfRequests = new AtomicLong();
+	private AtomicLong numOfGrammarHits = new AtomicLong();
+	private AtomicLong numOfResultHits = new AtomicLong();
+
+	/*
+	 * The TesterDaemon class' constructor.
+	 * 		cacheSize - The number of grammars and results that are cached.
+	 */
+	TesterDaemon(int cacheSize) {
+		grammars = new LruCache<>(cacheSize);
+		results = new LruCache<>(cacheSize);
+	}
+
+	public static void main(String[] args) {
+		int port = -1;
+		int cacheSize = DEFAULT_CACHE_SIZE;
+		try {
+			for (int i = 0; i < args.length; i += 2) {
+				if (i + 1 == args.length) {
+					throw new IllegalArgumentException("The option " + args[i]
+							+ " needs a value...");
+				}
+				switch (args[i]) {
+				case "-port":
+					port = Integer.parseInt(args[i + 1]);
+					break;
+				case "-cacheSize":
+					cacheSize = Integer.parseInt(args[i + 1]);
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown option: "
+							+ args[i]);
+				}
+			}
+		} catch (IllegalArgumentException e) {
+			System.out.println(e.getMessage());
+			System.out
+					.println("Usage: java GrammarAmbiguityTester -daemon [-port N] [-cacheSize N]");
+			return;
+		}
+		TesterDaemon daemon = new TesterDaemon(cacheSize);
+		try {
+			if (port < 0) {
+				daemon.serve(new BufferedReader(new InputStreamReader(
+						System.in, StandardCharsets.UTF_8)), System.out);
+			} else {
+				daemon.listen(port);
+			}
+		} catch (IOException e) {
+			System.out.println("The daemon stopped (" + e + ")...");
+		}
+	}
+
+	/*
+	 * A method that accepts connections on the given port of the loopback
+	 * address, and serves every connection on its own thread, until a
+	 * "shutdown" request is read and the requests that were already read are
+	 * done.
+	 */
+	void listen(int port) throws IOException {
+		try (ServerSocket serverSocket = new ServerSocket(port, 50,
+				InetAddress.getLoopbackAddress())) {
+			this.serverSocket = serverSocket;
+			writeLine(System.out, "{\"type\":\"listening\",\"port\":"
+					+ serverSocket.getLocalPort() + "}");
+			while (!isShutDown) {
+				Socket socket;
+				try {
+					socket = serverSocket.accept();
+				} catch (IOException e) {
+					if (isShutDown) { // The socket was closed by a "shutdown"
+										// request.
+						break;
+					}
+					throw e;
+				}
+				Thread connection = new Thread(() -> serveConnection(socket),
+						"tester-connection");
+				connection.setDaemon(true);
+				connection.start();
+			}
+		}
+		pool.shutdown();
+		boolean interrupted = false;
+		while (!pool.isTerminated()) {
+			try {
+				pool.awaitTermination(1, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/* A method that serves the requests of a single connection. */
+	private void serveConnection(Socket socket) {
+		try (Socket connection = socket) {
+			connection.setTcpNoDelay(true); // The lines of a request are
+											// small, and shouldn't wait for
+											// each other.
+			PrintStream out = new PrintStream(new BufferedOutputStream(
+					connection.getOutputStream()), false,
+					StandardCharsets.UTF_8.name());
+			serve(new BufferedReader(new InputStreamReader(
+					connection.getInputStream(), StandardCharsets.UTF_8)), out);
+			out.flush();
+		} catch (IOException e) { // The client went away.
+		}
+	}
+
+	/*
+	 * A method that reads requests until the input ends or a "shutdown"
+	 * request is read, starts every test request on its own thread, and waits
+	 * until they are all done.
+	 * 		in - The input the requests are read from.
+	 * 		out - The stream the results are written to.
+	 */
+	void serve(BufferedReader in, PrintStream out) throws IOException {
+		List<Future<?>> requests = new ArrayList<>();
+		try {
+			String line;
+			while (!isShutDown && (line = in.readLine()) != null) {
+				if (line.trim().isEmpty()) {
+					continue;
+				}
+				Map<String, String> request;
+				try {
+					request = new RequestParser(line).parse();
+				} catch (IllegalArgumentException e) {
+					writeLine(out, "{\"type\":\"message\",\"text\":"
+							+ toJsonString(e.getMessage()) + "}");
+					continue;
+				}
+				String op = request.containsKey("op") ? getString(request, "op")
+						: "check";
+				switch (op) {
+				case "check":
+					try {
+						requests.add(pool.submit(() -> check(request, out)));
+					} catch (RejectedExecutionException e) {
+						writeLine(out, linePrefix(request)
+								+ "\"type\":\"message\",\"text\":"
+								+ toJsonString("The daemon is shutting down...")
+								+ "}");
+					}
+					break;
+				case "stats":
+					writeLine(out, linePrefix(request)
+							+ "\"type\":\"stats\",\"requests\":"
+							+ numOfRequests.get() + ",\"grammarHits\":"
+							+ numOfGrammarHits.get() + ",\"resultHits\":"
+							+ numOfResultHits.get() + ",\"grammars\":"
+							+ getNumOfCachedGrammars() + "}");
+					break;
+				case "shutdown":
+					isShutDown = true;
+					if (serverSocket != null) {
+						serverSocket.close();
+					}
+					break;
+				default:
+					writeLine(out, linePrefix(request)
+							+ "\"type\":\"message\",\"text\":"
+							+ toJsonString("Unknown op: " + op) + "}");
+				}
+			}
+		} finally {
+			for (Future<?> request : requests) {
+				waitFor(request);
+			}
+		}
+	}
+
+	/*
+	 * A method that performs a test request, and writes its results to the
+	 * given stream.
+	 */
+	private void check(Map<String, String> request, PrintStream out) {
+		long start = System.nanoTime();
+		numOfRequests.incrementAndGet();
+		JsonResultSink sink;
+		try {
+			sink = new JsonResultSink(out, request.get("id"), request
+					.containsKey("words") && getBoolean(request, "words"));
+		} catch (IllegalArgumentException e) {
+			writeLine(out, linePrefix(request) + "\"type\":\"message\",\"text\":"
+					+ toJsonString(e.getMessage()) + "}");
+			writeDone(request, out, start);
+			return;
+		}
+		try {
+			check(request, sink);
+		} catch (IllegalArgumentException e) {
+			sink.message(e.getMessage());
+		} catch (OutOfMemoryError e) { // The other requests can still be
+										// served once this one's memory is
+										// collected.
+			sink.message("Can't test the grammar (out of memory)...");
+		} catch (RuntimeException e) {
+			sink.message("Can't test the grammar (" + e + ")...");
+		} finally {
+			sink.close();
+		}
+		writeDone(request, out, start);
+	}
+
+	/*
+	 * A method that performs a test request, with a cached grammar and a
+	 * cached result if there are, and reports its results to the given sink.
+	 */
+	private void check(Map<String, String> request, JsonResultSink sink) {
+		TesterOptions options = new TesterOptions();
+		int maxLength = request.containsKey("maxLength") ? (int) getNumber(
+				request, "maxLength") : DEFAULT_MAX_LENGTH;
+		if (request.containsKey("timeLimit")) {
+			options.setMaxTestMillis(getNumber(request, "timeLimit"));
+		}
+		if (request.containsKey("maxSteps")) {
+			options.setMaxDerivationSteps(getNumber(request, "maxSteps"));
+		}
+		if (request.containsKey("engine")) {
+			options.setEngine(TesterOptions.Engine.valueOf(getString(request,
+					"engine")));
+		}
+		if (request.containsKey("threads")) {
+			options.setNumOfThreads((int) getNumber(request, "threads"));
+		}
+		if (request.containsKey("sampleMaxLength")) {
+			options.setSampleMaxLength((int) getNumber(request,
+					"sampleMaxLength"));
+		}
+		if (request.containsKey("sampleMinLength")) {
+			options.setSampleMinLength((int) getNumber(request,
+					"sampleMinLength"));
+		}
+		if (request.containsKey("sampleTimeLimit")) {
+			options.setSampleMillis(getNumber(request, "sampleTimeLimit"));
+		}
+		if (request.containsKey("seed")) {
+			options.setSampleSeed(getNumber(request, "seed"));
+		}
+		if (request.containsKey("prune")) {
+			options.setPruneVocabulary(getBoolean(request, "prune"));
+		}
+		boolean reportWords = request.containsKey("words")
+				&& getBoolean(request, "words");
+		Deadline deadline = Deadline.after(options.getMaxTestMillis());
+		String grammarKey = getGrammarKey(request);
+		CFG cfg = loadGrammar(request, grammarKey, sink);
+		if (cfg == null) {
+			return;
+		}
+		sink.start(cfg);
+		String resultKey = grammarKey + NEW_LINE + maxLength + " "
+				+ options.getEngine() + " " + options.getMaxDerivationSteps()
+				+ " " + options.getSampleMaxLength() + " "
+				+ options.getSampleMinLength() + " "
+				+ options.getSampleMillis() + " " + options.getSampleSeed()
+				+ " " + options.isPruneVocabulary();
+		RecordedResult result = reportWords ? null : getResult(resultKey);
+		if (result != null) {
+			numOfResultHits.incrementAndGet();
+			sink.note("Reused the result of an identical earlier request");
+			result.replay(sink);
+			return;
+		}
+		RecordedResult recorder = new RecordedResult(sink);
+		GrammarAmbiguityTester.testGrammar(cfg, null, maxLength, options,
+				deadline, recorder);
+		if (!reportWords && recorder.isDecided() && !deadline.hasPassed()) {
+			putResult(resultKey, recorder);
+		}
+	}
+
+	/*
+	 * A method that returns the key of the request's grammar: its text, or
+	 * its file's absolute path, size and modification time, so a grammar file
+	 * that was changed is compiled again.
+	 */
+	private static String getGrammarKey(Map<String, String> request) {
+		if (request.containsKey("grammar")) {
+			return "text:" + getString(request, "grammar");
+		}
+		if (request.containsKey("file")) {
+			File file = new File(getString(request, "file"));
+			return "file:" + file.getAbsolutePath() + ":" + file.length() + ":"
+					+ file.lastModified();
+		}
+		throw new IllegalArgumentException(
+				"The request has neither a \"grammar\" nor a \"file\" field...");
+	}
+
+	/*
+	 * A method that returns the compiled grammar of the request from the
+	 * cache, or compiles it and caches it. It returns null (and reports why)
+	 * if the grammar can't be compiled.
+	 */
+	private CFG loadGrammar(Map<String, String> request, String grammarKey,
+			ResultSink sink) {
+		CFG cfg;
+		synchronized (grammars) {
+			cfg = grammars.get(grammarKey);
+		}
+		if (cfg != null) {
+			numOfGrammarHits.incrementAndGet();
+			return cfg;
+		}
+		try {
+			if (request.containsKey("grammar")) {
+				cfg = CFG.fromText(getString(request, "grammar"));
+			} else {
+				File file = new File(getString(request, "file"));
+				if (!file.isFile()) {
+					sink.message("Can't find the specified file...");
+					return null;
+				}
+				cfg = new CFG(file);
+			}
+		} catch (GrammarFormatException e) {
+			sink.message(e.getMessage());
+			return null;
+		} catch (IOException e) {
+			sink.message("Can't read the specified file (" + e + ")...");
+			return null;
+		}
+		synchronized (grammars) {
+			grammars.put(grammarKey, cfg);
+		}
+		return cfg;
+	}
+
+	/* A method that returns the number of cached grammars. */
+	private int getNumOfCachedGrammars() {
+		synchronized (grammars) {
+			return grammars.size();
+		}
+	}
+
+	/* A method that returns the cached result of the given key, or null. */
+	private RecordedResult getResult(String resultKey) {
+		synchronized (results) {
+			return results.get(resultKey);
+		}
+	}
+
+	/* A method that caches the given result. */
+	private void putResult(String resultKey, RecordedResult result) {
+		synchronized (results) {
+			results.put(resultKey, result);
+		}
+	}
+
+	/* A method that writes the "done" line of a request. */
+	private static void writeDone(Map<String, String> request, PrintStream out,
+			long start) {
+		writeLine(out, linePrefix(request)
+				+ "\"type\":\"done\",\"millis\":"
+				+ String.format("%.3f", (System.nanoTime() - start) / 1e6)
+				+ "}");
+	}
+
+	/*
+	 * A method that returns the start of a line of the given request: the '{',
+	 * and the request's "id" field if it has one.
+	 */
+	private static String linePrefix(Map<String, String> request) {
+		String id = request.get("id");
+		return (id != null) ? "{\"id\":" + id + "," : "{";
+	}
+
+	/*
+	 * A method that writes a line to the given stream at once, so it isn't
+	 * mixed with the lines of other requests.
+	 */
+	private static void writeLine(PrintStream out, String line) {
+		synchronized (out) {
+			out.print(line + NEW_LINE);
+			out.flush();
+		}
+	}
+
+	/* A method that returns the given string as a JSON string. */
+	private static String toJsonString(String string) {
+		StringBuilder json = new StringBuilder();
+		JsonResultSink.appendString(json, string);
+		return json.toString();
+	}
+
+	/* A method that waits until the given request is done. */
+	private static void waitFor(Future<?> request) {
+		boolean interrupted = false;
+		while (true) {
+			try {
+				request.get();
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			} catch (ExecutionException e) { // The request reported its own
+												// errors.
+				break;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/* A method that returns the value of a string field of the request. */
+	private static String getString(Map<String, String> request, String name) {
+		String value = request.get(name);
+		if (!value.startsWith("\"")) {
+			throw new IllegalArgumentException("The field \"" + name
+					+ "\" should be a string...");
+		}
+		return RequestParser.decodeString(value);
+	}
+
+	/* A method that returns the value of a number field of the request. */
+	private static long getNumber(Map<String, String> request, String name) {
+		try {
+			return Long.parseLong(request.get(name));
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("The field \"" + name
+					+ "\" should be an integer...");
+		}
+	}
+
+	/* A method that returns the value of a boolean field of the request. */
+	private static boolean getBoolean(Map<String, String> request, String name) {
+		String value = request.get(name);
+		if (!value.equals("true") && !value.equals("false")) {
+			throw new IllegalArgumentException("The field \"" + name
+					+ "\" should be true or false...");
+		}
+		return value.equals("true");
+	}
+
+	/*
+	 * A class that parses a request line: a JSON object whose values are
+	 * strings, numbers, booleans or nulls. Every field is mapped to its value
+	 * as it is written in the line, so the "id" field can be copied as is.
+	 */
+	private static class RequestParser {
+
+		/* line - The request line. */
+		private String line;
+
+		/* position - The index of the next character to parse. */
+		private int position;
+
+		RequestParser(String line) {
+			this.line = line;
+		}
+
+		/*
+		 * A method that parses the line. It throws an IllegalArgumentException
+		 * if the line is malformed.
+		 */
+		Map<String, String> parse() {
+			Map<String, String> fields = new HashMap<>();
+			expect('{');
+			if (peek() == '}') {
+				++position;
+			} else {
+				while (true) {
+					if (peek() != '"') {
+						throw malformed("a field name");
+					}
+					String name = decodeString(readValue());
+					expect(':');
+					fields.put(name, readValue());
+					char next = peek();
+					++position;
+					if (next == '}') {
+						break;
+					}
+					if (next != ',') {
+						throw malformed("',' or '}'");
+					}
+				}
+			}
+			if (peek() != 0) {
+				throw malformed("the end of the line");
+			}
+			return fields;
+		}
+
+		/*
+		 * A method that reads a value, and returns it as it is written in the
+		 * line.
+		 */
+		private String readValue() {
+			char first = peek();
+			int start = position;
+			if (first == '"') {
+				for (++position; position < line.length()
+						&& line.charAt(position) != '"'; ++position) {
+					if (line.charAt(position) == '\\') {
+						++position;
+					}
+				}
+				if (position >= line.length()) {
+					throw malformed("the end of a string");
+				}
+				return line.substring(start, ++position);
+			}
+			while (position < line.length()
+					&& ",}: \t\r\n".indexOf(line.charAt(position)) < 0) {
+				++position;
+			}
+			String value = line.substring(start, position);
+			if (!value.matches("-?\\d+(\\.\\d+)?([eE][+-]?\\d+)?|true|false|null")) {
+				position = start;
+				throw malformed("a string, a number, a boolean or null");
+			}
+			return value;
+		}
+
+		/*
+		 * A method that skips the whitespace, and returns the next character,
+		 * or 0 at the end of the line.
+		 */
+		private char peek() {
+			while (position < line.length()
+					&& Character.isWhitespace(line.charAt(position))) {
+				++position;
+			}
+			return (position < line.length()) ? line.charAt(position) : 0;
+		}
+
+		/* A method that skips the given character, which must come next. */
+		private void expect(char c) {
+			if (peek() != c) {
+				throw malformed("'" + c + "'");
+			}
+			++position;
+		}
+
+		/* A method that returns the exception of a malformed line. */
+		private IllegalArgumentException malformed(String expected) {
+			return new IllegalArgumentException("Malformed request: expected "
+					+ expected + " at column " + (position + 1) + "...");
+		}
+
+		/* A method that decodes a JSON string, given with its quotes. */
+		static String decodeString(String value) {
+			StringBuilder string = new StringBuilder();
+			for (int i = 1; i < value.length() - 1; ++i) {
+				char c = value.charAt(i);
+				if (c != '\\') {
+					string.append(c);
+					continue;
+				}
+				c = value.charAt(++i);
+				switch (c) {
+				case 'b':
+					string.append('\b');
+					break;
+				case 'f':
+					string.append('\f');
+					break;
+				case 'n':
+					string.append('\n');
+					break;
+				case 'r':
+					string.append('\r');
+					break;
+				case 't':
+					string.append('\t');
+					break;
+				case 'u':
+					if (i + 4 >= value.length() - 1) {
+						throw new IllegalArgumentException(
+								"Malformed request: a bad \\u escape...");
+					}
+					try {
+						string.append((char) Integer.parseInt(
+								value.substring(i + 1, i + 5), 16));
+					} catch (NumberFormatException e) {
+						throw new IllegalArgumentException(
+								"Malformed request: a bad \\u escape...");
+					}
+					i += 4;
+					break;
+				default: // '"', '\\' and '/'.
+					string.append(c);
+				}
+			}
+			return string.toString();
+		}
+
+	}
+
+	/*
+	 * A result sink that passes the results of a test on to another sink, and
+	 * records the notes, the ambiguous word and the verdict, so they can be
+	 * reported again for an identical request. The tested words are not
+	 * recorded.
+	 */
+	private static class RecordedResult implements ResultSink {
+
+		/* sink - The sink the results are passed on to. */
+		private ResultSink sink;
+
+		/* events - The recorded results, in the order they were reported. */
+		private List<Consumer<ResultSink>> events = new ArrayList<>();
+
+		/* verdict - The test's verdict, or null if it has none yet. */
+		private Verdict verdict;
+
+		RecordedResult(ResultSink sink) {
+			this.sink = sink;
+		}
+
+		public void start(CFG cfg) {
+			sink.start(cfg);
+		}
+
+		public void message(String message) {
+			sink.message(message);
+			events.add(other -> other.message(message));
+		}
+
+		public void note(String note) {
+			sink.note(note);
+			events.add(other -> other.note(note));
+		}
+
+		public void wordTested(int[] word, int result,
+				String inconclusiveReason, List<int[]> leftDerivationsFound) {
+			sink.wordTested(word, result, inconclusiveReason,
+					leftDerivationsFound);
+		}
+
+		public void wordLengthTested(int length) {
+			sink.wordLengthTested(length);
+		}
+
+		public void ambiguousWord(int[] word, List<int[]> leftDerivationsFound) {
+			sink.ambiguousWord(word, leftDerivationsFound);
+			int[] recordedWord = word.clone();
+			List<int[]> recordedDerivations = new ArrayList<>(
+					leftDerivationsFound);
+			events.add(other -> other.ambiguousWord(recordedWord,
+					recordedDerivations));
+		}
+
+		public void verdict(Verdict verdict, long numOfInconclusiveWords) {
+			sink.verdict(verdict, numOfInconclusiveWords);
+			this.verdict = verdict;
+			events.add(other -> other.verdict(verdict, numOfInconclusiveWords));
+		}
+
+		public void close() {
+			sink.close();
+		}
+
+		/*
+		 * A method that states whether the test was decided: it has a verdict
+		 * that doesn't depend on its time limit.
+		 */
+		boolean isDecided() {
+			return verdict != null && verdict != Verdict.OUT_OF_TIME;
+		}
+
+		/* A method that reports the recorded results to the given sink. */
+		void replay(ResultSink other) {
+			for (Consumer<ResultSink> event : events) {
+				event.accept(other);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,100 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/*
+ * A class that holds the JDK Flight Recorder events of an instrumented test
+ * (see the TesterStatistics class). The events are only created when the test
+ * is instrumented, and they cost almost nothing when no recording is running.
+ * A recording with the default settings records all of them. A threshold can
+ * be set on the GrammarAmbiguityTester.WordTested event in the recording's
+ * settings file, to record only the slow words of a long test.
+ */
+class TesterEvents {
+
+	private TesterEvents() {
+	}
+
+	/*
+	 * An event of a single tested word. Its duration is the time its test
+	 * took, and the search counters are only set if the word was tested by the
+	 * derivation search.
+	 */
+	@Name("GrammarAmbiguityTester.WordTested")
+	@Label("Word Tested")
+	@Category("Grammar Ambiguity Tester")
+	@Description("The test of a single word of the vocabulary")
+	@StackTrace(false)
+	static class WordTested extends Event {
+
+		@Label("Word Length")
+		int wordLength;
+
+		@Label("Result")
+		@Description("The number of left derivations found (at most 2), or -1 if the test was inconclusive")
+		int result;
+
+		@Label("Expansions")
+		@Description("The number of derivation rules the search applied")
+		long expansions;
+
+		@Label("Max Depth")
+		@Description("The maximal number of steps in a derivation the search tried")
+		int maxDepth;
+
+		@Label("Prefix Mismatch Prunes")
+		long prefixMismatchPrunes;
+
+		@Label("Terminal Only Prunes")
+		long terminalOnlyPrunes;
+
+		@Label("Length Bound Prunes")
+		long lengthBoundPrunes;
+
+		@Label("FIRST Set Prunes")
+		long firstSetPrunes;
+
+		@Label("Depth Budget Prunes")
+		long depthBudgetPrunes;
+
+		@Label("Span Counts Prunes")
+		long spanCountsPrunes;
+
+		/*
+		 * startNanos - The System.nanoTime value when the word's test started,
+		 * which the MBean's timings use even when no recording is running.
+		 * Transient fields are not recorded.
+		 */
+		transient long startNanos;
+
+	}
+
+	/* An event of all the tested words of a single length. */
+	@Name("GrammarAmbiguityTester.WordLengthTested")
+	@Label("Word Length Tested")
+	@Category("Grammar Ambiguity Tester")
+	@Description("The tests of all the words of a single length")
+	@StackTrace(false)
+	static class WordLengthTested extends Event {
+
+		@Label("Word Length")
+		int wordLength;
+
+		@Label("Tested Words")
+		long numOfWords;
+
+		@Label("Inconclusive Words")
+		long numOfInconclusiveWords;
+
+		@Label("Test Time")
+		@Description("The total time the tests of the words took, over all threads")
+		@Timespan(Timespan.NANOSECONDS)
+		long testTime;
+
+	}
+
+}
@@ -0,0 +1,360 @@
+import java.io.File;
+import java.io.PrintStream;
+
+/*
+ * A class that holds the options of an ambiguity test. A new instance holds
+ * the default options, which can be changed using the setters.
+ */
+class TesterOptions {
+
+	/* The engines that can be used to count the left derivations of a word. */
+	enum Engine {
+		/* A depth first search over the left derivations (DerivationSearch). */
+		DERIVATION_SEARCH,
+		/* A polynomial chart parser (ChartDerivationCounter). */
+		CHART,
+		/*
+		 * A bottom up enumeration of the language's words (YieldEnumerator),
+		 * which doesn't test every word of the vocabulary. Falls back to the
+		 * chart when the words are too long to enumerate.
+		 */
+		YIELD_ENUMERATION,
+		/*
+		 * A breadth first search over the leftmost sentential forms
+		 * (SententialFormSearch), which stops at the first form that two left
+		 * derivations reach. Falls back to the chart when it can't visit all
+		 * the forms.
+		 */
+		SENTENTIAL_FORMS
+	}
+
+	/* The ways the results of the test can be reported (see ResultSink). */
+	enum OutputMode {
+		/* A human readable report of every tested word (TextResultSink). */
+		TEXT,
+		/*
+		 * A human readable report of only the ambiguous word, the statistics
+		 * and the verdict (TextResultSink).
+		 */
+		SUMMARY,
+		/* A JSON object per tested word, per witness and so on (JsonResultSink). */
+		NDJSON
+	}
+
+	/* engine - The engine that counts the left derivations of every word. */
+	private Engine engine = Engine.DERIVATION_SEARCH;
+
+	/*
+	 * maxDerivationDepth - The maximal number of derivation steps in a single
+	 * left derivation. Derivations that would need more steps are cut, and a
+	 * word that had a cut derivation and less than two left derivations is
+	 * reported as inconclusive.
+	 */
+	private int maxDerivationDepth = 1000;
+
+	/*
+	 * maxDerivationSteps - The maximal number of derivation steps the search
+	 * may perform for a single word, before the word is reported as
+	 * inconclusive.
+	 */
+	private long maxDerivationSteps = Long.MAX_VALUE;
+
+	/*
+	 * maxTestMillis - The maximal wall clock time (in milliseconds) the whole
+	 * test may take, or 0 for no limit. A test that runs out of time stops,
+	 * and reports that no ambiguity was found up to the words it tested.
+	 */
+	private long maxTestMillis = 0;
+
+	/*
+	 * checkpointDirectory - The directory in which the progress of the test
+	 * is kept, so it can be resumed (see the Checkpoint class), or null if the
+	 * progress should not be kept.
+	 */
+	private File checkpointDirectory = null;
+
+	/*
+	 * grammarCacheDirectory - The directory in which the compiled grammars are
+	 * kept, so a grammar file that is tested again isn't read again (see the
+	 * CompiledGrammarCache class), or null if they should not be kept.
+	 */
+	private File grammarCacheDirectory = null;
+
+	/*
+	 * pruneVocabulary - States whether the words of the vocabulary that start
+	 * with a prefix no word of the language starts with should be skipped
+	 * (see the ViableWordGenerator class).
+	 */
+	private boolean pruneVocabulary = false;
+
+	/*
+	 * staticCheck - States whether the test first tries to prove that the
+	 * grammar is not ambiguous, without testing any word, and otherwise uses
+	 * the grammar's LL(1) conflicts to narrow the derivation search (see the
+	 * StaticAmbiguityCheck class).
+	 */
+	private boolean staticCheck = true;
+
+	/*
+	 * maxSententialForms - The maximal number of sentential forms the
+	 * SENTENTIAL_FORMS engine visits, which bounds its memory (about 40 bytes
+	 * per form).
+	 */
+	private int maxSententialForms = 1 << 21;
+
+	/*
+	 * sampleMaxLength - The maximal length of the random words that are tested
+	 * once all the words up to the maximal word length were tested without
+	 * finding an ambiguous word (see the WordSampler class), or 0 if no random
+	 * words should be tested.
+	 */
+	private int sampleMaxLength = 0;
+
+	/*
+	 * sampleMinLength - The minimal length of the random words. Words that are
+	 * not longer than the maximal word length are never drawn, since they were
+	 * all tested already.
+	 */
+	private int sampleMinLength = 0;
+
+	/*
+	 * sampleMillis - The wall clock time (in milliseconds) the random words may
+	 * be tested for (0 or less for none). The test's own time limit still
+	 * applies.
+	 */
+	private long sampleMillis = 10000;
+
+	/*
+	 * sampleSeed - The seed of the random words, so a test with the same seed
+	 * draws the same words, in the same order.
+	 */
+	private long sampleSeed = 0;
+
+	/*
+	 * numOfThreads - The number of threads that test the words. With more than
+	 * one thread the words are tested by the ParallelWordTester class, which
+	 * doesn't prune the vocabulary.
+	 */
+	private int numOfThreads = 1;
+
+	/*
+	 * splitSteps - The number of derivation steps a word's search takes before
+	 * the threads that have nothing else to do help with it (see the
+	 * DerivationSplitter class), or 0 if the searches are never split. It only
+	 * matters with more than one thread.
+	 */
+	private long splitSteps = 1 << 16;
+
+	/*
+	 * memoCapacity - The maximal number of span counts the derivation search
+	 * memoizes (see the SpanCountMemo class), or 0 to disable memoization.
+	 */
+	private int memoCapacity = 0;
+
+	/*
+	 * instrumented - States whether the test counts what the derivation search
+	 * does and times every word, and publishes it as JFR events and as a JMX
+	 * MBean (see the TesterStatistics class).
+	 */
+	private boolean instrumented = false;
+
+	/* outputMode - The way the results of the test are reported. */
+	private OutputMode outputMode = OutputMode.TEXT;
+
+	/*
+	 * output - The stream the results of the test are written to, or null to
+	 * write them to System.out.
+	 */
+	private PrintStream output = null;
+
+	/* A getter for the engine field. */
+	public Engine getEngine() {
+		return engine;
+	}
+
+	/* A setter for the engine field. */
+	public void setEngine(Engine engine) {
+		this.engine = engine;
+	}
+
+	/* A getter for the pruneVocabulary field. */
+	public boolean isPruneVocabulary() {
+		return pruneVocabulary;
+	}
+
+	/* A setter for the pruneVocabulary field. */
+	public void setPruneVocabulary(boolean pruneVocabulary) {
+		this.pruneVocabulary = pruneVocabulary;
+	}
+
+	/* A getter for the staticCheck field. */
+	public boolean isStaticCheck() {
+		return staticCheck;
+	}
+
+	/* A setter for the staticCheck field. */
+	public void setStaticCheck(boolean staticCheck) {
+		this.staticCheck = staticCheck;
+	}
+
+	/* A getter for the maxSententialForms field. */
+	public int getMaxSententialForms() {
+		return maxSententialForms;
+	}
+
+	/* A setter for the maxSententialForms field. */
+	public void setMaxSententialForms(int maxSententialForms) {
+		this.maxSententialForms = maxSententialForms;
+	}
+
+	/* A getter for the sampleMaxLength field. */
+	public int getSampleMaxLength() {
+		return sampleMaxLength;
+	}
+
+	/* A setter for the sampleMaxLength field. */
+	public void setSampleMaxLength(int sampleMaxLength) {
+		this.sampleMaxLength = sampleMaxLength;
+	}
+
+	/* A getter for the sampleMinLength field. */
+	public int getSampleMinLength() {
+		return sampleMinLength;
+	}
+
+	/* A setter for the sampleMinLength field. */
+	public void setSampleMinLength(int sampleMinLength) {
+		this.sampleMinLength = sampleMinLength;
+	}
+
+	/* A getter for the sampleMillis field. */
+	public long getSampleMillis() {
+		return sampleMillis;
+	}
+
+	/* A setter for the sampleMillis field. */
+	public void setSampleMillis(long sampleMillis) {
+		this.sampleMillis = sampleMillis;
+	}
+
+	/* A getter for the sampleSeed field. */
+	public long getSampleSeed() {
+		return sampleSeed;
+	}
+
+	/* A setter for the sampleSeed field. */
+	public void setSampleSeed(long sampleSeed) {
+		this.sampleSeed = sampleSeed;
+	}
+
+	/* A getter for the numOfThreads field. */
+	public int getNumOfThreads() {
+		return numOfThreads;
+	}
+
+	/* A setter for the numOfThreads field. */
+	public void setNumOfThreads(int numOfThreads) {
+		this.numOfThreads = numOfThreads;
+	}
+
+	/* A getter for the splitSteps field. */
+	public long getSplitSteps() {
+		return splitSteps;
+	}
+
+	/* A setter for the splitSteps field. */
+	public void setSplitSteps(long splitSteps) {
+		this.splitSteps = splitSteps;
+	}
+
+	/* A getter for the memoCapacity field. */
+	public int getMemoCapacity() {
+		return memoCapacity;
+	}
+
+	/* A setter for the memoCapacity field. */
+	public void setMemoCapacity(int memoCapacity) {
+		this.memoCapacity = memoCapacity;
+	}
+
+	/* A getter for the instrumented field. */
+	public boolean isInstrumented() {
+		return instrumented;
+	}
+
+	/* A setter for the instrumented field. */
+	public void setInstrumented(boolean instrumented) {
+		this.instrumented = instrumented;
+	}
+
+	/* A getter for the outputMode field. */
+	public OutputMode getOutputMode() {
+		return outputMode;
+	}
+
+	/* A setter for the outputMode field. */
+	public void setOutputMode(OutputMode outputMode) {
+		this.outputMode = outputMode;
+	}
+
+	/* A getter for the output field. */
+	public PrintStream getOutput() {
+		return output;
+	}
+
+	/* A setter for the output field. */
+	public void setOutput(PrintStream output) {
+		this.output = output;
+	}
+
+	/* A getter for the maxDerivationDepth field. */
+	public int getMaxDerivationDepth() {
+		return maxDerivationDepth;
+	}
+
+	/* A setter for the maxDerivationDepth field. */
+	public void setMaxDerivationDepth(int maxDerivationDepth) {
+		this.maxDerivationDepth = maxDerivationDepth;
+	}
+
+	/* A getter for the maxDerivationSteps field. */
+	public long getMaxDerivationSteps() {
+		return maxDerivationSteps;
+	}
+
+	/* A setter for the maxDerivationSteps field. */
+	public void setMaxDerivationSteps(long maxDerivationSteps) {
+		this.maxDerivationSteps = maxDerivationSteps;
+	}
+
+	/* A getter for the checkpointDirectory field. */
+	public File getCheckpointDirectory() {
+		return checkpointDirectory;
+	}
+
+	/* A setter for the checkpointDirectory field. */
+	public void setCheckpointDirectory(File checkpointDirectory) {
+		this.checkpointDirectory = checkpointDirectory;
+	}
+
+	/* A getter for the grammarCacheDirectory field. */
+	public File getGrammarCacheDirectory() {
+		return grammarCacheDirectory;
+	}
+
+	/* A setter for the grammarCacheDirectory field. */
+	public void setGrammarCacheDirectory(File grammarCacheDirectory) {
+		this.grammarCacheDirectory = grammarCacheDirectory;
+	}
+
+	/* A getter for the maxTestMillis field. */
+	public long getMaxTestMillis() {
+		return maxTestMillis;
+	}
+
+	/* A setter for the maxTestMillis field. */
+	public void setMaxTestMillis(long maxTestMillis) {
+		this.maxTestMillis = maxTestMillis;
+	}
+
+}
@@ -0,0 +1,248 @@
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/*
+ * A class that collects the statistics of an instrumented test (see the
+ * TesterOptions.setInstrumented method): the counters of every derivation
+ * search the test uses (see the SearchStatistics class), and the number of
+ * tested words and the time their tests took, per word length. It publishes
+ * them as a JMX MBean, which is registered while the test runs, and as JFR
+ * events (see the TesterEvents class). Every word's test is wrapped by the
+ * startWord and finishWord methods, which may be called by several threads.
+ */
+class TesterStatistics implements TesterStatisticsMXBean {
+
+	/* nextId - The id of the next registered MBean. */
+	private static AtomicInteger nextId = new AtomicInteger();
+
+	/* name - The name of the registered MBean, or null. */
+	private ObjectName name;
+
+	/* maxWordLength - The maximal length of the tested words. */
+	private int maxWordLength;
+
+	/* searches - The counters of the derivation searches of the test. */
+	private List<SearchStatistics> searches = new CopyOnWriteArrayList<>();
+
+	/* currentWordLength - The length of the currently tested words, or -1. */
+	private AtomicInteger currentWordLength = new AtomicInteger(-1);
+
+	/*
+	 * The number of tested words, the number of inconclusive words and the
+	 * total time their tests took (in nanoseconds), indexed by word length.
+	 */
+	private AtomicLongArray wordLengthCounts;
+	private AtomicLongArray wordLengthInconclusives;
+	private AtomicLongArray wordLengthNanos;
+
+	/*
+	 * The TesterStatistics class' constructor.
+	 * 		maxWordLength - The maximal length of the tested words.
+	 */
+	TesterStatistics(int maxWordLength) {
+		this.maxWordLength = maxWordLength;
+		wordLengthCounts = new AtomicLongArray(maxWordLength + 1);
+		wordLengthInconclusives = new AtomicLongArray(maxWordLength + 1);
+		wordLengthNanos = new AtomicLongArray(maxWordLength + 1);
+	}
+
+	/*
+	 * A method that registers the statistics as an MBean on the platform MBean
+	 * server, named "GrammarAmbiguityTester:type=TesterStatistics,id=N". If it
+	 * can't be registered, the test runs without it, and a message is reported
+	 * to the given sink.
+	 */
+	void register(ResultSink sink) {
+		try {
+			name = new ObjectName(
+					"GrammarAmbiguityTester:type=TesterStatistics,id="
+							+ nextId.getAndIncrement());
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+		} catch (JMException e) {
+			sink.message("Can't register the test's statistics MBean ("
+					+ e.getMessage() + ")...");
+			name = null;
+		}
+	}
+
+	/*
+	 * A method that ends the test's statistics: it commits the event of the
+	 * last word length, and unregisters the MBean.
+	 */
+	void close() {
+		int length = currentWordLength.get();
+		if (length >= 0) {
+			commitWordLength(length);
+		}
+		if (name != null) {
+			try {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+			} catch (JMException e) { // Someone else unregistered it.
+			}
+			name = null;
+		}
+	}
+
+	/*
+	 * A method that adds the counters of the given derivation counter to the
+	 * statistics, if it is an instrumented derivation search.
+	 */
+	void addCounter(DerivationCounter counter) {
+		if (counter instanceof DerivationSearch
+				&& ((DerivationSearch) counter).getStatistics() != null) {
+			searches.add(((DerivationSearch) counter).getStatistics());
+		}
+	}
+
+	/*
+	 * A method that is called right before a word of the given length is
+	 * tested, and returns the word's event, which should be passed to the
+	 * finishWord method. The words must be tested by their length, so once a
+	 * word of a new length is tested, the event of the previous length is
+	 * committed.
+	 */
+	TesterEvents.WordTested startWord(int wordLength) {
+		int previousLength = currentWordLength.getAndSet(wordLength);
+		if (previousLength != wordLength && previousLength >= 0) {
+			commitWordLength(previousLength);
+		}
+		TesterEvents.WordTested event = new TesterEvents.WordTested();
+		event.begin();
+		event.startNanos = System.nanoTime();
+		return event;
+	}
+
+	/*
+	 * A method that is called right after a word was tested.
+	 * 		event - The word's event, which startWord returned.
+	 * 		counter - The derivation counter that tested the word.
+	 * 		word - The tested word.
+	 * 		result - The result of the word's test.
+	 */
+	void finishWord(TesterEvents.WordTested event, DerivationCounter counter,
+			int[] word, int result) {
+		event.end();
+		long nanos = System.nanoTime() - event.startNanos;
+		wordLengthCounts.incrementAndGet(word.length);
+		wordLengthNanos.addAndGet(word.length, nanos);
+		if (result == DerivationCounter.INCONCLUSIVE) {
+			wordLengthInconclusives.incrementAndGet(word.length);
+		}
+		if (!event.shouldCommit()) {
+			return;
+		}
+		event.wordLength = word.length;
+		event.result = result;
+		if (counter instanceof DerivationSearch
+				&& ((DerivationSearch) counter).getStatistics() != null) {
+			SearchStatistics search = ((DerivationSearch) counter)
+					.getStatistics();
+			event.expansions = search.getWordExpansions();
+			event.maxDepth = search.getWordMaxDepth();
+			event.prefixMismatchPrunes = search
+					.getWordPrunes(SearchStatistics.PruneReason.PREFIX_MISMATCH);
+			event.terminalOnlyPrunes = search
+					.getWordPrunes(SearchStatistics.PruneReason.TERMINAL_ONLY);
+			event.lengthBoundPrunes = search
+					.getWordPrunes(SearchStatistics.PruneReason.LENGTH_BOUND);
+			event.firstSetPrunes = search
+					.getWordPrunes(SearchStatistics.PruneReason.FIRST_SET);
+			event.depthBudgetPrunes = search
+					.getWordPrunes(SearchStatistics.PruneReason.DEPTH_BUDGET);
+			event.spanCountsPrunes = search
+					.getWordPrunes(SearchStatistics.PruneReason.SPAN_COUNTS);
+		}
+		event.commit();
+	}
+
+	/* A method that commits the event of the given word length. */
+	private void commitWordLength(int wordLength) {
+		TesterEvents.WordLengthTested event = new TesterEvents.WordLengthTested();
+		if (event.isEnabled()) {
+			event.wordLength = wordLength;
+			event.numOfWords = wordLengthCounts.get(wordLength);
+			event.numOfInconclusiveWords = wordLengthInconclusives
+					.get(wordLength);
+			event.testTime = wordLengthNanos.get(wordLength);
+			event.commit();
+		}
+	}
+
+	public int getMaxWordLength() {
+		return maxWordLength;
+	}
+
+	public int getCurrentWordLength() {
+		return currentWordLength.get();
+	}
+
+	public long getNumOfTestedWords() {
+		return sum(wordLengthCounts);
+	}
+
+	public long getNumOfInconclusiveWords() {
+		return sum(wordLengthInconclusives);
+	}
+
+	public long getExpansions() {
+		long expansions = 0;
+		for (SearchStatistics search : searches) {
+			expansions += search.getExpansions();
+		}
+		return expansions;
+	}
+
+	public int getMaxDepth() {
+		int maxDepth = 0;
+		for (SearchStatistics search : searches) {
+			maxDepth = Math.max(maxDepth, search.getMaxDepth());
+		}
+		return maxDepth;
+	}
+
+	public Map<String, Long> getPrunes() {
+		Map<String, Long> prunes = new LinkedHashMap<>();
+		for (SearchStatistics.PruneReason reason : SearchStatistics.PruneReason
+				.values()) {
+			long numOfPrunes = 0;
+			for (SearchStatistics search : searches) {
+				numOfPrunes += search.getNumOfPrunes(reason);
+			}
+			prunes.put(reason.name(), numOfPrunes);
+		}
+		return prunes;
+	}
+
+	public long[] getWordLengthCounts() {
+		return toArray(wordLengthCounts);
+	}
+
+	public long[] getWordLengthNanos() {
+		return toArray(wordLengthNanos);
+	}
+
+	private static long sum(AtomicLongArray array) {
+		long sum = 0;
+		for (int i = 0; i < array.length(); ++i) {
+			sum += array.get(i);
+		}
+		return sum;
+	}
+
+	private static long[] toArray(AtomicLongArray array) {
+		long[] values = new long[array.length()];
+		for (int i = 0; i < values.length; ++i) {
+			values[i] = array.get(i);
+		}
+		return values;
+	}
+
+}
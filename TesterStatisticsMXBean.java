@@ -0,0 +1,51 @@
+import java.util.Map;
+
+/*
+ * The management interface of an instrumented test's statistics (see the
+ * TesterStatistics class), which can be watched live with any JMX client, such
+ * as JConsole or VisualVM. The search counters only cover the words that were
+ * tested by the derivation search.
+ */
+public interface TesterStatisticsMXBean {
+
+	/* A method that returns the maximal length of the tested words. */
+	int getMaxWordLength();
+
+	/*
+	 * A method that returns the length of the words that are currently tested,
+	 * or -1 if no word was tested yet.
+	 */
+	int getCurrentWordLength();
+
+	/* A method that returns the number of words tested so far. */
+	long getNumOfTestedWords();
+
+	/* A method that returns the number of inconclusive words so far. */
+	long getNumOfInconclusiveWords();
+
+	/* A method that returns the number of derivation rules applied so far. */
+	long getExpansions();
+
+	/* A method that returns the maximal number of steps in a derivation. */
+	int getMaxDepth();
+
+	/*
+	 * A method that returns the number of derived strings dropped so far, by
+	 * the name of the reason they were dropped for (see the
+	 * SearchStatistics.PruneReason enum).
+	 */
+	Map<String, Long> getPrunes();
+
+	/*
+	 * A method that returns the number of words tested so far, indexed by
+	 * their length.
+	 */
+	long[] getWordLengthCounts();
+
+	/*
+	 * A method that returns the total time (in nanoseconds) the tests of the
+	 * words took so far, indexed by their length.
+	 */
+	long[] getWordLengthNanos();
+
+}
@@ -0,0 +1,202 @@
+import java.io.PrintStream;
+import java.util.List;
+
+/*
+ * A result sink that writes the human readable report of the test. In the
+ * verbose mode (TesterOptions.OutputMode.TEXT) it writes a line for every
+ * tested word, and a table of the left derivation sequence of every word that
+ * has a single one. In the summary mode (TesterOptions.OutputMode.SUMMARY) it
+ * only writes the ambiguous word, the statistics and the verdict. The text is
+ * built in memory and written by a separate thread, and it is flushed once
+ * all the words of a length were tested.
+ */
+class TextResultSink implements ResultSink {
+
+	private static final String NEW_LINE = System.lineSeparator();
+
+	/* output - The output the report is written to. */
+	private AsyncOutput output;
+
+	/* verbose - States whether every tested word is reported. */
+	private boolean verbose;
+
+	/* cfg - The tested grammar, in its compiled form. */
+	private CFG cfg;
+
+	/* lastWordLength - The length of the last reported word, or -1. */
+	private int lastWordLength = -1;
+
+	/*
+	 * The TextResultSink class' constructor.
+	 * 		out - The stream the report is written to.
+	 * 		verbose - States whether every tested word is reported.
+	 */
+	TextResultSink(PrintStream out, boolean verbose) {
+		output = new AsyncOutput(out);
+		this.verbose = verbose;
+	}
+
+	public void start(CFG cfg) {
+		this.cfg = cfg;
+	}
+
+	public void message(String message) {
+		output.write(message + NEW_LINE);
+		output.flush();
+	}
+
+	public void note(String note) {
+		output.write("(" + note + ")" + NEW_LINE);
+	}
+
+	public void wordTested(int[] word, int result, String inconclusiveReason,
+			List<int[]> leftDerivationsFound) {
+		if (word.length != lastWordLength) {
+			output.flush();
+			lastWordLength = word.length;
+		}
+		if (!verbose) {
+			return;
+		}
+		if (result == DerivationCounter.INCONCLUSIVE) {
+			output.write("******** The test of the word: "
+					+ GrammarAmbiguityTester.buildWord(cfg, word)
+					+ " is inconclusive (" + inconclusiveReason + ") ********"
+					+ NEW_LINE);
+			return;
+		}
+		output.write("******** Found " + result
+				+ " left derivations of the word: "
+				+ GrammarAmbiguityTester.buildWord(cfg, word) + " ********"
+				+ NEW_LINE);
+		if (result == 1 && !leftDerivationsFound.isEmpty()) {
+			StringBuilder text = new StringBuilder(
+					"The only left derivation sequence is:").append(NEW_LINE);
+			appendDerivationSequence(text, GrammarAmbiguityTester
+					.replayDerivation(cfg, leftDerivationsFound.get(0)));
+			output.write(text);
+		}
+	}
+
+	public void wordLengthTested(int length) {
+		if (verbose) {
+			output.write("******** Tested all the words of length " + length
+					+ " ********" + NEW_LINE);
+		}
+		output.flush();
+	}
+
+	public void ambiguousWord(int[] word, List<int[]> leftDerivationsFound) {
+		StringBuilder text = new StringBuilder();
+		if (!verbose) { // The word wasn't reported yet.
+			text.append("******** Found 2 left derivations of the word: ")
+					.append(GrammarAmbiguityTester.buildWord(cfg, word))
+					.append(" ********").append(NEW_LINE);
+		}
+		text.append("The first left derivation sequence is:").append(NEW_LINE);
+		appendDerivationSequence(text, GrammarAmbiguityTester.replayDerivation(
+				cfg, leftDerivationsFound.get(0)));
+		text.append("The second left derivation sequence is:").append(NEW_LINE);
+		appendDerivationSequence(text, GrammarAmbiguityTester.replayDerivation(
+				cfg, leftDerivationsFound.get(1)));
+		output.write(text);
+	}
+
+	public void verdict(Verdict verdict, long numOfInconclusiveWords) {
+		switch (verdict) {
+		case AMBIGUOUS:
+			output.write("This grammar is ambiguous!!!" + NEW_LINE);
+			break;
+		case AMBIGUOUS_IN_AN_EMPTY_WAY:
+			output.write("This grammar is ambiguous in an empty way (It has no terminals)!!!"
+					+ NEW_LINE);
+			break;
+		case NOT_AMBIGUOUS:
+			output.write("This grammar is not ambiguous!!!" + NEW_LINE);
+			break;
+		case PROVED_NOT_AMBIGUOUS:
+			output.write("This grammar is not ambiguous, for words of any length!!!"
+					+ NEW_LINE);
+			break;
+		case INCONCLUSIVE:
+			output.write("No ambiguity was found, but the test of "
+					+ numOfInconclusiveWords
+					+ " words was inconclusive, so this grammar might be ambiguous..."
+					+ NEW_LINE);
+			break;
+		case OUT_OF_TIME:
+			output.write("No ambiguity was found, but the test ran out of time before it tested all the words, so this grammar might be ambiguous..."
+					+ NEW_LINE);
+			break;
+		}
+	}
+
+	public void close() {
+		output.close();
+	}
+
+	/*
+	 * A method that appends a left derivation sequence in a table form. The
+	 * left column of the table contains the resulting string in every
+	 * derivation, while the right column contains the applied derivation rule
+	 * in each step.
+	 */
+	private void appendDerivationSequence(StringBuilder text,
+			List<int[]> derivationSequence) {
+		String[] derivedStrings = new String[(derivationSequence.size() + 1) / 2];
+		String[] appliedRules = new String[derivedStrings.length];
+		int leftColumnVerticalSize = " Derived String ".length();
+		int rightColumnVerticalSize = " Applied Rule ".length();
+		for (int i = 0; i < derivedStrings.length; ++i) {
+			derivedStrings[i] = " "
+					+ GrammarAmbiguityTester.buildWord(cfg,
+							derivationSequence.get(2 * i)) + " ";
+			if (2 * i + 1 < derivationSequence.size()) {
+				appliedRules[i] = " "
+						+ GrammarAmbiguityTester.buildRule(cfg,
+								derivationSequence.get(2 * i + 1)[0]) + " ";
+			} else {
+				appliedRules[i] = " Done!!! ";
+			}
+			leftColumnVerticalSize = Math.max(leftColumnVerticalSize,
+					derivedStrings[i].length());
+			rightColumnVerticalSize = Math.max(rightColumnVerticalSize,
+					appliedRules[i].length());
+		}
+		text.append(' ')
+				.append("_".repeat(leftColumnVerticalSize
+						+ rightColumnVerticalSize + 1)).append(' ')
+				.append(NEW_LINE);
+		appendRow(text, " Derived String ", leftColumnVerticalSize,
+				" Applied Rule ", rightColumnVerticalSize);
+		for (int i = 0; i < derivedStrings.length; ++i) {
+			appendUnderscoreLine(text, leftColumnVerticalSize,
+					rightColumnVerticalSize);
+			appendRow(text, derivedStrings[i], leftColumnVerticalSize,
+					appliedRules[i], rightColumnVerticalSize);
+		}
+		appendUnderscoreLine(text, leftColumnVerticalSize,
+				rightColumnVerticalSize);
+		text.append(NEW_LINE);
+	}
+
+	/* A method that appends a row of the table, padded with spaces. */
+	private static void appendRow(StringBuilder text, String left,
+			int leftColumnVerticalSize, String right,
+			int rightColumnVerticalSize) {
+		text.append('|').append(left)
+				.append(" ".repeat(leftColumnVerticalSize - left.length()))
+				.append('|').append(right)
+				.append(" ".repeat(rightColumnVerticalSize - right.length()))
+				.append('|').append(NEW_LINE);
+	}
+
+	/* A method that appends an underscore line of the table. */
+	private static void appendUnderscoreLine(StringBuilder text,
+			int leftColumnVerticalSize, int rightColumnVerticalSize) {
+		text.append('|').append("_".repeat(leftColumnVerticalSize))
+				.append('|').append("_".repeat(rightColumnVerticalSize))
+				.append('|').append(NEW_LINE);
+	}
+
+}
@@ -0,0 +1,88 @@
+/*
+ * A vocabulary generator that skips the words which cannot be in the grammar's
+ * language, because they start with a prefix that no word of the language
+ * starts with. When a prefix is found not to be viable (using the
+ * PrefixViabilityChecker class), all the words of the current length that
+ * start with it are skipped at once. The words that are generated are still
+ * generated in the same lexicographical order, by the odometer of the
+ * VocabularyGenerator class, whose advance method skips them.
+ */
+class ViableWordGenerator extends VocabularyGenerator {
+
+	/*
+	 * maxWordLength - The length of the longest word that is needed. When no
+	 * viable word of this length is left, the first word of the next length is
+	 * returned without checking it, so the caller can stop.
+	 */
+	private int maxWordLength;
+
+	/* checker - Checks whether the prefixes of the words are viable. */
+	private PrefixViabilityChecker checker;
+
+	/* numOfPrunedWords - The number of words that were skipped so far. */
+	private long numOfPrunedWords;
+
+	/*
+	 * The ViableWordGenerator class' constructor.
+	 * 		cfg - The tested grammar.
+	 * 		maxWordLength - The length of the longest word that is needed.
+	 */
+	ViableWordGenerator(CFG cfg, int maxWordLength) {
+		super(cfg.getTerminalIds());
+		this.maxWordLength = maxWordLength;
+		checker = new PrefixViabilityChecker(cfg);
+	}
+
+	/*
+	 * A method that generates the next word, whose prefixes are all viable.
+	 * Epsilon is always generated, as the first word.
+	 */
+	@Override
+	int[] nextWord() {
+		if (getCurrentWordLength() < 0) {
+			return super.nextWord();
+		}
+		int position = advance(getCurrentWordLength() - 1);
+		while (getCurrentWordLength() <= maxWordLength) {
+			int[] word = getCurrentWord();
+			int prefixLength = position;
+			while (prefixLength < word.length
+					&& checker.isViable(word, prefixLength + 1)) {
+				++prefixLength;
+			}
+			if (prefixLength == word.length) {
+				return word;
+			}
+			// Skipping all the words of this length that start with the
+			// prefix that is not viable.
+			numOfPrunedWords = saturatedAdd(numOfPrunedWords,
+					power(getNumOfTokens(), word.length - prefixLength - 1));
+			position = advance(prefixLength);
+		}
+		return getCurrentWord();
+	}
+
+	/* A getter for the numOfPrunedWords field. */
+	@Override
+	long getNumOfPrunedWords() {
+		return numOfPrunedWords;
+	}
+
+	/* A method that computes base^exponent, saturated at Long.MAX_VALUE. */
+	private static long power(long base, int exponent) {
+		long result = 1;
+		for (int i = 0; i < exponent; ++i) {
+			if (result > Long.MAX_VALUE / base) {
+				return Long.MAX_VALUE;
+			}
+			result *= base;
+		}
+		return result;
+	}
+
+	/* A method that adds two counts, saturated at Long.MAX_VALUE. */
+	private static long saturatedAdd(long a, long b) {
+		return (a > Long.MAX_VALUE - b) ? Long.MAX_VALUE : a + b;
+	}
+
+}
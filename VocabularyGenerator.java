@@ -1,81 +1,295 @@
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Set;
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.Consumer;
 
 /* A class that is used to generate all words of the grammar's vocabulary, in a
- * lexicographical order. */
+ * lexicographical order. The generator is an odometer: the word is kept as the
+ * indices (in tokens) of its tokens, which are the digits of a number in base
+ * numOfTokens, and every word is the next number. So every word of a length
+ * has a rank, which is its index among the words of its length, and the words
+ * can be generated from any rank on (see the rank and unrank methods), or split
+ * into ranges of ranks (see the WordSpliterator class). */
 class VocabularyGenerator {
 
 	/*
-	 * tokens - A string list that contains all the grammar's tokens
+	 * tokens - An array that contains the ids of all the grammar's tokens
 	 * (terminals).
 	 */
-	private List<String> tokens = new ArrayList<>();
+	private int[] tokens;
 
 	/* numOfTokens - The number of grammar's tokens. */
 	private int numOfTokens;
 
+	/*
+	 * tokenIndices - Maps every token id to its index in tokens (the other
+	 * cells are -1).
+	 */
+	private int[] tokenIndices;
+
 	/* currentWordLength - The length of the last word that was generated. */
 	private int currentWordLength;
 
 	/*
-	 * currentWord - The last word that was generated. It is represented by a
-	 * list of tokens
+	 * currentWord - The last word that was generated. It is represented by an
+	 * array of token ids.
 	 */
-	private List<String> currentWord;
+	private int[] currentWord;
+
+	/* digits - The indices (in tokens) of currentWord's tokens. */
+	private int[] digits;
 
 	/*
-	 * The VocabularyGenerator class' constructor. tokenSet - A set of all
+	 * The VocabularyGenerator class' constructor. tokenIds - The ids of all
 	 * grammar's tokens (terminals).
 	 */
-	VocabularyGenerator(Set<String> tokenSet) {
-		tokens.addAll(tokenSet);
-		numOfTokens = tokens.size();
+	VocabularyGenerator(int[] tokenIds) {
+		tokens = tokenIds.clone();
+		numOfTokens = tokens.length;
+		int maxTokenId = -1;
+		for (int token : tokens) {
+			maxTokenId = Math.max(maxTokenId, token);
+		}
+		tokenIndices = new int[maxTokenId + 1];
+		Arrays.fill(tokenIndices, -1);
+		for (int i = 0; i < numOfTokens; ++i) {
+			tokenIndices[tokens[i]] = i;
+		}
 		currentWordLength = -1;
 	}
 
 	/*
 	 * A method that generates the grammar vocabulary's next word, using the
-	 * currentWord field.
+	 * currentWord field. The returned array is changed by the next calls.
 	 */
-	List<String> nextWord() {
+	int[] nextWord() {
 		if (currentWordLength < 0) { // No words were generated yet, so the next
 										// word is epsilon (represented by an
-										// empty string list).
-			currentWord = new ArrayList<>();
-			currentWordLength = 0;
+										// empty array).
+			moveTo(0, 0);
 			return currentWord;
 		}
-		if (currentWordLength == 0) { // The last word that was generated is
-										// epsilon, so the next word is the
-										// first token in tokens set.
-			currentWord.add(tokens.get(0));
-			currentWordLength = 1;
-			return currentWord;
+		advance(currentWordLength - 1);
+		return currentWord;
+	}
+
+	/*
+	 * A method that moves to the first word that follows all the words which
+	 * have currentWord's prefix up to (and including) the given position, and
+	 * returns the first position that was changed. Advancing from the last
+	 * position moves to the next word, and advancing from an earlier one skips
+	 * all the words that start with the prefix (see the ViableWordGenerator
+	 * class).
+	 */
+	int advance(int position) {
+		// Finding the last digit of the prefix that isn't maximal.
+		while (position >= 0 && digits[position] == numOfTokens - 1) {
+			--position;
+		}
+		if (position < 0) { // If the prefix consists of only the maximal token,
+							// the next word should be one token longer than
+							// currentWord.
+			moveTo(currentWordLength + 1, 0);
+			return 0;
 		}
-		int maxTokenMinIndex = currentWordLength; // Indicates the last token
-													// from right of
-													// currentWord, such that
-													// all the tokens right to
-													// it are the maximal
-													// tokens.
-		for (; (maxTokenMinIndex > 0)
-				&& (currentWord.get(maxTokenMinIndex - 1).equals(tokens
-						.get(numOfTokens - 1))); --maxTokenMinIndex) {
-		}
-		for (int i = currentWordLength - 1; i >= maxTokenMinIndex; --i) {
-			currentWord.set(i, tokens.get(0));
-		}
-		if (maxTokenMinIndex == 0) { // If currentWord consists of only the
-										// maximal token, the next word should
-										// be one token longer than currentWord.
-			currentWord.add(0, tokens.get(0));
-			++currentWordLength;
-		} else {
-			currentWord.set(maxTokenMinIndex - 1, tokens.get(tokens
-					.indexOf(currentWord.get(maxTokenMinIndex - 1)) + 1));
+		currentWord[position] = tokens[++digits[position]];
+		// The digits right to it turn back to 0.
+		for (int i = position + 1; i < currentWordLength; ++i) {
+			digits[i] = 0;
+			currentWord[i] = tokens[0];
+		}
+		return position;
+	}
+
+	/*
+	 * A method that moves the generator to the given word, so the next
+	 * generated word is the word that follows it.
+	 */
+	void startAfter(int[] word) {
+		currentWord = word.clone();
+		currentWordLength = word.length;
+		digits = new int[currentWordLength];
+		for (int i = 0; i < currentWordLength; ++i) {
+			digits[i] = tokenIndices[word[i]];
 		}
+	}
+
+	/*
+	 * A method that moves the generator to the word of the given length and
+	 * rank, and returns it. The next generated word is the word that follows
+	 * it.
+	 */
+	int[] moveTo(int length, long rank) {
+		currentWordLength = length;
+		currentWord = new int[length];
+		digits = new int[length];
+		unrank(rank, currentWord);
+		for (int i = 0; i < length; ++i) {
+			digits[i] = tokenIndices[currentWord[i]];
+		}
+		return currentWord;
+	}
+
+	/* A getter for the currentWord field. */
+	int[] getCurrentWord() {
 		return currentWord;
 	}
 
+	/* A getter for the currentWordLength field. */
+	int getCurrentWordLength() {
+		return currentWordLength;
+	}
+
+	/* A getter for the numOfTokens field. */
+	int getNumOfTokens() {
+		return numOfTokens;
+	}
+
+	/*
+	 * A method that returns the number of words that were skipped without
+	 * being generated. This generator never skips words.
+	 */
+	long getNumOfPrunedWords() {
+		return 0;
+	}
+
+	/*
+	 * A method that returns the number of words of the given length. It throws
+	 * an ArithmeticException if the number doesn't fit in a long.
+	 */
+	long getNumOfWords(int length) {
+		long numOfWords = 1;
+		for (int i = 0; i < length; ++i) {
+			numOfWords = Math.multiplyExact(numOfWords, numOfTokens);
+		}
+		return numOfWords;
+	}
+
+	/*
+	 * A method that checks whether the words of the given length (and of the
+	 * shorter lengths) can be counted and ranked in a long.
+	 */
+	boolean canRank(int length) {
+		long numOfWords = 1;
+		for (int i = 0; i < length; ++i) {
+			if (numOfTokens > 0 && numOfWords > Long.MAX_VALUE / numOfTokens) {
+				return false;
+			}
+			numOfWords *= numOfTokens;
+		}
+		return true;
+	}
+
+	/*
+	 * A method that returns the rank of the given word, which is its index
+	 * among the words of its length in the lexicographical order. It throws an
+	 * ArithmeticException if the rank doesn't fit in a long.
+	 */
+	long rank(int[] word) {
+		long rank = 0;
+		for (int token : word) {
+			rank = Math.addExact(Math.multiplyExact(rank, numOfTokens),
+					tokenIndices[token]);
+		}
+		return rank;
+	}
+
+	/*
+	 * A method that writes the word of the given rank to the given array, whose
+	 * length is the word's length.
+	 */
+	void unrank(long rank, int[] word) {
+		for (int i = word.length - 1; i >= 0; --i) {
+			word[i] = tokens[(int) (rank % numOfTokens)];
+			rank /= numOfTokens;
+		}
+	}
+
+	/*
+	 * A method that returns a spliterator over the words of the given length
+	 * whose ranks are between fromRank (inclusive) and toRank (exclusive).
+	 */
+	WordSpliterator spliterator(int length, long fromRank, long toRank) {
+		return new WordSpliterator(length, fromRank, toRank);
+	}
+
+	/*
+	 * A spliterator over the words of a length whose ranks are in a given
+	 * range, in the lexicographical order. Splitting it splits the range in
+	 * two even halves, so a length can be shared among threads (or machines)
+	 * without generating the words that come before each part. The words are
+	 * generated in a single array, which the next word overwrites, so a word
+	 * has to be copied to be kept.
+	 */
+	class WordSpliterator implements Spliterator<int[]> {
+
+		private int[] word;
+		private int[] wordDigits;
+		private long rank;
+		private long toRank;
+
+		WordSpliterator(int length, long fromRank, long toRank) {
+			word = new int[length];
+			wordDigits = new int[length];
+			rank = fromRank;
+			this.toRank = toRank;
+			moveToRank();
+		}
+
+		/* A method that returns the rank of the next word. */
+		long getRank() {
+			return rank;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super int[]> action) {
+			if (rank >= toRank) {
+				return false;
+			}
+			action.accept(word);
+			if (++rank < toRank) {
+				int position = word.length - 1;
+				while (wordDigits[position] == numOfTokens - 1) {
+					wordDigits[position] = 0;
+					word[position--] = tokens[0];
+				}
+				word[position] = tokens[++wordDigits[position]];
+			}
+			return true;
+		}
+
+		@Override
+		public WordSpliterator trySplit() {
+			if (toRank - rank < 2) {
+				return null;
+			}
+			long middleRank = rank + (toRank - rank) / 2;
+			WordSpliterator prefix = new WordSpliterator(word.length, rank,
+					middleRank);
+			rank = middleRank;
+			moveToRank();
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			return toRank - rank;
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED | SIZED | SUBSIZED | NONNULL;
+		}
+
+		/* A method that sets the word to the word of the current rank. */
+		private void moveToRank() {
+			if (rank < toRank) {
+				unrank(rank, word);
+				for (int i = 0; i < word.length; ++i) {
+					wordDigits[i] = tokenIndices[word[i]];
+				}
+			}
+		}
+
+	}
+
 }
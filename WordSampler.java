@@ -0,0 +1,497 @@
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.SplittableRandom;
+
+/*
+ * A class that draws random words of a given length from the grammar's
+ * language, so the test can probe words far longer than the ones it can test
+ * the whole vocabulary up to. Every parse tree of a word of the given length is
+ * equally likely to be drawn, and the drawn word is the tree's yield, so a word
+ * is drawn in proportion to its number of parse trees, which favors the
+ * ambiguous words.
+ *
+ * The trees are counted in tables, per nonterminal A and length l (the number
+ * of trees in which A derives a word of length l), and per rule prefix
+ * X1 ... Xd and length l, as in the ChartDerivationCounter class. A tree is
+ * then drawn top down: a rule of A is chosen in proportion to its number of
+ * trees, and the length is split among the rule's body literals, from the
+ * last one to the first, in proportion to the number of trees of every split.
+ * The counts are doubles, since they grow exponentially with the length. A
+ * nullable symbol that derives epsilon is counted once, however many ways it
+ * derives epsilon in, since the drawn word doesn't depend on them.
+ *
+ * Nullable literals and unit rules make A derive a word of length l through
+ * another nonterminal that derives the whole word (a rule A -> B C, where C is
+ * nullable, for example), so the counts of length l depend on each other.
+ * The nonterminals are counted in the order of these dependencies, and when
+ * they depend on each other in a cycle (so the words they derive have
+ * infinitely many parse trees), only the finite trees in which every such
+ * nonterminal derives the whole word through one that got a positive count
+ * before it are counted. This is the order in which the chart's stamps are
+ * followed, and every drawn tree is finite. A word that is derived through
+ * such a cycle is ambiguous, so the trees that are not counted never hide an
+ * ambiguity.
+ */
+class WordSampler {
+
+	/* cfg - The tested grammar, in its compiled form. */
+	private CFG cfg;
+
+	/* maxLength - The maximal length of the drawn words. */
+	private int maxLength;
+
+	/*
+	 * itemBases - Maps every rule id to the index of the rule's first item, as
+	 * in the ChartDerivationCounter class.
+	 */
+	private int[] itemBases;
+
+	/*
+	 * itemCounts - itemCounts[item][l] holds the number of trees in which the
+	 * item's rule prefix derives a word of length l, and spanItemCounts - the
+	 * number of those trees that can be part of a tree in which the rule's
+	 * nonterminal derives a word of length l as well (see the class' comment).
+	 */
+	private double[][] itemCounts;
+	private double[][] spanItemCounts;
+
+	/*
+	 * nonterminalCounts - nonterminalCounts[nonterminal][l] holds the number of
+	 * trees in which the nonterminal derives a word of length l.
+	 */
+	private double[][] nonterminalCounts;
+
+	/*
+	 * nonterminalStamps - nonterminalStamps[nonterminal][l] holds the order in
+	 * which the nonterminal's count of length l became positive (or 0 if it
+	 * didn't), and nextStamp - the stamp of the next count that becomes
+	 * positive.
+	 */
+	private int[][] nonterminalStamps;
+	private int nextStamp = 1;
+
+	/*
+	 * The nonterminals in the order they are counted: the components of
+	 * nonterminals that derive a whole word through each other, in which a
+	 * component comes after the components it depends on.
+	 * orderedNonterminals holds the nonterminals of every component one after
+	 * the other, componentEnds holds the index that follows every component,
+	 * componentIds maps every nonterminal to its component, and
+	 * cyclicComponents holds the components that depend on themselves.
+	 */
+	private int[] orderedNonterminals;
+	private int[] componentEnds;
+	private int numOfComponents;
+	private int[] componentIds;
+	private BitSet cyclicComponents = new BitSet();
+
+	/* random - The random numbers the trees are drawn with. */
+	private SplittableRandom random;
+
+	/*
+	 * The stack of the literals that are yet to be derived while a tree is
+	 * drawn, with the lengths of their yields.
+	 */
+	private int[] stackSymbols = new int[16];
+	private int[] stackLengths = new int[16];
+
+	/*
+	 * The WordSampler class' constructor.
+	 * 		cfg - The tested grammar.
+	 * 		maxLength - The maximal length of the drawn words.
+	 * 		seed - The seed of the random numbers, so the same seed draws the
+	 * 			   same words.
+	 */
+	WordSampler(CFG cfg, int maxLength, long seed) {
+		this.cfg = cfg;
+		this.maxLength = maxLength;
+		random = new SplittableRandom(seed);
+		int[][] ruleBodies = cfg.getRuleBodies();
+		itemBases = new int[ruleBodies.length];
+		int numOfItems = 0;
+		for (int rule = 0; rule < ruleBodies.length; ++rule) {
+			itemBases[rule] = numOfItems;
+			numOfItems += ruleBodies[rule].length + 1;
+		}
+		itemCounts = new double[numOfItems][maxLength + 1];
+		spanItemCounts = new double[numOfItems][maxLength + 1];
+		nonterminalCounts = new double[cfg.getNumOfNonterminals()][maxLength + 1];
+		nonterminalStamps = new int[cfg.getNumOfNonterminals()][maxLength + 1];
+		computeComponents();
+		countEmptyTrees();
+		for (int length = 1; length <= maxLength; ++length) {
+			countTrees(length);
+		}
+	}
+
+	/*
+	 * A method that returns, for every nonterminal A, the nonterminals that A
+	 * can derive a whole word through: the nonterminals B of the rules
+	 * A -> X1 ... B ... XL whose other literals are all nullable.
+	 */
+	private int[][] computeWholeWordLiterals() {
+		int[][] ruleBodies = cfg.getRuleBodies();
+		int[][] nonterminalRules = cfg.getNonterminalRules();
+		BitSet nullableSymbols = cfg.getNullableSymbols();
+		int[][] wholeWordLiterals = new int[nonterminalRules.length][];
+		for (int nonterminal = 0; nonterminal < nonterminalRules.length; ++nonterminal) {
+			int[] literals = new int[0];
+			for (int rule : nonterminalRules[nonterminal]) {
+				int[] body = ruleBodies[rule];
+				int numOfNonNullables = 0;
+				for (int literal : body) {
+					if (!nullableSymbols.get(literal)) {
+						++numOfNonNullables;
+					}
+				}
+				for (int literal : body) {
+					if (!cfg.getTerminalSymbols().get(literal)
+							&& (numOfNonNullables == 0 || (numOfNonNullables == 1 && !nullableSymbols
+									.get(literal)))) {
+						literals = Arrays.copyOf(literals, literals.length + 1);
+						literals[literals.length - 1] = literal;
+					}
+				}
+			}
+			wholeWordLiterals[nonterminal] = literals;
+		}
+		return wholeWordLiterals;
+	}
+
+	/*
+	 * A method that computes the order in which the nonterminals are counted,
+	 * using Tarjan's strongly connected components algorithm, which finds
+	 * every component after the components it depends on. The depth first
+	 * search keeps its own stack, so long chains of unit rules can't overflow
+	 * the thread's stack.
+	 */
+	private void computeComponents() {
+		int[][] wholeWordLiterals = computeWholeWordLiterals();
+		int numOfNonterminals = wholeWordLiterals.length;
+		orderedNonterminals = new int[numOfNonterminals];
+		componentEnds = new int[numOfNonterminals];
+		componentIds = new int[numOfNonterminals];
+		int[] indices = new int[numOfNonterminals];
+		Arrays.fill(indices, -1);
+		int[] lowLinks = new int[numOfNonterminals];
+		int[] nextLiterals = new int[numOfNonterminals];
+		int[] searchPath = new int[numOfNonterminals];
+		int[] componentStack = new int[numOfNonterminals];
+		BitSet isOnComponentStack = new BitSet();
+		int nextIndex = 0;
+		int numOfOrdered = 0;
+		int componentStackSize = 0;
+		for (int root = 0; root < numOfNonterminals; ++root) {
+			if (indices[root] >= 0) {
+				continue;
+			}
+			int searchPathLength = 0;
+			indices[root] = lowLinks[root] = nextIndex++;
+			componentStack[componentStackSize++] = root;
+			isOnComponentStack.set(root);
+			searchPath[searchPathLength++] = root;
+			while (searchPathLength > 0) {
+				int nonterminal = searchPath[searchPathLength - 1];
+				int[] literals = wholeWordLiterals[nonterminal];
+				if (nextLiterals[nonterminal] < literals.length) {
+					int literal = literals[nextLiterals[nonterminal]++];
+					if (indices[literal] < 0) {
+						indices[literal] = lowLinks[literal] = nextIndex++;
+						componentStack[componentStackSize++] = literal;
+						isOnComponentStack.set(literal);
+						searchPath[searchPathLength++] = literal;
+					} else if (isOnComponentStack.get(literal)) {
+						lowLinks[nonterminal] = Math.min(lowLinks[nonterminal],
+								indices[literal]);
+					}
+					continue;
+				}
+				--searchPathLength;
+				if (searchPathLength > 0) {
+					int parent = searchPath[searchPathLength - 1];
+					lowLinks[parent] = Math.min(lowLinks[parent],
+							lowLinks[nonterminal]);
+				}
+				if (lowLinks[nonterminal] == indices[nonterminal]) {
+					int componentStart = numOfOrdered;
+					int member;
+					do {
+						member = componentStack[--componentStackSize];
+						isOnComponentStack.clear(member);
+						componentIds[member] = numOfComponents;
+						orderedNonterminals[numOfOrdered++] = member;
+					} while (member != nonterminal);
+					if (numOfOrdered - componentStart > 1
+							|| contains(literals, nonterminal)) {
+						cyclicComponents.set(numOfComponents);
+					}
+					componentEnds[numOfComponents++] = numOfOrdered;
+				}
+			}
+		}
+	}
+
+	/* A method that checks whether the given array holds the given value. */
+	private static boolean contains(int[] array, int value) {
+		for (int element : array) {
+			if (element == value) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/*
+	 * A method that computes the counts of length 0, in which every nullable
+	 * symbol is counted once.
+	 */
+	private void countEmptyTrees() {
+		int[][] ruleBodies = cfg.getRuleBodies();
+		for (int[] rules : cfg.getNonterminalRules()) {
+			for (int rule : rules) {
+				int item = itemBases[rule];
+				itemCounts[item][0] = 1;
+				for (int literal : ruleBodies[rule]) {
+					++item;
+					itemCounts[item][0] = cfg.getNullableSymbols().get(
+							literal) ? itemCounts[item - 1][0] : 0;
+				}
+			}
+		}
+		for (int nonterminal = 0; nonterminal < nonterminalCounts.length; ++nonterminal) {
+			nonterminalCounts[nonterminal][0] = cfg.getNullableSymbols().get(
+					nonterminal) ? 1 : 0;
+		}
+	}
+
+	/*
+	 * A method that computes the counts of the given length, from the counts
+	 * of the shorter lengths. The nonterminals are counted component after
+	 * component, and the nonterminals of a cyclic component are counted again
+	 * until their counts stop changing. Then the items are counted again
+	 * without the restriction of the span items, for the longer lengths.
+	 */
+	private void countTrees(int length) {
+		int[][] ruleBodies = cfg.getRuleBodies();
+		int[][] nonterminalRules = cfg.getNonterminalRules();
+		int componentStart = 0;
+		for (int component = 0; component < numOfComponents; ++component) {
+			boolean updatedCounts;
+			do {
+				updatedCounts = false;
+				for (int i = componentStart; i < componentEnds[component]; ++i) {
+					int nonterminal = orderedNonterminals[i];
+					double count = 0;
+					for (int rule : nonterminalRules[nonterminal]) {
+						int[] body = ruleBodies[rule];
+						int item = itemBases[rule];
+						for (int d = 1; d <= body.length; ++d) {
+							spanItemCounts[item + d][length] = countSplits(item
+									+ d - 1, body[d - 1], length, nonterminal);
+						}
+						count += spanItemCounts[item + body.length][length];
+					}
+					if (count != nonterminalCounts[nonterminal][length]) {
+						nonterminalCounts[nonterminal][length] = count;
+						if (nonterminalStamps[nonterminal][length] == 0) {
+							nonterminalStamps[nonterminal][length] = nextStamp++;
+						}
+						updatedCounts = true;
+					}
+				}
+			} while (updatedCounts && cyclicComponents.get(component));
+			componentStart = componentEnds[component];
+		}
+		for (int[] rules : nonterminalRules) {
+			for (int rule : rules) {
+				int[] body = ruleBodies[rule];
+				int item = itemBases[rule];
+				for (int d = 1; d <= body.length; ++d) {
+					itemCounts[item + d][length] = countSplits(item + d - 1,
+							body[d - 1], length, -1);
+				}
+			}
+		}
+	}
+
+	/*
+	 * A method that returns the number of trees in which the given item's rule
+	 * prefix, followed by the given literal, derives a word of the given
+	 * length.
+	 * 		head - The rule's nonterminal, if they are part of a tree in which
+	 * 			   it derives a word of the given length too, or -1.
+	 */
+	private double countSplits(int previousItem, int literal, int length,
+			int head) {
+		double count = 0;
+		for (int m = 0; m <= length; ++m) {
+			count += splitCount(previousItem, literal, length, m, head);
+		}
+		return count;
+	}
+
+	/*
+	 * A method that returns the number of trees in which the given item's rule
+	 * prefix, followed by the given literal, derives a word of the given
+	 * length, when the literal's yield is literalLength long.
+	 * 		head - The rule's nonterminal, if they are part of a tree in which
+	 * 			   it derives a word of the given length too, or -1. A literal
+	 * 			   that derives the whole word must then have got a positive
+	 * 			   count before the nonterminal.
+	 */
+	private double splitCount(int previousItem, int literal, int length,
+			int literalLength, int head) {
+		double prefixCount = (head >= 0 && literalLength == 0) ? spanItemCounts[previousItem][length]
+				: itemCounts[previousItem][length - literalLength];
+		if (prefixCount == 0 || head >= 0 && literalLength == length
+				&& !isCountedBefore(literal, head, length)) {
+			return 0;
+		}
+		double count = literalCount(literal, literalLength);
+		return (count == 0) ? 0 : prefixCount * count;
+	}
+
+	/*
+	 * A method that checks whether the count of the given literal of the given
+	 * length is final, or got positive, before the count of the given
+	 * nonterminal of that length.
+	 */
+	private boolean isCountedBefore(int literal, int nonterminal, int length) {
+		if (cfg.getTerminalSymbols().get(literal)
+				|| componentIds[literal] != componentIds[nonterminal]) {
+			return true;
+		}
+		int literalStamp = nonterminalStamps[literal][length];
+		int nonterminalStamp = nonterminalStamps[nonterminal][length];
+		return literalStamp != 0
+				&& (nonterminalStamp == 0 || literalStamp < nonterminalStamp);
+	}
+
+	/*
+	 * A method that returns the number of trees in which the given literal
+	 * derives a word of the given length.
+	 */
+	private double literalCount(int literal, int length) {
+		if (cfg.getTerminalSymbols().get(literal)) {
+			return (length == 1) ? 1 : 0;
+		}
+		return nonterminalCounts[literal][length];
+	}
+
+	/*
+	 * A method that returns the number of parse trees of the words of the
+	 * given length, as far as they were counted.
+	 */
+	double getNumOfTrees(int length) {
+		return nonterminalCounts[cfg.getStartSymbol()][length];
+	}
+
+	/*
+	 * A method that checks whether words of the given length can be drawn:
+	 * the language has words of that length, and their number of trees fits a
+	 * double.
+	 */
+	boolean canSample(int length) {
+		double numOfTrees = getNumOfTrees(length);
+		return length <= maxLength && numOfTrees > 0
+				&& numOfTrees < Double.POSITIVE_INFINITY;
+	}
+
+	/*
+	 * A method that draws a random word of the given length, which must be
+	 * one that canSample accepts.
+	 */
+	int[] nextWord(int length) {
+		int[][] ruleBodies = cfg.getRuleBodies();
+		int[] word = new int[length];
+		int wordLength = 0;
+		int stackSize = 0;
+		stackSymbols[0] = cfg.getStartSymbol();
+		stackLengths[0] = length;
+		++stackSize;
+		while (stackSize > 0) {
+			--stackSize;
+			int symbol = stackSymbols[stackSize];
+			int yieldLength = stackLengths[stackSize];
+			if (cfg.getTerminalSymbols().get(symbol)) {
+				word[wordLength++] = symbol;
+				continue;
+			}
+			if (yieldLength == 0) { // The nullable symbol derives epsilon.
+				continue;
+			}
+			int rule = chooseRule(symbol, yieldLength);
+			int[] body = ruleBodies[rule];
+			if (stackSize + body.length > stackSymbols.length) {
+				int capacity = Math.max(2 * stackSymbols.length, stackSize
+						+ body.length);
+				stackSymbols = Arrays.copyOf(stackSymbols, capacity);
+				stackLengths = Arrays.copyOf(stackLengths, capacity);
+			}
+			// The literals are pushed from the last to the first, so the first
+			// is derived first.
+			int wholeLength = yieldLength;
+			for (int d = body.length; d > 0; --d) {
+				int m = chooseLiteralLength(itemBases[rule] + d - 1,
+						body[d - 1], yieldLength,
+						(yieldLength == wholeLength) ? symbol : -1);
+				stackSymbols[stackSize] = body[d - 1];
+				stackLengths[stackSize] = m;
+				++stackSize;
+				yieldLength -= m;
+			}
+		}
+		return word;
+	}
+
+	/*
+	 * A method that chooses a rule of the given nonterminal, in proportion to
+	 * the number of trees in which it derives a word of the given length.
+	 */
+	private int chooseRule(int nonterminal, int length) {
+		int[] rules = cfg.getNonterminalRules()[nonterminal];
+		int[][] ruleBodies = cfg.getRuleBodies();
+		double target = random.nextDouble()
+				* nonterminalCounts[nonterminal][length];
+		int chosenRule = -1;
+		for (int rule : rules) {
+			double count = spanItemCounts[itemBases[rule]
+					+ ruleBodies[rule].length][length];
+			if (count > 0) {
+				chosenRule = rule;
+				target -= count;
+				if (target < 0) {
+					break;
+				}
+			}
+		}
+		return chosenRule; // The last positive rule, if the doubles were
+							// rounded.
+	}
+
+	/*
+	 * A method that chooses the length of the given literal's yield, when it
+	 * follows the given item's rule prefix and together they derive a word of
+	 * the given length, in proportion to the number of trees of every choice.
+	 * 		head - The rule's nonterminal, if it derives a word of the given
+	 * 			   length too, or -1.
+	 */
+	private int chooseLiteralLength(int previousItem, int literal, int length,
+			int head) {
+		double target = random.nextDouble()
+				* countSplits(previousItem, literal, length, head);
+		int chosenLength = -1;
+		for (int m = 0; m <= length; ++m) {
+			double count = splitCount(previousItem, literal, length, m, head);
+			if (count > 0) {
+				chosenLength = m;
+				target -= count;
+				if (target < 0) {
+					break;
+				}
+			}
+		}
+		return chosenLength;
+	}
+
+}
@@ -0,0 +1,334 @@
+import java.util.Arrays;
+
+/*
+ * A class that enumerates the words of the grammar's language bottom up, by
+ * their length, together with their number of parse trees (saturated at 2).
+ * Unlike the vocabulary based test, it never looks at words that are not in
+ * the language, so it is much faster for sparse languages over large
+ * alphabets.
+ *
+ * For every length l, it computes the yields of length l of every nonterminal
+ * A (the words of length l that A derives), and of every rule prefix X1 ... Xd
+ * (the items of the ChartDerivationCounter class), from the yields of the
+ * shorter lengths. Since nullable literals can make a yield of length l depend
+ * on other yields of length l, every length is computed by iterating until the
+ * counts stop changing.
+ *
+ * Every yield is packed into a single long (bitsPerToken bits per token, where
+ * the token with the smallest id is 0), so two yields of the same length are
+ * ordered exactly like the vocabulary orders them.
+ */
+class YieldEnumerator {
+
+	/* cfg - The tested grammar, in its compiled form. */
+	private CFG cfg;
+
+	/* bitsPerToken - The number of bits every packed token takes. */
+	private int bitsPerToken;
+
+	/*
+	 * itemBases - Maps every rule id to the index of the rule's first item, as
+	 * in the ChartDerivationCounter class.
+	 */
+	private int[] itemBases;
+
+	/*
+	 * itemYields - itemYields[item][l] holds the yields of length l of the
+	 * item's rule prefix.
+	 */
+	private YieldTable[][] itemYields;
+
+	/*
+	 * nonterminalYields - nonterminalYields[nonterminal][l] holds the yields of
+	 * length l of the nonterminal.
+	 */
+	private YieldTable[][] nonterminalYields;
+
+	/* numOfComputedLengths - The number of lengths computed so far. */
+	private int numOfComputedLengths;
+
+	/* deadline - The time at which the enumeration must stop. */
+	private Deadline deadline;
+
+	/*
+	 * The YieldEnumerator class' constructor.
+	 * 		cfg - The tested grammar.
+	 * 		maxWordLength - The maximal length of the enumerated words.
+	 * 		deadline - The time at which the enumeration must stop.
+	 */
+	YieldEnumerator(CFG cfg, int maxWordLength, Deadline deadline) {
+		this.cfg = cfg;
+		this.deadline = deadline;
+		bitsPerToken = bitsPerToken(cfg);
+		int[][] ruleBodies = cfg.getRuleBodies();
+		itemBases = new int[ruleBodies.length];
+		int numOfItems = 0;
+		for (int rule = 0; rule < ruleBodies.length; ++rule) {
+			itemBases[rule] = numOfItems;
+			numOfItems += ruleBodies[rule].length + 1;
+		}
+		itemYields = new YieldTable[numOfItems][maxWordLength + 1];
+		nonterminalYields = new YieldTable[cfg.getNumOfNonterminals()][maxWordLength + 1];
+	}
+
+	/*
+	 * A method that checks whether the words of the given length can be packed
+	 * into a long, which the enumeration needs.
+	 */
+	static boolean canEnumerate(CFG cfg, int maxWordLength) {
+		return (long) bitsPerToken(cfg) * maxWordLength <= 63;
+	}
+
+	/*
+	 * A method that returns the number of bits a packed token takes (at least
+	 * 1, even if the grammar has no terminals).
+	 */
+	private static int bitsPerToken(CFG cfg) {
+		return Math.max(1, 32 - Integer.numberOfLeadingZeros(Math.max(0, cfg
+				.getTerminalIds().length - 1)));
+	}
+
+	/*
+	 * A method that computes the yields of the next length, and returns the
+	 * yields of that length of the starting nonterminal, or null if the
+	 * deadline passed before they were computed.
+	 */
+	YieldTable nextLength() {
+		int length = numOfComputedLengths++;
+		int[][] ruleBodies = cfg.getRuleBodies();
+		int[][] nonterminalRules = cfg.getNonterminalRules();
+		for (int rule = 0; rule < ruleBodies.length; ++rule) {
+			itemYields[itemBases[rule]][length] = new YieldTable();
+			for (int d = 1; d <= ruleBodies[rule].length; ++d) {
+				itemYields[itemBases[rule] + d][length] = new YieldTable();
+			}
+		}
+		for (YieldTable[] yields : nonterminalYields) {
+			yields[length] = new YieldTable();
+		}
+		if (length == 0) { // The items with the dot at the start derive
+							// epsilon.
+			for (int rule = 0; rule < ruleBodies.length; ++rule) {
+				itemYields[itemBases[rule]][0].add(0L, 1);
+			}
+		}
+		boolean updatedYields;
+		do {
+			updatedYields = false;
+			for (int rule = 0; rule < ruleBodies.length; ++rule) {
+				if (deadline.hasPassed()) {
+					return null;
+				}
+				int[] body = ruleBodies[rule];
+				for (int d = 1; d <= body.length; ++d) {
+					int item = itemBases[rule] + d;
+					YieldTable yields = itemYields(item - 1, body[d - 1],
+							length);
+					if (itemYields[item][length].raiseTo(yields)) {
+						updatedYields = true;
+					}
+				}
+			}
+			for (int nonterminal = 0; nonterminal < nonterminalRules.length; ++nonterminal) {
+				YieldTable yields = new YieldTable();
+				for (int rule : nonterminalRules[nonterminal]) {
+					yields.addAll(itemYields[itemBases[rule]
+							+ ruleBodies[rule].length][length]);
+				}
+				if (nonterminalYields[nonterminal][length].raiseTo(yields)) {
+					updatedYields = true;
+				}
+			}
+		} while (updatedYields);
+		return nonterminalYields[cfg.getStartSymbol()][length];
+	}
+
+	/*
+	 * A method that computes the yields of the given length of the item that
+	 * follows the given item, which is the given item followed by the given
+	 * literal.
+	 */
+	private YieldTable itemYields(int previousItem, int literal, int length) {
+		YieldTable yields = new YieldTable();
+		if (cfg.getTerminalSymbols().get(literal)) {
+			if (length > 0) {
+				long token = literal - cfg.getNumOfNonterminals();
+				YieldTable prefixes = itemYields[previousItem][length - 1];
+				for (int slot = 0; slot < prefixes.capacity(); ++slot) {
+					if (prefixes.countAt(slot) > 0) {
+						yields.add((prefixes.wordAt(slot) << bitsPerToken)
+								| token, prefixes.countAt(slot));
+					}
+				}
+			}
+			return yields;
+		}
+		for (int suffixLength = 0; suffixLength <= length; ++suffixLength) {
+			YieldTable prefixes = itemYields[previousItem][length
+					- suffixLength];
+			YieldTable suffixes = nonterminalYields[literal][suffixLength];
+			if (prefixes.size() == 0 || suffixes.size() == 0) {
+				continue;
+			}
+			int shift = bitsPerToken * suffixLength;
+			for (int i = 0; i < prefixes.capacity(); ++i) {
+				if (prefixes.countAt(i) == 0) {
+					continue;
+				}
+				long prefix = prefixes.wordAt(i) << shift;
+				for (int j = 0; j < suffixes.capacity(); ++j) {
+					if (suffixes.countAt(j) > 0) {
+						yields.add(prefix | suffixes.wordAt(j),
+								prefixes.countAt(i) * suffixes.countAt(j));
+					}
+				}
+			}
+		}
+		return yields;
+	}
+
+	/* A method that unpacks a yield of the given length to a word. */
+	int[] unpack(long packedWord, int length) {
+		int[] word = new int[length];
+		long mask = (1L << bitsPerToken) - 1;
+		for (int i = length - 1; i >= 0; --i) {
+			word[i] = (int) (packedWord & mask) + cfg.getNumOfNonterminals();
+			packedWord >>>= bitsPerToken;
+		}
+		return word;
+	}
+
+	/*
+	 * A method that returns the number of yields kept so far, over all
+	 * nonterminals and items.
+	 */
+	long numOfYields() {
+		long numOfYields = 0;
+		for (YieldTable[][] tables : Arrays.asList(itemYields,
+				nonterminalYields)) {
+			for (YieldTable[] yields : tables) {
+				for (int length = 0; length < numOfComputedLengths; ++length) {
+					numOfYields += yields[length].size();
+				}
+			}
+		}
+		return numOfYields;
+	}
+
+	/*
+	 * A compact hash table of packed yields of a single length, that maps every
+	 * yield to its number of parse trees (saturated at 2). It uses open
+	 * addressing, and a slot whose count is 0 is free.
+	 */
+	static class YieldTable {
+
+		private long[] words = new long[8];
+		private byte[] counts = new byte[8];
+		private int size;
+
+		/*
+		 * A method that adds the given number of parse trees to the given
+		 * yield.
+		 */
+		void add(long word, int count) {
+			int slot = find(word);
+			if (counts[slot] == 0) {
+				words[slot] = word;
+				++size;
+			}
+			counts[slot] = (byte) Math.min(2, counts[slot] + count);
+			if (size * 2 > words.length) {
+				rehash();
+			}
+		}
+
+		/* A method that adds all the yields of the given table to this one. */
+		void addAll(YieldTable other) {
+			for (int slot = 0; slot < other.words.length; ++slot) {
+				if (other.counts[slot] > 0) {
+					add(other.words[slot], other.counts[slot]);
+				}
+			}
+		}
+
+		/*
+		 * A method that raises the counts of this table to the counts of the
+		 * given table, and returns whether anything was raised.
+		 */
+		boolean raiseTo(YieldTable other) {
+			boolean raised = false;
+			for (int slot = 0; slot < other.words.length; ++slot) {
+				int count = other.counts[slot];
+				if (count > 0) {
+					int current = count(other.words[slot]);
+					if (count > current) {
+						add(other.words[slot], count - current);
+						raised = true;
+					}
+				}
+			}
+			return raised;
+		}
+
+		/* A method that returns the count of the given yield. */
+		int count(long word) {
+			return counts[find(word)];
+		}
+
+		int size() {
+			return size;
+		}
+
+		int capacity() {
+			return words.length;
+		}
+
+		long wordAt(int slot) {
+			return words[slot];
+		}
+
+		int countAt(int slot) {
+			return counts[slot];
+		}
+
+		/* A method that returns the yields of the table, sorted. */
+		long[] sortedWords() {
+			long[] sortedWords = new long[size];
+			int i = 0;
+			for (int slot = 0; slot < words.length; ++slot) {
+				if (counts[slot] > 0) {
+					sortedWords[i++] = words[slot];
+				}
+			}
+			Arrays.sort(sortedWords);
+			return sortedWords;
+		}
+
+		/* A method that finds the slot of the given yield, or a free slot. */
+		private int find(long word) {
+			int mask = words.length - 1;
+			int slot = Long.hashCode(word * 0x9E3779B97F4A7C15L) & mask;
+			while (counts[slot] != 0 && words[slot] != word) {
+				slot = (slot + 1) & mask;
+			}
+			return slot;
+		}
+
+		/* A method that doubles the table's capacity. */
+		private void rehash() {
+			long[] oldWords = words;
+			byte[] oldCounts = counts;
+			words = new long[oldWords.length * 2];
+			counts = new byte[oldCounts.length * 2];
+			for (int slot = 0; slot < oldWords.length; ++slot) {
+				if (oldCounts[slot] > 0) {
+					int newSlot = find(oldWords[slot]);
+					words[newSlot] = oldWords[slot];
+					counts[newSlot] = oldCounts[slot];
+				}
+			}
+		}
+
+	}
+
+}
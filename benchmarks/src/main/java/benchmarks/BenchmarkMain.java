@@ -0,0 +1,26 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.openjdk.jmh.Main;
+
+/*
+ * The main class of the benchmarks jar. It runs JMH with the given command
+ * line, and always adds the GC profiler, so every benchmark also reports its
+ * allocation rate and bytes allocated per operation (gc.alloc.rate.norm),
+ * which is where regressions in the derivation search usually show first.
+ */
+public class BenchmarkMain {
+
+	public static void main(String[] args) throws Exception {
+		List<String> arguments = new ArrayList<>(Arrays.asList(args));
+		if (!arguments.contains("gc")) {
+			arguments.add("-prof");
+			arguments.add("gc");
+		}
+		Main.main(arguments.toArray(new String[0]));
+	}
+
+}
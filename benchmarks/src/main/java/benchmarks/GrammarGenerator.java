@@ -0,0 +1,429 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/*
+ * A class that generates random grammars in the format of the CFG class, with
+ * a controllable number of nonterminals, alphabet width, recursion shape,
+ * nullable density and ambiguity. The nonterminals are named N0 (the starting
+ * nonterminal) to N(n-1), and the terminals t0 to t(t-1). The same parameters
+ * and seed always generate the same grammar.
+ *
+ * Every nonterminal Ni gets between one and maxRulesPerNonterminal acyclic
+ * rules, which only refer to the nonterminals that follow it, so every
+ * nonterminal is productive. Every Ni (but N0) is then added to an acyclic rule
+ * of some nonterminal that precedes it, so every nonterminal is reachable.
+ * According to the recursion density, some nonterminals also get a recursive
+ * rule, whose shape is given by the recursion shape, and according to the
+ * nullable density, some nonterminals also get an epsilon rule.
+ *
+ * An UNAMBIGUOUS grammar is built to be LL(1), which makes it provably
+ * unambiguous:
+ *  - Terminals t0 and t1 are reserved, and the rules of every nonterminal
+ *    (but its epsilon rule and its left recursive rule) start with different
+ *    terminals of the others.
+ *  - Every occurrence of a nullable nonterminal is followed by t0, so t0 is
+ *    the only terminal that can follow it.
+ *  - A left recursive rule has the form A -> A t1 ..., and all the rules of a
+ *    left recursive nonterminal end with a terminal. (Such a nonterminal is
+ *    never nullable.) Eliminating the left recursion the standard way
+ *    (A -> b A', A' -> t1 ... A' | epsilon) gives an LL(1) grammar, since t1
+ *    can't follow A: it only appears right after A in its own left recursive
+ *    rules.
+ * An AMBIGUOUS grammar is such a grammar, with a planted ambiguity: the
+ * shortest rule of N0 is copied to a new nonterminal, which is added as
+ * another rule of N0. So every word that is derived using that rule has two
+ * left derivations, and the shortest ambiguous word has the length of the
+ * shortest word the rule derives. A RANDOM grammar has the same shape, but
+ * none of the restrictions, so its ambiguity is not known.
+ */
+class GrammarGenerator {
+
+	/* The shapes of the recursive rules. */
+	enum RecursionShape {
+		/* No recursive rules, so the language is finite. */
+		NONE,
+		/* A -> t ... A */
+		RIGHT,
+		/* A -> A ... (A -> A t1 ... t in an unambiguous grammar) */
+		LEFT,
+		/* A -> t ... A t */
+		CENTER
+	}
+
+	/* The kinds of generated grammars, by their ambiguity. */
+	enum Ambiguity {
+		RANDOM, UNAMBIGUOUS, AMBIGUOUS
+	}
+
+	/* The reserved terminals of unambiguous grammars (see above). */
+	private static final String NULLABLE_FOLLOWER = "t0";
+	private static final String LEFT_RECURSION_SEPARATOR = "t1";
+	private static final int NUM_OF_RESERVED_TERMINALS = 2;
+
+	private int numOfNonterminals;
+	private int numOfTerminals;
+	private int maxRulesPerNonterminal = 3;
+	private int maxRuleLength = 3;
+	private RecursionShape recursionShape = RecursionShape.RIGHT;
+	private double recursionDensity = 0.5;
+	private double nullableDensity = 0.2;
+	private Ambiguity ambiguity = Ambiguity.RANDOM;
+	private long seed;
+
+	/* The state of the current generation. */
+	private Random random;
+	private boolean isRestricted;
+	private List<List<List<String>>> nonterminalRules;
+	private boolean[] isNullable;
+	private boolean[] isLeftRecursive;
+	private int numOfRules;
+	private int shortestAmbiguousWordLength;
+
+	/*
+	 * The GrammarGenerator class' constructor.
+	 * 		numOfNonterminals - The number of nonterminals of the grammar (not
+	 * 							counting the one a planted ambiguity adds).
+	 * 		numOfTerminals - The number of terminals of the grammar.
+	 */
+	GrammarGenerator(int numOfNonterminals, int numOfTerminals) {
+		this.numOfNonterminals = numOfNonterminals;
+		this.numOfTerminals = numOfTerminals;
+		seed = numOfNonterminals * 31L + numOfTerminals;
+	}
+
+	/*
+	 * A method that creates a generator from a string of the form
+	 * "N:T[:shape[:nullableDensity[:ambiguity]]]", for example
+	 * "1000:16:LEFT:0.3:UNAMBIGUOUS".
+	 */
+	static GrammarGenerator fromSpec(String spec) {
+		String[] parts = spec.split(":");
+		GrammarGenerator generator = new GrammarGenerator(Integer
+				.parseInt(parts[0]), Integer.parseInt(parts[1]));
+		if (parts.length > 2) {
+			generator.setRecursionShape(RecursionShape.valueOf(parts[2]));
+		}
+		if (parts.length > 3) {
+			generator.setNullableDensity(Double.parseDouble(parts[3]));
+		}
+		if (parts.length > 4) {
+			generator.setAmbiguity(Ambiguity.valueOf(parts[4]));
+		}
+		return generator;
+	}
+
+	void setMaxRulesPerNonterminal(int maxRulesPerNonterminal) {
+		this.maxRulesPerNonterminal = maxRulesPerNonterminal;
+	}
+
+	void setMaxRuleLength(int maxRuleLength) {
+		this.maxRuleLength = maxRuleLength;
+	}
+
+	void setRecursionShape(RecursionShape recursionShape) {
+		this.recursionShape = recursionShape;
+	}
+
+	void setRecursionDensity(double recursionDensity) {
+		this.recursionDensity = recursionDensity;
+	}
+
+	void setNullableDensity(double nullableDensity) {
+		this.nullableDensity = nullableDensity;
+	}
+
+	void setAmbiguity(Ambiguity ambiguity) {
+		this.ambiguity = ambiguity;
+	}
+
+	void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	/* A getter for the number of rules of the last generated grammar. */
+	int getNumOfRules() {
+		return numOfRules;
+	}
+
+	/*
+	 * A method that returns the length of the shortest ambiguous word of the
+	 * last generated grammar, if it is AMBIGUOUS, or -1 otherwise.
+	 */
+	int getShortestAmbiguousWordLength() {
+		return shortestAmbiguousWordLength;
+	}
+
+	/* A method that writes a new grammar to a temporary file. */
+	File writeTemporaryFile() throws IOException {
+		File file = File.createTempFile("synthetic", ".txt");
+		file.deleteOnExit();
+		write(file);
+		return file;
+	}
+
+	/* A method that writes a new grammar to the given file. */
+	void write(File file) throws IOException {
+		try (PrintWriter writer = new PrintWriter(file)) {
+			writer.print(generate());
+		}
+	}
+
+	/* A method that generates a new grammar, in the format of the CFG class. */
+	String generate() {
+		isRestricted = ambiguity != Ambiguity.RANDOM;
+		if (isRestricted
+				&& numOfTerminals < NUM_OF_RESERVED_TERMINALS
+						+ maxRulesPerNonterminal + 1) {
+			throw new IllegalArgumentException("A grammar of known ambiguity "
+					+ "needs at least " + (NUM_OF_RESERVED_TERMINALS
+					+ maxRulesPerNonterminal + 1) + " terminals");
+		}
+		random = new Random(seed);
+		nonterminalRules = new ArrayList<>();
+		isNullable = new boolean[numOfNonterminals];
+		isLeftRecursive = new boolean[numOfNonterminals];
+		boolean[] isRecursive = new boolean[numOfNonterminals];
+		for (int i = 0; i < numOfNonterminals; ++i) {
+			isNullable[i] = random.nextDouble() < nullableDensity;
+			isRecursive[i] = recursionShape != RecursionShape.NONE
+					&& random.nextDouble() < recursionDensity;
+			isLeftRecursive[i] = isRecursive[i]
+					&& recursionShape == RecursionShape.LEFT;
+			if (isRestricted && isLeftRecursive[i]) {
+				isNullable[i] = false;
+			}
+		}
+		for (int i = 0; i < numOfNonterminals; ++i) {
+			List<String> firstTerminals = firstTerminals();
+			List<List<String>> rules = new ArrayList<>();
+			int numOfAcyclicRules = 1 + random.nextInt(maxRulesPerNonterminal);
+			for (int rule = 0; rule < numOfAcyclicRules; ++rule) {
+				rules.add(acyclicRule(i, firstTerminals.get(rule)));
+			}
+			if (isRecursive[i]) {
+				rules.add(recursiveRule(i, firstTerminals
+						.get(numOfAcyclicRules)));
+			}
+			if (isNullable[i]) {
+				rules.add(new ArrayList<>(Arrays.asList("epsilon")));
+			}
+			nonterminalRules.add(rules);
+		}
+		for (int j = 1; j < numOfNonterminals; ++j) {
+			insertNonterminal(random.nextInt(j), j);
+		}
+		shortestAmbiguousWordLength = -1;
+		if (ambiguity == Ambiguity.AMBIGUOUS) {
+			plantAmbiguity();
+		}
+		StringBuilder grammar = new StringBuilder();
+		numOfRules = 0;
+		for (int i = 0; i < nonterminalRules.size(); ++i) {
+			grammar.append('N').append(i).append(" ->");
+			List<List<String>> rules = nonterminalRules.get(i);
+			for (int rule = 0; rule < rules.size(); ++rule) {
+				grammar.append(rule == 0 ? " " : " | ").append(
+						String.join(" ", rules.get(rule)));
+			}
+			grammar.append('\n');
+			numOfRules += rules.size();
+		}
+		return grammar.toString();
+	}
+
+	/*
+	 * A method that returns the terminals that the rules of a nonterminal
+	 * start with, in a random order. In a restricted grammar they are all
+	 * different, and never reserved.
+	 */
+	private List<String> firstTerminals() {
+		List<String> firstTerminals = new ArrayList<>();
+		if (isRestricted) {
+			for (int t = NUM_OF_RESERVED_TERMINALS; t < numOfTerminals; ++t) {
+				firstTerminals.add("t" + t);
+			}
+			Collections.shuffle(firstTerminals, random);
+		} else {
+			for (int rule = 0; rule <= maxRulesPerNonterminal; ++rule) {
+				firstTerminals.add("t" + random.nextInt(numOfTerminals));
+			}
+		}
+		return firstTerminals;
+	}
+
+	/*
+	 * A method that generates a rule of nonterminal i, which only refers to
+	 * the nonterminals that follow it.
+	 */
+	private List<String> acyclicRule(int i, String firstTerminal) {
+		List<String> body = new ArrayList<>();
+		body.add(firstTerminal);
+		addMiddle(body, i);
+		if (isRestricted && isLeftRecursive[i]) {
+			body.add(middleTerminal());
+		}
+		return body;
+	}
+
+	/* A method that generates the recursive rule of nonterminal i. */
+	private List<String> recursiveRule(int i, String firstTerminal) {
+		List<String> body = new ArrayList<>();
+		switch (recursionShape) {
+		case LEFT:
+			addNonterminal(body, i);
+			if (isRestricted) {
+				body.add(LEFT_RECURSION_SEPARATOR);
+			}
+			addMiddle(body, i);
+			body.add(middleTerminal()); // Also makes sure A -> A isn't generated.
+			break;
+		case CENTER:
+			body.add(firstTerminal);
+			addMiddle(body, i);
+			addNonterminal(body, i);
+			body.add(middleTerminal());
+			break;
+		default:
+			body.add(firstTerminal);
+			addMiddle(body, i);
+			addNonterminal(body, i);
+			break;
+		}
+		return body;
+	}
+
+	/*
+	 * A method that adds up to maxRuleLength random literals to the given rule
+	 * body of nonterminal i. Only the nonterminals that follow i are used.
+	 */
+	private void addMiddle(List<String> body, int i) {
+		int length = random.nextInt(maxRuleLength + 1);
+		for (int k = 0; k < length; ++k) {
+			if (random.nextBoolean() || i == numOfNonterminals - 1) {
+				body.add(middleTerminal());
+			} else {
+				addNonterminal(body, i + 1
+						+ random.nextInt(numOfNonterminals - i - 1));
+			}
+		}
+	}
+
+	/*
+	 * A method that returns a random terminal for the middle of a rule. The
+	 * left recursion separator is never used there, so it can't follow a
+	 * nonterminal.
+	 */
+	private String middleTerminal() {
+		int t = random.nextInt(numOfTerminals);
+		if (isRestricted && ("t" + t).equals(LEFT_RECURSION_SEPARATOR)) {
+			return NULLABLE_FOLLOWER;
+		}
+		return "t" + t;
+	}
+
+	/*
+	 * A method that adds nonterminal j to the end of the given rule body, and
+	 * adds the nullable follower after it if it's needed.
+	 */
+	private void addNonterminal(List<String> body, int j) {
+		body.add("N" + j);
+		if (isRestricted && isNullable[j]) {
+			body.add(NULLABLE_FOLLOWER);
+		}
+	}
+
+	/*
+	 * A method that inserts nonterminal j at a random position of the first
+	 * (acyclic) rule of nonterminal i, without breaking the restrictions: not
+	 * before the rule's first terminal, not after the last terminal of a left
+	 * recursive nonterminal's rule, and not between a nullable nonterminal and
+	 * its follower.
+	 */
+	private void insertNonterminal(int i, int j) {
+		List<String> body = nonterminalRules.get(i).get(0);
+		List<Integer> positions = new ArrayList<>();
+		int firstPosition = isRestricted ? 1 : 0;
+		int lastPosition = body.size();
+		if (isRestricted && isLeftRecursive[i]) {
+			lastPosition = body.size() - 1;
+		}
+		for (int k = firstPosition; k <= lastPosition; ++k) {
+			if (k == 0 || !isRestricted || !isNullableNonterminal(body.get(k - 1))) {
+				positions.add(k);
+			}
+		}
+		int position = positions.get(random.nextInt(positions.size()));
+		List<String> literals = new ArrayList<>();
+		addNonterminal(literals, j);
+		body.addAll(position, literals);
+	}
+
+	private boolean isNullableNonterminal(String literal) {
+		return literal.startsWith("N")
+				&& isNullable[Integer.parseInt(literal.substring(1))];
+	}
+
+	/*
+	 * A method that plants an ambiguity: it copies the shortest rule of N0 to a
+	 * new nonterminal, and adds the new nonterminal as another rule of N0.
+	 */
+	private void plantAmbiguity() {
+		long[] minYieldLengths = new long[numOfNonterminals];
+		// Every rule only refers to the nonterminals that follow its own
+		// nonterminal, or to itself in a recursive rule (which can't be the
+		// shortest), so a single pass from the last nonterminal is enough.
+		List<String> shortestRule = null;
+		for (int i = numOfNonterminals - 1; i >= 0; --i) {
+			minYieldLengths[i] = Long.MAX_VALUE;
+			for (List<String> body : nonterminalRules.get(i)) {
+				long length = minYieldLength(body, i, minYieldLengths);
+				if (length < minYieldLengths[i]) {
+					minYieldLengths[i] = length;
+					if (i == 0) {
+						shortestRule = body;
+					}
+				}
+			}
+		}
+		nonterminalRules.add(new ArrayList<>(Collections
+				.singletonList(new ArrayList<>(shortestRule))));
+		nonterminalRules.get(0).add(
+				new ArrayList<>(Arrays.asList("N" + numOfNonterminals)));
+		shortestAmbiguousWordLength = (int) Math.min(minYieldLengths[0],
+				Integer.MAX_VALUE);
+	}
+
+	/*
+	 * A method that returns the length of the shortest word that the given rule
+	 * body of nonterminal i derives, or Long.MAX_VALUE if the rule is
+	 * recursive.
+	 */
+	private static long minYieldLength(List<String> body, int i,
+			long[] minYieldLengths) {
+		long length = 0;
+		for (String literal : body) {
+			if (literal.equals("epsilon")) {
+				continue;
+			}
+			if (literal.startsWith("t")) {
+				++length;
+				continue;
+			}
+			int j = Integer.parseInt(literal.substring(1));
+			if (j == i) {
+				return Long.MAX_VALUE;
+			}
+			length = Math.min(Long.MAX_VALUE / 2, length + minYieldLengths[j]);
+		}
+		return length;
+	}
+
+}
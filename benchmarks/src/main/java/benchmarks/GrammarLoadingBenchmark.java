@@ -0,0 +1,67 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * Benchmarks of loading a grammar (parsing, compiling and analyzing it), of
+ * mapping it from the compiled grammar cache instead, and of the grammar's
+ * analysis pass alone (nullable, productive and reachable nonterminals,
+ * minimal yield lengths and FIRST sets).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GrammarLoadingBenchmark {
+
+	@Param({ "cfg1.txt", "cfg2.txt", "cfg3.txt", "cfg4.txt",
+			"synthetic:100:8", "synthetic:1000:32", "synthetic:10000:64" })
+	String grammar;
+
+	private File file;
+	private File cacheDirectory;
+	private Object cfg;
+
+	@Setup
+	public void setup() throws IOException {
+		file = Grammars.resolve(grammar);
+		cfg = TesterHandles.loadGrammar(file);
+		cacheDirectory = Files.createTempDirectory("grammar-cache").toFile();
+		cacheDirectory.deleteOnExit();
+		TesterHandles.cacheGrammar(cfg, file, cacheDirectory);
+	}
+
+	@Benchmark
+	public Object loadGrammar() {
+		return TesterHandles.loadGrammar(file);
+	}
+
+	@Benchmark
+	public Object loadCachedGrammar() {
+		return TesterHandles.loadCachedGrammar(file, cacheDirectory);
+	}
+
+	@Benchmark
+	public Object analyzeGrammar() {
+		TesterHandles.analyzeGrammar(cfg);
+		return cfg;
+	}
+
+}
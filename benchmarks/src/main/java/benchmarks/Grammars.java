@@ -0,0 +1,29 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+
+/*
+ * A class that resolves the grammar parameters of the benchmarks to grammar
+ * files. A parameter is either the name of a grammar file, which is looked up
+ * in the directory given by the "grammar.dir" system property (the current
+ * directory by default, so the benchmarks should run from the repository's
+ * root directory), or "synthetic:" followed by the specification of a
+ * synthetic grammar (see the GrammarGenerator.fromSpec method), for example
+ * "synthetic:100:8".
+ */
+class Grammars {
+
+	private Grammars() {
+	}
+
+	/* A method that returns the grammar file of the given parameter. */
+	static File resolve(String grammar) throws IOException {
+		if (!grammar.startsWith("synthetic:")) {
+			return new File(System.getProperty("grammar.dir", "."), grammar);
+		}
+		return GrammarGenerator.fromSpec(grammar.substring("synthetic:".length()))
+				.writeTemporaryFile();
+	}
+
+}
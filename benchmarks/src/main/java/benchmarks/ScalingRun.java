@@ -0,0 +1,167 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * A program that runs the whole ambiguity test (testGrammar) on a corpus of
+ * synthetic grammars of growing sizes, and records the time and the memory
+ * every test took in a CSV file, so the growth curve of testGrammar can be
+ * tracked between versions. Every size is generated twice, as a provably
+ * unambiguous grammar and as a grammar with a planted ambiguity (see the
+ * GrammarGenerator class), so the verdicts are checked too.
+ *
+ * Usage (from the repository's root directory):
+ *     java -cp benchmarks/target/benchmarks.jar benchmarks.ScalingRun
+ *             [csvFile [maxWordLength [numOfTerminals [shape [engine [sizes...]]]]]]
+ * The defaults are scaling.csv, 4, 8, RIGHT, DERIVATION_SEARCH and the sizes
+ * 10 30 100 300 1000 3000 (numbers of nonterminals).
+ */
+public class ScalingRun {
+
+	/* The number of bytes of the tester's output that are kept. */
+	private static final int OUTPUT_TAIL_SIZE = 4096;
+
+	public static void main(String[] args) throws IOException {
+		String csvFile = args.length > 0 ? args[0] : "scaling.csv";
+		int maxWordLength = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+		int numOfTerminals = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+		GrammarGenerator.RecursionShape shape = args.length > 3 ? GrammarGenerator.RecursionShape
+				.valueOf(args[3]) : GrammarGenerator.RecursionShape.RIGHT;
+		String engine = args.length > 4 ? args[4] : "DERIVATION_SEARCH";
+		List<Integer> sizes = new ArrayList<>();
+		for (int i = 5; i < args.length; ++i) {
+			sizes.add(Integer.parseInt(args[i]));
+		}
+		if (sizes.isEmpty()) {
+			sizes = List.of(10, 30, 100, 300, 1000, 3000);
+		}
+		try (PrintWriter csv = new PrintWriter(new FileWriter(csvFile))) {
+			csv.println("nonterminals,terminals,rules,shape,ambiguity,"
+					+ "shortestAmbiguousWordLength,expectedVerdict,verdict,"
+					+ "millis,allocatedBytes,peakHeapBytes");
+			for (int size : sizes) {
+				for (GrammarGenerator.Ambiguity ambiguity : List.of(
+						GrammarGenerator.Ambiguity.UNAMBIGUOUS,
+						GrammarGenerator.Ambiguity.AMBIGUOUS)) {
+					GrammarGenerator generator = new GrammarGenerator(size,
+							numOfTerminals);
+					generator.setRecursionShape(shape);
+					generator.setAmbiguity(ambiguity);
+					File file = generator.writeTemporaryFile();
+					int shortestLength = generator
+							.getShortestAmbiguousWordLength();
+					String expectedVerdict = (shortestLength >= 0 && shortestLength <= maxWordLength) ? "ambiguous"
+							: "not ambiguous";
+					String line = size + "," + numOfTerminals + ","
+							+ generator.getNumOfRules() + "," + shape + ","
+							+ ambiguity + "," + shortestLength + ","
+							+ expectedVerdict + ","
+							+ run(file, maxWordLength, engine);
+					csv.println(line);
+					csv.flush();
+					System.out.println(line);
+					file.delete();
+				}
+			}
+		}
+	}
+
+	/*
+	 * A method that runs the ambiguity test of the given grammar file, and
+	 * returns its verdict, time, allocated bytes and peak heap usage, as CSV
+	 * fields. The tester's output is dropped, except for its last bytes, which
+	 * hold the verdict.
+	 */
+	private static String run(File file, int maxWordLength, String engine) {
+		Object options = TesterHandles.newOptions(engine);
+		System.gc();
+		List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				pool.resetPeakUsage();
+				heapPools.add(pool);
+			}
+		}
+		long allocatedBytes = -allocatedBytes();
+		OutputTail output = new OutputTail();
+		PrintStream standardOutput = System.out;
+		System.setOut(new PrintStream(output, false, StandardCharsets.UTF_8));
+		long start = System.nanoTime();
+		try {
+			TesterHandles.testGrammar(file.getPath(), maxWordLength, options);
+		} finally {
+			System.setOut(standardOutput);
+		}
+		long millis = (System.nanoTime() - start) / 1000000;
+		allocatedBytes += allocatedBytes();
+		long peakHeapBytes = 0;
+		for (MemoryPoolMXBean pool : heapPools) {
+			peakHeapBytes += pool.getPeakUsage().getUsed();
+		}
+		return verdict(output.toString()) + "," + millis + "," + allocatedBytes
+				+ "," + peakHeapBytes;
+	}
+
+	/* A method that finds the verdict in the end of the tester's output. */
+	private static String verdict(String output) {
+		if (output.contains("This grammar is ambiguous")) {
+			return "ambiguous";
+		}
+		if (output.contains("This grammar is not ambiguous")) {
+			return "not ambiguous";
+		}
+		if (output.contains("inconclusive")) {
+			return "inconclusive";
+		}
+		return "unknown";
+	}
+
+	/*
+	 * A method that returns the number of bytes the current thread allocated
+	 * so far, or 0 if the JVM can't tell.
+	 */
+	private static long allocatedBytes() {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) threads)
+					.getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return 0;
+	}
+
+	/* An output stream that only keeps the last bytes written to it. */
+	private static class OutputTail extends OutputStream {
+
+		private byte[] tail = new byte[OUTPUT_TAIL_SIZE];
+		private long size;
+
+		@Override
+		public void write(int b) {
+			tail[(int) (size++ % tail.length)] = (byte) b;
+		}
+
+		@Override
+		public String toString() {
+			int length = (int) Math.min(size, tail.length);
+			byte[] bytes = new byte[length];
+			for (int i = 0; i < length; ++i) {
+				bytes[i] = tail[(int) ((size - length + i) % tail.length)];
+			}
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+
+	}
+
+}
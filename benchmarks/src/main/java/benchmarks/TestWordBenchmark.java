@@ -0,0 +1,79 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * A benchmark of testing a single word (counting its left derivations), per
+ * grammar, word length and engine. Every invocation tests the next word of
+ * the given length, in the vocabulary's order, so the score is the average
+ * time per word over all the words of that length (or over the first
+ * MAX_WORDS of them).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TestWordBenchmark {
+
+	/* The maximal number of words of a single length that are tested. */
+	private static final int MAX_WORDS = 1 << 16;
+
+	@Param({ "cfg1.txt", "cfg2.txt", "cfg3.txt", "cfg4.txt",
+			"synthetic:100:8", "synthetic:100:8:LEFT:0.2:UNAMBIGUOUS" })
+	String grammar;
+
+	@Param({ "1", "2", "3", "4", "5", "6" })
+	int wordLength;
+
+	@Param({ "DERIVATION_SEARCH", "CHART" })
+	String engine;
+
+	private List<int[]> words = new ArrayList<>();
+	private int nextWord;
+	private Object counter;
+
+	@Setup
+	public void setup() throws IOException {
+		Object cfg = TesterHandles.loadGrammar(Grammars.resolve(grammar));
+		int[] tokenIds = TesterHandles.getTerminalIds(cfg);
+		if (tokenIds.length == 0) { // The only word is epsilon.
+			words.add(new int[0]);
+		} else {
+			Object generator = TesterHandles.newVocabularyGenerator(tokenIds);
+			int[] word = TesterHandles.nextWord(generator);
+			while (word.length <= wordLength && words.size() < MAX_WORDS) {
+				if (word.length == wordLength) {
+					words.add(word.clone());
+				}
+				word = TesterHandles.nextWord(generator);
+			}
+		}
+		counter = TesterHandles.createCounter(cfg, engine);
+	}
+
+	@Benchmark
+	public int testWord() {
+		int[] word = words.get(nextWord);
+		nextWord = (nextWord + 1) % words.size();
+		return TesterHandles.countDerivations(counter, word,
+				new ArrayList<int[]>());
+	}
+
+}
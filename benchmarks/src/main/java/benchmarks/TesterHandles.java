@@ -0,0 +1,251 @@
+package benchmarks;
+
+import java.io.File;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.List;
+
+/*
+ * A class that gives the benchmarks access to the tester's classes. The tester
+ * is written in the default package, which can't be imported from a named
+ * package (and JMH doesn't accept benchmarks in the default package), so its
+ * classes are reached through method handles. The handles are constants, so
+ * the JIT compiler inlines them like direct calls. Every instance of a
+ * tester's class is passed around as an Object.
+ */
+class TesterHandles {
+
+	/*
+	 * The maximal number of derivation steps for a single word, so a search
+	 * that blows up on a synthetic grammar can't stall a benchmark.
+	 */
+	static final long MAX_DERIVATION_STEPS = 1000000;
+
+	private static final MethodHandle NEW_CFG;
+	private static final MethodHandle ANALYZE;
+	private static final MethodHandle READ_CACHED_GRAMMAR;
+	private static final MethodHandle WRITE_CACHED_GRAMMAR;
+	private static final MethodHandle GET_TERMINAL_IDS;
+	private static final MethodHandle NEW_VOCABULARY_GENERATOR;
+	private static final MethodHandle NEXT_WORD;
+	private static final MethodHandle NEW_OPTIONS;
+	private static final MethodHandle SET_ENGINE;
+	private static final MethodHandle SET_MAX_DERIVATION_STEPS;
+	private static final MethodHandle CREATE_COUNTER;
+	private static final MethodHandle COUNT_DERIVATIONS;
+	private static final MethodHandle TEST_GRAMMAR;
+	private static final Class<?> ENGINE;
+
+	static {
+		try {
+			Class<?> cfg = Class.forName("CFG");
+			Class<?> vocabularyGenerator = Class.forName("VocabularyGenerator");
+			Class<?> options = Class.forName("TesterOptions");
+			Class<?> counter = Class.forName("DerivationCounter");
+			ENGINE = Class.forName("TesterOptions$Engine");
+			NEW_CFG = unreflect(cfg.getDeclaredConstructor(File.class));
+			ANALYZE = unreflect(cfg.getDeclaredMethod("analyze"));
+			Class<?> cache = Class.forName("CompiledGrammarCache");
+			READ_CACHED_GRAMMAR = unreflect(cache.getDeclaredMethod("read",
+					File.class, File.class));
+			WRITE_CACHED_GRAMMAR = unreflect(cache.getDeclaredMethod("write",
+					cfg, File.class, File.class));
+			GET_TERMINAL_IDS = unreflect(cfg.getDeclaredMethod("getTerminalIds"));
+			NEW_VOCABULARY_GENERATOR = unreflect(vocabularyGenerator
+					.getDeclaredConstructor(int[].class));
+			NEXT_WORD = unreflect(vocabularyGenerator
+					.getDeclaredMethod("nextWord"));
+			NEW_OPTIONS = unreflect(options.getDeclaredConstructor());
+			SET_ENGINE = unreflect(options.getDeclaredMethod("setEngine",
+					ENGINE));
+			SET_MAX_DERIVATION_STEPS = unreflect(options.getDeclaredMethod(
+					"setMaxDerivationSteps", long.class));
+			CREATE_COUNTER = unreflect(Class.forName("GrammarAmbiguityTester")
+					.getDeclaredMethod("createCounter", cfg, options));
+			COUNT_DERIVATIONS = unreflect(counter.getDeclaredMethod(
+					"countDerivations", int[].class, List.class));
+			TEST_GRAMMAR = unreflect(Class.forName("GrammarAmbiguityTester")
+					.getDeclaredMethod("testGrammar", String.class, int.class,
+							options));
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	private TesterHandles() {
+	}
+
+	/* A method that loads, compiles and analyzes the given grammar file. */
+	static Object loadGrammar(File file) {
+		try {
+			return (Object) NEW_CFG.invokeExact(file);
+		} catch (Throwable t) {
+			throw rethrow(t);
+		}
+	}
+
+	/*
+	 * A method that writes the given grammar, which was loaded from the given
+	 * file, to the compiled grammar cache in the given directory.
+	 */
+	static void cacheGrammar(Object cfg, File file, File cacheDirectory) {
+		try {
+			WRITE_CACHED_GRAMMAR.invokeExact(cfg, file, cacheDirectory);
+		} catch (Throwable t) {
+			throw rethrow(t);
+		}
+	}
+
+	/*
+	 * A method that maps the given grammar file's compiled grammar from the
+	 * cache in the given directory, or returns null if it's not there.
+	 */
+	static Object loadCachedGrammar(File file, File cacheDirectory) {
+		try {
+			return (Object) READ_CACHED_GRAMMAR.invokeExact(file, cacheDirectory);
+		} catch (Throwable t) {
+			throw rethrow(t);
+		}
+	}
+
+	/*
+	 * A method that runs the grammar's analysis pass again (nullable,
+	 * productive, reachable, minimal yield lengths and FIRST sets). The useless
+	 * rules were already dropped when the grammar was loaded, so the analysis
+	 * doesn't change the grammar.
+	 */
+	static void analyzeGrammar(Object cfg) {
+		try {
+			ANALYZE.invokeExact(cfg);
+		} catch (Throwable t) {
+			throw rethrow(t);
+		}
+	}
+
+	/* A method that returns the ids of the grammar's terminals. */
+	static int[] getTerminalIds(Object cfg) {
+		try {
+			return (int[]) GET_TERMINAL_IDS.invokeExact(cfg);
+		} catch (Throwable t) {
+			throw rethrow(t);
+		}
+	}
+
+	/* A method that creates a vocabulary generator over the given tokens. */
+	static Object newVocabularyGenerator(int[] tokenIds) {
+		try {
+			return (Object) NEW_VOCABULARY_GENERATOR.invokeExact(tokenIds);
+		} catch (Throwable t) {
+			throw rethrow(t);
+		}
+	}
+
+	/* A method that returns the next word of the given vocabulary generator. */
+	static int[] nextWord(Object generator) {
+		try {
+			return (int[]) NEXT_WORD.invokeExact(generator);
+		} catch (Throwable t) {
+			throw rethrow(t);
+		}
+	}
+
+	/*
+	 * A method that creates the test's options, with the given engine (the
+	 * name of a TesterOptions.Engine constant) and MAX_DERIVATION_STEPS.
+	 */
+	static Object newOptions(String engine) {
+		try {
+			Object options = (Object) NEW_OPTIONS.invokeExact();
+			SET_ENGINE.invokeExact(options, engineConstant(engine));
+			SET_MAX_DERIVATION_STEPS.invokeExact(options, MAX_DERIVATION_STEPS);
+			return options;
+		} catch (Throwable t) {
+			throw rethrow(t);
+		}
+	}
+
+	/*
+	 * A method that creates the derivation counter of the given engine for
+	 * the given grammar.
+	 */
+	static Object createCounter(Object cfg, String engine) {
+		try {
+			return (Object) CREATE_COUNTER.invokeExact(cfg, newOptions(engine));
+		} catch (Throwable t) {
+			throw rethrow(t);
+		}
+	}
+
+	/* A method that runs the whole ambiguity test, with the given options. */
+	static void testGrammar(String filePath, int maxWordLengthToCheck,
+			Object options) {
+		try {
+			TEST_GRAMMAR.invokeExact(filePath, maxWordLengthToCheck, options);
+		} catch (Throwable t) {
+			throw rethrow(t);
+		}
+	}
+
+	/*
+	 * A method that counts the left derivations of the given word, as the
+	 * tester's word loop does.
+	 */
+	static int countDerivations(Object counter, int[] word,
+			List<int[]> leftDerivationsFound) {
+		try {
+			return (int) COUNT_DERIVATIONS.invokeExact(counter, word,
+					leftDerivationsFound);
+		} catch (Throwable t) {
+			throw rethrow(t);
+		}
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static Object engineConstant(String engine) {
+		return Enum.valueOf((Class) ENGINE, engine);
+	}
+
+	/*
+	 * A method that makes the given constructor or method accessible, and
+	 * returns a handle to it in which every tester's class is replaced with
+	 * Object.
+	 */
+	private static MethodHandle unreflect(AccessibleObject member)
+			throws IllegalAccessException {
+		member.setAccessible(true);
+		MethodHandles.Lookup lookup = MethodHandles.lookup();
+		MethodHandle handle = (member instanceof Constructor) ? lookup
+				.unreflectConstructor((Constructor<?>) member) : lookup
+				.unreflect((Method) member);
+		MethodType type = handle.type();
+		for (int i = 0; i < type.parameterCount(); ++i) {
+			if (isTesterClass(type.parameterType(i))) {
+				type = type.changeParameterType(i, Object.class);
+			}
+		}
+		if (isTesterClass(type.returnType())) {
+			type = type.changeReturnType(Object.class);
+		}
+		return handle.asType(type);
+	}
+
+	private static boolean isTesterClass(Class<?> type) {
+		return !type.isPrimitive() && !type.isArray()
+				&& type.getPackageName().isEmpty();
+	}
+
+	private static RuntimeException rethrow(Throwable t) {
+		if (t instanceof RuntimeException) {
+			return (RuntimeException) t;
+		}
+		if (t instanceof Error) {
+			throw (Error) t;
+		}
+		return new IllegalStateException(t);
+	}
+
+}
@@ -0,0 +1,56 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * A benchmark of the throughput of VocabularyGenerator.nextWord. The generator
+ * starts over once its words get longer than maxWordLength, so the measured
+ * words have the lengths the tester usually checks.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VocabularyBenchmark {
+
+	@Param({ "cfg1.txt", "cfg2.txt", "cfg3.txt", "synthetic:100:32" })
+	String grammar;
+
+	@Param({ "6" })
+	int maxWordLength;
+
+	private int[] tokenIds;
+	private Object generator;
+
+	@Setup
+	public void setup() throws IOException {
+		tokenIds = TesterHandles.getTerminalIds(TesterHandles
+				.loadGrammar(Grammars.resolve(grammar)));
+		generator = TesterHandles.newVocabularyGenerator(tokenIds);
+	}
+
+	@Benchmark
+	public int[] nextWord() {
+		int[] word = TesterHandles.nextWord(generator);
+		if (word.length > maxWordLength) {
+			generator = TesterHandles.newVocabularyGenerator(tokenIds);
+		}
+		return word;
+	}
+
+}
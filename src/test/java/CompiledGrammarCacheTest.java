@@ -0,0 +1,69 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/*
+ * Tests of the binary form of the compiled grammars (see the
+ * CompiledGrammarCache class and the CFG.read method).
+ */
+class CompiledGrammarCacheTest {
+
+	/* The offset of the grammar in a snapshot, after its magic and version. */
+	private static final int GRAMMAR_OFFSET = 8;
+
+	@Test
+	void snapshotIsReadBack(@TempDir Path directory) throws IOException {
+		CFG cfg = new CFG(new File("cfg1.txt"));
+		File snapshot = directory.resolve("cfg1.grammar").toFile();
+		CompiledGrammarCache.writeSnapshot(cfg, snapshot);
+		CFG read = CompiledGrammarCache.readSnapshot(snapshot);
+		assertNotNull(read);
+		assertEquals(cfg.getCanonicalHash(), read.getCanonicalHash());
+	}
+
+	/*
+	 * A damaged length is rejected before its array is allocated, so the
+	 * grammar is compiled again instead of running out of memory.
+	 */
+	@Test
+	void damagedLengthIsRejected(@TempDir Path directory) throws IOException {
+		File snapshot = directory.resolve("cfg1.grammar").toFile();
+		CompiledGrammarCache.writeSnapshot(new CFG(new File("cfg1.txt")),
+				snapshot);
+		byte[] bytes = Files.readAllBytes(snapshot.toPath());
+		ByteBuffer.wrap(bytes).putInt(GRAMMAR_OFFSET, Integer.MAX_VALUE);
+		Files.write(snapshot.toPath(), bytes);
+		assertNull(CompiledGrammarCache.readSnapshot(snapshot));
+	}
+
+	/*
+	 * Whichever int of the grammar is damaged, the snapshot is either read or
+	 * rejected, and reading it never throws.
+	 */
+	@Test
+	void damagedSnapshotNeverThrows(@TempDir Path directory)
+			throws IOException {
+		File snapshot = directory.resolve("cfg1.grammar").toFile();
+		CompiledGrammarCache.writeSnapshot(new CFG(new File("cfg1.txt")),
+				snapshot);
+		byte[] bytes = Files.readAllBytes(snapshot.toPath());
+		assertTrue(bytes.length > GRAMMAR_OFFSET);
+		for (int offset = GRAMMAR_OFFSET; offset + 4 <= bytes.length; ++offset) {
+			byte[] damaged = bytes.clone();
+			ByteBuffer.wrap(damaged).putInt(offset, Integer.MAX_VALUE);
+			Files.write(snapshot.toPath(), damaged);
+			CompiledGrammarCache.readSnapshot(snapshot);
+		}
+	}
+
+}
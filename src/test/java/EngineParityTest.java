@@ -0,0 +1,174 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/*
+ * Tests that every engine (see the TesterOptions.Engine enum) reaches the same
+ * verdict, and the same ambiguous word, on the example grammars and on
+ * grammars with cycles and nullable rules. Every engine has to decide them on
+ * its own, without falling back to the chart.
+ */
+class EngineParityTest {
+
+	/* The maximal word length of the tests. */
+	private static final int MAX_LENGTH = 5;
+
+	@ParameterizedTest
+	@EnumSource(TesterOptions.Engine.class)
+	void cfg1IsProvedNotAmbiguous(TesterOptions.Engine engine) {
+		Result result = test("cfg1.txt", engine, true);
+		assertEquals(ResultSink.Verdict.PROVED_NOT_AMBIGUOUS, result.verdict);
+	}
+
+	/* Without the static check, the engine itself has to test the words. */
+	@ParameterizedTest
+	@EnumSource(TesterOptions.Engine.class)
+	void cfg1IsNotAmbiguousWithoutStaticCheck(TesterOptions.Engine engine) {
+		Result result = test("cfg1.txt", engine, false);
+		assertEquals(ResultSink.Verdict.NOT_AMBIGUOUS, result.verdict);
+	}
+
+	@ParameterizedTest
+	@EnumSource(TesterOptions.Engine.class)
+	void cfg2IsNotAmbiguous(TesterOptions.Engine engine) {
+		Result result = test("cfg2.txt", engine, true);
+		assertEquals(ResultSink.Verdict.NOT_AMBIGUOUS, result.verdict);
+	}
+
+	@ParameterizedTest
+	@EnumSource(TesterOptions.Engine.class)
+	void cfg3IsAmbiguous(TesterOptions.Engine engine) {
+		assertAmbiguous(test("cfg3.txt", engine, true), "0 1 2");
+	}
+
+	@ParameterizedTest
+	@EnumSource(TesterOptions.Engine.class)
+	void cfg4IsAmbiguous(TesterOptions.Engine engine) {
+		assertAmbiguous(test("cfg4.txt", engine, true), "epsilon");
+	}
+
+	/* A word that a cycle derives has infinitely many left derivations. */
+	@ParameterizedTest
+	@EnumSource(TesterOptions.Engine.class)
+	void cyclicGrammarIsAmbiguous(TesterOptions.Engine engine,
+			@TempDir Path directory) throws IOException {
+		File file = write(directory, "S -> S | a\n");
+		assertAmbiguous(test(file.getPath(), engine, true), "a");
+	}
+
+	@ParameterizedTest
+	@EnumSource(TesterOptions.Engine.class)
+	void nullableRulesAreNotAmbiguous(TesterOptions.Engine engine,
+			@TempDir Path directory) throws IOException {
+		File file = write(directory, "S -> A b A\nA -> a | epsilon\n");
+		Result result = test(file.getPath(), engine, false);
+		assertEquals(ResultSink.Verdict.NOT_AMBIGUOUS, result.verdict);
+	}
+
+	/* Either of the two A's can derive the a. */
+	@ParameterizedTest
+	@EnumSource(TesterOptions.Engine.class)
+	void nullableRulesAreAmbiguous(TesterOptions.Engine engine,
+			@TempDir Path directory) throws IOException {
+		File file = write(directory, "S -> A A b\nA -> a | epsilon\n");
+		assertAmbiguous(test(file.getPath(), engine, true), "a b");
+	}
+
+	/*
+	 * A method that checks that the test found the given ambiguous word, with
+	 * two different left derivations.
+	 */
+	private static void assertAmbiguous(Result result, String word) {
+		assertEquals(ResultSink.Verdict.AMBIGUOUS, result.verdict);
+		assertEquals(word, result.ambiguousWord);
+		assertEquals(2, result.leftDerivationsFound.size());
+		assertFalse(Arrays.equals(result.leftDerivationsFound.get(0),
+				result.leftDerivationsFound.get(1)));
+	}
+
+	/*
+	 * A method that tests the given grammar file with the given engine, and
+	 * returns its result. The engine must not fall back to another one, which
+	 * it reports as a message.
+	 */
+	private static Result test(String filePath, TesterOptions.Engine engine,
+			boolean staticCheck) {
+		TesterOptions options = new TesterOptions();
+		options.setEngine(engine);
+		options.setStaticCheck(staticCheck);
+		Result result = new Result();
+		GrammarAmbiguityTester.testGrammar(filePath, MAX_LENGTH, options,
+				result);
+		assertTrue(result.messages.isEmpty(), result.messages.toString());
+		return result;
+	}
+
+	/* A method that writes a grammar file with the given rules. */
+	private static File write(Path directory, String rules) throws IOException {
+		File file = Files.createTempFile(directory, "grammar", ".txt").toFile();
+		Files.writeString(file.toPath(), rules);
+		return file;
+	}
+
+	/* A sink that keeps the verdict and the ambiguous word of a test. */
+	private static class Result implements ResultSink {
+
+		private CFG cfg;
+		private List<String> messages = new ArrayList<>();
+		private Verdict verdict;
+		private String ambiguousWord;
+		private List<int[]> leftDerivationsFound = new ArrayList<>();
+
+		@Override
+		public void start(CFG cfg) {
+			this.cfg = cfg;
+		}
+
+		@Override
+		public void message(String message) {
+			messages.add(message);
+		}
+
+		@Override
+		public void note(String note) {
+		}
+
+		@Override
+		public void wordTested(int[] word, int result,
+				String inconclusiveReason, List<int[]> leftDerivationsFound) {
+		}
+
+		@Override
+		public void wordLengthTested(int length) {
+		}
+
+		@Override
+		public void ambiguousWord(int[] word, List<int[]> leftDerivationsFound) {
+			ambiguousWord = GrammarAmbiguityTester.buildWord(cfg, word);
+			this.leftDerivationsFound = new ArrayList<>(leftDerivationsFound);
+		}
+
+		@Override
+		public void verdict(Verdict verdict, long numOfInconclusiveWords) {
+			this.verdict = verdict;
+		}
+
+		@Override
+		public void close() {
+		}
+
+	}
+
+}
@@ -0,0 +1,102 @@
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/*
+ * Tests of the reuse of a previous version's results, when a tested grammar
+ * file is edited (see the GrammarChange and Checkpoint classes).
+ */
+class GrammarChangeTest {
+
+	/*
+	 * Moving another nonterminal's line to the top of the file keeps all the
+	 * rules, but changes the starting nonterminal, and with it the language:
+	 * b has two left derivations from S, but no word has two from A.
+	 */
+	@Test
+	void startSymbolChangeTestsEveryWordAgain(@TempDir Path directory)
+			throws IOException {
+		File grammarFile = directory.resolve("grammar.txt").toFile();
+		File checkpointDirectory = directory.resolve("checkpoints").toFile();
+		Files.writeString(grammarFile.toPath(),
+				"A -> c S c\nS -> b | B\nB -> b\n");
+		String output = test(grammarFile, checkpointDirectory, 2);
+		assertTrue(output.contains("This grammar is not ambiguous!!!"), output);
+		Files.writeString(grammarFile.toPath(),
+				"S -> b | B\nA -> c S c\nB -> b\n");
+		output = test(grammarFile, checkpointDirectory, 2);
+		assertFalse(output.contains("Reused the results"), output);
+		assertTrue(output.contains("This grammar is ambiguous!!!"), output);
+	}
+
+	/*
+	 * A version that was found ambiguous at a short length doesn't hide the
+	 * version before it, which was tested up to a larger length: the next
+	 * version reuses the results of the one that was tested further.
+	 */
+	@Test
+	void mostTestedVersionIsReused(@TempDir Path directory)
+			throws IOException {
+		File grammarFile = directory.resolve("grammar.txt").toFile();
+		File checkpointDirectory = directory.resolve("checkpoints").toFile();
+		Files.writeString(grammarFile.toPath(),
+				"S -> a S a | b S b | a | b | c\n");
+		String output = test(grammarFile, checkpointDirectory, 4);
+		assertTrue(output.contains("This grammar is not ambiguous!!!"), output);
+		Files.writeString(grammarFile.toPath(),
+				"S -> a S a | b S b | a | b | c | a b a\n");
+		output = test(grammarFile, checkpointDirectory, 4);
+		assertTrue(output.contains("This grammar is ambiguous!!!"), output);
+		Files.writeString(grammarFile.toPath(),
+				"S -> a S a | b S b | a | b | c | c c c c\n");
+		output = test(grammarFile, checkpointDirectory, 4);
+		assertTrue(output.contains("last tested up to length 4"), output);
+		assertTrue(output.contains("This grammar is not ambiguous!!!"), output);
+	}
+
+	/*
+	 * The starting nonterminals are compared by their names, not by their
+	 * ids.
+	 */
+	@Test
+	void startSymbolsAreComparedByName(@TempDir Path directory)
+			throws IOException {
+		CFG previous = load(directory, "A -> c S c\nS -> b | B\nB -> b\n");
+		CFG reordered = load(directory, "A -> c S c\nB -> b\nS -> b | B\n");
+		CFG restarted = load(directory, "S -> b | B\nA -> c S c\nB -> b\n");
+		assertTrue(GrammarChange.hasSameStartSymbol(previous, reordered));
+		assertFalse(GrammarChange.hasSameStartSymbol(previous, restarted));
+	}
+
+	/*
+	 * A method that tests the given grammar file up to the given length, with
+	 * its progress kept in the given directory, and returns the test's output.
+	 */
+	private static String test(File grammarFile, File checkpointDirectory,
+			int maxLength) {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		TesterOptions options = new TesterOptions();
+		options.setCheckpointDirectory(checkpointDirectory);
+		options.setOutput(new PrintStream(output, true));
+		GrammarAmbiguityTester.testGrammar(grammarFile.getPath(), maxLength,
+				options);
+		return output.toString();
+	}
+
+	/* A method that compiles a grammar with the given rules. */
+	private static CFG load(Path directory, String rules) throws IOException {
+		File file = Files.createTempFile(directory, "grammar", ".txt").toFile();
+		Files.writeString(file.toPath(), rules);
+		return new CFG(file);
+	}
+
+}
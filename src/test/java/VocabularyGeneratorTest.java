@@ -0,0 +1,47 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/*
+ * Tests of the ranks of the vocabulary's words (see the VocabularyGenerator
+ * class).
+ */
+class VocabularyGeneratorTest {
+
+	/* The ids of the tokens, which don't have to be consecutive. */
+	private static final int[] TOKENS = { 7, 3, 12 };
+
+	/* Ranking the word of a rank gives the rank back. */
+	@Test
+	void rankIsTheInverseOfUnrank() {
+		VocabularyGenerator generator = new VocabularyGenerator(TOKENS);
+		for (int length = 0; length <= 5; ++length) {
+			int[] word = new int[length];
+			for (long rank = 0; rank < generator.getNumOfWords(length); ++rank) {
+				generator.unrank(rank, word);
+				assertEquals(rank, generator.rank(word));
+			}
+		}
+	}
+
+	/*
+	 * The rank of a word is its index among the words of its length, in the
+	 * order the generator generates them.
+	 */
+	@Test
+	void ranksFollowTheGeneratedOrder() {
+		VocabularyGenerator generator = new VocabularyGenerator(TOKENS);
+		VocabularyGenerator ranker = new VocabularyGenerator(TOKENS);
+		int[] word = generator.nextWord();
+		for (int length = 0; length <= 4; ++length) {
+			for (long rank = 0; rank < generator.getNumOfWords(length); ++rank) {
+				assertEquals(length, word.length);
+				assertEquals(rank, ranker.rank(word));
+				assertArrayEquals(word, ranker.moveTo(length, rank));
+				word = generator.nextWord();
+			}
+		}
+	}
+
+}